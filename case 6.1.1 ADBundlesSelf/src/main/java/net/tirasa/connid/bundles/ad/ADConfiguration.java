@@ -90,6 +90,12 @@ public final class ADConfiguration extends LdapConfiguration {
 
     private String defaultIdAttribute = "cn";
 
+    private MembershipResolution groupMembershipResolution = MembershipResolution.entry;
+
+    private long groupMembershipCacheTtl = 0;
+
+    private int parallelSearchThreads = 1;
+
     private final ObjectClassMappingConfig accountConfig = new ObjectClassMappingConfig(
             ObjectClass.ACCOUNT,
             CollectionUtil.newList("top", "person", "organizationalPerson", "user"),
@@ -404,6 +410,41 @@ public final class ADConfiguration extends LdapConfiguration {
         this.defaultIdAttribute = defaultIdAttribute;
     }
 
+    @ConfigurationProperty(order = 20,
+            displayMessageKey = "groupMembershipResolution.display",
+            helpMessageKey = "groupMembershipResolution.help")
+    public String getGroupMembershipResolution() {
+        return groupMembershipResolution.toString();
+    }
+
+    public void setGroupMembershipResolution(final String groupMembershipResolution) {
+        this.groupMembershipResolution = StringUtil.isBlank(groupMembershipResolution)
+                ? MembershipResolution.entry
+                : MembershipResolution.valueOf(groupMembershipResolution.toLowerCase());
+    }
+
+    @ConfigurationProperty(order = 21,
+            displayMessageKey = "groupMembershipCacheTtl.display",
+            helpMessageKey = "groupMembershipCacheTtl.help")
+    public long getGroupMembershipCacheTtl() {
+        return groupMembershipCacheTtl;
+    }
+
+    public void setGroupMembershipCacheTtl(final long groupMembershipCacheTtl) {
+        this.groupMembershipCacheTtl = groupMembershipCacheTtl;
+    }
+
+    @ConfigurationProperty(order = 22,
+            displayMessageKey = "parallelSearchThreads.display",
+            helpMessageKey = "parallelSearchThreads.help")
+    public int getParallelSearchThreads() {
+        return parallelSearchThreads;
+    }
+
+    public void setParallelSearchThreads(final int parallelSearchThreads) {
+        this.parallelSearchThreads = parallelSearchThreads;
+    }
+
     @Override
     public final void setUidAttribute(final String uidAttribute) {
         super.setUidAttribute(uidAttribute);
@@ -426,4 +467,17 @@ public final class ADConfiguration extends LdapConfiguration {
         subtree
 
     }
+
+    public enum MembershipResolution {
+
+        /**
+         * One group search per returned entry.
+         */
+        entry,
+        /**
+         * One group search per page of returned entries, members in OR.
+         */
+        bulk
+
+    }
 }
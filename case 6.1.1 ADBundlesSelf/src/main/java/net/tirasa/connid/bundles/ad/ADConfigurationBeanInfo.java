@@ -123,6 +123,15 @@ public class ADConfigurationBeanInfo extends SimpleBeanInfo {
             props.add(new PropertyDescriptor("groupMemberReferenceAttribute", ADConfiguration.class));
             // startSyncFromToday
             props.add(new PropertyDescriptor("startSyncFromToday", ADConfiguration.class));
+
+            // groupMembershipResolution
+            props.add(new PropertyDescriptor("groupMembershipResolution", ADConfiguration.class));
+
+            // groupMembershipCacheTtl
+            props.add(new PropertyDescriptor("groupMembershipCacheTtl", ADConfiguration.class));
+
+            // parallelSearchThreads
+            props.add(new PropertyDescriptor("parallelSearchThreads", ADConfiguration.class));
         } catch (IntrospectionException e) {
             LOG.error(e, "Failure retrieving properties");
             props.clear();
@@ -21,8 +21,15 @@ import static org.identityconnectors.common.StringUtil.isNotBlank;
 import com.sun.jndi.ldap.ctl.PasswordExpiredResponseControl;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.naming.AuthenticationException;
 import javax.naming.Context;
 import javax.naming.NamingException;
@@ -35,6 +42,7 @@ import javax.naming.ldap.LdapContext;
 import net.tirasa.adsddl.ntsd.controls.SDFlagsControl;
 import net.tirasa.connid.bundles.ad.schema.ADSchema;
 import net.tirasa.connid.bundles.ad.schema.ADSchemaMapping;
+import net.tirasa.connid.bundles.ad.util.GroupMembershipCache;
 import net.tirasa.connid.bundles.ad.util.TrustAllSocketFactory;
 import net.tirasa.connid.bundles.ldap.LdapConnection;
 import net.tirasa.connid.bundles.ldap.LdapConnection.AuthenticationResult;
@@ -63,10 +71,23 @@ public class ADConnection extends LdapConnection {
 
     private final ADConfiguration config;
 
+    private final GroupMembershipCache groupMembershipCache;
+
+    /**
+     * Parallel search threads and their contexts, created on first parallel search and kept until {@link #close()}.
+     */
+    private ExecutorService searchExecutor = null;
+
+    private BlockingQueue<LdapContext> searchContexts = null;
+
     public ADConnection(ADConfiguration config) {
         super(config);
         this.config = config;
         schema = new ADSchema(this);
+        groupMembershipCache = GroupMembershipCache.getInstance(
+                config.getHost() + ":" + config.getPort() + "|" + config.getPrincipal() + "|"
+                + Arrays.toString(config.getGroupBaseContexts()) + "|" + config.getGroupMemberReferenceAttribute(),
+                config.getGroupMembershipCacheTtl() * 1000L);
     }
 
     @Override
@@ -95,16 +116,94 @@ public class ADConnection extends LdapConnection {
         return schema;
     }
 
+    public GroupMembershipCache getGroupMembershipCache() {
+        return groupMembershipCache;
+    }
+
     public LdapContext getSyncContext(final Control[] control) {
         return cloneContext(control);
     }
 
+    /**
+     * @return executor of parallel searches, with {@code parallelSearchThreads} threads, shut down on close.
+     */
+    public synchronized ExecutorService getSearchExecutor() {
+        if (searchExecutor == null) {
+            final int threads = Math.max(config.getParallelSearchThreads(), 1);
+            searchContexts = new ArrayBlockingQueue<LdapContext>(threads);
+            searchExecutor = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+
+                private final AtomicInteger number = new AtomicInteger(0);
+
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "ADParallelSearch-" + number.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return searchExecutor;
+    }
+
+    /**
+     * Takes an idle search context, or creates one: search threads hold at most one context each, so that there
+     * are never more contexts than {@code parallelSearchThreads}.
+     *
+     * @return search context, to be given back by {@link #releaseSearchContext(LdapContext, boolean)}; null if it
+     * could not be created.
+     */
+    public LdapContext borrowSearchContext() {
+        final BlockingQueue<LdapContext> contexts;
+        synchronized (this) {
+            contexts = searchContexts;
+        }
+        final LdapContext ctx = contexts == null ? null : contexts.poll();
+        return ctx == null ? cloneContext(null) : ctx;
+    }
+
+    /**
+     * Gives back a search context.
+     *
+     * @param ctx search context
+     * @param broken whether the context failed and must be closed instead of reused
+     */
+    public void releaseSearchContext(final LdapContext ctx, final boolean broken) {
+        if (ctx == null) {
+            return;
+        }
+        final BlockingQueue<LdapContext> contexts;
+        synchronized (this) {
+            contexts = searchContexts;
+        }
+        if (broken || contexts == null || !contexts.offer(ctx)) {
+            quietClose(ctx);
+        }
+    }
+
     @Override
     public void close() {
+        final ExecutorService executor;
+        final BlockingQueue<LdapContext> contexts;
+        synchronized (this) {
+            executor = searchExecutor;
+            contexts = searchContexts;
+            searchExecutor = null;
+            searchContexts = null;
+        }
         try {
             super.close();
             quietClose(initCtx);
             quietClose(syncCtx);
+            if (executor != null) {
+                executor.shutdownNow();
+            }
+            if (contexts != null) {
+                LdapContext ctx;
+                while ((ctx = contexts.poll()) != null) {
+                    quietClose(ctx);
+                }
+            }
         } finally {
             initCtx = null;
             syncCtx = null;
@@ -27,6 +27,8 @@ import net.tirasa.connid.bundles.ad.crud.ADDelete;
 import net.tirasa.connid.bundles.ad.crud.ADUpdate;
 import net.tirasa.connid.bundles.ad.search.ADSearch;
 import net.tirasa.connid.bundles.ad.sync.ADSyncStrategy;
+import net.tirasa.connid.bundles.ad.util.ADUtilities;
+import net.tirasa.connid.bundles.ad.util.GroupMembershipCache;
 import net.tirasa.connid.bundles.ldap.LdapConnector;
 import net.tirasa.connid.bundles.ldap.commons.LdapConstants;
 import net.tirasa.connid.bundles.ldap.search.LdapFilter;
@@ -143,6 +145,9 @@ public class ADConnector extends LdapConnector {
     public void sync(final ObjectClass oclass, final SyncToken token,
                      final SyncResultsHandler handler, final OperationOptions options) {
 
+        // report memberships as they are now
+        conn.getGroupMembershipCache().invalidate();
+
         syncStrategy.sync(token, handler, options, oclass);
     }
 
@@ -177,7 +182,14 @@ public class ADConnector extends LdapConnector {
             attributes.add(AttributeBuilder.build("ldapGroups", ldapGroupsToBeAdded));
         }
 
-        return new ADCreate(conn, oclass, attributes, options).create();
+        Uid created = null;
+        try {
+            created = new ADCreate(conn, oclass, attributes, options).create();
+            return created;
+        } finally {
+            invalidateGroupMemberships(attributes,
+                    Collections.singletonList(created == null ? null : getEntryDN(oclass, created)));
+        }
     }
 
     @Override
@@ -215,7 +227,17 @@ public class ADConnector extends LdapConnector {
             }
         }
 
-        return new ADUpdate(conn, oclass, uid).update(attributes);
+        // entry DN before rename
+        final String entryDN = getEntryDN(oclass, uid);
+
+        Uid updated = null;
+        try {
+            updated = new ADUpdate(conn, oclass, uid).update(attributes);
+            return updated;
+        } finally {
+            invalidateGroupMemberships(attributes,
+                    Arrays.asList(entryDN, updated == null ? null : getEntryDN(oclass, updated)));
+        }
     }
 
     @Override
@@ -228,7 +250,59 @@ public class ADConnector extends LdapConnector {
             throw new IllegalStateException("Delete operation not permitted");
         }
 
-        new ADDelete(conn, oclass, uid).delete();
+        final String entryDN = getEntryDN(oclass, uid);
+
+        try {
+            new ADDelete(conn, oclass, uid).delete();
+        } finally {
+            invalidateGroupMemberships(null, Collections.singletonList(entryDN));
+        }
+    }
+
+    /**
+     * @param oclass object class.
+     * @param uid entry uid.
+     * @return DN of the entry, null if not found or if group membership cache is disabled.
+     */
+    private String getEntryDN(final ObjectClass oclass, final Uid uid) {
+        if (!conn.getGroupMembershipCache().isEnabled()) {
+            return null;
+        }
+
+        try {
+            return new ADUtilities(conn).getDnByGuid(uid.getUidValue(), oclass);
+        } catch (RuntimeException e) {
+            LOG.ok(e, "Could not find DN of {0}", uid.getUidValue());
+            return null;
+        }
+    }
+
+    /**
+     * Invalidate cached group memberships of the changed entries (the entry itself, members cached in it if a group,
+     * members given in attributes); invalidate all if any changed entry DN is unknown.
+     *
+     * @param attrs attributes sent to the directory, if any.
+     * @param entryDNs DNs of the changed entry, null if unknown.
+     */
+    private void invalidateGroupMemberships(final Set<Attribute> attrs, final List<String> entryDNs) {
+        final GroupMembershipCache cache = conn.getGroupMembershipCache();
+
+        if (entryDNs.contains(null)) {
+            cache.invalidate();
+            return;
+        }
+
+        final Set<String> dns = new HashSet<String>(entryDNs);
+        final Attribute members = attrs == null
+                ? null : AttributeUtil.find(config.getGroupMemberReferenceAttribute(), attrs);
+        if (members != null && members.getValue() != null) {
+            for (Object member : members.getValue()) {
+                if (member != null) {
+                    dns.add(member.toString());
+                }
+            }
+        }
+        cache.invalidate(dns);
     }
 
     @Override
@@ -123,7 +123,7 @@ public class ADDefaultSearchStrategy extends DefaultSearchStrategy {
         }
     }
 
-    private byte[] getResponseCookie(final Control[] controls) {
+    protected byte[] getResponseCookie(final Control[] controls) {
         if (controls != null) {
             for (Control control : controls) {
                 if (control instanceof PagedResultsResponseControl) {
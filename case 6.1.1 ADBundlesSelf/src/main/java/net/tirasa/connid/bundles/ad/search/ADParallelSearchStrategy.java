@@ -0,0 +1,258 @@
+/**
+ * Copyright (C) 2011 ConnId (connid-dev@googlegroups.com)
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tirasa.connid.bundles.ad.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.naming.CommunicationException;
+import javax.naming.InvalidNameException;
+import javax.naming.NameNotFoundException;
+import javax.naming.NamingEnumeration;
+import javax.naming.NamingException;
+import javax.naming.directory.SearchControls;
+import javax.naming.directory.SearchResult;
+import javax.naming.ldap.Control;
+import javax.naming.ldap.LdapContext;
+import javax.naming.ldap.PagedResultsControl;
+import net.tirasa.connid.bundles.ad.ADConnection;
+import net.tirasa.connid.bundles.ldap.search.LdapSearchResultsHandler;
+import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+
+/**
+ * Search base contexts in parallel, each one on a context of its own. Threads and contexts belong to the
+ * {@link ADConnection}: they are kept across searches, bounded by the number of threads, and released on connection
+ * close. Results are passed to the handler on the calling thread, through a bounded queue: searches are suspended
+ * as long as the handler is behind.
+ */
+public class ADParallelSearchStrategy extends ADDefaultSearchStrategy {
+
+    private static final Log LOG = Log.getLog(ADParallelSearchStrategy.class);
+
+    private static final int PAGE_SIZE = 1000;
+
+    /**
+     * Results read in advance of the handler, for each search thread.
+     */
+    private static final int QUEUE_SIZE_PER_THREAD = 100;
+
+    /**
+     * Whether the current thread is handling results of a parallel search: a search started by the handler runs
+     * sequentially, since the connection threads may all be waiting for the outer search's handler.
+     */
+    private static final ThreadLocal<Boolean> HANDLING = new ThreadLocal<Boolean>();
+
+    private final ADConnection conn;
+
+    private final int threads;
+
+    private final boolean ignoreNonExistingBaseDNs;
+
+    /**
+     * Search result or, when result is null, end of the search on the given base DN.
+     */
+    private static class Item {
+
+        private final String baseDN;
+
+        private final SearchResult result;
+
+        private final Exception error;
+
+        Item(final String baseDN, final SearchResult result, final Exception error) {
+            this.baseDN = baseDN;
+            this.result = result;
+            this.error = error;
+        }
+    }
+
+    public ADParallelSearchStrategy(
+            final ADConnection conn,
+            final int threads,
+            final boolean ignoreNonExistingBaseDNs) {
+
+        super(ignoreNonExistingBaseDNs);
+        this.conn = conn;
+        this.threads = threads;
+        this.ignoreNonExistingBaseDNs = ignoreNonExistingBaseDNs;
+    }
+
+    @Override
+    public void doSearch(
+            final LdapContext initCtx,
+            final List<String> baseDNs,
+            final String query,
+            final SearchControls searchControls,
+            final LdapSearchResultsHandler handler)
+            throws NamingException {
+
+        final int poolSize = Math.min(threads, baseDNs.size());
+
+        if (poolSize <= 1 || HANDLING.get() != null) {
+            super.doSearch(initCtx, baseDNs, query, searchControls, handler);
+            return;
+        }
+
+        if (LOG.isOk()) {
+            LOG.ok("Searching in parallel ({0} threads) in {1} with filter {2} and {3}",
+                    poolSize, baseDNs, query, searchControlsToString(searchControls));
+        }
+
+        final BlockingQueue<Item> results = new ArrayBlockingQueue<Item>(poolSize * QUEUE_SIZE_PER_THREAD);
+        final AtomicBoolean proceed = new AtomicBoolean(true);
+
+        final ExecutorService executor = conn.getSearchExecutor();
+        final List<Future<?>> searches = new ArrayList<Future<?>>(baseDNs.size());
+
+        Exception error = null;
+
+        HANDLING.set(Boolean.TRUE);
+        try {
+            for (final String baseDN : baseDNs) {
+                searches.add(executor.submit(new Runnable() {
+
+                    @Override
+                    public void run() {
+                        search(baseDN, query, searchControls, results, proceed);
+                    }
+                }));
+            }
+
+            int done = 0;
+            while (done < baseDNs.size()) {
+                final Item item = results.take();
+
+                if (item.result == null) {
+                    done++;
+
+                    if (item.error != null && error == null) {
+                        error = item.error;
+                        proceed.set(false);
+                    }
+                } else if (proceed.get() && !handler.handle(item.baseDN, item.result)) {
+                    proceed.set(false);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ConnectorException("Interrupted while searching " + baseDNs, e);
+        } catch (RejectedExecutionException e) {
+            // connection closed meanwhile
+            throw new ConnectorException("Could not search " + baseDNs, e);
+        } finally {
+            HANDLING.remove();
+            proceed.set(false);
+            // only searches of this call are stopped, executor and contexts are kept by the connection
+            for (Future<?> search : searches) {
+                search.cancel(true);
+            }
+        }
+
+        if (error instanceof NamingException) {
+            throw (NamingException) error;
+        } else if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        } else if (error != null) {
+            throw new ConnectorException(error);
+        }
+    }
+
+    private void search(
+            final String baseDN,
+            final String query,
+            final SearchControls searchControls,
+            final BlockingQueue<Item> results,
+            final AtomicBoolean proceed) {
+
+        Exception error = null;
+
+        // a context is given back before its thread takes another base DN
+        LdapContext ctx = null;
+        boolean broken = false;
+        boolean delivered = false;
+
+        try {
+            for (int attempt = 0;; attempt++) {
+                ctx = conn.borrowSearchContext();
+                if (ctx == null) {
+                    throw new ConnectorException("Could not create search context for " + baseDN);
+                }
+
+                try {
+                    byte[] cookie = null;
+                    do {
+                        ctx.setRequestControls(
+                                new Control[] { new PagedResultsControl(PAGE_SIZE, cookie, Control.CRITICAL) });
+                        final NamingEnumeration<SearchResult> answer = ctx.search(baseDN, query, searchControls);
+                        try {
+                            // hasMore call for referral resolution ... it fails with AD
+                            while (proceed.get() && answer.hasMoreElements()) {
+                                results.put(new Item(baseDN, answer.next(), null));
+                                delivered = true;
+                            }
+                        } finally {
+                            answer.close();
+                        }
+                        cookie = proceed.get() ? getResponseCookie(ctx.getResponseControls()) : null;
+                    } while (cookie != null);
+                    break;
+                } catch (CommunicationException e) {
+                    // idle pooled context dropped by the server: retry once on a new one, if nothing was delivered
+                    conn.releaseSearchContext(ctx, true);
+                    ctx = null;
+                    if (attempt > 0 || delivered) {
+                        throw e;
+                    }
+                    if (LOG.isOk()) {
+                        LOG.ok("Search context lost, retrying search of {0}", baseDN);
+                    }
+                }
+            }
+        } catch (NameNotFoundException e) {
+            if (!ignoreNonExistingBaseDNs) {
+                error = e;
+            }
+            LOG.warn(e, null);
+        } catch (InvalidNameException e) {
+            if (!ignoreNonExistingBaseDNs) {
+                error = e;
+            }
+            LOG.warn(e, null);
+        } catch (InterruptedException e) {
+            // search aborted, context may be in the middle of a response
+            broken = true;
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            LOG.error(e, "While searching base context {0} with filter {1}", baseDN, query);
+            broken = true;
+            error = e;
+        } finally {
+            conn.releaseSearchContext(ctx, broken || Thread.currentThread().isInterrupted());
+        }
+
+        try {
+            results.put(new Item(baseDN, null, error));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
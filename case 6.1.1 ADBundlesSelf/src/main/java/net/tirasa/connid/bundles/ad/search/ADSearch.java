@@ -22,7 +22,9 @@ import com.sun.jndi.ldap.ctl.VirtualListViewControl;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import javax.naming.InvalidNameException;
 import javax.naming.NamingException;
@@ -44,6 +46,8 @@ import net.tirasa.connid.bundles.ldap.search.LdapSearchResultsHandler;
 import net.tirasa.connid.bundles.ldap.search.LdapSearchStrategy;
 import net.tirasa.connid.bundles.ldap.search.LdapSearches;
 import org.identityconnectors.common.logging.Log;
+import org.identityconnectors.framework.common.exceptions.ConnectorException;
+import org.identityconnectors.framework.common.objects.ConnectorObject;
 import org.identityconnectors.framework.common.objects.ObjectClass;
 import org.identityconnectors.framework.common.objects.OperationOptions;
 import org.identityconnectors.framework.common.objects.QualifiedUid;
@@ -52,6 +56,11 @@ import org.identityconnectors.framework.spi.SearchResultsHandler;
 
 public class ADSearch {
 
+    /**
+     * Entries whose group memberships are resolved with one group search, in bulk membership resolution.
+     */
+    private static final int MEMBERSHIP_PAGE_SIZE = 100;
+
     private final LdapConnection conn;
 
     private final ResultsHandler handler;
@@ -105,23 +114,152 @@ public class ADSearch {
         final String[] attrsToGetOption = options.getAttributesToGet();
         final Set<String> attrsToGet = utils.getAttributesToGet(attrsToGetOption, oclass);
 
-        final LdapInternalSearch search = getInternalSearch(attrsToGet);
+        // resolve group memberships of each page of returned entries at once, instead of one group search per entry
+        final MembershipPage page = isBulkMembershipResolution(attrsToGet)
+                ? new MembershipPage(attrsToGet, handler)
+                : null;
+
+        final LdapInternalSearch search = getInternalSearch(attrsToGet, page);
 
         search.execute(new LdapSearchResultsHandler() {
 
             @Override
             public boolean handle(final String baseDN, final SearchResult result)
                     throws NamingException {
-                return handler.handle(utils.createConnectorObject(
-                        result.getNameInNamespace(),
-                        result,
-                        attrsToGet,
-                        oclass));
+                if (page == null) {
+                    return handler.handle(utils.createConnectorObject(
+                            result.getNameInNamespace(),
+                            result,
+                            attrsToGet,
+                            oclass));
+                }
+
+                return page.add(result);
             }
         });
+
+        if (page != null) {
+            page.flush();
+        }
+    }
+
+    /**
+     * Entries buffered for bulk membership resolution; flushed when full, at search end and before the paged search
+     * result (cookie) is returned, so that no entry is handled after it.
+     */
+    private class MembershipPage {
+
+        private final List<SearchResult> results = new ArrayList<SearchResult>(MEMBERSHIP_PAGE_SIZE);
+
+        private final Set<String> attrsToGet;
+
+        private final ResultsHandler handler;
+
+        /**
+         * Member DNs (lower case) of the groups found so far, so that each group is expanded once per search.
+         */
+        private final Map<String, Set<String>> groupMembers = new HashMap<String, Set<String>>();
+
+        private boolean proceed = true;
+
+        MembershipPage(final Set<String> attrsToGet, final ResultsHandler handler) {
+            this.attrsToGet = attrsToGet;
+            this.handler = handler;
+        }
+
+        boolean add(final SearchResult result) throws NamingException {
+            results.add(result);
+            return results.size() < MEMBERSHIP_PAGE_SIZE || handlePage();
+        }
+
+        void flush() {
+            if (results.isEmpty() || !proceed) {
+                results.clear();
+                return;
+            }
+            try {
+                handlePage();
+            } catch (NamingException e) {
+                throw new ConnectorException(e);
+            }
+        }
+
+        /**
+         * Load group memberships of the page, then pass its entries to the handler.
+         *
+         * @return whether the handler wants more results.
+         */
+        private boolean handlePage() throws NamingException {
+            final List<String> entryDNs = new ArrayList<String>(results.size());
+            for (SearchResult result : results) {
+                entryDNs.add(result.getNameInNamespace());
+            }
+            utils.loadGroupMemberships(entryDNs, groupMembers);
+
+            try {
+                for (SearchResult result : results) {
+                    if (!handler.handle(utils.createConnectorObject(
+                            result.getNameInNamespace(),
+                            result,
+                            attrsToGet,
+                            oclass))) {
+                        proceed = false;
+                        return false;
+                    }
+                }
+                return true;
+            } finally {
+                results.clear();
+            }
+        }
+    }
+
+    /**
+     * Flushes the membership page before passing the paged search result on.
+     */
+    private static class MembershipPageResultsHandler implements SearchResultsHandler {
+
+        private final SearchResultsHandler handler;
+
+        private final MembershipPage page;
+
+        MembershipPageResultsHandler(final SearchResultsHandler handler, final MembershipPage page) {
+            this.handler = handler;
+            this.page = page;
+        }
+
+        @Override
+        public boolean handle(final ConnectorObject connectorObject) {
+            return handler.handle(connectorObject);
+        }
+
+        @Override
+        public void handleResult(final org.identityconnectors.framework.common.objects.SearchResult result) {
+            page.flush();
+            handler.handleResult(result);
+        }
+    }
+
+    private boolean isBulkMembershipResolution(final Set<String> attrsToGet) {
+        if (!ADConfiguration.MembershipResolution.bulk.toString().equals(
+                ((ADConfiguration) conn.getConfiguration()).getGroupMembershipResolution())) {
+            return false;
+        }
+
+        // single entry lookup: not worth expanding all groups
+        if (filter != null && filter.getEntryDN() != null) {
+            return false;
+        }
+
+        for (String attrName : attrsToGet) {
+            if (LdapConstants.isLdapGroups(attrName) || ADConnector.MEMBEROF.equals(attrName)) {
+                return true;
+            }
+        }
+        return false;
     }
 
-    private LdapInternalSearch getInternalSearch(final Set<String> attrsToGet) {
+    private LdapInternalSearch getInternalSearch(final Set<String> attrsToGet, final MembershipPage page) {
         // This is a bit tricky. If the LdapFilter has an entry DN,
         // we only need to look at that entry and check whether it matches
         // the native filter. Moreover, when looking at the entry DN
@@ -140,7 +278,7 @@ public class ADSearch {
         final String filterEntryDN = filter == null ? null : filter.getEntryDN();
 
         if (filterEntryDN == null) {
-            strategy = getSearchStrategy();
+            strategy = getSearchStrategy(page);
             dns = getBaseDNs();
             searchScope = getLdapSearchScope();
         } else {
@@ -148,7 +286,7 @@ public class ADSearch {
             // base contexts. However, the adapter is likely to pass entries
             // outside the base contexts, so not checking in order to be on the
             // safe side.
-            strategy = conn.getConfiguration().newDefaultSearchStrategy(true);
+            strategy = utils.newDefaultSearchStrategy();
 
             try {
                 dns = buildBaseContextFilter(filterEntryDN);
@@ -277,7 +415,7 @@ public class ADSearch {
         return bld.toString();
     }
 
-    private LdapSearchStrategy getSearchStrategy() {
+    private LdapSearchStrategy getSearchStrategy(final MembershipPage page) {
         final LdapSearchStrategy result;
 
         if (options.getPageSize() != null) {
@@ -285,18 +423,23 @@ public class ADSearch {
                 String vlvSortAttr = conn.getConfiguration().getVlvSortAttribute();
                 result = new ADVlvIndexSearchStrategy(vlvSortAttr, options.getPageSize());
             } else if (conn.supportsControl(PagedResultsControl.OID)) {
+                SearchResultsHandler searchResultsHandler =
+                        handler instanceof SearchResultsHandler ? (SearchResultsHandler) handler : null;
+                if (searchResultsHandler != null && page != null) {
+                    searchResultsHandler = new MembershipPageResultsHandler(searchResultsHandler, page);
+                }
                 result = new ADPagedSearchStrategy(
                         options.getPageSize(),
                         options.getPagedResultsCookie(),
                         options.getPagedResultsOffset(),
-                        handler instanceof SearchResultsHandler ? (SearchResultsHandler) handler : null,
+                        searchResultsHandler,
                         options.getSortKeys()
                 );
             } else {
-                result = conn.getConfiguration().newDefaultSearchStrategy(true);
+                result = utils.newDefaultSearchStrategy();
             }
         } else {
-            result = conn.getConfiguration().newDefaultSearchStrategy(true);
+            result = utils.newDefaultSearchStrategy();
         }
         return result;
     }
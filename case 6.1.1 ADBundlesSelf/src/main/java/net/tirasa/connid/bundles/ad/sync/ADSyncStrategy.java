@@ -18,8 +18,11 @@ package net.tirasa.connid.bundles.ad.sync;
 import static net.tirasa.connid.bundles.ad.ADConnector.OBJECTGUID;
 
 import com.sun.jndi.ldap.ctl.DirSyncResponseControl;
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
 import javax.naming.NamingEnumeration;
@@ -33,6 +36,7 @@ import javax.naming.ldap.LdapContext;
 import net.tirasa.adsddl.ntsd.controls.SDFlagsControl;
 import net.tirasa.adsddl.ntsd.controls.DirSyncControl;
 import net.tirasa.adsddl.ntsd.utils.GUID;
+import net.tirasa.adsddl.ntsd.utils.Hex;
 import net.tirasa.connid.bundles.ad.ADConfiguration;
 import net.tirasa.connid.bundles.ad.ADConnection;
 import net.tirasa.connid.bundles.ad.util.ADUtilities;
@@ -69,13 +73,34 @@ public class ADSyncStrategy {
         this.utils = new ADUtilities(conn);
     }
 
-    private Set<SearchResult> search(
+    /**
+     * Max number of objects whose full profile is read with a single search.
+     */
+    private static final int PROFILE_BATCH_SIZE = 100;
+
+    /**
+     * Receives DirSync results one page at a time, as soon as the page is read.
+     */
+    private interface DirSyncPageHandler {
+
+        /**
+         * @param page results of the page.
+         * @param pageStartToken token to resume from for entries of this page (start of the page).
+         * @param pageEndToken token to resume from once the whole page is handled.
+         */
+        void handle(List<SearchResult> page, SyncToken pageStartToken, SyncToken pageEndToken);
+    }
+
+    /**
+     * Read DirSync pages until the server reports no more data; each page is passed to the page handler before the
+     * next one is requested, so that memory is bounded by page size and progress is tracked by page cookie.
+     */
+    private void search(
             final LdapContext ctx,
             final String filter,
             final SearchControls searchCtls,
-            final boolean updateLastSyncToken) {
-
-        final Set<SearchResult> result = new HashSet<SearchResult>();
+            final SyncToken token,
+            final DirSyncPageHandler pageHandler) {
 
         for (String baseContextDn : conn.getConfiguration().getBaseContextsToSynchronize()) {
 
@@ -83,14 +108,26 @@ public class ADSyncStrategy {
                 LOG.ok("Searching from " + baseContextDn);
             }
 
+            byte[] cookie = getCookie(token);
+            SyncToken pageStartToken = token;
+            boolean moreData = true;
+
             try {
-                final NamingEnumeration<SearchResult> answer = ctx.search(baseContextDn, filter, searchCtls);
+                while (moreData) {
+                    ctx.setRequestControls(new Control[] { newDirSyncControl(cookie) });
+
+                    final List<SearchResult> page = new ArrayList<SearchResult>();
+                    final NamingEnumeration<SearchResult> answer = ctx.search(baseContextDn, filter, searchCtls);
+                    try {
+                        while (answer.hasMoreElements()) {
+                            page.add(answer.nextElement());
+                        }
+                    } finally {
+                        answer.close();
+                    }
 
-                while (answer.hasMoreElements()) {
-                    result.add(answer.nextElement());
-                }
+                    moreData = false;
 
-                if (updateLastSyncToken) {
                     final Control[] rspCtls = ctx.getResponseControls();
 
                     if (rspCtls != null) {
@@ -101,22 +138,110 @@ public class ADSyncStrategy {
                         for (Control rspCtl : rspCtls) {
                             if (rspCtl instanceof DirSyncResponseControl) {
                                 DirSyncResponseControl dirSyncRspCtl = (DirSyncResponseControl) rspCtl;
-                                latestSyncToken = new SyncToken(dirSyncRspCtl.getCookie());
+                                cookie = dirSyncRspCtl.getCookie();
+                                moreData = dirSyncRspCtl.hasMoreData();
+                                latestSyncToken = new SyncToken(cookie);
                             }
                         }
 
                         if (LOG.isOk()) {
-                            LOG.ok("Latest sync token set to {0}", latestSyncToken);
+                            LOG.ok("Latest sync token set to {0}, page size {1}, more data {2}",
+                                    latestSyncToken, page.size(), moreData);
                         }
                     }
+
+                    if (pageHandler != null && !page.isEmpty()) {
+                        pageHandler.handle(page, pageStartToken, latestSyncToken);
+                    }
+                    pageStartToken = latestSyncToken;
                 }
             } catch (NamingException e) {
                 LOG.error(e, "While searching base context {0} with filter {1} and search controls {2}",
                         baseContextDn, filter, searchCtls);
             }
         }
+    }
 
-        return result;
+    private static byte[] getCookie(final SyncToken token) {
+        return token == null
+                || token.getValue() == null
+                || !(token.getValue() instanceof byte[])
+                || ((byte[]) token.getValue()).length == 0
+                ? null
+                : (byte[]) token.getValue();
+    }
+
+    private static Control newDirSyncControl(final byte[] cookie) {
+        try {
+            return cookie == null ? new DirSyncControl() : new DirSyncControl(cookie);
+        } catch (Exception e) {
+            throw new ConnectorException("Could not set DirSync request controls", e);
+        }
+    }
+
+    /**
+     * Read full profiles of the objects returned by a DirSync page (DirSync can return an uncomplete profile),
+     * by objectGUID, {@link #PROFILE_BATCH_SIZE} per search instead of one read per object.
+     * Objects not found here (e.g. deleted objects outside base contexts) are read one by one later.
+     *
+     * @return full profile by GUID string.
+     */
+    private Map<String, Attributes> getProfiles(final LdapContext ctx, final List<SearchResult> page) {
+        final Map<String, Attributes> profiles = new HashMap<String, Attributes>();
+
+        final SearchControls searchCtls = LdapInternalSearch.createDefaultSearchControls();
+        searchCtls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+        searchCtls.setReturningAttributes(null);
+
+        for (int from = 0; from < page.size(); from += PROFILE_BATCH_SIZE) {
+            final StringBuilder filter = new StringBuilder("(|");
+            for (SearchResult sr : page.subList(from, Math.min(from + PROFILE_BATCH_SIZE, page.size()))) {
+                try {
+                    final Attribute guid = sr.getAttributes().get(OBJECTGUID);
+                    if (guid != null && guid.get() != null) {
+                        filter.append('(').append(OBJECTGUID).append('=').
+                                append(Hex.getEscaped((byte[]) guid.get())).append(')');
+                    }
+                } catch (NamingException e) {
+                    LOG.warn(e, "Cannot read objectGUID of {0}", sr.getName());
+                }
+            }
+            filter.append(')');
+
+            for (String baseContextDn : conn.getConfiguration().getBaseContextsToSynchronize()) {
+                try {
+                    ctx.setRequestControls(new Control[] { new DeletedControl(), new SDFlagsControl(0x00000004) });
+
+                    final NamingEnumeration<SearchResult> answer =
+                            ctx.search(baseContextDn, filter.toString(), searchCtls);
+                    try {
+                        while (answer.hasMoreElements()) {
+                            final Attributes profile = answer.nextElement().getAttributes();
+                            final Attribute guid = profile.get(OBJECTGUID);
+                            if (guid != null && guid.get() != null) {
+                                profiles.put(GUID.getGuidAsString((byte[]) guid.get()), profile);
+                            }
+                        }
+                    } finally {
+                        answer.close();
+                    }
+                } catch (NamingException e) {
+                    LOG.warn(e, "While reading profiles from base context {0}", baseContextDn);
+                }
+            }
+        }
+
+        return profiles;
+    }
+
+    private static void quietClose(final LdapContext ctx) {
+        try {
+            if (ctx != null) {
+                ctx.close();
+            }
+        } catch (NamingException e) {
+            LOG.warn(e, "Failure closing context");
+        }
     }
 
     public void sync(
@@ -138,34 +263,29 @@ public class ADSyncStrategy {
         // -----------------------------------
         // Get Synchronization Context
         // -----------------------------------
-        final LdapContext ctx;
-
-        try {
-            if (token == null
-                    || token.getValue() == null
-                    || !(token.getValue() instanceof byte[])
-                    || ((byte[]) token.getValue()).length == 0) {
+        final LdapContext ctx = conn.getSyncContext(new Control[] { newDirSyncControl(getCookie(token)) });
 
-                if (LOG.isOk()) {
-                    LOG.ok("Synchronization with empty token.");
-                }
-
-                ctx = conn.getSyncContext(new Control[] { new DirSyncControl() });
+        if (ctx == null) {
+            throw new ConnectorException("Could not set DirSync request controls");
+        }
 
-                if (((ADConfiguration) conn.getConfiguration()).isStartSyncFromToday()) {
-                    search(ctx, "(cn=__CONNID-NORES__)", searchCtls, true);
-                    return;
-                }
+        if (getCookie(token) == null) {
+            if (LOG.isOk()) {
+                LOG.ok("Synchronization with empty token.");
+            }
 
-            } else {
-                if (LOG.isOk()) {
-                    LOG.ok("Synchronization with token.");
+            if (((ADConfiguration) conn.getConfiguration()).isStartSyncFromToday()) {
+                try {
+                    search(ctx, "(cn=__CONNID-NORES__)", searchCtls, null, null);
+                } finally {
+                    quietClose(ctx);
                 }
-
-                ctx = conn.getSyncContext(new Control[] { new DirSyncControl((byte[]) token.getValue()) });
+                return;
+            }
+        } else {
+            if (LOG.isOk()) {
+                LOG.ok("Synchronization with token.");
             }
-        } catch (Exception e) {
-            throw new ConnectorException("Could not set DirSync request controls", e);
         }
         // -----------------------------------
 
@@ -186,28 +306,46 @@ public class ADSyncStrategy {
         final String[] attrsToGetOption = options.getAttributesToGet();
         final Set<String> attrsToGet = utils.getAttributesToGet(attrsToGetOption, oclass);
 
-        final Set<SearchResult> changes = search(ctx, filter, searchCtls, true);
+        // profiles and in/out members are read with a separate context, keeping DirSync response controls
+        final LdapContext profileCtx = conn.getSyncContext(null);
 
-        int count = changes.size();
+        if (profileCtx == null) {
+            quietClose(ctx);
+            throw new ConnectorException("Could not create profile read context");
+        }
 
-        if (oclass.is(ObjectClass.ACCOUNT_NAME)) {
-            for (SearchResult sr : changes) {
-                try {
-                    handleSyncUDelta(ctx, sr, attrsToGet, count == 1 ? latestSyncToken : token, handler);
-                    count--;
-                } catch (NamingException e) {
-                    LOG.error(e, "SyncDelta handling for '{0}' failed", sr.getName());
-                }
-            }
-        } else {
-            for (SearchResult sr : changes) {
-                try {
-                    handleSyncGDelta(ctx, sr, attrsToGet, count == 1 ? latestSyncToken : token, handler);
-                    count--;
-                } catch (NamingException e) {
-                    LOG.error(e, "SyncDelta handling for '{0}' failed", sr.getName());
+        try {
+            search(ctx, filter, searchCtls, token, new DirSyncPageHandler() {
+
+                @Override
+                public void handle(
+                        final List<SearchResult> page,
+                        final SyncToken pageStartToken,
+                        final SyncToken pageEndToken) {
+
+                    final Map<String, Attributes> profiles = getProfiles(profileCtx, page);
+
+                    int count = page.size();
+
+                    for (SearchResult sr : page) {
+                        // resume from page start until the whole page has been handled
+                        final SyncToken deltaToken = count == 1 ? pageEndToken : pageStartToken;
+                        try {
+                            if (oclass.is(ObjectClass.ACCOUNT_NAME)) {
+                                handleSyncUDelta(profileCtx, sr, profiles, attrsToGet, deltaToken, handler);
+                            } else {
+                                handleSyncGDelta(profileCtx, sr, profiles, attrsToGet, deltaToken, handler);
+                            }
+                        } catch (NamingException e) {
+                            LOG.error(e, "SyncDelta handling for '{0}' failed", sr.getName());
+                        }
+                        count--;
+                    }
                 }
-            }
+            });
+        } finally {
+            quietClose(profileCtx);
+            quietClose(ctx);
         }
     }
 
@@ -253,6 +391,7 @@ public class ADSyncStrategy {
     private void handleSyncUDelta(
             final LdapContext ctx,
             final SearchResult result,
+            final Map<String, Attributes> profiles,
             final Collection<String> attrsToGet,
             final SyncToken token,
             final SyncResultsHandler handler)
@@ -292,7 +431,7 @@ public class ADSyncStrategy {
         }
 
         // We need for this beacause DirSync can return an uncomplete profile.
-        profile = ctx.getAttributes("<GUID=" + guid + ">");
+        profile = profiles.containsKey(guid) ? profiles.get(guid) : ctx.getAttributes("<GUID=" + guid + ">");
 
         final Attribute objectClasses = profile.get("objectClass");
 
@@ -392,6 +531,7 @@ public class ADSyncStrategy {
     private void handleSyncGDelta(
             final LdapContext ctx,
             final SearchResult sr,
+            final Map<String, Attributes> profiles,
             final Collection<String> attrsToGet,
             final SyncToken token,
             final SyncResultsHandler handler)
@@ -432,7 +572,7 @@ public class ADSyncStrategy {
         }
 
         // We need for this beacause DirSync can return an uncomplete profile.
-        profile = ctx.getAttributes("<GUID=" + guid + ">");
+        profile = profiles.containsKey(guid) ? profiles.get(guid) : ctx.getAttributes("<GUID=" + guid + ">");
 
         final Attribute objectClasses = profile.get("objectClass");
 
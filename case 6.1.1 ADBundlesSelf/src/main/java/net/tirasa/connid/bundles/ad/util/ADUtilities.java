@@ -31,6 +31,7 @@ import static org.identityconnectors.common.CollectionUtil.newSet;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -57,12 +58,14 @@ import net.tirasa.adsddl.ntsd.utils.SDDLHelper;
 import net.tirasa.connid.bundles.ad.ADConfiguration;
 import net.tirasa.connid.bundles.ad.ADConnection;
 import net.tirasa.connid.bundles.ad.ADConnector;
+import net.tirasa.connid.bundles.ad.search.ADParallelSearchStrategy;
 import net.tirasa.connid.bundles.ldap.LdapConnection;
 import net.tirasa.connid.bundles.ldap.commons.GroupHelper;
 import net.tirasa.connid.bundles.ldap.commons.LdapConstants;
 import net.tirasa.connid.bundles.ldap.commons.LdapEntry;
 import net.tirasa.connid.bundles.ldap.commons.LdapUtil;
 import net.tirasa.connid.bundles.ldap.schema.LdapSchemaMapping;
+import net.tirasa.connid.bundles.ldap.search.DefaultSearchStrategy;
 import net.tirasa.connid.bundles.ldap.search.LdapFilter;
 import net.tirasa.connid.bundles.ldap.search.LdapInternalSearch;
 import net.tirasa.connid.bundles.ldap.search.LdapSearchResultsHandler;
@@ -92,6 +95,12 @@ public class ADUtilities {
 
     private final GroupHelper groupHelper;
 
+    /**
+     * Group memberships (lower case member DN to group DNs) of the current page of searched entries, when loaded in
+     * bulk.
+     */
+    private Map<String, Set<String>> membershipIndex;
+
     public ADUtilities(final ADConnection connection) {
         this.connection = connection;
         groupHelper = new GroupHelper(connection);
@@ -302,7 +311,7 @@ public class ADUtilities {
             Attribute attribute = null;
 
             if (LdapConstants.isLdapGroups(attributeName) || attributeName.equals(ADConnector.MEMBEROF)) {
-                final Set<String> ldapGroups = getGroups(entry.getDN().toString());
+                final Set<String> ldapGroups = resolveGroups(entry.getDN().toString());
                 if (StringUtil.isBlank(pgDN)) {
                     pgDN = getPrimaryGroupDN(entry, profile);
                 }
@@ -633,6 +642,27 @@ public class ADUtilities {
 
         final Set<SearchResult> result = new HashSet<SearchResult>();
 
+        final int threads = ((ADConfiguration) connection.getConfiguration()).getParallelSearchThreads();
+
+        if (threads > 1 && baseContextDNs.length > 1) {
+            try {
+                new ADParallelSearchStrategy(connection, threads, true).doSearch(
+                        ctx, Arrays.asList(baseContextDNs), filter, searchCtls, new LdapSearchResultsHandler() {
+
+                    @Override
+                    public boolean handle(final String baseDN, final SearchResult searchResult) {
+                        result.add(searchResult);
+                        return true;
+                    }
+                });
+            } catch (NamingException e) {
+                LOG.error(e, "While searching base contexts {0} with filter {1} and search controls {2}",
+                        Arrays.asList(baseContextDNs), filter, searchCtls);
+            }
+
+            return result;
+        }
+
         for (String baseContextDn : baseContextDNs) {
 
             if (LOG.isOk()) {
@@ -654,6 +684,16 @@ public class ADUtilities {
         return result;
     }
 
+    /**
+     * @return default search strategy, searching base contexts in parallel when configured so.
+     */
+    public DefaultSearchStrategy newDefaultSearchStrategy() {
+        final ADConfiguration conf = (ADConfiguration) connection.getConfiguration();
+        return conf.getParallelSearchThreads() > 1
+                ? new ADParallelSearchStrategy(connection, conf.getParallelSearchThreads(), true)
+                : conf.newDefaultSearchStrategy(true);
+    }
+
     public Set<String> getGroups(final String entryDN) {
         return getGroups(entryDN, ((ADConfiguration) connection.getConfiguration()).getGroupBaseContexts());
     }
@@ -670,6 +710,175 @@ public class ADUtilities {
         return ldapGroups;
     }
 
+    /**
+     * Load group memberships of one page of searched entries with one group search (members in 'OR'), to be used by
+     * the following {@link #createConnectorObject} calls of the same page instead of one group search per entry.
+     * Entries found in membership cache are not searched again.
+     *
+     * @param entryDNs member DNs of the page.
+     * @param groupMembers member DNs (lower case) of the groups expanded so far, shared by the pages of one search.
+     */
+    public void loadGroupMemberships(
+            final Collection<String> entryDNs, final Map<String, Set<String>> groupMembers) {
+        final GroupMembershipCache cache = connection.getGroupMembershipCache();
+        final long generation = cache.getGeneration();
+
+        final Map<String, Set<String>> index = new HashMap<String, Set<String>>();
+        final Map<String, Set<String>> found = new HashMap<String, Set<String>>();
+        final List<String> toSearch = new ArrayList<String>();
+        for (String entryDN : entryDNs) {
+            final Set<String> groups = cache.get(entryDN);
+            if (groups == null) {
+                found.put(entryDN.toLowerCase(), new TreeSet<String>(String.CASE_INSENSITIVE_ORDER));
+                toSearch.add(entryDN);
+            } else {
+                index.put(entryDN.toLowerCase(), groups);
+            }
+        }
+
+        if (!toSearch.isEmpty()) {
+            searchGroupMemberships(toSearch, found, groupMembers);
+            for (String entryDN : toSearch) {
+                cache.put(entryDN, found.get(entryDN.toLowerCase()), generation);
+            }
+            index.putAll(found);
+        }
+
+        membershipIndex = index;
+    }
+
+    /**
+     * Groups of the given entry: from page memberships loaded in bulk, from membership cache or by searching.
+     *
+     * @param entryDN member DN.
+     * @return modifiable set of group DNs.
+     */
+    private Set<String> resolveGroups(final String entryDN) {
+        final Set<String> ldapGroups = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+
+        if (membershipIndex != null) {
+            final Set<String> groups = membershipIndex.get(entryDN.toLowerCase());
+            if (groups != null) {
+                ldapGroups.addAll(groups);
+                return ldapGroups;
+            }
+        }
+
+        final GroupMembershipCache cache = connection.getGroupMembershipCache();
+
+        Set<String> groups = cache.get(entryDN);
+        if (groups == null) {
+            final long generation = cache.getGeneration();
+            groups = getGroups(entryDN);
+            cache.put(entryDN, groups, generation);
+        }
+        ldapGroups.addAll(groups);
+
+        return ldapGroups;
+    }
+
+    /**
+     * Search groups having any of the given members (group DN only), then add each group to the members it actually
+     * contains. Group member lists are read once per search, not once per page.
+     *
+     * @param entryDNs member DNs.
+     * @param found lower case member DN to group DNs, one (empty) set for each given member.
+     * @param groupMembers member DNs (lower case) of the groups expanded so far.
+     */
+    private void searchGroupMemberships(
+            final List<String> entryDNs,
+            final Map<String, Set<String>> found,
+            final Map<String, Set<String>> groupMembers) {
+
+        final ADConfiguration conf = (ADConfiguration) connection.getConfiguration();
+        final String member = conf.getGroupMemberReferenceAttribute();
+
+        final SearchControls controls = LdapInternalSearch.createDefaultSearchControls();
+        controls.setSearchScope(SearchControls.SUBTREE_SCOPE);
+        controls.setReturningAttributes(new String[0]);
+
+        final List<String> groupDNs = new ArrayList<String>();
+        new LdapInternalSearch(
+                connection,
+                filterInOr(member, entryDNs.toArray(new String[entryDNs.size()])),
+                Arrays.asList(conf.getGroupBaseContexts()),
+                newDefaultSearchStrategy(),
+                controls).execute(new LdapSearchResultsHandler() {
+
+            @Override
+            public boolean handle(final String baseDN, final SearchResult result) {
+                groupDNs.add(result.getNameInNamespace());
+                return true;
+            }
+        });
+
+        try {
+            for (String groupDN : groupDNs) {
+                Set<String> members = groupMembers.get(groupDN.toLowerCase());
+                if (members == null) {
+                    members = new HashSet<String>();
+                    final Attributes attrs = getAttributes(groupDN, member);
+                    if (attrs != null) {
+                        for (Object memberDN : getMemberValues(groupDN, attrs, member)) {
+                            members.add(memberDN.toString().toLowerCase());
+                        }
+                    }
+                    groupMembers.put(groupDN.toLowerCase(), members);
+                }
+
+                for (String entryDN : entryDNs) {
+                    if (members.contains(entryDN.toLowerCase())) {
+                        found.get(entryDN.toLowerCase()).add(groupDN);
+                    }
+                }
+            }
+        } catch (NamingException e) {
+            throw new ConnectorException(e);
+        }
+
+        if (LOG.isOk()) {
+            LOG.ok("Group memberships loaded for {0} members from {1} groups", entryDNs.size(), groupDNs.size());
+        }
+    }
+
+    /**
+     * All values of the group member attribute, following ranged retrieval ("member;range=0-1499") of large groups.
+     */
+    private List<Object> getMemberValues(final String groupDN, final Attributes attrs, final String member)
+            throws NamingException {
+
+        final List<Object> values = new ArrayList<Object>();
+
+        javax.naming.directory.Attribute membAttr = null;
+        final NamingEnumeration<? extends javax.naming.directory.Attribute> attrEnum = attrs.getAll();
+        while (membAttr == null && attrEnum.hasMore()) {
+            final javax.naming.directory.Attribute attr = attrEnum.next();
+            if (attr.getID().equalsIgnoreCase(member)
+                    || attr.getID().toLowerCase().startsWith(member.toLowerCase() + ";range=")) {
+                membAttr = attr;
+            }
+        }
+
+        while (membAttr != null) {
+            final NamingEnumeration<?> ne = membAttr.getAll();
+            while (ne.hasMore()) {
+                values.add(ne.next());
+            }
+
+            // last range is "member;range=<start>-*"
+            final String id = membAttr.getID();
+            if (!id.toLowerCase().contains(";range=") || id.endsWith("-*")) {
+                break;
+            }
+
+            final int next = Integer.parseInt(id.substring(id.lastIndexOf('-') + 1)) + 1;
+            final Attributes membAttrs = getAttributes(groupDN, String.format("%s;range=%d-*", member, next));
+            membAttr = membAttrs == null || membAttrs.size() <= 0 ? null : membAttrs.getAll().next();
+        }
+
+        return values;
+    }
+
     private String filterInOr(final String attr, final String... values) {
         final StringBuilder builder = new StringBuilder();
         boolean multi = values != null && values.length > 1;
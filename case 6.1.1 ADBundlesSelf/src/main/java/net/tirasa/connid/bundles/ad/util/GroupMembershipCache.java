@@ -0,0 +1,177 @@
+/**
+ * Copyright (C) 2011 ConnId (connid-dev@googlegroups.com)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tirasa.connid.bundles.ad.util;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Short-TTL group membership cache of single entries, shared by all connections with the same directory, bind
+ * principal, group base contexts and TTL (e.g. pooled connector instances) in the same JVM.
+ * <br/>
+ * DNs are compared case-insensitively. A TTL of 0 disables caching.
+ */
+public class GroupMembershipCache {
+
+    private static final int MAX_ENTRIES = 100000;
+
+    private static final ConcurrentMap<String, GroupMembershipCache> CACHES =
+            new ConcurrentHashMap<String, GroupMembershipCache>();
+
+    /**
+     * @param key identifies directory, bind principal and group base contexts.
+     * @param ttl time to live in milliseconds, 0 to disable.
+     * @return cache shared by all connections with same key and TTL.
+     */
+    public static GroupMembershipCache getInstance(final String key, final long ttl) {
+        final String cacheKey = key + "|" + ttl;
+
+        GroupMembershipCache cache = CACHES.get(cacheKey);
+        if (cache == null) {
+            final GroupMembershipCache newCache = new GroupMembershipCache(ttl);
+            cache = CACHES.putIfAbsent(cacheKey, newCache);
+            if (cache == null) {
+                cache = newCache;
+            }
+        }
+        return cache;
+    }
+
+    private static class Entry<T> {
+
+        private final T value;
+
+        private final long expire;
+
+        Entry(final T value, final long expire) {
+            this.value = value;
+            this.expire = expire;
+        }
+    }
+
+    private final long ttl;
+
+    private final ConcurrentMap<String, Entry<Set<String>>> entries =
+            new ConcurrentHashMap<String, Entry<Set<String>>>();
+
+    private final AtomicLong generation = new AtomicLong();
+
+    /**
+     * @param ttl time to live in milliseconds, 0 to disable.
+     */
+    public GroupMembershipCache(final long ttl) {
+        this.ttl = ttl;
+    }
+
+    public boolean isEnabled() {
+        return ttl > 0;
+    }
+
+    /**
+     * @return current generation, to be read before resolving memberships to be put.
+     */
+    public long getGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * @param entryDN member DN.
+     * @return cached groups of the given member or null if unknown / expired.
+     */
+    public Set<String> get(final String entryDN) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        final Entry<Set<String>> entry = entries.get(entryDN.toLowerCase());
+        return entry == null || entry.expire <= System.currentTimeMillis() ? null : entry.value;
+    }
+
+    /**
+     * @param entryDN member DN.
+     * @param groups group DNs.
+     * @param resolvedGeneration generation read before resolving: memberships resolved before an invalidation are
+     * not cached.
+     */
+    public void put(final String entryDN, final Set<String> groups, final long resolvedGeneration) {
+        if (!isEnabled() || resolvedGeneration != generation.get()) {
+            return;
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            purge();
+        }
+
+        final Set<String> value = new TreeSet<String>(String.CASE_INSENSITIVE_ORDER);
+        value.addAll(groups);
+        entries.put(entryDN.toLowerCase(),
+                new Entry<Set<String>>(Collections.unmodifiableSet(value), System.currentTimeMillis() + ttl));
+    }
+
+    /**
+     * Drop everything, to be called after memberships are changed through the connector and the changed entries are
+     * unknown.
+     */
+    public void invalidate() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    /**
+     * Drop the memberships of the given DNs and of every member cached as belonging to one of them, to be called after
+     * the given entries (members and / or groups) are changed through the connector.
+     *
+     * @param dns DNs of changed entries: members, groups and members added to groups.
+     */
+    public void invalidate(final Collection<String> dns) {
+        generation.incrementAndGet();
+        if (dns.isEmpty()) {
+            return;
+        }
+
+        for (String dn : dns) {
+            entries.remove(dn.toLowerCase());
+        }
+        for (Iterator<Entry<Set<String>>> iter = entries.values().iterator(); iter.hasNext();) {
+            final Set<String> groups = iter.next().value;
+            for (String dn : dns) {
+                if (groups.contains(dn)) {
+                    iter.remove();
+                    break;
+                }
+            }
+        }
+    }
+
+    private void purge() {
+        final long now = System.currentTimeMillis();
+        for (Iterator<Entry<Set<String>>> iter = entries.values().iterator(); iter.hasNext();) {
+            if (iter.next().expire <= now) {
+                iter.remove();
+            }
+        }
+
+        if (entries.size() >= MAX_ENTRIES) {
+            entries.clear();
+        }
+    }
+}
@@ -77,33 +77,70 @@ public class BaseLdapActive {
     private static Logger LOGGER = LoggerFactory.getLogger(LdapAuthService.class);
 
     protected static Authenticator getAuthenticatedOrAnonSearchAuthenticator(final AbstractLdapAuthenticationProperties l) {
+        final PooledConnectionFactory factory = newLdaptivePooledConnectionFactory(l);
+        return getAuthenticatedOrAnonSearchAuthenticator(l, factory,
+                isBindPoolShareable(l) ? factory : newLdaptivePooledConnectionFactory(l));
+    }
+
+    /**
+     * Authenticator on given pools: dn resolver and entry resolver use the search pool,
+     * bind/compare handler uses the bind pool (which can be the same pool, see {@link #isBindPoolShareable}).
+     *
+     * @param l                      the ldap settings
+     * @param connectionFactory      the search pool
+     * @param bindConnectionFactory  the bind pool
+     * @return the authenticator
+     */
+    protected static Authenticator getAuthenticatedOrAnonSearchAuthenticator(final AbstractLdapAuthenticationProperties l,
+                                                                             final PooledConnectionFactory connectionFactory,
+                                                                             final PooledConnectionFactory bindConnectionFactory) {
         if (StringUtils.isBlank(l.getBaseDn())) {
             throw new IllegalArgumentException("Base dn cannot be empty/blank for authenticated/anonymous authentication");
         }
         if (StringUtils.isBlank(l.getUserFilter())) {
             throw new IllegalArgumentException("User filter cannot be empty/blank for authenticated/anonymous authentication");
         }
-        final PooledConnectionFactory connectionFactoryForSearch = newLdaptivePooledConnectionFactory(l);
         final PooledSearchDnResolver resolver = new PooledSearchDnResolver();
         resolver.setBaseDn(l.getBaseDn());
         resolver.setSubtreeSearch(l.isSubtreeSearch());
         resolver.setAllowMultipleDns(l.isAllowMultipleDns());
-        resolver.setConnectionFactory(connectionFactoryForSearch);
+        resolver.setConnectionFactory(connectionFactory);
         resolver.setUserFilter(l.getUserFilter());
 
         final Authenticator auth;
         if (StringUtils.isBlank(l.getPrincipalAttributePassword())) {
-            auth = new Authenticator(resolver, getPooledBindAuthenticationHandler(l, newLdaptivePooledConnectionFactory(l)));
+            auth = new Authenticator(resolver, getPooledBindAuthenticationHandler(l, bindConnectionFactory));
         } else {
-            auth = new Authenticator(resolver, getPooledCompareAuthenticationHandler(l, newLdaptivePooledConnectionFactory(l)));
+            auth = new Authenticator(resolver, getPooledCompareAuthenticationHandler(l, bindConnectionFactory));
         }
 
         if (l.isEnhanceWithEntryResolver()) {
-            auth.setEntryResolver(newLdaptiveSearchEntryResolver(l, newLdaptivePooledConnectionFactory(l)));
+            auth.setEntryResolver(newLdaptiveSearchEntryResolver(l, connectionFactory));
         }
         return auth;
     }
 
+    /**
+     * Whether the bind/compare handler can run on the search pool.
+     * A compare never changes the connection identity; a user bind does, so it is only safe
+     * when the passivator resets the connection once it is back in the pool:
+     * CLOSE, or BIND with the configured bind dn.
+     *
+     * @param l the ldap settings
+     * @return true if one pool can serve search and bind
+     */
+    public static boolean isBindPoolShareable(final AbstractLdapAuthenticationProperties l) {
+        if (StringUtils.isNotBlank(l.getPrincipalAttributePassword())) {
+            return true;
+        }
+        final String passivator = StringUtils.trimToEmpty(l.getPoolPassivator());
+        if (AbstractLdapProperties.LdapConnectionPoolPassivator.CLOSE.name().equalsIgnoreCase(passivator)) {
+            return true;
+        }
+        return AbstractLdapProperties.LdapConnectionPoolPassivator.BIND.name().equalsIgnoreCase(passivator)
+                && StringUtils.isNotBlank(l.getBindDn()) && StringUtils.isNotBlank(l.getBindCredential());
+    }
+
     public static PooledConnectionFactory newLdaptivePooledConnectionFactory(final AbstractLdapProperties l) {
         final ConnectionPool cp = newLdaptiveBlockingConnectionPool(l);
         return new PooledConnectionFactory(cp);
@@ -65,6 +65,7 @@ import org.ldaptive.ssl.SslConfig;
 import org.ldaptive.ssl.X509CredentialConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.time.Duration;
@@ -83,6 +84,9 @@ public class LdapAuthService extends BaseLdapActive {
 
     private static Logger LOGGER = LoggerFactory.getLogger(LdapAuthService.class);
 
+    @Autowired
+    private LdapAuthenticatorRegistry ldapAuthenticatorRegistry;
+
     //    private Authenticator authenticator = ladptiveAuthenticator();
 
     /**
@@ -102,10 +106,9 @@ public class LdapAuthService extends BaseLdapActive {
         properties.setUseSsl(Boolean.FALSE);
         properties.setBindDn("DC=devad,DC=com,DC=cn");
 
-        Authenticator authenticator = getAuthenticatedOrAnonSearchAuthenticator(properties);
-
+        // pools and authenticator are created once, then shared by every auth of the same settings
         AuthenticationRequest authRequest = new AuthenticationRequest(new org.ldaptive.auth.User("devad\\\\administrator"), new org.ldaptive.Credential("123456"));
-        AuthenticationResponse adResponse = authenticator.authenticate(authRequest);
+        AuthenticationResponse adResponse = ldapAuthenticatorRegistry.authenticate(properties, authRequest);
 
         LOGGER.info("------> Authenticator :{} <-------", adResponse);
     }
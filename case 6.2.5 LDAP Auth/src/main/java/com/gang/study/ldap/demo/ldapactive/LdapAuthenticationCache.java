@@ -0,0 +1,148 @@
+package com.gang.study.ldap.demo.ldapactive;
+
+import org.ldaptive.auth.AuthenticationRequest;
+import org.ldaptive.auth.AuthenticationResponse;
+import org.ldaptive.auth.AuthenticationResultCode;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * @Classname LdapAuthenticationCache
+ * @Description Short TTL cache of authentication results, positive and negative, by user.
+ * The credential itself is never kept, only its salted SHA-256 : a cached result is returned
+ * only for the same user presenting the same credential.
+ */
+public class LdapAuthenticationCache {
+
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+
+    private static final int SALT_LENGTH = 16;
+
+    private final long ttl;
+
+    private final Map<String, Entry> entries;
+
+    private final SecureRandom random = new SecureRandom();
+
+    private static class Entry {
+
+        private final byte[] salt;
+
+        private final byte[] hash;
+
+        private final AuthenticationResponse response;
+
+        private final long expire;
+
+        Entry(final byte[] salt, final byte[] hash, final AuthenticationResponse response, final long expire) {
+            this.salt = salt;
+            this.hash = hash;
+            this.response = response;
+            this.expire = expire;
+        }
+    }
+
+    public LdapAuthenticationCache(final Duration ttl, final int maxSize) {
+        this.ttl = ttl.toMillis();
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        };
+    }
+
+    /**
+     * Cached result of the same user with the same credential.
+     *
+     * @param request the authentication request
+     * @return the cached response, null if none or expired
+     */
+    public AuthenticationResponse get(final AuthenticationRequest request) {
+        final String user = getUser(request);
+        final byte[] credential = getCredential(request);
+        if (user == null || credential == null) {
+            return null;
+        }
+
+        final Entry entry;
+        synchronized (entries) {
+            entry = entries.get(user);
+            if (entry != null && entry.expire <= System.currentTimeMillis()) {
+                entries.remove(user);
+                return null;
+            }
+        }
+        if (entry == null) {
+            return null;
+        }
+        return MessageDigest.isEqual(entry.hash, hash(entry.salt, credential)) ? entry.response : null;
+    }
+
+    /**
+     * Remember the result, if it is an answer about the credential (success, wrong credential or unknown user):
+     * errors are never cached.
+     *
+     * @param request  the authentication request
+     * @param response the authentication response
+     */
+    public void put(final AuthenticationRequest request, final AuthenticationResponse response) {
+        final String user = getUser(request);
+        final byte[] credential = getCredential(request);
+        if (user == null || credential == null) {
+            return;
+        }
+
+        if (!isCacheable(response)) {
+            synchronized (entries) {
+                entries.remove(user);
+            }
+            return;
+        }
+
+        final byte[] salt = new byte[SALT_LENGTH];
+        random.nextBytes(salt);
+        final Entry entry = new Entry(salt, hash(salt, credential), response, System.currentTimeMillis() + ttl);
+        synchronized (entries) {
+            entries.put(user, entry);
+        }
+    }
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private static boolean isCacheable(final AuthenticationResponse response) {
+        final AuthenticationResultCode code = response.getAuthenticationResultCode();
+        return code == AuthenticationResultCode.AUTHENTICATION_HANDLER_SUCCESS
+                || code == AuthenticationResultCode.AUTHENTICATION_HANDLER_FAILURE
+                || code == AuthenticationResultCode.DN_RESOLUTION_FAILURE;
+    }
+
+    private static String getUser(final AuthenticationRequest request) {
+        return request.getUser() == null ? null : request.getUser().getIdentifier();
+    }
+
+    private static byte[] getCredential(final AuthenticationRequest request) {
+        return request.getCredential() == null ? null : request.getCredential().getBytes();
+    }
+
+    private static byte[] hash(final byte[] salt, final byte[] credential) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            digest.update(salt);
+            digest.update(credential);
+            return digest.digest();
+        } catch (final NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
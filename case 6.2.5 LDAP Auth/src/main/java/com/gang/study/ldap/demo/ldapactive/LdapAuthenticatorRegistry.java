@@ -0,0 +1,133 @@
+package com.gang.study.ldap.demo.ldapactive;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.serializer.SimplePropertyPreFilter;
+import com.gang.study.ldap.demo.to.AbstractLdapAuthenticationProperties;
+import com.gang.study.ldap.demo.to.AbstractLdapProperties;
+import org.ldaptive.LdapException;
+import org.ldaptive.auth.AuthenticationRequest;
+import org.ldaptive.auth.AuthenticationResponse;
+import org.ldaptive.auth.Authenticator;
+import org.ldaptive.pool.PooledConnectionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * @Classname LdapAuthenticatorRegistry
+ * @Description Long lived authenticators, instead of one authenticator (and its pools) per authentication.
+ * Authenticators are kept by authentication properties; pools are kept by connection properties
+ * (url, bind, ssl, pool settings ...), so that all authenticators of the same LDAP share the same connections.
+ */
+@Component
+public class LdapAuthenticatorRegistry extends BaseLdapActive {
+
+    private static Logger LOGGER = LoggerFactory.getLogger(LdapAuthenticatorRegistry.class);
+
+    /**
+     * Properties of {@link AbstractLdapProperties} : the ones a connection pool depends on.
+     */
+    private static final SimplePropertyPreFilter CONNECTION_PROPERTIES = new SimplePropertyPreFilter(
+            AbstractLdapProperties.class,
+            Arrays.stream(AbstractLdapProperties.class.getDeclaredFields())
+                    .filter(f -> !Modifier.isStatic(f.getModifiers()))
+                    .map(Field::getName)
+                    .toArray(String[]::new));
+
+    private final ConcurrentMap<String, PooledConnectionFactory> pools = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, RegisteredAuthenticator> authenticators = new ConcurrentHashMap<>();
+
+    private static class RegisteredAuthenticator {
+
+        private final Authenticator authenticator;
+
+        private final LdapAuthenticationCache cache;
+
+        RegisteredAuthenticator(final Authenticator authenticator, final LdapAuthenticationCache cache) {
+            this.authenticator = authenticator;
+            this.cache = cache;
+        }
+    }
+
+    /**
+     * Authenticate with the registered authenticator of the given settings,
+     * answering from the authentication cache when enabled.
+     *
+     * @param l       the ldap settings
+     * @param request the authentication request
+     * @return the authentication response
+     * @throws LdapException on LDAP error, never cached
+     */
+    public AuthenticationResponse authenticate(final AbstractLdapAuthenticationProperties l,
+                                               final AuthenticationRequest request) throws LdapException {
+        final RegisteredAuthenticator registered = getRegisteredAuthenticator(l);
+        if (registered.cache == null) {
+            return registered.authenticator.authenticate(request);
+        }
+
+        final AuthenticationResponse cached = registered.cache.get(request);
+        if (cached != null) {
+            LOGGER.debug("Authentication of [{}] answered from cache", request.getUser());
+            return cached;
+        }
+
+        final AuthenticationResponse response = registered.authenticator.authenticate(request);
+        registered.cache.put(request, response);
+        return response;
+    }
+
+    /**
+     * The registered authenticator of the given settings, created on first use.
+     *
+     * @param l the ldap settings
+     * @return the authenticator
+     */
+    public Authenticator getAuthenticator(final AbstractLdapAuthenticationProperties l) {
+        return getRegisteredAuthenticator(l).authenticator;
+    }
+
+    private RegisteredAuthenticator getRegisteredAuthenticator(final AbstractLdapAuthenticationProperties l) {
+        // settings are copied into the key : later changes of the same properties object give a new authenticator
+        return authenticators.computeIfAbsent(JSON.toJSONString(l), key -> {
+            LOGGER.debug("Creating authenticator for [{}] and baseDn [{}]", l.getLdapUrl(), l.getBaseDn());
+
+            final PooledConnectionFactory factory = getPooledConnectionFactory(l, "search");
+            final PooledConnectionFactory bindFactory = isBindPoolShareable(l) ? factory : getPooledConnectionFactory(l, "bind");
+
+            final Duration ttl = newDuration(l.getAuthenticationCacheTtl());
+            final LdapAuthenticationCache cache = ttl.isZero() || ttl.isNegative()
+                    ? null : new LdapAuthenticationCache(ttl, l.getAuthenticationCacheSize());
+
+            return new RegisteredAuthenticator(getAuthenticatedOrAnonSearchAuthenticator(l, factory, bindFactory), cache);
+        });
+    }
+
+    private PooledConnectionFactory getPooledConnectionFactory(final AbstractLdapProperties l, final String usage) {
+        return pools.computeIfAbsent(usage + JSON.toJSONString(l, CONNECTION_PROPERTIES), key -> {
+            LOGGER.debug("Creating [{}] connection pool for [{}]", usage, l.getLdapUrl());
+            return newLdaptivePooledConnectionFactory(l);
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        authenticators.clear();
+        pools.values().forEach(factory -> {
+            try {
+                factory.getConnectionPool().close();
+            } catch (final Exception e) {
+                LOGGER.warn("Failed closing ldap connection pool : {}", e.getMessage());
+            }
+        });
+        pools.clear();
+    }
+}
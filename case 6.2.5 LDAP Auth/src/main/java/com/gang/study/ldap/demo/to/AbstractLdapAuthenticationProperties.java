@@ -22,6 +22,33 @@ public abstract class AbstractLdapAuthenticationProperties extends AbstractLdapP
     private String userFilter;
     private List<SearchEntryHandlers> searchEntryHandlers = new ArrayList<>();
 
+    /**
+     * How long successful and failed authentications are remembered, as duration or seconds.
+     * Only a salted hash of the credential is kept. {@code 0} disables the cache.
+     */
+    private String authenticationCacheTtl = "0";
+
+    /**
+     * Maximum number of users kept in the authentication cache.
+     */
+    private int authenticationCacheSize = 10000;
+
+    public String getAuthenticationCacheTtl() {
+        return authenticationCacheTtl;
+    }
+
+    public void setAuthenticationCacheTtl(final String authenticationCacheTtl) {
+        this.authenticationCacheTtl = authenticationCacheTtl;
+    }
+
+    public int getAuthenticationCacheSize() {
+        return authenticationCacheSize;
+    }
+
+    public void setAuthenticationCacheSize(final int authenticationCacheSize) {
+        this.authenticationCacheSize = authenticationCacheSize;
+    }
+
     public List<SearchEntryHandlers> getSearchEntryHandlers() {
         return searchEntryHandlers;
     }
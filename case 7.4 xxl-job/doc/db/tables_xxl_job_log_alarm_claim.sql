@@ -0,0 +1,7 @@
+#
+# XXL-JOB, fail log alarm claim token of xxl_job_log, rows claimed by one admin node in one update
+#
+USE `xxl_job`;
+
+ALTER TABLE `xxl_job_log`
+  ADD COLUMN `alarm_claim` varchar(64) DEFAULT NULL COMMENT '告警锁定标识：锁定该日志的调度中心节点及批次' AFTER `alarm_status`;
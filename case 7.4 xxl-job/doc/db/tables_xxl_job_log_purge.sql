@@ -0,0 +1,19 @@
+#
+# XXL-JOB, log purge task of xxl_job_log (log retention / clear log), resumable
+#
+USE `xxl_job`;
+
+CREATE TABLE `xxl_job_log_purge` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `job_group` int(11) NOT NULL DEFAULT '0' COMMENT '执行器主键ID，0=全部',
+  `job_id` int(11) NOT NULL DEFAULT '0' COMMENT '任务ID，0=全部',
+  `clear_before_time` datetime DEFAULT NULL COMMENT '清理该调度时间之前日志，空=不限',
+  `max_id` bigint(20) NOT NULL DEFAULT '0' COMMENT '清理范围，日志ID <= max_id',
+  `cursor_id` bigint(20) NOT NULL DEFAULT '0' COMMENT '清理进度，日志ID < cursor_id 已清理',
+  `delete_count` bigint(20) NOT NULL DEFAULT '0' COMMENT '已清理日志数',
+  `status` tinyint(4) NOT NULL DEFAULT '0' COMMENT '状态：0-进行中、1-完成',
+  `add_time` datetime DEFAULT NULL,
+  `update_time` datetime DEFAULT NULL,
+  PRIMARY KEY (`id`),
+  KEY `i_status` (`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
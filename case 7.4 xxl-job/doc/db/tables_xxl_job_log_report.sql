@@ -0,0 +1,23 @@
+#
+# XXL-JOB, trigger statistics rollup of dashboard (xxl_job_log_report)
+#
+USE `xxl_job`;
+
+CREATE TABLE `xxl_job_log_report` (
+  `id` int(11) NOT NULL AUTO_INCREMENT,
+  `trigger_day` date NOT NULL COMMENT '调度日期',
+  `job_group` int(11) NOT NULL COMMENT '执行器主键ID',
+  `status` tinyint(4) NOT NULL COMMENT '调度状态：0-运行中、1-成功、2-失败',
+  `count` bigint(20) NOT NULL DEFAULT '0' COMMENT '调度次数',
+  PRIMARY KEY (`id`),
+  UNIQUE KEY `i_day_group_status` (`trigger_day`,`job_group`,`status`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+# init from exist log, once (before admin upgrade)
+INSERT INTO `xxl_job_log_report` (`trigger_day`, `job_group`, `status`, `count`)
+SELECT DATE(`trigger_time`), `job_group`,
+  CASE WHEN `handle_code` = 200 THEN 1 WHEN (`trigger_code` in (0, 200) and `handle_code` = 0) THEN 0 ELSE 2 END AS `status`,
+  COUNT(1)
+FROM `xxl_job_log`
+WHERE `trigger_time` IS NOT NULL
+GROUP BY DATE(`trigger_time`), `job_group`, `status`;
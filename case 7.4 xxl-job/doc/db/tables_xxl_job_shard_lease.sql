@@ -0,0 +1,18 @@
+#
+# XXL-JOB, schedule mode "lease" (xxl.job.schedule.mode=lease)
+#
+USE `xxl_job`;
+
+CREATE TABLE `xxl_job_shard_lease` (
+  `shard_id` int(11) NOT NULL COMMENT '分片ID，任务所属分片 = 任务ID % 分片总数',
+  `owner` varchar(100) DEFAULT NULL COMMENT '租约持有者，调度中心节点ID',
+  `heartbeat_time` bigint(13) NOT NULL DEFAULT '0' COMMENT '最近续约时间',
+  `lease_expire_time` bigint(13) NOT NULL DEFAULT '0' COMMENT '租约过期时间',
+  PRIMARY KEY (`shard_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+CREATE TABLE `xxl_job_shard_node` (
+  `node_id` varchar(100) NOT NULL COMMENT '调度中心节点ID',
+  `heartbeat_time` bigint(13) NOT NULL DEFAULT '0' COMMENT '最近心跳时间',
+  PRIMARY KEY (`node_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -5,6 +5,9 @@ import com.xxl.job.admin.core.exception.XxlJobException;
 import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.core.model.XxlJobLogPurge;
+import com.xxl.job.admin.core.thread.JobLogPurgeHelper;
+import com.xxl.job.admin.core.thread.JobLogReportHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.admin.dao.XxlJobGroupDao;
 import com.xxl.job.admin.dao.XxlJobInfoDao;
@@ -178,10 +181,12 @@ public class JobLogController {
 		}
 
 		if (ReturnT.SUCCESS_CODE == runResult.getCode()) {
+			int oldStatus = JobLogReportHelper.status(log.getTriggerCode(), log.getHandleCode());
 			log.setHandleCode(ReturnT.FAIL_CODE);
 			log.setHandleMsg( I18nUtil.getString("joblog_kill_log_byman")+":" + (runResult.getMsg()!=null?runResult.getMsg():""));
 			log.setHandleTime(new Date());
 			xxlJobLogDao.updateHandleInfo(log);
+			JobLogReportHelper.getInstance().report(log.getTriggerTime(), log.getJobGroup(), oldStatus, JobLogReportHelper.STATUS_FAIL);
 			return new ReturnT<String>(runResult.getMsg());
 		} else {
 			return new ReturnT<String>(500, runResult.getMsg());
@@ -216,8 +221,14 @@ public class JobLogController {
 			return new ReturnT<String>(ReturnT.FAIL_CODE, I18nUtil.getString("joblog_clean_type_unvalid"));
 		}
 
-		xxlJobLogDao.clearLog(jobGroup, jobId, clearBeforeTime, clearBeforeNum);
-		return ReturnT.SUCCESS;
+		// purge in background, by id range chunk: return once queued, content = purge task id
+		XxlJobLogPurge purge = JobLogPurgeHelper.getInstance().submit(jobGroup, jobId, clearBeforeTime, clearBeforeNum);
+		if (purge == null) {
+			return new ReturnT<String>(ReturnT.SUCCESS_CODE, I18nUtil.getString("joblog_clean_nothing"));
+		}
+		ReturnT<String> ret = new ReturnT<String>(ReturnT.SUCCESS_CODE, I18nUtil.getString("joblog_clean_queued"));
+		ret.setContent(String.valueOf(purge.getId()));
+		return ret;
 	}
 
 }
@@ -1,9 +1,13 @@
 package com.xxl.job.admin.core.conf;
 
+import com.xxl.job.admin.core.cron.CompiledCronExpression;
 import com.xxl.job.admin.dao.XxlJobGroupDao;
 import com.xxl.job.admin.dao.XxlJobInfoDao;
 import com.xxl.job.admin.dao.XxlJobLogDao;
+import com.xxl.job.admin.dao.XxlJobLogPurgeDao;
+import com.xxl.job.admin.dao.XxlJobLogReportDao;
 import com.xxl.job.admin.dao.XxlJobRegistryDao;
+import com.xxl.job.admin.dao.XxlJobShardLeaseDao;
 import com.xxl.job.core.biz.AdminBiz;
 import org.springframework.beans.factory.InitializingBean;
 import org.springframework.beans.factory.annotation.Value;
@@ -27,7 +31,11 @@ public class XxlJobAdminConfig implements InitializingBean{
 
     @Override
     public void afterPropertiesSet() throws Exception {
+        if (routeHashLoadFactor != 0 && routeHashLoadFactor <= 1) {
+            throw new IllegalArgumentException("xxl-job, xxl.job.route.consistentHash.loadFactor invalid, must be 0 (disabled) or greater than 1: " + routeHashLoadFactor);
+        }
         adminConfig = this;
+        CompiledCronExpression.setCacheMax(cronCacheSize);
     }
 
     // conf
@@ -40,6 +48,42 @@ public class XxlJobAdminConfig implements InitializingBean{
     @Value("${spring.mail.username}")
     private String emailUserName;
 
+    @Value("${xxl.job.schedule.ring:second}")
+    private String scheduleRing;
+
+    @Value("${xxl.job.schedule.preReadMs:5000}")
+    private long schedulePreReadMs;
+
+    @Value("${xxl.job.schedule.mode:lock}")
+    private String scheduleMode;
+
+    @Value("${xxl.job.schedule.shardCount:16}")
+    private int scheduleShardCount;
+
+    @Value("${xxl.job.triggerpool.groupMax:30}")
+    private int triggerPoolGroupMax;
+
+    @Value("${xxl.job.triggerpool.virtual:false}")
+    private boolean triggerPoolVirtual;
+
+    @Value("${xxl.job.route.consistentHash.virtualNodes:160}")
+    private int routeHashVirtualNodes;
+
+    @Value("${xxl.job.route.consistentHash.loadFactor:0}")
+    private double routeHashLoadFactor;
+
+    @Value("${xxl.job.logretentiondays:-1}")
+    private int logRetentionDays;
+
+    @Value("${xxl.job.logpurge.rowsPerSecond:1000}")
+    private int logPurgeRowsPerSecond;
+
+    @Value("${xxl.job.logpurge.chunkSize:1000}")
+    private int logPurgeChunkSize;
+
+    @Value("${xxl.job.cron.cacheSize:100000}")
+    private int cronCacheSize;
+
     // dao, service
 
     @Resource
@@ -51,6 +95,12 @@ public class XxlJobAdminConfig implements InitializingBean{
     @Resource
     private XxlJobGroupDao xxlJobGroupDao;
     @Resource
+    private XxlJobShardLeaseDao xxlJobShardLeaseDao;
+    @Resource
+    private XxlJobLogReportDao xxlJobLogReportDao;
+    @Resource
+    private XxlJobLogPurgeDao xxlJobLogPurgeDao;
+    @Resource
     private AdminBiz adminBiz;
     @Resource
     private JavaMailSender mailSender;
@@ -70,6 +120,54 @@ public class XxlJobAdminConfig implements InitializingBean{
         return emailUserName;
     }
 
+    public String getScheduleRing() {
+        return scheduleRing;
+    }
+
+    public long getSchedulePreReadMs() {
+        return schedulePreReadMs;
+    }
+
+    public String getScheduleMode() {
+        return scheduleMode;
+    }
+
+    public int getScheduleShardCount() {
+        return scheduleShardCount;
+    }
+
+    public int getTriggerPoolGroupMax() {
+        return triggerPoolGroupMax;
+    }
+
+    public boolean isTriggerPoolVirtual() {
+        return triggerPoolVirtual;
+    }
+
+    public int getRouteHashVirtualNodes() {
+        return routeHashVirtualNodes;
+    }
+
+    public double getRouteHashLoadFactor() {
+        return routeHashLoadFactor;
+    }
+
+    public int getLogRetentionDays() {
+        return logRetentionDays;
+    }
+
+    public int getLogPurgeRowsPerSecond() {
+        return logPurgeRowsPerSecond;
+    }
+
+    public int getLogPurgeChunkSize() {
+        return logPurgeChunkSize;
+    }
+
+    public int getCronCacheSize() {
+        return cronCacheSize;
+    }
+
     public XxlJobLogDao getXxlJobLogDao() {
         return xxlJobLogDao;
     }
@@ -86,6 +184,18 @@ public class XxlJobAdminConfig implements InitializingBean{
         return xxlJobGroupDao;
     }
 
+    public XxlJobShardLeaseDao getXxlJobShardLeaseDao() {
+        return xxlJobShardLeaseDao;
+    }
+
+    public XxlJobLogReportDao getXxlJobLogReportDao() {
+        return xxlJobLogReportDao;
+    }
+
+    public XxlJobLogPurgeDao getXxlJobLogPurgeDao() {
+        return xxlJobLogPurgeDao;
+    }
+
     public AdminBiz getAdminBiz() {
         return adminBiz;
     }
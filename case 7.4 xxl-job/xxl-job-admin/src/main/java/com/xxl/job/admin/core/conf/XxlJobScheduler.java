@@ -1,8 +1,11 @@
 package com.xxl.job.admin.core.conf;
 
 import com.xxl.job.admin.core.thread.JobFailMonitorHelper;
+import com.xxl.job.admin.core.thread.JobLogPurgeHelper;
+import com.xxl.job.admin.core.thread.JobLogReportHelper;
 import com.xxl.job.admin.core.thread.JobRegistryMonitorHelper;
 import com.xxl.job.admin.core.thread.JobScheduleHelper;
+import com.xxl.job.admin.core.thread.JobShardLeaseHelper;
 import com.xxl.job.admin.core.thread.JobTriggerPoolHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.core.biz.AdminBiz;
@@ -42,15 +45,29 @@ public class XxlJobScheduler implements InitializingBean, DisposableBean {
         // init i18n
         initI18n();
 
+        // admin trigger pool start
+        JobTriggerPoolHelper.toStart();
+
         // admin registry monitor run
         JobRegistryMonitorHelper.getInstance().start();
 
         // admin monitor run
         JobFailMonitorHelper.getInstance().start();
 
+        // admin log report run
+        JobLogReportHelper.getInstance().start();
+
+        // admin log purge run
+        JobLogPurgeHelper.getInstance().start();
+
         // admin-server
         initRpcProvider();
 
+        // schedule shard lease
+        if ("lease".equals(XxlJobAdminConfig.getAdminConfig().getScheduleMode())) {
+            JobShardLeaseHelper.getInstance().start();
+        }
+
         // start-schedule
         JobScheduleHelper.getInstance().start();
 
@@ -63,6 +80,11 @@ public class XxlJobScheduler implements InitializingBean, DisposableBean {
         // stop-schedule
         JobScheduleHelper.getInstance().toStop();
 
+        // schedule shard lease stop
+        if ("lease".equals(XxlJobAdminConfig.getAdminConfig().getScheduleMode())) {
+            JobShardLeaseHelper.getInstance().toStop();
+        }
+
         // admin trigger pool stop
         JobTriggerPoolHelper.toStop();
 
@@ -72,8 +94,14 @@ public class XxlJobScheduler implements InitializingBean, DisposableBean {
         // admin monitor stop
         JobFailMonitorHelper.getInstance().toStop();
 
+        // admin log purge stop
+        JobLogPurgeHelper.getInstance().toStop();
+
         // admin-server
         stopRpcProvider();
+
+        // admin log report stop (after callback stop, write remaining)
+        JobLogReportHelper.getInstance().toStop();
     }
 
     // ---------------------- I18n ----------------------
@@ -0,0 +1,367 @@
+package com.xxl.job.admin.core.cron;
+
+import java.text.ParseException;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+/**
+ * compiled cron expression, field bit mask + civil date arithmetic (no TreeSet / Calendar walk)
+ *
+ *      1、compile: parse by CronExpression once, convert field TreeSet to bit mask;
+ *      2、next time: scan field masks on local wall time, days computed by proleptic gregorian arithmetic;
+ *      3、"L" / "W" / "#" expression keep CronExpression (delegate);
+ *      4、compiled expression is immutable, cached by cron string (bounded LRU, size "xxl.job.cron.cacheSize");
+ */
+public final class CompiledCronExpression {
+
+    // ---------------------- cache ----------------------
+
+    private static final int DEFAULT_CACHE_MAX = 100000;         // above distinct cron count of 50k jobs
+    private static volatile int cacheMax = DEFAULT_CACHE_MAX;
+    private static final Map<String, CompiledCronExpression> CACHE = new LinkedHashMap<String, CompiledCronExpression>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledCronExpression> eldest) {
+            return size() > cacheMax;
+        }
+    };
+
+    /**
+     * cache size, should be above distinct cron count of all jobs; when shrunk, eldest entries evicted one per put
+     *
+     * @param cacheSize
+     */
+    public static void setCacheMax(int cacheSize) {
+        cacheMax = cacheSize > 0 ? cacheSize : DEFAULT_CACHE_MAX;
+    }
+
+    public static int getCacheMax() {
+        return cacheMax;
+    }
+
+    /**
+     * compile cron, load from cache if exists
+     *
+     * @param cron
+     * @return
+     * @throws ParseException
+     */
+    public static CompiledCronExpression compile(String cron) throws ParseException {
+        synchronized (CACHE) {
+            CompiledCronExpression compiled = CACHE.get(cron);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+
+        CompiledCronExpression compiled = new CompiledCronExpression(new CronExpression(cron));
+        synchronized (CACHE) {
+            CACHE.put(cron, compiled);
+        }
+        return compiled;
+    }
+
+    // ---------------------- compiled ----------------------
+
+    private static final long MS_PER_SECOND = 1000L;
+    private static final long SECONDS_PER_DAY = 86400L;
+
+    private final CronExpression expression;
+    private final boolean delegate;         // "L" / "W" / "#", use CronExpression
+
+    private final long secondMask;          // bit 0-59
+    private final long minuteMask;          // bit 0-59
+    private final int hourMask;             // bit 0-23
+    private final long dayOfMonthMask;      // bit 1-31, 0 = not spec ('?')
+    private final int monthMask;            // bit 1-12
+    private final int dayOfWeekMask;        // bit 1-7 (1 = SUN), 0 = not spec ('?')
+    private final BitSet years;             // bit = year
+
+    private final TimeZone timeZone;
+    private final boolean fixedOffset;
+    private final int rawOffset;
+
+    CompiledCronExpression(CronExpression expression) {
+        this.expression = expression;
+        this.delegate = expression.lastdayOfMonth || expression.nearestWeekday
+                || expression.lastdayOfWeek || expression.nthdayOfWeek != 0;
+
+        this.secondMask = toMask(expression.seconds, 0, 59);
+        this.minuteMask = toMask(expression.minutes, 0, 59);
+        this.hourMask = (int) toMask(expression.hours, 0, 23);
+        this.dayOfMonthMask = expression.daysOfMonth.contains(CronExpression.NO_SPEC) ? 0 : toMask(expression.daysOfMonth, 1, 31);
+        this.monthMask = (int) toMask(expression.months, 1, 12);
+        this.dayOfWeekMask = expression.daysOfWeek.contains(CronExpression.NO_SPEC) ? 0 : (int) toMask(expression.daysOfWeek, 1, 7);
+        this.years = new BitSet(CronExpression.MAX_YEAR + 1);
+        for (Integer year: expression.years) {
+            if (year >= 1970 && year <= CronExpression.MAX_YEAR) {
+                this.years.set(year);
+            }
+        }
+
+        this.timeZone = expression.getTimeZone();
+        this.rawOffset = timeZone.getRawOffset();
+        this.fixedOffset = !timeZone.useDaylightTime() && timeZone.getOffset(System.currentTimeMillis()) == rawOffset;
+    }
+
+    private static long toMask(TreeSet<Integer> values, int min, int max) {
+        long mask = 0;
+        for (Integer value: values) {
+            if (value >= min && value <= max) {        // skip '*' / '?' marker
+                mask |= 1L << value;
+            }
+        }
+        return mask;
+    }
+
+    public String getCronExpression() {
+        return expression.getCronExpression();
+    }
+
+    /**
+     * next valid time after the given time
+     *
+     * @param date
+     * @return  null if not exists
+     */
+    public Date getNextValidTimeAfter(Date date) {
+        long nextTime = getNextValidTimeAfter(date.getTime());
+        return nextTime > 0 ? new Date(nextTime) : null;
+    }
+
+    /**
+     * next valid time after the given time
+     *
+     * @param afterTime
+     * @return  -1 if not exists
+     */
+    public long getNextValidTimeAfter(long afterTime) {
+        if (delegate) {
+            Date nextTime = expression.getNextValidTimeAfter(new Date(afterTime));
+            return nextTime != null ? nextTime.getTime() : -1;
+        }
+
+        // wall time, next second
+        long localSecond = floorDiv(afterTime + offsetOfUtc(afterTime), MS_PER_SECOND) + 1;
+        while (true) {
+            long localNext = nextLocalSecond(localSecond);
+            if (localNext < 0) {
+                return -1;
+            }
+
+            // wall time to utc; skip wall time not exists (dst gap) or not after (dst overlap)
+            long localMs = localNext * MS_PER_SECOND;
+            long utcTime = localMs - offsetOfLocal(localMs);
+            if (utcTime > afterTime && utcTime + offsetOfUtc(utcTime) == localMs) {
+                return utcTime;
+            }
+            localSecond = localNext + 1;
+        }
+    }
+
+    private int offsetOfUtc(long utcTime) {
+        return fixedOffset ? rawOffset : timeZone.getOffset(utcTime);
+    }
+
+    private int offsetOfLocal(long localMs) {
+        if (fixedOffset) {
+            return rawOffset;
+        }
+        int offset = timeZone.getOffset(localMs - rawOffset);
+        return timeZone.getOffset(localMs - offset);
+    }
+
+    /**
+     * next matched wall time (second since epoch, local), >= localSecond
+     */
+    private long nextLocalSecond(long localSecond) {
+        long epochDay = floorDiv(localSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) (localSecond - epochDay * SECONDS_PER_DAY);
+
+        int[] ymd = civilFromDays(epochDay);
+        int year = ymd[0];
+        int month = ymd[1];
+        int day = ymd[2];
+        int hour = secondOfDay / 3600;
+        int minute = secondOfDay / 60 % 60;
+        int second = secondOfDay % 60;
+
+        while (true) {
+            // year
+            if (year > CronExpression.MAX_YEAR) {
+                return -1;
+            }
+            if (!years.get(year)) {
+                int nextYear = years.nextSetBit(year);
+                if (nextYear < 0) {
+                    return -1;
+                }
+                year = nextYear; month = 1; day = 1; hour = 0; minute = 0; second = 0;
+            }
+
+            // month
+            int nextMonth = nextBit(monthMask, month);
+            if (nextMonth > 12) {
+                year++; month = 1; day = 1; hour = 0; minute = 0; second = 0;
+                continue;
+            }
+            if (nextMonth != month) {
+                month = nextMonth; day = 1; hour = 0; minute = 0; second = 0;
+            }
+
+            // day
+            int lastDay = lastDayOfMonth(year, month);
+            int nextDay = nextDay(year, month, day, lastDay);
+            if (nextDay > lastDay) {
+                month++; day = 1; hour = 0; minute = 0; second = 0;
+                if (month > 12) {
+                    year++; month = 1;
+                }
+                continue;
+            }
+            if (nextDay != day) {
+                day = nextDay; hour = 0; minute = 0; second = 0;
+            }
+
+            // hour
+            int nextHour = nextBit(hourMask, hour);
+            if (nextHour > 23) {
+                day++; hour = 0; minute = 0; second = 0;
+                if (day > lastDay) {
+                    month++; day = 1;
+                    if (month > 12) {
+                        year++; month = 1;
+                    }
+                }
+                continue;
+            }
+            if (nextHour != hour) {
+                hour = nextHour; minute = 0; second = 0;
+            }
+
+            // minute
+            int nextMinute = nextBit(minuteMask, minute);
+            if (nextMinute > 59) {
+                hour++; minute = 0; second = 0;
+                if (hour > 23) {
+                    hour = 0;
+                    day++;
+                    if (day > lastDay) {
+                        month++; day = 1;
+                        if (month > 12) {
+                            year++; month = 1;
+                        }
+                    }
+                }
+                continue;
+            }
+            if (nextMinute != minute) {
+                minute = nextMinute; second = 0;
+            }
+
+            // second
+            int nextSecond = nextBit(secondMask, second);
+            if (nextSecond > 59) {
+                minute++; second = 0;
+                if (minute > 59) {
+                    minute = 0;
+                    hour++;
+                    if (hour > 23) {
+                        hour = 0;
+                        day++;
+                        if (day > lastDay) {
+                            month++; day = 1;
+                            if (month > 12) {
+                                year++; month = 1;
+                            }
+                        }
+                    }
+                }
+                continue;
+            }
+
+            return daysFromCivil(year, month, day) * SECONDS_PER_DAY + hour * 3600 + minute * 60 + nextSecond;
+        }
+    }
+
+    private int nextDay(int year, int month, int day, int lastDay) {
+        if (dayOfWeekMask == 0) {
+            return nextBit(dayOfMonthMask, day);
+        }
+        int dayOfWeek = dayOfWeek(daysFromCivil(year, month, day));
+        for (; day <= lastDay; day++) {
+            if ((dayOfWeekMask & (1 << dayOfWeek)) != 0) {
+                return day;
+            }
+            dayOfWeek = dayOfWeek == 7 ? 1 : dayOfWeek + 1;
+        }
+        return day;
+    }
+
+    /**
+     * lowest set bit >= from, 64 if not exists
+     */
+    private static int nextBit(long mask, int from) {
+        if (from > 63) {
+            return 64;
+        }
+        return Long.numberOfTrailingZeros(mask & (-1L << from));
+    }
+
+    // ---------------------- civil date ----------------------
+
+    private static long floorDiv(long x, long y) {
+        long r = x / y;
+        if ((x % y != 0) && ((x ^ y) < 0)) {
+            r--;
+        }
+        return r;
+    }
+
+    /**
+     * 1 = SUN ... 7 = SAT (1970-01-01 is THU)
+     */
+    private static int dayOfWeek(long epochDay) {
+        return (int) ((epochDay % 7 + 7 + 4) % 7) + 1;
+    }
+
+    private static int lastDayOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return ((year % 4 == 0 && year % 100 != 0) || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097L + doe - 719468;
+    }
+
+    static int[] civilFromDays(long epochDay) {
+        long z = epochDay + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int day = doy - (153 * mp + 2) / 5 + 1;
+        int month = mp < 10 ? mp + 3 : mp - 9;
+        int year = (int) (yoe + era * 400) + (month <= 2 ? 1 : 0);
+        return new int[]{year, month, day};
+    }
+
+}
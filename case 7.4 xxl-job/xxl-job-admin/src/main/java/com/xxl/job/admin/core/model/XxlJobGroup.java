@@ -19,12 +19,16 @@ public class XxlJobGroup {
     // registry list
     private List<String> registryList;  // 执行器地址列表(系统注册)
     public List<String> getRegistryList() {
-        if (addressList!=null && addressList.trim().length()>0) {
+        if (registryList==null && addressList!=null && addressList.trim().length()>0) {
             registryList = new ArrayList<String>(Arrays.asList(addressList.split(",")));
         }
         return registryList;
     }
 
+    public void setRegistryList(List<String> registryList) {
+        this.registryList = registryList;
+    }
+
     public int getId() {
         return id;
     }
@@ -71,6 +75,7 @@ public class XxlJobGroup {
 
     public void setAddressList(String addressList) {
         this.addressList = addressList;
+        this.registryList = null;
     }
 
 }
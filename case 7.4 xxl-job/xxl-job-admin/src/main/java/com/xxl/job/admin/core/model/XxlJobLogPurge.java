@@ -0,0 +1,101 @@
+package com.xxl.job.admin.core.model;
+
+import java.util.Date;
+
+/**
+ * log purge task, delete xxl_job_log by id range chunk, resume from cursor
+ */
+public class XxlJobLogPurge {
+
+    private int id;
+    private int jobGroup;               // 0=全部
+    private int jobId;                  // 0=全部
+    private Date clearBeforeTime;       // null=不限
+    private long maxId;                 // 清理范围，日志ID <= maxId
+    private long cursorId;              // 清理进度，日志ID < cursorId 已清理
+    private long deleteCount;
+    private int status;                 // 状态：0-进行中、1-完成
+    private Date addTime;
+    private Date updateTime;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public int getJobGroup() {
+        return jobGroup;
+    }
+
+    public void setJobGroup(int jobGroup) {
+        this.jobGroup = jobGroup;
+    }
+
+    public int getJobId() {
+        return jobId;
+    }
+
+    public void setJobId(int jobId) {
+        this.jobId = jobId;
+    }
+
+    public Date getClearBeforeTime() {
+        return clearBeforeTime;
+    }
+
+    public void setClearBeforeTime(Date clearBeforeTime) {
+        this.clearBeforeTime = clearBeforeTime;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public void setMaxId(long maxId) {
+        this.maxId = maxId;
+    }
+
+    public long getCursorId() {
+        return cursorId;
+    }
+
+    public void setCursorId(long cursorId) {
+        this.cursorId = cursorId;
+    }
+
+    public long getDeleteCount() {
+        return deleteCount;
+    }
+
+    public void setDeleteCount(long deleteCount) {
+        this.deleteCount = deleteCount;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public Date getAddTime() {
+        return addTime;
+    }
+
+    public void setAddTime(Date addTime) {
+        this.addTime = addTime;
+    }
+
+    public Date getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(Date updateTime) {
+        this.updateTime = updateTime;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.xxl.job.admin.core.model;
+
+import java.util.Date;
+
+/**
+ * trigger statistics rollup, count of log by day + job group + status
+ */
+public class XxlJobLogReport {
+
+    private int id;
+    private Date triggerDay;
+    private int jobGroup;
+    private int status;         // 调度状态：0-运行中、1-成功、2-失败
+    private long count;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public Date getTriggerDay() {
+        return triggerDay;
+    }
+
+    public void setTriggerDay(Date triggerDay) {
+        this.triggerDay = triggerDay;
+    }
+
+    public int getJobGroup() {
+        return jobGroup;
+    }
+
+    public void setJobGroup(int jobGroup) {
+        this.jobGroup = jobGroup;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public void setStatus(int status) {
+        this.status = status;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public void setCount(long count) {
+        this.count = count;
+    }
+
+}
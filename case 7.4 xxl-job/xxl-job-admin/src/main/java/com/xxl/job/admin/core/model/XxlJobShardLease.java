@@ -0,0 +1,44 @@
+package com.xxl.job.admin.core.model;
+
+/**
+ * schedule shard lease, job belong to shard "id % shardCount"
+ */
+public class XxlJobShardLease {
+
+    private int shardId;
+    private String owner;               // admin node id, null = free
+    private long heartbeatTime;
+    private long leaseExpireTime;
+
+    public int getShardId() {
+        return shardId;
+    }
+
+    public void setShardId(int shardId) {
+        this.shardId = shardId;
+    }
+
+    public String getOwner() {
+        return owner;
+    }
+
+    public void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    public long getHeartbeatTime() {
+        return heartbeatTime;
+    }
+
+    public void setHeartbeatTime(long heartbeatTime) {
+        this.heartbeatTime = heartbeatTime;
+    }
+
+    public long getLeaseExpireTime() {
+        return leaseExpireTime;
+    }
+
+    public void setLeaseExpireTime(long leaseExpireTime) {
+        this.leaseExpireTime = leaseExpireTime;
+    }
+}
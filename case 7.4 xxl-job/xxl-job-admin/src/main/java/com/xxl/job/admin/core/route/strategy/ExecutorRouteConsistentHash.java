@@ -1,79 +1,270 @@
 package com.xxl.job.admin.core.route.strategy;
 
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
 import com.xxl.job.admin.core.route.ExecutorRouter;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
 
-import java.io.UnsupportedEncodingException;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
-import java.util.SortedMap;
-import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicIntegerArray;
 
 /**
  * 分组下机器地址相同，不同JOB均匀散列在不同机器上，保证分组下机器分配JOB平均；且每个JOB固定调度其中一台机器；
- *      a、virtual node：解决不均衡问题
- *      b、hash method replace hashCode：String的hashCode可能重复，需要进一步扩大hashCode的取值范围
+ *      a、virtual node：解决不均衡问题（默认160，可配置）
+ *      b、hash method replace hashCode：String的hashCode可能重复，需要进一步扩大hashCode的取值范围（64位 FNV-1a + murmur3 fmix，非加密hash）
+ *      c、ring cache：按机器地址列表内容缓存 hash 环，命中无对象分配；闲置超过 RING_IDLE_TIMEOUT（开启 bounded load 时 2 个 RELEASE_INTERVAL，保留分配）的 hash 环（地址变更后的旧列表）在新建时清理；
+ *      d、bounded load（默认关闭）：单台机器分配JOB数不超过 c * 平均值，超出时沿环顺延；JOB闲置超过 1-2 个 RELEASE_INTERVAL 释放分配（JOB删除/停止）；
+ *          分配按各调度中心本地的JOB首次触发顺序计算，多调度中心、重启后同一JOB可能路由到不同机器，需要固定机器时不要开启；
  * Created by xuxueli on 17/3/10.
  */
 public class ExecutorRouteConsistentHash extends ExecutorRouter {
 
-    private static int VIRTUAL_NODE_NUM = 5;
+    public static final double DEFAULT_LOAD_FACTOR = 0;
+    private static final int DEFAULT_VIRTUAL_NODE_NUM = 160;
+    private static final int RING_CACHE_MAX = 1000;
+    static final long RING_IDLE_TIMEOUT = 10 * 60 * 1000L;
+    static final long RELEASE_INTERVAL = 24 * 60 * 60 * 1000L;
+
+    private static ConcurrentMap<List<String>, HashRing> ringMap = new ConcurrentHashMap<List<String>, HashRing>();
 
     /**
-     * get hash code on 2^32 ring (md5散列的方式计算hash值)
+     * get hash code on 2^64 (FNV-1a + murmur3 fmix64)
      * @param key
      * @return
      */
-    private static long hash(String key) {
-
-        // md5 byte
-        MessageDigest md5;
-        try {
-            md5 = MessageDigest.getInstance("MD5");
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("MD5 not supported", e);
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            hash ^= key.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return fmix64(hash);
+    }
+
+    static long fmix64(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    /**
+     * hash ring of one address list, immutable except bounded load assignment
+     */
+    static class HashRing {
+        private final String[] addresses;
+        private final long[] nodes;                 // sorted, (ring position << 32) | address index
+        private final double loadFactor;
+        private volatile long lastRouteTime;        // ring cache idle, second precision
+
+        // bounded load assignment, jobId -> address index + last route epoch; written under lock, read lock-free
+        private final int[] loads;
+        private int assignCount = 0;
+        private volatile int assignEpoch = -1;
+        private volatile AtomicIntegerArray assignTable = new AtomicIntegerArray(3 * 64);   // [jobId + 1, address index, epoch], 0 = empty
+
+        HashRing(List<String> addressList, int virtualNodeNum, double loadFactor) {
+            this.addresses = addressList.toArray(new String[addressList.size()]);
+            this.nodes = new long[addresses.length * virtualNodeNum];
+            this.loadFactor = loadFactor;
+            this.loads = new int[addresses.length];
+
+            // ------A1------A2-------A3------
+            // -----------J1------------------
+            int n = 0;
+            for (int index = 0; index < addresses.length; index++) {
+                for (int i = 0; i < virtualNodeNum; i++) {
+                    long position = hash("SHARD-" + addresses[index] + "-NODE-" + i) >>> 32;
+                    nodes[n++] = (position << 32) | index;
+                }
+            }
+            Arrays.sort(nodes);
         }
-        md5.reset();
-        byte[] keyBytes = null;
-        try {
-            keyBytes = key.getBytes("UTF-8");
-        } catch (UnsupportedEncodingException e) {
-            throw new RuntimeException("Unknown string :" + key, e);
+
+        /**
+         * first node clockwise from job position
+         */
+        private int locate(int jobId) {
+            long position = fmix64(jobId) >>> 32;
+            int node = Arrays.binarySearch(nodes, position << 32);
+            if (node < 0) {
+                node = -(node + 1);
+            }
+            return node < nodes.length ? node : 0;
         }
 
-        md5.update(keyBytes);
-        byte[] digest = md5.digest();
+        String route(int jobId) {
+            return route(jobId, System.currentTimeMillis());
+        }
 
-        // hash code, Truncate to 32-bits
-        long hashCode = ((long) (digest[3] & 0xFF) << 24)
-                | ((long) (digest[2] & 0xFF) << 16)
-                | ((long) (digest[1] & 0xFF) << 8)
-                | (digest[0] & 0xFF);
+        String route(int jobId, long nowTime) {
+            if (nowTime - lastRouteTime > 1000) {
+                lastRouteTime = nowTime;
+            }
+            int node = locate(jobId);
+            if (loadFactor <= 1) {
+                return addresses[(int) nodes[node]];
+            }
 
-        long truncateHashCode = hashCode & 0xffffffffL;
-        return truncateHashCode;
-    }
+            // release assignment idle since last epoch
+            int epoch = (int) (nowTime / RELEASE_INTERVAL);
+            if (epoch != assignEpoch) {
+                synchronized (this) {
+                    if (epoch != assignEpoch) {
+                        release(epoch);
+                    }
+                }
+            }
 
-    public String hashJob(int jobId, List<String> addressList) {
+            // bounded load, assigned
+            AtomicIntegerArray table = assignTable;
+            int slot = findSlot(table, jobId);
+            if (slot >= 0) {
+                if (table.get(slot * 3 + 2) != epoch) {
+                    table.set(slot * 3 + 2, epoch);
+                }
+                return addresses[table.get(slot * 3 + 1)];
+            }
+
+            synchronized (this) {
+                table = assignTable;
+                slot = findSlot(table, jobId);
+                if (slot >= 0) {
+                    return addresses[table.get(slot * 3 + 1)];
+                }
+
+                // clockwise, first node under capacity
+                int capacity = (int) Math.ceil(loadFactor * (assignCount + 1) / addresses.length);
+                for (int i = 0; i < nodes.length; i++) {
+                    int index = (int) nodes[(node + i) % nodes.length];
+                    if (loads[index] < capacity) {
+                        loads[index]++;
+                        assignCount++;
+                        putAssigned(jobId, index, epoch);
+                        return addresses[index];
+                    }
+                }
+                return addresses[(int) nodes[node]];   // not reach, total capacity > assign count
+            }
+        }
+
+        /**
+         * keep assignment routed in this or last epoch, under lock
+         */
+        private void release(int epoch) {
+            AtomicIntegerArray table = assignTable;
+            AtomicIntegerArray newTable = new AtomicIntegerArray(table.length());
+            Arrays.fill(loads, 0);
+            assignCount = 0;
+            for (int slot = 0; slot < table.length() / 3; slot++) {
+                int key = table.get(slot * 3);
+                int index = table.get(slot * 3 + 1);
+                int lastEpoch = table.get(slot * 3 + 2);
+                if (key != 0 && lastEpoch >= epoch - 1) {
+                    putSlot(newTable, key, index, lastEpoch);
+                    loads[index]++;
+                    assignCount++;
+                }
+            }
+            assignTable = newTable;
+            assignEpoch = epoch;
+        }
+
+        int getAssignCount() {
+            return assignCount;
+        }
+
+        private static int findSlot(AtomicIntegerArray table, int jobId) {
+            int mask = table.length() / 3 - 1;
+            int slot = (int) fmix64(jobId) & mask;
+            while (true) {
+                int key = table.get(slot * 3);
+                if (key == 0) {
+                    return -1;
+                }
+                if (key == jobId + 1) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        private void putAssigned(int jobId, int index, int epoch) {
+            AtomicIntegerArray table = assignTable;
+            if ((assignCount << 1) > table.length() / 3) {
+                // grow, load factor 0.5
+                AtomicIntegerArray newTable = new AtomicIntegerArray(table.length() << 1);
+                for (int slot = 0; slot < table.length() / 3; slot++) {
+                    int key = table.get(slot * 3);
+                    if (key != 0) {
+                        putSlot(newTable, key, table.get(slot * 3 + 1), table.get(slot * 3 + 2));
+                    }
+                }
+                putSlot(newTable, jobId + 1, index, epoch);
+                assignTable = newTable;
+                return;
+            }
+            putSlot(table, jobId + 1, index, epoch);
+        }
 
-        // ------A1------A2-------A3------
-        // -----------J1------------------
-        TreeMap<Long, String> addressRing = new TreeMap<Long, String>();
-        for (String address: addressList) {
-            for (int i = 0; i < VIRTUAL_NODE_NUM; i++) {
-                long addressHash = hash("SHARD-" + address + "-NODE-" + i);
-                addressRing.put(addressHash, address);
+        private static void putSlot(AtomicIntegerArray table, int key, int index, int epoch) {
+            int mask = table.length() / 3 - 1;
+            int slot = (int) fmix64(key - 1) & mask;
+            while (table.get(slot * 3) != 0) {
+                slot = (slot + 1) & mask;
             }
+            table.set(slot * 3 + 1, index);         // value first, key publish
+            table.set(slot * 3 + 2, epoch);
+            table.set(slot * 3, key);
         }
+    }
+
+    static HashRing loadRing(List<String> addressList) {
+        // by content, hash and equals on cached String hash, no allocation
+        HashRing ring = ringMap.get(addressList);
+        if (ring != null) {
+            return ring;
+        }
+
+        int virtualNodeNum = DEFAULT_VIRTUAL_NODE_NUM;
+        double loadFactor = DEFAULT_LOAD_FACTOR;
+        XxlJobAdminConfig adminConfig = XxlJobAdminConfig.getAdminConfig();
+        if (adminConfig != null) {
+            virtualNodeNum = adminConfig.getRouteHashVirtualNodes() > 0 ? adminConfig.getRouteHashVirtualNodes() : DEFAULT_VIRTUAL_NODE_NUM;
+            loadFactor = adminConfig.getRouteHashLoadFactor();
+        }
+
+        // new address list (registry change or manual list), evict idle ring of old list
+        evictIdleRing(System.currentTimeMillis());
+        if (ringMap.size() >= RING_CACHE_MAX) {
+            ringMap.clear();
+        }
+        ring = new HashRing(addressList, virtualNodeNum, loadFactor);
+        ring.lastRouteTime = System.currentTimeMillis();
+        HashRing exist = ringMap.putIfAbsent(new ArrayList<String>(addressList), ring);
+        return exist != null ? exist : ring;
+    }
 
-        long jobHash = hash(String.valueOf(jobId));
-        SortedMap<Long, String> lastRing = addressRing.tailMap(jobHash);
-        if (!lastRing.isEmpty()) {
-            return lastRing.get(lastRing.firstKey());
+    static void evictIdleRing(long nowTime) {
+        Iterator<HashRing> iterator = ringMap.values().iterator();
+        while (iterator.hasNext()) {
+            HashRing ring = iterator.next();
+            long idleTimeout = ring.loadFactor > 1 ? 2 * RELEASE_INTERVAL : RING_IDLE_TIMEOUT;
+            if (nowTime - ring.lastRouteTime > idleTimeout) {
+                iterator.remove();
+            }
         }
-        return addressRing.firstEntry().getValue();
+    }
+
+    public String hashJob(int jobId, List<String> addressList) {
+        return loadRing(addressList).route(jobId);
     }
 
     @Override
@@ -0,0 +1,113 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * address min-heap of one job, for LFU (key = use count) and LRU (key = last use sequence)
+ *
+ *      1、route: the root (min key) address is chosen, its key updated and sift down, O(log n), no allocation;
+ *      2、address list changed: rebuild heap, key of remain address is kept;
+ *
+ * not thread-safe, guarded by the router (lock per job): held only for one O(log n) sift without allocation, contended only by
+ * concurrent triggers of the same job; a lock-free heap (copy and CAS swap) would copy the whole heap on every route.
+ */
+class ExecutorRouteHeap {
+
+    private final List<String> addressList;     // address index -> address
+    private final long[] keys;                  // address index -> key
+    private final int[] heap;                   // heap position -> address index
+
+    /**
+     * @param addressList
+     * @param oldHeap       keep key of remain address, nullable
+     * @param initKeys      key of new address
+     */
+    ExecutorRouteHeap(List<String> addressList, ExecutorRouteHeap oldHeap, KeyInitializer initKeys) {
+        this.addressList = new ArrayList<String>(addressList);
+        int size = addressList.size();
+        this.keys = new long[size];
+        this.heap = new int[size];
+
+        Map<String, Long> oldKeys = new HashMap<String, Long>();
+        if (oldHeap != null) {
+            for (int i = 0; i < oldHeap.addressList.size(); i++) {
+                oldKeys.put(oldHeap.addressList.get(i), oldHeap.keys[i]);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            Long oldKey = oldKeys.get(addressList.get(i));
+            keys[i] = oldKey != null ? oldKey : initKeys.initKey(i, size);
+            heap[i] = i;
+        }
+        for (int i = size / 2 - 1; i >= 0; i--) {
+            siftDown(i);
+        }
+    }
+
+    interface KeyInitializer {
+        long initKey(int index, int size);
+    }
+
+    /**
+     * same address list, without allocation (address from registry cache, equals is mostly "==")
+     */
+    boolean isSameAddress(List<String> addressList) {
+        int size = this.addressList.size();
+        if (addressList.size() != size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (!this.addressList.get(i).equals(addressList.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    String peekAddress() {
+        return addressList.get(heap[0]);
+    }
+
+    long peekKey() {
+        return keys[heap[0]];
+    }
+
+    /**
+     * update key of the root (min) address
+     */
+    void updatePeekKey(long key) {
+        keys[heap[0]] = key;
+        siftDown(0);
+    }
+
+    private void siftDown(int position) {
+        int size = heap.length;
+        int index = heap[position];
+        while (true) {
+            int child = (position << 1) + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && less(heap[child + 1], heap[child])) {
+                child++;
+            }
+            if (!less(heap[child], index)) {
+                break;
+            }
+            heap[position] = heap[child];
+            position = child;
+        }
+        heap[position] = index;
+    }
+
+    /**
+     * key first, then address index (stable, same order as address list)
+     */
+    private boolean less(int index1, int index2) {
+        return keys[index1] < keys[index2] || (keys[index1] == keys[index2] && index1 < index2);
+    }
+
+}
@@ -4,21 +4,35 @@ import com.xxl.job.admin.core.route.ExecutorRouter;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
 
-import java.util.*;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
  * 单个JOB对应的每个执行器，使用频率最低的优先被选举
  *      a(*)、LFU(Least Frequently Used)：最不经常使用，频率/次数
  *      b、LRU(Least Recently Used)：最近最久未使用，时间
  *
+ * 每个JOB一个最小堆（key=使用次数），按JOB加锁，选举 O(log n)；
+ *
  * Created by xuxueli on 17/3/10.
  */
 public class ExecutorRouteLFU extends ExecutorRouter {
 
-    private static ConcurrentMap<Integer, HashMap<String, Integer>> jobLfuMap = new ConcurrentHashMap<Integer, HashMap<String, Integer>>();
-    private static long CACHE_VALID_TIME = 0;
+    private static ConcurrentMap<Integer, LfuItem> jobLfuMap = new ConcurrentHashMap<Integer, LfuItem>();
+    private static volatile long CACHE_VALID_TIME = 0;
+
+    private static final ExecutorRouteHeap.KeyInitializer LFU_INIT_KEY = new ExecutorRouteHeap.KeyInitializer() {
+        @Override
+        public long initKey(int index, int size) {
+            return ThreadLocalRandom.current().nextInt(size);      // 初始化时主动Random一次，缓解首次压力
+        }
+    };
+
+    private static class LfuItem {
+        private ExecutorRouteHeap lfuHeap;
+    }
 
     public String route(int jobId, List<String> addressList) {
 
@@ -29,45 +43,28 @@ public class ExecutorRouteLFU extends ExecutorRouter {
         }
 
         // lfu item init
-        HashMap<String, Integer> lfuItemMap = jobLfuMap.get(jobId);     // Key排序可以用TreeMap+构造入参Compare；Value排序暂时只能通过ArrayList；
-        if (lfuItemMap == null) {
-            lfuItemMap = new HashMap<String, Integer>();
-            jobLfuMap.putIfAbsent(jobId, lfuItemMap);   // 避免重复覆盖
-        }
-
-        // put new
-        for (String address: addressList) {
-            if (!lfuItemMap.containsKey(address) || lfuItemMap.get(address) >1000000 ) {
-                lfuItemMap.put(address, new Random().nextInt(addressList.size()));  // 初始化时主动Random一次，缓解首次压力
-            }
-        }
-        // remove old
-        List<String> delKeys = new ArrayList<>();
-        for (String existKey: lfuItemMap.keySet()) {
-            if (!addressList.contains(existKey)) {
-                delKeys.add(existKey);
-            }
-        }
-        if (delKeys.size() > 0) {
-            for (String delKey: delKeys) {
-                lfuItemMap.remove(delKey);
+        LfuItem lfuItem = jobLfuMap.get(jobId);
+        if (lfuItem == null) {
+            lfuItem = new LfuItem();
+            LfuItem exist = jobLfuMap.putIfAbsent(jobId, lfuItem);   // 避免重复覆盖
+            if (exist != null) {
+                lfuItem = exist;
             }
         }
 
-        // load least userd count address
-        List<Map.Entry<String, Integer>> lfuItemList = new ArrayList<Map.Entry<String, Integer>>(lfuItemMap.entrySet());
-        Collections.sort(lfuItemList, new Comparator<Map.Entry<String, Integer>>() {
-            @Override
-            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2) {
-                return o1.getValue().compareTo(o2.getValue());
+        synchronized (lfuItem) {
+            // address changed: put new, remove old
+            if (lfuItem.lfuHeap == null || !lfuItem.lfuHeap.isSameAddress(addressList)) {
+                lfuItem.lfuHeap = new ExecutorRouteHeap(addressList, lfuItem.lfuHeap, LFU_INIT_KEY);
             }
-        });
-
-        Map.Entry<String, Integer> addressItem = lfuItemList.get(0);
-        String minAddress = addressItem.getKey();
-        addressItem.setValue(addressItem.getValue() + 1);
+            ExecutorRouteHeap lfuHeap = lfuItem.lfuHeap;
 
-        return addressItem.getKey();
+            // load least used count address
+            String address = lfuHeap.peekAddress();
+            long count = lfuHeap.peekKey() + 1;
+            lfuHeap.updatePeekKey(count > 1000000 ? LFU_INIT_KEY.initKey(0, addressList.size()) : count);
+            return address;
+        }
     }
 
     @Override
@@ -4,8 +4,6 @@ import com.xxl.job.admin.core.route.ExecutorRouter;
 import com.xxl.job.core.biz.model.ReturnT;
 import com.xxl.job.core.biz.model.TriggerParam;
 
-import java.util.ArrayList;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
@@ -15,12 +13,24 @@ import java.util.concurrent.ConcurrentMap;
  *      a、LFU(Least Frequently Used)：最不经常使用，频率/次数
  *      b(*)、LRU(Least Recently Used)：最近最久未使用，时间
  *
+ * 每个JOB一个最小堆（key=最近使用序号，新地址按列表顺序追加为最近使用），按JOB加锁，选举 O(log n)；
+ *
  * Created by xuxueli on 17/3/10.
  */
 public class ExecutorRouteLRU extends ExecutorRouter {
 
-    private static ConcurrentMap<Integer, LinkedHashMap<String, String>> jobLRUMap = new ConcurrentHashMap<Integer, LinkedHashMap<String, String>>();
-    private static long CACHE_VALID_TIME = 0;
+    private static ConcurrentMap<Integer, LruItem> jobLRUMap = new ConcurrentHashMap<Integer, LruItem>();
+    private static volatile long CACHE_VALID_TIME = 0;
+
+    private static class LruItem implements ExecutorRouteHeap.KeyInitializer {
+        private ExecutorRouteHeap lruHeap;
+        private long sequence = 0;
+
+        @Override
+        public long initKey(int index, int size) {
+            return ++sequence;
+        }
+    }
 
     public String route(int jobId, List<String> addressList) {
 
@@ -31,40 +41,26 @@ public class ExecutorRouteLRU extends ExecutorRouter {
         }
 
         // init lru
-        LinkedHashMap<String, String> lruItem = jobLRUMap.get(jobId);
+        LruItem lruItem = jobLRUMap.get(jobId);
         if (lruItem == null) {
-            /**
-             * LinkedHashMap
-             *      a、accessOrder：ture=访问顺序排序（get/put时排序）；false=插入顺序排期；
-             *      b、removeEldestEntry：新增元素时将会调用，返回true时会删除最老元素；可封装LinkedHashMap并重写该方法，比如定义最大容量，超出是返回true即可实现固定长度的LRU算法；
-             */
-            lruItem = new LinkedHashMap<String, String>(16, 0.75f, true);
-            jobLRUMap.putIfAbsent(jobId, lruItem);
-        }
-
-        // put new
-        for (String address: addressList) {
-            if (!lruItem.containsKey(address)) {
-                lruItem.put(address, address);
-            }
-        }
-        // remove old
-        List<String> delKeys = new ArrayList<>();
-        for (String existKey: lruItem.keySet()) {
-            if (!addressList.contains(existKey)) {
-                delKeys.add(existKey);
+            lruItem = new LruItem();
+            LruItem exist = jobLRUMap.putIfAbsent(jobId, lruItem);
+            if (exist != null) {
+                lruItem = exist;
             }
         }
-        if (delKeys.size() > 0) {
-            for (String delKey: delKeys) {
-                lruItem.remove(delKey);
+
+        synchronized (lruItem) {
+            // address changed: put new, remove old
+            if (lruItem.lruHeap == null || !lruItem.lruHeap.isSameAddress(addressList)) {
+                lruItem.lruHeap = new ExecutorRouteHeap(addressList, lruItem.lruHeap, lruItem);
             }
-        }
 
-        // load
-        String eldestKey = lruItem.entrySet().iterator().next().getKey();
-        String eldestValue = lruItem.get(eldestKey);
-        return eldestValue;
+            // load eldest, and make it the most recent
+            String eldestAddress = lruItem.lruHeap.peekAddress();
+            lruItem.lruHeap.updatePeekKey(++lruItem.sequence);
+            return eldestAddress;
+        }
     }
 
     @Override
@@ -13,15 +13,24 @@ import org.springframework.mail.javamail.MimeMessageHelper;
 
 import javax.mail.internet.MimeMessage;
 import java.text.MessageFormat;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.TimeUnit;
 
 /**
  * job monitor instance
  *
+ *      1、claim fail log in batch (1000), optimistic "alarm_status 0 -> -1" with claim token in one update, no db lock;
+ *      2、retry trigger, retry msg appended in one update;
+ *      3、alarm coalesced in window (10s) or pending limit (10000 log): one email per recipient, one row per job;
+ *      4、claim left locked by a dead admin node (still -1 after claim timeout) reset to 0, claimed again;
+ *
  * @author xuxueli 2015-9-1 18:05:56
  */
 public class JobFailMonitorHelper {
@@ -34,6 +43,35 @@ public class JobFailMonitorHelper {
 
 	// ---------------------- monitor ----------------------
 
+	private static final int CLAIM_BATCH = 1000;
+	private static final long ALARM_WINDOW = 10 * 1000;		// coalesce alarm in window, one email per recipient
+	private static final int ALARM_DETAIL_MAX = 3;				// log detail in email, per job
+	private static final int ALARM_PENDING_MAX = 10000;			// pending alarm log, flush at once when reached
+	private static final long CLAIM_TIMEOUT = 10 * 60 * 1000;	// claim resolved in seconds, -1 longer than this is left by dead node
+
+	private static class AlarmItem {
+		private final XxlJobInfo info;
+		private final List<XxlJobLog> logList = new ArrayList<XxlJobLog>();
+		private boolean alarmResult = true;
+
+		AlarmItem(XxlJobInfo info) {
+			this.info = info;
+		}
+	}
+
+	// pending alarm, jobId -> alarm item (monitor thread only)
+	private final Map<Integer, AlarmItem> alarmPending = new LinkedHashMap<Integer, AlarmItem>();
+	private int alarmPendingCount = 0;
+	private long lastFlushTime = 0;
+
+	// locked (-1) log seen in last reclaim check, reset if still locked in next check (monitor thread only)
+	private Set<Long> staleClaimIds = new HashSet<Long>();
+	private long lastReclaimTime = 0;
+
+	// claim token: node + claim seq, unique per claim (monitor thread only)
+	private final String claimNode = UUID.randomUUID().toString().replace("-", "");
+	private long claimSeq = 0;
+
 	private Thread monitorThread;
 	private volatile boolean toStop = false;
 	public void start(){
@@ -44,53 +82,51 @@ public class JobFailMonitorHelper {
 
 				// monitor
 				while (!toStop) {
+					int claimCount = 0;
 					try {
 
-						List<Long> failLogIds = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findFailJobLogIds(1000);
+						// 1、claim fail log in batch
+						List<Long> failLogIds = claimFailLogIds();
 						if (failLogIds!=null && !failLogIds.isEmpty()) {
-							for (long failLogId: failLogIds) {
-
-								// lock log
-								int lockRet = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatus(failLogId, 0, -1);
-								if (lockRet < 1) {
-									continue;
-								}
-								XxlJobLog log = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().load(failLogId);
-								XxlJobInfo info = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadById(log.getJobId());
-
-								// 1、fail retry monitor
-								if (log.getExecutorFailRetryCount() > 0) {
-									JobTriggerPoolHelper.trigger(log.getJobId(), TriggerTypeEnum.RETRY, (log.getExecutorFailRetryCount()-1), log.getExecutorShardingParam(), null);
-									String retryMsg = "<br><br><span style=\"color:#F39C12;\" > >>>>>>>>>>>"+ I18nUtil.getString("jobconf_trigger_type_retry") +"<<<<<<<<<<< </span><br>";
-									log.setTriggerMsg(log.getTriggerMsg() + retryMsg);
-									XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateTriggerInfo(log);
-								}
-
-								// 2、fail alarm monitor
-								int newAlarmStatus = 0;		// 告警状态：0-默认、-1=锁定状态、1-无需告警、2-告警成功、3-告警失败
-								if (info!=null && info.getAlarmEmail()!=null && info.getAlarmEmail().trim().length()>0) {
-									boolean alarmResult = true;
-									try {
-										alarmResult = failAlarm(info, log);
-									} catch (Exception e) {
-										alarmResult = false;
-										logger.error(e.getMessage(), e);
-									}
-									newAlarmStatus = alarmResult?2:3;
-								} else {
-									newAlarmStatus = 1;
-								}
-
-								XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatus(failLogId, -1, newAlarmStatus);
-							}
+							claimCount = failLogIds.size();
+							process(failLogIds);
+						}
+
+						// 2、alarm, each window
+						long nowTime = System.currentTimeMillis();
+						if (!alarmPending.isEmpty() && nowTime - lastFlushTime >= ALARM_WINDOW) {
+							flushAlarm();
+							lastFlushTime = nowTime;
 						}
 
-						TimeUnit.SECONDS.sleep(10);
+						// 3、reclaim claim of dead node, each claim timeout
+						if (nowTime - lastReclaimTime >= CLAIM_TIMEOUT) {
+							reclaimStaleClaim();
+							lastReclaimTime = nowTime;
+						}
 					} catch (Exception e) {
 						if (!toStop) {
 							logger.error(">>>>>>>>>>> xxl-job, job fail monitor thread error:{}", e);
 						}
 					}
+
+					// backlog: next batch at once; alarm pending: 1s; else 10s
+					try {
+						if (claimCount < CLAIM_BATCH) {
+							TimeUnit.SECONDS.sleep(alarmPending.isEmpty()?10:1);
+						}
+					} catch (InterruptedException e) {
+						if (!toStop) {
+							logger.error(">>>>>>>>>>> xxl-job, job fail monitor thread error:{}", e);
+						}
+					}
+				}
+
+				// claimed alarm, not leave in lock status
+				try {
+					flushAlarm();
+				} catch (Exception e) {
+					logger.error(">>>>>>>>>>> xxl-job, job fail monitor thread error:{}", e);
 				}
 
 				logger.info(">>>>>>>>>>> xxl-job, job fail monitor thread stop");
@@ -113,6 +149,188 @@ public class JobFailMonitorHelper {
 		}
 	}
 
+	/**
+	 * find and lock (alarm_status 0 -> -1) fail log in batch: one update stamps the rows with a claim token unique to this claim,
+	 * rows carrying the token are the ones this node won; admin nodes claim disjoint rows without db lock
+	 *
+	 * @return claimed log ids
+	 */
+	List<Long> claimFailLogIds() {
+		List<Long> failLogIds = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findFailJobLogIds(CLAIM_BATCH);
+		if (failLogIds==null || failLogIds.isEmpty()) {
+			return failLogIds;
+		}
+
+		String claim = claimNode + "-" + (++claimSeq);
+		int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().claimAlarm(failLogIds, claim);
+		if (ret < 1) {
+			return new ArrayList<Long>();
+		}
+		return XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findAlarmClaimLogIds(failLogIds, claim);
+	}
+
+	/**
+	 * reset claim left by dead admin node: locked (-1) in last check and still locked now, reset to 0 and claimed again
+	 *
+	 * @return reset count
+	 */
+	int reclaimStaleClaim() {
+		int ret = 0;
+		if (!staleClaimIds.isEmpty()) {
+			ret = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatusBatch(new ArrayList<Long>(staleClaimIds), -1, 0);
+			if (ret > 0) {
+				logger.warn(">>>>>>>>>>> xxl-job, job fail monitor reclaim stale claim, count:{}", ret);
+			}
+		}
+
+		// this node's claim not flushed yet, not stale
+		Set<Long> lockedIds = new HashSet<Long>();
+		List<Long> lockedList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findAlarmLockedLogIds(CLAIM_BATCH);
+		if (lockedList != null) {
+			lockedIds.addAll(lockedList);
+		}
+		for (AlarmItem alarmItem: alarmPending.values()) {
+			for (XxlJobLog log: alarmItem.logList) {
+				lockedIds.remove(log.getId());
+			}
+		}
+		staleClaimIds = lockedIds;
+		return ret;
+	}
+
+	/**
+	 * claimed fail log: retry, then pending for alarm
+	 */
+	private void process(List<Long> failLogIds) {
+		List<XxlJobLog> logList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().loadByIds(failLogIds);
+		if (logList==null || logList.isEmpty()) {
+			return;
+		}
+
+		// job info, load once
+		Set<Integer> jobIds = new HashSet<Integer>();
+		for (XxlJobLog log: logList) {
+			jobIds.add(log.getJobId());
+		}
+		Map<Integer, XxlJobInfo> infoMap = new HashMap<Integer, XxlJobInfo>();
+		List<XxlJobInfo> infoList = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadByIds(new ArrayList<Integer>(jobIds));
+		if (infoList != null) {
+			for (XxlJobInfo info: infoList) {
+				infoMap.put(info.getId(), info);
+			}
+		}
+
+		List<Long> retryLogIds = new ArrayList<Long>();
+		List<Long> noAlarmLogIds = new ArrayList<Long>();
+		for (XxlJobLog log: logList) {
+
+			// 1、fail retry monitor
+			if (log.getExecutorFailRetryCount() > 0) {
+				JobTriggerPoolHelper.trigger(log.getJobId(), log.getJobGroup(), TriggerTypeEnum.RETRY, (log.getExecutorFailRetryCount()-1), log.getExecutorShardingParam(), null);
+				retryLogIds.add(log.getId());
+			}
+
+			// 2、fail alarm monitor
+			XxlJobInfo info = infoMap.get(log.getJobId());
+			if (info!=null && info.getAlarmEmail()!=null && info.getAlarmEmail().trim().length()>0) {
+				AlarmItem alarmItem = alarmPending.get(info.getId());
+				if (alarmItem == null) {
+					alarmItem = new AlarmItem(info);
+					alarmPending.put(info.getId(), alarmItem);
+				}
+				alarmItem.logList.add(log);
+				alarmPendingCount++;
+			} else {
+				noAlarmLogIds.add(log.getId());
+			}
+		}
+
+		if (!retryLogIds.isEmpty()) {
+			String retryMsg = "<br><br><span style=\"color:#F39C12;\" > >>>>>>>>>>>"+ I18nUtil.getString("jobconf_trigger_type_retry") +"<<<<<<<<<<< </span><br>";
+			XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().appendTriggerMsgBatch(retryLogIds, retryMsg);
+		}
+
+		// 告警状态：0-默认、-1=锁定状态、1-无需告警、2-告警成功、3-告警失败
+		if (!noAlarmLogIds.isEmpty()) {
+			XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatusBatch(noAlarmLogIds, -1, 1);
+		}
+
+		// pending limit, flush before window end
+		if (alarmPendingCount >= ALARM_PENDING_MAX) {
+			flushAlarm();
+			lastFlushTime = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * send pending alarm, one email per recipient covering all its jobs, then update alarm status in batch
+	 */
+	private void flushAlarm() {
+		if (alarmPending.isEmpty()) {
+			return;
+		}
+
+		// group, load once
+		Map<Integer, XxlJobGroup> groupMap = new HashMap<Integer, XxlJobGroup>();
+		List<XxlJobGroup> groupList = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().findAll();
+		if (groupList != null) {
+			for (XxlJobGroup group: groupList) {
+				groupMap.put(group.getId(), group);
+			}
+		}
+
+		// recipient -> jobs
+		Map<String, List<AlarmItem>> emailMap = new LinkedHashMap<String, List<AlarmItem>>();
+		for (AlarmItem alarmItem: alarmPending.values()) {
+			for (String email: alarmItem.info.getAlarmEmail().split(",")) {
+				email = email.trim();
+				if (email.length() == 0) {
+					continue;
+				}
+				List<AlarmItem> alarmItemList = emailMap.get(email);
+				if (alarmItemList == null) {
+					alarmItemList = new ArrayList<AlarmItem>();
+					emailMap.put(email, alarmItemList);
+				}
+				alarmItemList.add(alarmItem);
+			}
+		}
+		for (Map.Entry<String, List<AlarmItem>> item: emailMap.entrySet()) {
+			boolean alarmResult;
+			try {
+				alarmResult = failAlarm(item.getKey(), item.getValue(), groupMap);
+			} catch (Exception e) {
+				alarmResult = false;
+				logger.error(e.getMessage(), e);
+			}
+			if (!alarmResult) {
+				for (AlarmItem alarmItem: item.getValue()) {
+					alarmItem.alarmResult = false;
+				}
+			}
+		}
+
+		// alarm status
+		List<Long> successLogIds = new ArrayList<Long>();
+		List<Long> failLogIds = new ArrayList<Long>();
+		for (AlarmItem alarmItem: alarmPending.values()) {
+			for (XxlJobLog log: alarmItem.logList) {
+				(alarmItem.alarmResult?successLogIds:failLogIds).add(log.getId());
+			}
+		}
+		alarmPending.clear();
+		alarmPendingCount = 0;
+		updateAlarmStatus(successLogIds, 2);
+		updateAlarmStatus(failLogIds, 3);
+	}
+
+	private void updateAlarmStatus(List<Long> logIds, int newAlarmStatus) {
+		for (int from = 0; from < logIds.size(); from += CLAIM_BATCH) {
+			List<Long> batch = logIds.subList(from, Math.min(from + CLAIM_BATCH, logIds.size()));
+			XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateAlarmStatusBatch(batch, -1, newAlarmStatus);
+		}
+	}
+
 
 	// ---------------------- alarm ----------------------
 
@@ -129,67 +347,81 @@ public class JobFailMonitorHelper {
 			"      </tr>\n" +
 			"   </thead>\n" +
 			"   <tbody>\n" +
-			"      <tr>\n" +
+			"{0}" +
+			"   </tbody>\n" +
+			"</table>";
+	private static final String mailRowTemplate = "      <tr>\n" +
 			"         <td>{0}</td>\n" +
 			"         <td>{1}</td>\n" +
 			"         <td>{2}</td>\n" +
 			"         <td>"+ I18nUtil.getString("jobconf_monitor_alarm_type") +"</td>\n" +
 			"         <td>{3}</td>\n" +
-			"      </tr>\n" +
-			"   </tbody>\n" +
-			"</table>";
+			"      </tr>\n";
 
 	/**
-	 * fail alarm
+	 * fail alarm, one email of all alarm job for the recipient
 	 *
-	 * @param jobLog
+	 * @param email
+	 * @param alarmItemList
+	 * @param groupMap
 	 */
-	private boolean failAlarm(XxlJobInfo info, XxlJobLog jobLog){
+	private boolean failAlarm(String email, List<AlarmItem> alarmItemList, Map<Integer, XxlJobGroup> groupMap){
 		boolean alarmResult = true;
 
 		// send monitor email
-		if (info!=null && info.getAlarmEmail()!=null && info.getAlarmEmail().trim().length()>0) {
+		StringBuilder rows = new StringBuilder();
+		for (AlarmItem alarmItem: alarmItemList) {
 
-			// alarmContent
-			String alarmContent = "Alarm Job LogId=" + jobLog.getId();
-			if (jobLog.getTriggerCode() != ReturnT.SUCCESS_CODE) {
-				alarmContent += "<br>TriggerMsg=<br>" + jobLog.getTriggerMsg();
+			// alarmContent: all log id, detail of first logs
+			StringBuilder logIds = new StringBuilder();
+			for (XxlJobLog jobLog: alarmItem.logList) {
+				logIds.append(logIds.length()>0?",":"").append(jobLog.getId());
 			}
-			if (jobLog.getHandleCode()>0 && jobLog.getHandleCode() != ReturnT.SUCCESS_CODE) {
-				alarmContent += "<br>HandleCode=" + jobLog.getHandleMsg();
+			String alarmContent = "Alarm Job LogId=" + logIds;
+			if (alarmItem.logList.size() > 1) {
+				alarmContent += " (" + alarmItem.logList.size() + ")";
+			}
+			for (int i = 0; i < alarmItem.logList.size() && i < ALARM_DETAIL_MAX; i++) {
+				XxlJobLog jobLog = alarmItem.logList.get(i);
+				if (alarmItem.logList.size() > 1) {
+					alarmContent += "<br><br>LogId=" + jobLog.getId();
+				}
+				if (jobLog.getTriggerCode() != ReturnT.SUCCESS_CODE) {
+					alarmContent += "<br>TriggerMsg=<br>" + jobLog.getTriggerMsg();
+				}
+				if (jobLog.getHandleCode()>0 && jobLog.getHandleCode() != ReturnT.SUCCESS_CODE) {
+					alarmContent += "<br>HandleCode=" + jobLog.getHandleMsg();
+				}
 			}
 
-			// email info
-			XxlJobGroup group = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().load(Integer.valueOf(info.getJobGroup()));
-			String personal = I18nUtil.getString("admin_name_full");
-			String title = I18nUtil.getString("jobconf_monitor");
-			String content = MessageFormat.format(mailBodyTemplate,
+			XxlJobGroup group = groupMap.get(alarmItem.info.getJobGroup());
+			rows.append(MessageFormat.format(mailRowTemplate,
 					group!=null?group.getTitle():"null",
-					info.getId(),
-					info.getJobDesc(),
-					alarmContent);
-
-			Set<String> emailSet = new HashSet<String>(Arrays.asList(info.getAlarmEmail().split(",")));
-			for (String email: emailSet) {
+					String.valueOf(alarmItem.info.getId()),
+					alarmItem.info.getJobDesc(),
+					alarmContent));
+		}
 
-				// make mail
-				try {
-					MimeMessage mimeMessage = XxlJobAdminConfig.getAdminConfig().getMailSender().createMimeMessage();
+		// email info
+		String personal = I18nUtil.getString("admin_name_full");
+		String title = I18nUtil.getString("jobconf_monitor");
+		String content = MessageFormat.format(mailBodyTemplate, rows.toString());
 
-					MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
-					helper.setFrom(XxlJobAdminConfig.getAdminConfig().getEmailUserName(), personal);
-					helper.setTo(email);
-					helper.setSubject(title);
-					helper.setText(content, true);
+		// make mail
+		try {
+			MimeMessage mimeMessage = XxlJobAdminConfig.getAdminConfig().getMailSender().createMimeMessage();
 
-					XxlJobAdminConfig.getAdminConfig().getMailSender().send(mimeMessage);
-				} catch (Exception e) {
-					logger.error(">>>>>>>>>>> xxl-job, job fail alarm email send error, JobLogId:{}", jobLog.getId(), e);
+			MimeMessageHelper helper = new MimeMessageHelper(mimeMessage, true);
+			helper.setFrom(XxlJobAdminConfig.getAdminConfig().getEmailUserName(), personal);
+			helper.setTo(email);
+			helper.setSubject(title);
+			helper.setText(content, true);
 
-					alarmResult = false;
-				}
+			XxlJobAdminConfig.getAdminConfig().getMailSender().send(mimeMessage);
+		} catch (Exception e) {
+			logger.error(">>>>>>>>>>> xxl-job, job fail alarm email send error, email:{}, jobCount:{}", email, alarmItemList.size(), e);
 
-			}
+			alarmResult = false;
 		}
 
 		// do something, custom alarm strategy, such as sms
@@ -0,0 +1,211 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.core.model.XxlJobLogPurge;
+import com.xxl.job.core.util.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * log purge of xxl_job_log (log retention + manual clear log)
+ *
+ *      1、purge task (xxl_job_log_purge): id range [min id, max id] of the job group / job fixed when submit, filter by job group / job / trigger time;
+ *      2、purge thread delete by primary key range chunk, rows per second budget, no long lock and binlog flood;
+ *      3、progress (cursor id) saved each chunk, resume after restart; delete is idempotent, multi admin node safe;
+ *      4、deleted log subtract from rollup (xxl_job_log_report), only when chunk delete all rows loaded before (not deleted by other admin node);
+ */
+public class JobLogPurgeHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobLogPurgeHelper.class);
+
+    private static JobLogPurgeHelper instance = new JobLogPurgeHelper();
+    public static JobLogPurgeHelper getInstance(){
+        return instance;
+    }
+
+    private static final int MIN_RETENTION_DAYS = 7;
+    private static final long PROGRESS_LOG_INTERVAL = 10 * 1000;
+
+
+    // ---------------------- submit ----------------------
+
+    /**
+     * submit purge task
+     *
+     * @param jobGroup          0=全部
+     * @param jobId             0=全部
+     * @param clearBeforeTime   clear log trigger before, null=不限
+     * @param clearBeforeNum    keep newest num log (by id, insert order), 0=不限
+     * @return task, null if nothing to purge
+     */
+    public XxlJobLogPurge submit(int jobGroup, int jobId, Date clearBeforeTime, int clearBeforeNum) {
+        Long minId = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findMinId(jobGroup, jobId);
+        Long maxId = (clearBeforeNum > 0)
+                ?XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findIdBeforeNum(jobGroup, jobId, clearBeforeNum)
+                :XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findMaxId(jobGroup, jobId, clearBeforeTime);
+        if (minId==null || maxId==null || maxId < minId) {
+            return null;
+        }
+
+        XxlJobLogPurge purge = new XxlJobLogPurge();
+        purge.setJobGroup(jobGroup);
+        purge.setJobId(jobId);
+        purge.setClearBeforeTime(clearBeforeTime);
+        purge.setMaxId(maxId);
+        purge.setCursorId(minId);
+        XxlJobAdminConfig.getAdminConfig().getXxlJobLogPurgeDao().save(purge);
+
+        logger.info(">>>>>>>>>>> xxl-job, log purge submit, id:{}, jobGroup:{}, jobId:{}, clearBeforeTime:{}, logId:[{}, {}]",
+                purge.getId(), jobGroup, jobId, clearBeforeTime!=null?DateUtil.formatDateTime(clearBeforeTime):null, minId, maxId);
+        return purge;
+    }
+
+
+    // ---------------------- purge ----------------------
+
+    /**
+     * purge one task to end, in chunk with rate limit
+     *
+     * @return deleted count
+     */
+    long purge(XxlJobLogPurge purge) throws InterruptedException {
+        int chunkSize = Math.max(XxlJobAdminConfig.getAdminConfig().getLogPurgeChunkSize(), 1);
+        int rowsPerSecond = XxlJobAdminConfig.getAdminConfig().getLogPurgeRowsPerSecond();
+
+        long cursorId = purge.getCursorId();
+        long deleteTotal = 0;
+        long startCursorId = cursorId;
+        long lastLogTime = System.currentTimeMillis();
+        while (!toStop && cursorId <= purge.getMaxId()) {
+            long start = System.currentTimeMillis();
+
+            // 1、delete chunk [cursorId, toId), subtract rollup
+            long chunkStartId = cursorId;
+            long toId = Math.min(cursorId + chunkSize, purge.getMaxId() + 1);
+            List<XxlJobLog> deleteList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().findStatusByIdRange(cursorId, toId,
+                    purge.getJobGroup(), purge.getJobId(), purge.getClearBeforeTime());
+            int deleteCount = XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().clearLogByIdRange(cursorId, toId,
+                    purge.getJobGroup(), purge.getJobId(), purge.getClearBeforeTime());
+            if (deleteList!=null && deleteCount == deleteList.size()) {
+                for (XxlJobLog log: deleteList) {
+                    JobLogReportHelper.getInstance().reportDelete(log.getTriggerTime(), log.getJobGroup(),
+                            JobLogReportHelper.status(log.getTriggerCode(), log.getHandleCode()));
+                }
+            }
+
+            // 2、save progress, cursor changed by other admin node: reload and go on
+            int status = toId > purge.getMaxId() ? 1 : 0;
+            int ret = XxlJobAdminConfig.getAdminConfig().getXxlJobLogPurgeDao().updateProgress(purge.getId(), cursorId, toId, deleteCount, status);
+            if (ret < 1) {
+                XxlJobLogPurge current = XxlJobAdminConfig.getAdminConfig().getXxlJobLogPurgeDao().load(purge.getId());
+                if (current==null || current.getStatus()!=0) {
+                    break;
+                }
+                cursorId = Math.max(current.getCursorId(), toId);
+            } else {
+                cursorId = toId;
+                deleteTotal += deleteCount;
+            }
+
+            // 3、progress
+            long nowTime = System.currentTimeMillis();
+            if (status==1 || nowTime - lastLogTime >= PROGRESS_LOG_INTERVAL) {
+                long range = purge.getMaxId() + 1 - startCursorId;
+                logger.info(">>>>>>>>>>> xxl-job, log purge progress, id:{}, cursorId:{}, maxId:{}, progress:{}%, deleted:{}",
+                        purge.getId(), cursorId, purge.getMaxId(), range>0?(cursorId - startCursorId) * 100 / range:100, deleteTotal);
+                lastLogTime = nowTime;
+            }
+
+            // 4、rate limit, rows per second; count the id range scanned, not only rows deleted, so sparse ranges are throttled too
+            if (rowsPerSecond > 0) {
+                long cost = System.currentTimeMillis() - start;
+                long expect = Math.max((toId - chunkStartId) * 1000L / rowsPerSecond, 1);
+                if (expect > cost) {
+                    TimeUnit.MILLISECONDS.sleep(expect - cost);
+                }
+            }
+        }
+        return deleteTotal;
+    }
+
+
+    // ---------------------- purge thread ----------------------
+
+    private Thread purgeThread;
+    private volatile boolean toStop = false;
+    public void start(){
+        purgeThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                long lastRetentionTime = 0;
+                while (!toStop) {
+                    try {
+                        // 1、log retention, submit each day
+                        int logRetentionDays = XxlJobAdminConfig.getAdminConfig().getLogRetentionDays();
+                        if (logRetentionDays >= MIN_RETENTION_DAYS
+                                && System.currentTimeMillis() - lastRetentionTime >= 24 * 60 * 60 * 1000L) {
+                            if (!hasRunningRetention()) {
+                                submit(0, 0, DateUtil.addDays(new Date(), -logRetentionDays), 0);
+                            }
+                            lastRetentionTime = System.currentTimeMillis();
+                        }
+
+                        // 2、purge running task, resume from cursor
+                        List<XxlJobLogPurge> purgeList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogPurgeDao().findRunning();
+                        if (purgeList != null) {
+                            for (XxlJobLogPurge purge: purgeList) {
+                                if (toStop) {
+                                    break;
+                                }
+                                purge(purge);
+                            }
+                        }
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job log purge thread error:{}", e);
+                        }
+                    }
+                    try {
+                        TimeUnit.SECONDS.sleep(10);
+                    } catch (InterruptedException e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+                }
+                logger.info(">>>>>>>>>>> xxl-job, job log purge thread stop");
+            }
+        });
+        purgeThread.setDaemon(true);
+        purgeThread.setName("xxl-job, admin JobLogPurgeHelper");
+        purgeThread.start();
+    }
+
+    public void toStop(){
+        toStop = true;
+        // interrupt and wait
+        purgeThread.interrupt();
+        try {
+            purgeThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+    private boolean hasRunningRetention() {
+        List<XxlJobLogPurge> purgeList = XxlJobAdminConfig.getAdminConfig().getXxlJobLogPurgeDao().findRunning();
+        if (purgeList != null) {
+            for (XxlJobLogPurge purge: purgeList) {
+                if (purge.getJobGroup()==0 && purge.getJobId()==0 && purge.getClearBeforeTime()!=null) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+}
@@ -0,0 +1,220 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobLogReport;
+import com.xxl.job.core.biz.model.ReturnT;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * trigger statistics rollup (xxl_job_log_report), dashboard read rollup instead of scan xxl_job_log
+ *
+ *      1、log status change (trigger / callback / kill) add count delta in memory, by day + job group + status;
+ *      2、report thread flush delta each 1s, batch "insert on duplicate key update count = count + delta";
+ *      3、log delete (purge / clear log) subtract count of deleted log;
+ *
+ * delta is additive, so multi admin node flush independent.
+ */
+public class JobLogReportHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobLogReportHelper.class);
+
+    private static JobLogReportHelper instance = new JobLogReportHelper();
+    public static JobLogReportHelper getInstance(){
+        return instance;
+    }
+
+    // 调度状态：0-运行中、1-成功、2-失败
+    public static final int STATUS_RUNNING = 0;
+    public static final int STATUS_SUCCESS = 1;
+    public static final int STATUS_FAIL = 2;
+
+    private static final long FLUSH_INTERVAL = 1000;
+    private static final int FLUSH_BATCH = 500;
+
+    /**
+     * status of log, same as dashboard definition
+     *
+     * @param triggerCode
+     * @param handleCode
+     * @return
+     */
+    public static int status(int triggerCode, int handleCode) {
+        if (handleCode == ReturnT.SUCCESS_CODE) {
+            return STATUS_SUCCESS;
+        }
+        if ((triggerCode==0 || triggerCode==ReturnT.SUCCESS_CODE) && handleCode==0) {
+            return STATUS_RUNNING;
+        }
+        return STATUS_FAIL;
+    }
+
+    // "day|jobGroup|status" -> count delta, REMOVED: taken out of map by flush
+    private static final long REMOVED = Long.MIN_VALUE;
+    private final ConcurrentMap<String, AtomicLong> deltaMap = new ConcurrentHashMap<String, AtomicLong>();
+
+
+    // ---------------------- report ----------------------
+
+    /**
+     * new log
+     */
+    public void report(Date triggerTime, int jobGroup, int status) {
+        addDelta(triggerTime, jobGroup, status, 1);
+    }
+
+    /**
+     * log status change
+     */
+    public void report(Date triggerTime, int jobGroup, int oldStatus, int newStatus) {
+        if (oldStatus == newStatus) {
+            return;
+        }
+        addDelta(triggerTime, jobGroup, oldStatus, -1);
+        addDelta(triggerTime, jobGroup, newStatus, 1);
+    }
+
+    /**
+     * log deleted
+     */
+    public void reportDelete(Date triggerTime, int jobGroup, int status) {
+        addDelta(triggerTime, jobGroup, status, -1);
+    }
+
+    private void addDelta(Date triggerTime, int jobGroup, int status, long delta) {
+        if (triggerTime == null) {
+            return;
+        }
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTime(triggerTime);
+        String key = calendar.get(Calendar.YEAR) + "-" + (calendar.get(Calendar.MONTH) + 1) + "-" + calendar.get(Calendar.DAY_OF_MONTH)
+                + "|" + jobGroup + "|" + status;
+
+        while (true) {
+            AtomicLong count = deltaMap.get(key);
+            if (count == null) {
+                AtomicLong newCount = new AtomicLong(delta);
+                if (deltaMap.putIfAbsent(key, newCount) == null) {
+                    return;
+                }
+                continue;
+            }
+            long current = count.get();
+            if (current == REMOVED) {
+                deltaMap.remove(key, count);
+                continue;
+            }
+            if (count.compareAndSet(current, current + delta)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * take delta and write rollup (report thread only)
+     */
+    void flush() {
+        if (deltaMap.isEmpty()) {
+            return;
+        }
+
+        List<XxlJobLogReport> reportList = new ArrayList<XxlJobLogReport>();
+        for (Map.Entry<String, AtomicLong> item: deltaMap.entrySet()) {
+            long delta = item.getValue().getAndSet(0);
+            if (delta == 0) {
+                // idle, remove; concurrent add see REMOVED and put new counter
+                if (item.getValue().compareAndSet(0, REMOVED)) {
+                    deltaMap.remove(item.getKey(), item.getValue());
+                }
+                continue;
+            }
+
+            String[] keyArr = item.getKey().split("\\|");
+            String[] dayArr = keyArr[0].split("-");
+            Calendar calendar = Calendar.getInstance();
+            calendar.clear();
+            calendar.set(Integer.valueOf(dayArr[0]), Integer.valueOf(dayArr[1]) - 1, Integer.valueOf(dayArr[2]));
+
+            XxlJobLogReport report = new XxlJobLogReport();
+            report.setTriggerDay(calendar.getTime());
+            report.setJobGroup(Integer.valueOf(keyArr[1]));
+            report.setStatus(Integer.valueOf(keyArr[2]));
+            report.setCount(delta);
+            reportList.add(report);
+        }
+
+        for (int from = 0; from < reportList.size(); from += FLUSH_BATCH) {
+            List<XxlJobLogReport> batch = reportList.subList(from, Math.min(from + FLUSH_BATCH, reportList.size()));
+            try {
+                XxlJobAdminConfig.getAdminConfig().getXxlJobLogReportDao().addCountBatch(batch);
+            } catch (Exception e) {
+                // write fail, give back delta of this and all later batch, retry next time
+                for (XxlJobLogReport report: reportList.subList(from, reportList.size())) {
+                    addDelta(report.getTriggerDay(), report.getJobGroup(), report.getStatus(), report.getCount());
+                }
+                throw e;
+            }
+        }
+    }
+
+
+    // ---------------------- report thread ----------------------
+
+    private Thread reportThread;
+    private volatile boolean toStop = false;
+    public void start(){
+        reportThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!toStop) {
+                    try {
+                        flush();
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, job log report thread error:{}", e);
+                        }
+                    }
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(FLUSH_INTERVAL);
+                    } catch (InterruptedException e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+                }
+
+                // write remaining
+                try {
+                    flush();
+                } catch (Exception e) {
+                    logger.error(">>>>>>>>>>> xxl-job, job log report thread error:{}", e);
+                }
+                logger.info(">>>>>>>>>>> xxl-job, job log report thread stop");
+            }
+        });
+        reportThread.setDaemon(true);
+        reportThread.setName("xxl-job, admin JobLogReportHelper");
+        reportThread.start();
+    }
+
+    public void toStop(){
+        toStop = true;
+        // interrupt and wait
+        reportThread.interrupt();
+        try {
+            reportThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+}
@@ -3,18 +3,31 @@ package com.xxl.job.admin.core.thread;
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
 import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobRegistry;
+import com.xxl.job.admin.core.wheel.HierarchicalTimeWheel;
 import com.xxl.job.core.enums.RegistryConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
- * job registry instance
+ * job registry instance, in-memory registry cache
+ *
+ *      1、registry / registryRemove (AdminBiz) apply to cache at once, membership change publish a new immutable address snapshot (version + 1);
+ *      2、dead node expire by time wheel, not "removeDead + findAll" full table scan;
+ *      3、heartbeat of other admin node: sync registry rows updated in last seconds (each 1s);
+ *      4、group address_list write back: changed group only, batch update;
+ *      5、registryRemove on other admin node (row deleted, never seen by 3): full reconcile each RECONCILE_INTERVAL, drop cached node missing in db;
+ *
  * @author xuxueli 2016-10-02 19:10:24
  */
 public class JobRegistryMonitorHelper {
@@ -25,64 +38,353 @@ public class JobRegistryMonitorHelper {
 		return instance;
 	}
 
+	private static final long SYNC_INTERVAL = 1000;
+	private static final int SYNC_WINDOW = 3;					// second, sync rows updated in window (> SYNC_INTERVAL, cover db/admin time lag)
+	private static final long RECONCILE_INTERVAL = 10 * 1000;
+	private static final List<String> EMPTY_LIST = Collections.emptyList();
+
+	/**
+	 * immutable address snapshot of one app, same instance until membership change (router cache hit by "==")
+	 */
+	public static class RegistrySnapshot {
+		private final long version;
+		private final String[] addresses;
+		private final List<String> addressList;
+
+		RegistrySnapshot(long version, String[] addresses) {
+			this.version = version;
+			this.addresses = addresses;
+			this.addressList = Collections.unmodifiableList(Arrays.asList(addresses));
+		}
+
+		public long getVersion() {
+			return version;
+		}
+
+		public List<String> getAddressList() {
+			return addressList;
+		}
+
+		String getAddressListStr() {
+			if (addresses.length == 0) {
+				return null;
+			}
+			StringBuilder addressListStr = new StringBuilder();
+			for (String address: addresses) {
+				if (addressListStr.length() > 0) {
+					addressListStr.append(",");
+				}
+				addressListStr.append(address);
+			}
+			return addressListStr.toString();
+		}
+	}
+
+	private static class RegistryNode {
+		private final int id;
+		private final String appName;
+		private final String address;
+		private volatile long expireTime;
+
+		RegistryNode(int id, String appName, String address, long expireTime) {
+			this.id = id;
+			this.appName = appName;
+			this.address = address;
+			this.expireTime = expireTime;
+		}
+	}
+
+	private final ConcurrentMap<String, ConcurrentMap<String, RegistryNode>> appNodeMap = new ConcurrentHashMap<String, ConcurrentMap<String, RegistryNode>>();
+	private final ConcurrentMap<String, RegistrySnapshot> snapshotMap = new ConcurrentHashMap<String, RegistrySnapshot>();
+	private final ConcurrentMap<Integer, RegistryNode> nodeIdMap = new ConcurrentHashMap<Integer, RegistryNode>();
+	private final ConcurrentMap<String, Boolean> dirtyAppNames = new ConcurrentHashMap<String, Boolean>();
+	private final AtomicInteger nodeIdGen = new AtomicInteger(0);
+	private final HierarchicalTimeWheel expireWheel = new HierarchicalTimeWheel(System.currentTimeMillis());
+
+
+	// ---------------------- registry cache ----------------------
+
+	/**
+	 * executor address of app, sorted and immutable
+	 *
+	 * @param appName
+	 * @return
+	 */
+	public List<String> getRegistryList(String appName) {
+		RegistrySnapshot snapshot = snapshotMap.get(appName);
+		return snapshot!=null?snapshot.getAddressList():EMPTY_LIST;
+	}
+
+	public RegistrySnapshot getSnapshot(String appName) {
+		return snapshotMap.get(appName);
+	}
+
+	/**
+	 * heartbeat, new node publish snapshot at once
+	 *
+	 * @param registryGroup
+	 * @param appName
+	 * @param address
+	 * @param beatTime
+	 */
+	public void registry(String registryGroup, String appName, String address, long beatTime) {
+		if (!RegistryConfig.RegistType.EXECUTOR.name().equals(registryGroup) || appName==null || address==null) {
+			return;
+		}
+		long expireTime = beatTime + RegistryConfig.DEAD_TIMEOUT * 1000L;
+
+		ConcurrentMap<String, RegistryNode> nodeMap = appNodeMap.get(appName);
+		if (nodeMap == null) {
+			appNodeMap.putIfAbsent(appName, new ConcurrentHashMap<String, RegistryNode>());
+			nodeMap = appNodeMap.get(appName);
+		}
+
+		// renew, lock free (node expired in race: add again under lock)
+		RegistryNode node = nodeMap.get(address);
+		if (node != null) {
+			if (expireTime > node.expireTime) {
+				node.expireTime = expireTime;
+			}
+			if (nodeMap.get(address) == node) {
+				return;
+			}
+		}
+
+		synchronized (nodeMap) {
+			node = nodeMap.get(address);
+			if (node != null) {
+				if (expireTime > node.expireTime) {
+					node.expireTime = expireTime;
+				}
+				return;
+			}
+			node = new RegistryNode(nodeIdGen.incrementAndGet(), appName, address, expireTime);
+			nodeMap.put(address, node);
+			nodeIdMap.put(node.id, node);
+			publish(appName, nodeMap);
+		}
+		expireWheel.add(expireTime, node.id);
+	}
+
+	/**
+	 * remove node, publish snapshot at once
+	 *
+	 * @param registryGroup
+	 * @param appName
+	 * @param address
+	 */
+	public void registryRemove(String registryGroup, String appName, String address) {
+		if (!RegistryConfig.RegistType.EXECUTOR.name().equals(registryGroup) || appName==null || address==null) {
+			return;
+		}
+		ConcurrentMap<String, RegistryNode> nodeMap = appNodeMap.get(appName);
+		if (nodeMap == null) {
+			return;
+		}
+		synchronized (nodeMap) {
+			RegistryNode node = nodeMap.remove(address);
+			if (node != null) {
+				nodeIdMap.remove(node.id);		// wheel entry ignored when fire
+				publish(appName, nodeMap);
+			}
+		}
+	}
+
+	/**
+	 * expire dead node (single thread)
+	 *
+	 * @param nowTime
+	 * @return expired count
+	 */
+	int expire(final long nowTime) {
+		final int[] expired = new int[1];
+		expireWheel.advanceTo(nowTime, new HierarchicalTimeWheel.IdConsumer() {
+			@Override
+			public void accept(int id) {
+				RegistryNode node = nodeIdMap.get(id);
+				if (node == null) {
+					return;
+				}
+				// renewed, re-add with new expire time
+				if (node.expireTime > nowTime) {
+					expireWheel.add(node.expireTime, id);
+					return;
+				}
+
+				ConcurrentMap<String, RegistryNode> nodeMap = appNodeMap.get(node.appName);
+				synchronized (nodeMap) {
+					if (node.expireTime > nowTime || nodeMap.get(node.address) != node) {
+						if (nodeMap.get(node.address) == node) {
+							expireWheel.add(node.expireTime, id);
+						}
+						return;
+					}
+					nodeMap.remove(node.address);
+					nodeIdMap.remove(id);
+					publish(node.appName, nodeMap);
+				}
+				expired[0]++;
+			}
+		});
+		return expired[0];
+	}
+
+	/**
+	 * publish new snapshot of app, under lock of nodeMap
+	 */
+	private void publish(String appName, Map<String, RegistryNode> nodeMap) {
+		String[] addresses = nodeMap.keySet().toArray(new String[nodeMap.size()]);
+		Arrays.sort(addresses);
+
+		RegistrySnapshot oldSnapshot = snapshotMap.get(appName);
+		snapshotMap.put(appName, new RegistrySnapshot(oldSnapshot!=null?oldSnapshot.getVersion()+1:1, addresses));
+		dirtyAppNames.put(appName, Boolean.TRUE);
+	}
+
+
+	/**
+	 * drop cached node without alive registry row, row deleted by registryRemove of other admin node (single thread)
+	 *
+	 * @param aliveList		alive registry rows, load after syncStartTime
+	 * @param syncStartTime	node beat after (syncStartTime - SYNC_WINDOW) kept, its row may be saved after load
+	 * @return removed count
+	 */
+	int reconcile(List<XxlJobRegistry> aliveList, long syncStartTime) {
+		if (aliveList == null) {
+			return 0;
+		}
+		Map<String, Boolean> aliveKeys = new HashMap<String, Boolean>();
+		for (XxlJobRegistry item: aliveList) {
+			if (RegistryConfig.RegistType.EXECUTOR.name().equals(item.getRegistryGroup())) {
+				aliveKeys.put(item.getRegistryKey() + "\n" + item.getRegistryValue(), Boolean.TRUE);
+			}
+		}
+
+		long beatBefore = syncStartTime - SYNC_WINDOW * 1000L;
+		int removed = 0;
+		for (Map.Entry<String, ConcurrentMap<String, RegistryNode>> appEntry: appNodeMap.entrySet()) {
+			ConcurrentMap<String, RegistryNode> nodeMap = appEntry.getValue();
+			for (RegistryNode node: nodeMap.values()) {
+				if (aliveKeys.containsKey(node.appName + "\n" + node.address)
+						|| node.expireTime - RegistryConfig.DEAD_TIMEOUT * 1000L >= beatBefore) {
+					continue;
+				}
+				synchronized (nodeMap) {
+					if (nodeMap.get(node.address) != node
+							|| node.expireTime - RegistryConfig.DEAD_TIMEOUT * 1000L >= beatBefore) {
+						continue;
+					}
+					nodeMap.remove(node.address);
+					nodeIdMap.remove(node.id);		// wheel entry ignored when fire
+					publish(node.appName, nodeMap);
+				}
+				removed++;
+			}
+		}
+		return removed;
+	}
+
+
+	// ---------------------- db sync + write back ----------------------
+
+	/**
+	 * sync heartbeat from registry rows (other admin node)
+	 */
+	private void syncRegistry(List<XxlJobRegistry> list, long nowTime) {
+		if (list == null) {
+			return;
+		}
+		for (XxlJobRegistry item: list) {
+			long beatTime = item.getUpdateTime()!=null?Math.min(item.getUpdateTime().getTime(), nowTime):nowTime;
+			registry(item.getRegistryGroup(), item.getRegistryKey(), item.getRegistryValue(), beatTime);
+		}
+	}
+
+	/**
+	 * write back address_list of auto registry group
+	 *
+	 * @param all	false: dirty app only
+	 */
+	private void writeBack(boolean all) {
+		if (!all && dirtyAppNames.isEmpty()) {
+			return;
+		}
+		Map<String, Boolean> appNames = new HashMap<String, Boolean>();
+		for (String appName: dirtyAppNames.keySet()) {
+			dirtyAppNames.remove(appName);
+			appNames.put(appName, Boolean.TRUE);
+		}
+
+		List<XxlJobGroup> groupList = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().findByAddressType(0);
+		if (groupList==null || groupList.isEmpty()) {
+			return;
+		}
+		List<XxlJobGroup> updateList = new ArrayList<XxlJobGroup>();
+		for (XxlJobGroup group: groupList) {
+			if (!all && !appNames.containsKey(group.getAppName())) {
+				continue;
+			}
+			RegistrySnapshot snapshot = snapshotMap.get(group.getAppName());
+			String addressListStr = snapshot!=null?snapshot.getAddressListStr():null;
+			String oldAddressListStr = (group.getAddressList()!=null && group.getAddressList().trim().length()>0)?group.getAddressList():null;
+			if (addressListStr==null?oldAddressListStr!=null:!addressListStr.equals(oldAddressListStr)) {
+				group.setAddressList(addressListStr);
+				updateList.add(group);
+			}
+		}
+		if (!updateList.isEmpty()) {
+			XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().updateAddressListBatch(updateList);
+		}
+	}
+
+
+	// ---------------------- monitor thread ----------------------
+
 	private Thread registryThread;
 	private volatile boolean toStop = false;
 	public void start(){
+
+		// init cache, load alive registry once
+		try {
+			syncRegistry(XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findAll(RegistryConfig.DEAD_TIMEOUT), System.currentTimeMillis());
+		} catch (Exception e) {
+			logger.error(">>>>>>>>>>> xxl-job, job registry cache init error:{}", e);
+		}
+
 		registryThread = new Thread(new Runnable() {
 			@Override
 			public void run() {
+				long lastBeatTime = 0;
+				long lastReconcileTime = System.currentTimeMillis();
 				while (!toStop) {
+					long nowTime = System.currentTimeMillis();
 					try {
-						// auto registry group
-						List<XxlJobGroup> groupList = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().findByAddressType(0);
-						if (groupList!=null && !groupList.isEmpty()) {
+						// 1、sync heartbeat of other admin node
+						syncRegistry(XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findUpdated(SYNC_WINDOW), nowTime);
 
-							// remove dead address (admin/executor)
-							XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().removeDead(RegistryConfig.DEAD_TIMEOUT);
+						// 2、expire dead node
+						expire(nowTime);
 
-							// fresh online address (admin/executor)
-							HashMap<String, List<String>> appAddressMap = new HashMap<String, List<String>>();
-							List<XxlJobRegistry> list = XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findAll(RegistryConfig.DEAD_TIMEOUT);
-							if (list != null) {
-								for (XxlJobRegistry item: list) {
-									if (RegistryConfig.RegistType.EXECUTOR.name().equals(item.getRegistryGroup())) {
-										String appName = item.getRegistryKey();
-										List<String> registryList = appAddressMap.get(appName);
-										if (registryList == null) {
-											registryList = new ArrayList<String>();
-										}
-
-										if (!registryList.contains(item.getRegistryValue())) {
-											registryList.add(item.getRegistryValue());
-										}
-										appAddressMap.put(appName, registryList);
-									}
-								}
-							}
-
-							// fresh group address
-							for (XxlJobGroup group: groupList) {
-								List<String> registryList = appAddressMap.get(group.getAppName());
-								String addressListStr = null;
-								if (registryList!=null && !registryList.isEmpty()) {
-									Collections.sort(registryList);
-									addressListStr = "";
-									for (String item:registryList) {
-										addressListStr += item + ",";
-									}
-									addressListStr = addressListStr.substring(0, addressListStr.length()-1);
-								}
-								group.setAddressList(addressListStr);
-								XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().update(group);
-							}
+						// 3、full reconcile, drop node removed on other admin node
+						if (nowTime - lastReconcileTime >= RECONCILE_INTERVAL) {
+							reconcile(XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().findAll(RegistryConfig.DEAD_TIMEOUT), nowTime);
+							lastReconcileTime = nowTime;
+						}
+
+						// 4、write back changed group; all group and remove dead row each beat
+						boolean beat = nowTime - lastBeatTime >= RegistryConfig.BEAT_TIMEOUT * 1000L;
+						if (beat) {
+							XxlJobAdminConfig.getAdminConfig().getXxlJobRegistryDao().removeDead(RegistryConfig.DEAD_TIMEOUT);
+							lastBeatTime = nowTime;
 						}
+						writeBack(beat);
 					} catch (Exception e) {
 						if (!toStop) {
 							logger.error(">>>>>>>>>>> xxl-job, job registry monitor thread error:{}", e);
 						}
 					}
 					try {
-						TimeUnit.SECONDS.sleep(RegistryConfig.BEAT_TIMEOUT);
+						TimeUnit.MILLISECONDS.sleep(SYNC_INTERVAL);
 					} catch (InterruptedException e) {
 						if (!toStop) {
 							logger.error(">>>>>>>>>>> xxl-job, job registry monitor thread error:{}", e);
@@ -1,9 +1,10 @@
 package com.xxl.job.admin.core.thread;
 
 import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
-import com.xxl.job.admin.core.cron.CronExpression;
+import com.xxl.job.admin.core.cron.CompiledCronExpression;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
+import com.xxl.job.admin.core.wheel.HierarchicalTimeWheel;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,15 +27,28 @@ public class JobScheduleHelper {
     }
 
     public static final long PRE_READ_MS = 5000;    // pre read
+    public static final int UPDATE_BATCH_SIZE = 500;    // trigger info batch update
 
     private Thread scheduleThread;
     private Thread ringThread;
     private volatile boolean scheduleThreadToStop = false;
     private volatile boolean ringThreadToStop = false;
     private volatile static Map<Integer, List<Integer>> ringData = new ConcurrentHashMap<>();
+    private volatile HierarchicalTimeWheel timeWheel;       // not null: "wheel" ring mode
+    private volatile long preReadMs = PRE_READ_MS;
+    private volatile boolean leaseMode = false;             // true: schedule own lease shards, no schedule_lock
 
     public void start(){
 
+        // schedule mode
+        leaseMode = "lease".equals(XxlJobAdminConfig.getAdminConfig().getScheduleMode());
+
+        // time ring mode
+        if ("wheel".equals(XxlJobAdminConfig.getAdminConfig().getScheduleRing())) {
+            timeWheel = new HierarchicalTimeWheel(System.currentTimeMillis());
+            preReadMs = Math.max(PRE_READ_MS, XxlJobAdminConfig.getAdminConfig().getSchedulePreReadMs());
+        }
+
         // schedule thread
         scheduleThread = new Thread(new Runnable() {
             @Override
@@ -55,20 +69,37 @@ public class JobScheduleHelper {
                     // 扫描任务
                     long start = System.currentTimeMillis();
                     PreparedStatement preparedStatement = null;
+                    boolean shardScan = false;
                     try {
-                        if (conn==null || conn.isClosed()) {
-                            conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
-                        }
-                        conn.setAutoCommit(false);
+                        if (!leaseMode) {
+                            if (conn==null || conn.isClosed()) {
+                                conn = XxlJobAdminConfig.getAdminConfig().getDataSource().getConnection();
+                            }
+                            conn.setAutoCommit(false);
 
-                        preparedStatement = conn.prepareStatement(  "select * from xxl_job_lock where lock_name = 'schedule_lock' for update" );
-                        preparedStatement.execute();
+                            preparedStatement = conn.prepareStatement(  "select * from xxl_job_lock where lock_name = 'schedule_lock' for update" );
+                            preparedStatement.execute();
+                        }
 
                         // tx start
+                        long lockTime = System.currentTimeMillis();
 
-                        // 1、预读5s内调度任务
+                        // 1、预读5s内调度任务（wheel模式：预读preReadMs；lease模式：仅本节点租约分片）
                         long nowTime = System.currentTimeMillis();
-                        List<XxlJobInfo> scheduleList = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleJobQuery(nowTime + PRE_READ_MS);
+                        List<XxlJobInfo> scheduleList = null;
+                        if (leaseMode) {
+                            // shards not released by lease thread until scan end
+                            int[] shardIds = JobShardLeaseHelper.getInstance().beginScan(nowTime);
+                            shardScan = true;
+                            if (shardIds.length > 0) {
+                                scheduleList = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleJobQueryByShard(nowTime + preReadMs,
+                                        JobShardLeaseHelper.getInstance().getShardCount(),
+                                        shardIds);
+                            }
+                        } else {
+                            scheduleList = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleJobQuery(nowTime + preReadMs);
+                        }
+                        long queryTime = System.currentTimeMillis();
                         if (scheduleList!=null && scheduleList.size()>0) {
                             // 2、推送时间轮
                             for (XxlJobInfo jobInfo: scheduleList) {
@@ -80,7 +111,7 @@ public class JobScheduleHelper {
                                     // fresh next
                                     jobInfo.setTriggerLastTime(jobInfo.getTriggerNextTime());
                                     jobInfo.setTriggerNextTime(
-                                            new CronExpression(jobInfo.getJobCron())
+                                            CompiledCronExpression.compile(jobInfo.getJobCron())
                                                     .getNextValidTimeAfter(new Date())
                                                     .getTime()
                                     );
@@ -88,11 +119,11 @@ public class JobScheduleHelper {
                                 } else if (nowTime > jobInfo.getTriggerNextTime()) {
                                     // 过期5s内 ：立即触发一次，当前时间开始计算下次触发时间；
 
-                                    CronExpression cronExpression = new CronExpression(jobInfo.getJobCron());
+                                    CompiledCronExpression cronExpression = CompiledCronExpression.compile(jobInfo.getJobCron());
                                     long nextTime = cronExpression.getNextValidTimeAfter(new Date()).getTime();
 
                                     // 1、trigger
-                                    JobTriggerPoolHelper.trigger(jobInfo.getId(), TriggerTypeEnum.CRON, -1, null, null);
+                                    JobTriggerPoolHelper.trigger(jobInfo.getId(), jobInfo.getJobGroup(), TriggerTypeEnum.CRON, -1, null, null);
                                     logger.debug(">>>>>>>>>>> xxl-job, shecule push trigger : jobId = " + jobInfo.getId() );
 
                                     // 2、fresh next
@@ -101,18 +132,16 @@ public class JobScheduleHelper {
 
 
                                     // 下次5s内：预读一次；
-                                    if (jobInfo.getTriggerNextTime() - nowTime < PRE_READ_MS) {
-
-                                        // 1、make ring second
-                                        int ringSecond = (int)((jobInfo.getTriggerNextTime()/1000)%60);
+                                    if (jobInfo.getTriggerNextTime() - nowTime < preReadMs) {
 
-                                        // 2、push time ring
-                                        pushTimeRing(ringSecond, jobInfo.getId());
+                                        // 1、push time ring
+                                        JobTriggerPoolHelper.bindJobGroup(jobInfo.getId(), jobInfo.getJobGroup());
+                                        pushTimeRing(jobInfo.getTriggerNextTime(), jobInfo.getId());
 
-                                        // 3、fresh next
+                                        // 2、fresh next
                                         jobInfo.setTriggerLastTime(jobInfo.getTriggerNextTime());
                                         jobInfo.setTriggerNextTime(
-                                                new CronExpression(jobInfo.getJobCron())
+                                                CompiledCronExpression.compile(jobInfo.getJobCron())
                                                         .getNextValidTimeAfter(new Date(jobInfo.getTriggerNextTime()))
                                                         .getTime()
                                         );
@@ -122,16 +151,14 @@ public class JobScheduleHelper {
                                 } else {
                                     // 未过期：正常触发，递增计算下次触发时间
 
-                                    // 1、make ring second
-                                    int ringSecond = (int)((jobInfo.getTriggerNextTime()/1000)%60);
+                                    // 1、push time ring, bind job group here: ring thread trigger by job id only
+                                    JobTriggerPoolHelper.bindJobGroup(jobInfo.getId(), jobInfo.getJobGroup());
+                                    pushTimeRing(jobInfo.getTriggerNextTime(), jobInfo.getId());
 
-                                    // 2、push time ring
-                                    pushTimeRing(ringSecond, jobInfo.getId());
-
-                                    // 3、fresh next
+                                    // 2、fresh next
                                     jobInfo.setTriggerLastTime(jobInfo.getTriggerNextTime());
                                     jobInfo.setTriggerNextTime(
-                                            new CronExpression(jobInfo.getJobCron())
+                                            CompiledCronExpression.compile(jobInfo.getJobCron())
                                                     .getNextValidTimeAfter(new Date(jobInfo.getTriggerNextTime()))
                                                     .getTime()
                                     );
@@ -140,11 +167,24 @@ public class JobScheduleHelper {
 
                             }
 
-                            // 3、更新trigger信息
-                            for (XxlJobInfo jobInfo: scheduleList) {
-                                XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleUpdate(jobInfo);
-                            }
+                            long ringTime = System.currentTimeMillis();
 
+                            // 3、更新trigger信息（批量）
+                            for (int i = 0; i < scheduleList.size(); i += UPDATE_BATCH_SIZE) {
+                                XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().scheduleUpdateBatch(
+                                        scheduleList.subList(i, Math.min(i + UPDATE_BATCH_SIZE, scheduleList.size())));
+                            }
+                            long updateTime = System.currentTimeMillis();
+
+                            // 4、in-loop timing
+                            long holdCost = updateTime - lockTime;
+                            if (holdCost > 1000) {
+                                logger.warn(">>>>>>>>>>> xxl-job, JobScheduleHelper#scheduleThread slow, jobs:{}, lock:{}ms, query:{}ms, ring:{}ms, update:{}ms",
+                                        scheduleList.size(), lockTime-start, queryTime-lockTime, ringTime-queryTime, updateTime-ringTime);
+                            } else {
+                                logger.debug(">>>>>>>>>>> xxl-job, JobScheduleHelper#scheduleThread, jobs:{}, lock:{}ms, query:{}ms, ring:{}ms, update:{}ms",
+                                        scheduleList.size(), lockTime-start, queryTime-lockTime, ringTime-queryTime, updateTime-ringTime);
+                            }
                         }
 
                         // tx stop
@@ -156,9 +196,16 @@ public class JobScheduleHelper {
                         }
                     } finally {
 
+                        // shard scan end
+                        if (shardScan) {
+                            JobShardLeaseHelper.getInstance().endScan();
+                        }
+
                         // commit
                         try {
-                            conn.commit();
+                            if (conn != null) {
+                                conn.commit();
+                            }
                         } catch (SQLException e) {
                             if (!scheduleThreadToStop) {
                                 logger.error(e.getMessage(), e);
@@ -218,6 +265,12 @@ public class JobScheduleHelper {
                     }
                 }
 
+                // hierarchical time wheel
+                if (timeWheel != null) {
+                    runTimeWheel();
+                    return;
+                }
+
                 while (!ringThreadToStop) {
 
                     try {
@@ -265,6 +318,53 @@ public class JobScheduleHelper {
         ringThread.start();
     }
 
+    /**
+     * time wheel loop, tick each HierarchicalTimeWheel.TICK_MS
+     */
+    private void runTimeWheel(){
+        HierarchicalTimeWheel.IdConsumer triggerConsumer = new HierarchicalTimeWheel.IdConsumer() {
+            @Override
+            public void accept(int jobId) {
+                JobTriggerPoolHelper.trigger(jobId, TriggerTypeEnum.CRON, -1, null, null);
+            }
+        };
+
+        while (!ringThreadToStop) {
+            try {
+                int fired = timeWheel.advanceTo(System.currentTimeMillis(), triggerConsumer);
+                if (fired > 0) {
+                    logger.debug(">>>>>>>>>>> xxl-job, time-wheel fire : {}", fired);
+                }
+            } catch (Exception e) {
+                if (!ringThreadToStop) {
+                    logger.error(">>>>>>>>>>> xxl-job, JobScheduleHelper#ringThread error:{}", e);
+                }
+            }
+
+            // next tick, align tick
+            try {
+                TimeUnit.MILLISECONDS.sleep(HierarchicalTimeWheel.TICK_MS - System.currentTimeMillis()%HierarchicalTimeWheel.TICK_MS);
+            } catch (InterruptedException e) {
+                if (!ringThreadToStop) {
+                    logger.error(e.getMessage(), e);
+                }
+            }
+        }
+        logger.info(">>>>>>>>>>> xxl-job, JobScheduleHelper#ringThread stop");
+    }
+
+    private void pushTimeRing(long triggerTime, int jobId){
+        // hierarchical time wheel, keep ms precision
+        if (timeWheel != null) {
+            timeWheel.add(triggerTime, jobId);
+            return;
+        }
+
+        // make ring second
+        int ringSecond = (int)((triggerTime/1000)%60);
+        pushTimeRing(ringSecond, jobId);
+    }
+
     private void pushTimeRing(int ringSecond, int jobId){
         // push async ring
         List<Integer> ringItemData = ringData.get(ringSecond);
@@ -298,7 +398,18 @@ public class JobScheduleHelper {
 
         // if has ring data
         boolean hasRingData = false;
-        if (!ringData.isEmpty()) {
+        if (timeWheel != null) {
+            // wait pre-read jobs fired
+            long waitUntil = System.currentTimeMillis() + preReadMs + 1000;
+            while (timeWheel.size() > 0 && System.currentTimeMillis() < waitUntil) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(HierarchicalTimeWheel.TICK_MS);
+                } catch (InterruptedException e) {
+                    logger.error(e.getMessage(), e);
+                    break;
+                }
+            }
+        } else if (!ringData.isEmpty()) {
             for (int second : ringData.keySet()) {
                 List<Integer> tmpData = ringData.get(second);
                 if (tmpData!=null && tmpData.size()>0) {
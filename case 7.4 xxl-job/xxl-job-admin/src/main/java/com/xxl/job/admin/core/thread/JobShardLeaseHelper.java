@@ -0,0 +1,281 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobShardLease;
+import com.xxl.job.admin.dao.XxlJobShardLeaseDao;
+import com.xxl.rpc.util.IpUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * schedule shard lease, admin nodes lease disjoint job shards ("id % shardCount") instead of global "schedule_lock"
+ *
+ *      1、node heartbeat, alive node list sorted by node id;
+ *      2、fair share: shardCount / aliveNodeCount, the first "shardCount % aliveNodeCount" nodes take one more;
+ *      3、release shards beyond share, renew own shards, take over free or expired shards up to share;
+ *      4、schedule scan hold read lock, release wait in-flight scan done (write lock), scan never run on released shard;
+ *      5、lease time in db clock (read once per beat), lease valid time in local clock from beat start: node clock skew never gives a shard two owners;
+ */
+public class JobShardLeaseHelper {
+    private static Logger logger = LoggerFactory.getLogger(JobShardLeaseHelper.class);
+
+    private static JobShardLeaseHelper instance = new JobShardLeaseHelper();
+    public static JobShardLeaseHelper getInstance(){
+        return instance;
+    }
+
+    public static final long LEASE_TIMEOUT = 10000;                 // lease expire, also node dead timeout
+    public static final long LEASE_BEAT = LEASE_TIMEOUT / 3;
+    public static final long LEASE_SAFE_MARGIN = LEASE_BEAT;        // stop schedule before lease expire, avoid two owner
+
+    private String nodeId;
+    private int shardCount;
+
+    private volatile int[] ownedShards = new int[0];
+    private volatile long leaseValidTime = 0;
+
+    private final ReadWriteLock scanLock = new ReentrantReadWriteLock();
+
+    public JobShardLeaseHelper() {
+    }
+
+    public JobShardLeaseHelper(String nodeId, int shardCount) {
+        this.nodeId = nodeId;
+        this.shardCount = shardCount;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    /**
+     * shards could be scheduled by this node now
+     *
+     * @param nowTime
+     * @return  empty if lease not valid
+     */
+    public int[] getOwnedShards(long nowTime) {
+        if (nowTime < leaseValidTime - LEASE_SAFE_MARGIN) {
+            return ownedShards;
+        }
+        return new int[0];
+    }
+
+    /**
+     * schedule scan start, owned shards not released until {@link #endScan()}
+     *
+     * @param nowTime
+     * @return  shards could be scanned, empty if lease not valid
+     */
+    public int[] beginScan(long nowTime) {
+        scanLock.readLock().lock();
+        return getOwnedShards(nowTime);
+    }
+
+    /**
+     * schedule scan end, pre-read jobs pushed and trigger info updated
+     */
+    public void endScan() {
+        scanLock.readLock().unlock();
+    }
+
+    /**
+     * stop schedule shards: new scan see new shards, wait in-flight scan holding old shards done
+     */
+    private void stopSchedule(int[] keepShards) {
+        ownedShards = keepShards;
+        scanLock.writeLock().lock();
+        scanLock.writeLock().unlock();
+    }
+
+    /**
+     * heartbeat, renew and balance shard lease, in db clock
+     */
+    public void heartbeat() {
+        long localTime = System.currentTimeMillis();
+        long dbTime = XxlJobAdminConfig.getAdminConfig().getXxlJobShardLeaseDao().nowTime();
+        heartbeat(dbTime, localTime);
+    }
+
+    /**
+     * heartbeat, renew and balance shard lease
+     *
+     * @param nowTime       db time, node heartbeat and shard lease compared / written in it
+     * @param localTime     local time not after nowTime was read, lease valid time counted from it
+     */
+    public void heartbeat(long nowTime, long localTime) {
+        XxlJobShardLeaseDao shardLeaseDao = XxlJobAdminConfig.getAdminConfig().getXxlJobShardLeaseDao();
+
+        // 1、node heartbeat
+        if (shardLeaseDao.nodeHeartbeat(nodeId, nowTime) < 1) {
+            shardLeaseDao.nodeSave(nodeId, nowTime);
+        }
+        shardLeaseDao.removeDeadNode(nowTime - LEASE_TIMEOUT);
+        List<String> aliveNodes = shardLeaseDao.findAliveNode(nowTime - LEASE_TIMEOUT);
+        if (!aliveNodes.contains(nodeId)) {
+            aliveNodes.add(nodeId);
+        }
+
+        // 2、fair share
+        int nodeIndex = aliveNodes.indexOf(nodeId);
+        int share = shardCount / aliveNodes.size() + (nodeIndex < shardCount % aliveNodes.size() ? 1 : 0);
+
+        // 3、shard lease
+        List<XxlJobShardLease> leaseList = shardLeaseDao.findAll();
+        Set<Integer> existShards = new HashSet<>();
+        List<Integer> owned = new ArrayList<>();
+        List<Integer> free = new ArrayList<>();
+        for (XxlJobShardLease lease: leaseList) {
+            if (lease.getShardId() >= shardCount) {
+                continue;
+            }
+            existShards.add(lease.getShardId());
+            if (nodeId.equals(lease.getOwner()) && lease.getLeaseExpireTime() >= nowTime) {
+                owned.add(lease.getShardId());
+            } else if (lease.getOwner() == null || lease.getLeaseExpireTime() < nowTime) {
+                free.add(lease.getShardId());
+            }
+        }
+        for (int shardId = 0; shardId < shardCount; shardId++) {
+            if (!existShards.contains(shardId)) {
+                try {
+                    shardLeaseDao.save(shardId);
+                    free.add(shardId);
+                } catch (Exception e) {
+                    logger.debug(">>>>>>>>>>> xxl-job, shard lease init fail (other node init), shardId:{}", shardId);
+                }
+            }
+        }
+
+        // release beyond share (stop schedule them first)
+        List<Integer> releaseList = new ArrayList<>();
+        while (owned.size() > share) {
+            releaseList.add(owned.remove(owned.size() - 1));
+        }
+        if (!releaseList.isEmpty()) {
+            stopSchedule(toArray(owned));
+            for (int shardId: releaseList) {
+                shardLeaseDao.release(shardId, nodeId);
+            }
+        }
+
+        // renew own
+        long leaseExpireTime = nowTime + LEASE_TIMEOUT;
+        List<Integer> renewed = new ArrayList<>();
+        for (int shardId: owned) {
+            if (shardLeaseDao.acquire(shardId, nodeId, nowTime, leaseExpireTime) > 0) {
+                renewed.add(shardId);
+            }
+        }
+
+        // take over free
+        for (int shardId: free) {
+            if (renewed.size() >= share) {
+                break;
+            }
+            if (shardLeaseDao.acquire(shardId, nodeId, nowTime, leaseExpireTime) > 0) {
+                renewed.add(shardId);
+            }
+        }
+
+        // lease expire at (db time >= nowTime) + timeout, local clock from before nowTime read is never later
+        ownedShards = toArray(renewed);
+        leaseValidTime = localTime + LEASE_TIMEOUT;
+    }
+
+    private static int[] toArray(List<Integer> list) {
+        int[] arr = new int[list.size()];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = list.get(i);
+        }
+        return arr;
+    }
+
+    /**
+     * release all shard, remove node
+     */
+    public void release() {
+        XxlJobShardLeaseDao shardLeaseDao = XxlJobAdminConfig.getAdminConfig().getXxlJobShardLeaseDao();
+
+        int[] releaseShards = ownedShards;
+        leaseValidTime = 0;
+        stopSchedule(new int[0]);
+        for (int shardId: releaseShards) {
+            shardLeaseDao.release(shardId, nodeId);
+        }
+        shardLeaseDao.nodeRemove(nodeId);
+    }
+
+    // ---------------------- lease thread ----------------------
+
+    private Thread leaseThread;
+    private volatile boolean toStop = false;
+    public void start(){
+        if (nodeId == null) {
+            nodeId = IpUtil.getIp() + "_" + UUID.randomUUID().toString().replace("-", "").substring(0, 8);
+        }
+        if (shardCount < 1) {
+            shardCount = XxlJobAdminConfig.getAdminConfig().getScheduleShardCount();
+        }
+
+        leaseThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!toStop) {
+                    try {
+                        heartbeat();
+                        logger.debug(">>>>>>>>>>> xxl-job, shard lease beat, nodeId:{}, ownedShards:{}", nodeId, Arrays.toString(ownedShards));
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(">>>>>>>>>>> xxl-job, JobShardLeaseHelper#leaseThread error:{}", e);
+                        }
+                    }
+                    try {
+                        TimeUnit.MILLISECONDS.sleep(LEASE_BEAT);
+                    } catch (InterruptedException e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+                }
+
+                // release, other node take over at once
+                try {
+                    release();
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+                logger.info(">>>>>>>>>>> xxl-job, JobShardLeaseHelper#leaseThread stop");
+            }
+        });
+        leaseThread.setDaemon(true);
+        leaseThread.setName("xxl-job, admin JobShardLeaseHelper#leaseThread");
+        leaseThread.start();
+    }
+
+    public void toStop(){
+        toStop = true;
+        // interrupt and wait
+        leaseThread.interrupt();
+        try {
+            leaseThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+    }
+
+}
@@ -1,16 +1,28 @@
 package com.xxl.job.admin.core.thread;
 
+import com.xxl.job.admin.core.conf.XxlJobAdminConfig;
+import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
 import com.xxl.job.admin.core.trigger.XxlJobTrigger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * job trigger thread pool helper
  *
+ *      1、group bulkhead: in-flight trigger of one job group is limited, the rest wait in group queue (not in shared pool),
+ *          job group resolved at submit (bound group, or load job info once on miss);
+ *          rejected trigger queued (bounded) and saved as fail log by a writer thread, not on schedule thread, no retry (alarm only);
+ *      2、job latency window: sliding 60s histogram per job, job with more than 10 triggers over 500ms go to slow pool;
+ *      3、virtual thread (optional, jdk21+): run blocking trigger in virtual thread, only limited by group bulkhead;
+ *
  * @author xuxueli 2018-07-03 21:08:07
  */
 public class JobTriggerPoolHelper {
@@ -46,64 +58,361 @@ public class JobTriggerPoolHelper {
                 }
             });
 
+    // virtual thread pool, not null: replace fast/slow pool
+    private volatile ExecutorService virtualTriggerPool;
+
+    public void start(){
+        groupMaxRunning = XxlJobAdminConfig.getAdminConfig().getTriggerPoolGroupMax();
+        startRejectWriter();
+        if (XxlJobAdminConfig.getAdminConfig().isTriggerPoolVirtual()) {
+            try {
+                Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                virtualTriggerPool = (ExecutorService) method.invoke(null);
+                logger.info(">>>>>>>>> xxl-job trigger pool, use virtual thread.");
+            } catch (Exception e) {
+                logger.warn(">>>>>>>>> xxl-job trigger pool, virtual thread not supported (jdk21+), use fast/slow thread pool.");
+            }
+        }
+    }
+
 
-    // job timeout count
-    private volatile long minTim = System.currentTimeMillis()/60000;     // ms > min
-    private volatile ConcurrentMap<Integer, AtomicInteger> jobTimeoutCountMap = new ConcurrentHashMap<>();
+    // ---------------------- job latency window ----------------------
 
+    private static final long SLOW_COST = 500;          // job-timeout threshold 500ms
+    private static final int SLOW_COUNT = 10;           // job-timeout 10 times in 1 min
+
+    private ConcurrentMap<Integer, JobLatencyWindow> jobLatencyMap = new ConcurrentHashMap<>();
+    private volatile long lastSweepTime = System.currentTimeMillis();
 
     /**
-     * add trigger
+     * sliding window latency histogram, 6 bucket * 10s
      */
-    public void addTrigger(final int jobId, final TriggerTypeEnum triggerType, final int failRetryCount, final String executorShardingParam, final String executorParam) {
+    private static class JobLatencyWindow {
+        private static final int BUCKET_NUM = 6;
+        private static final long BUCKET_MS = 10000;
+        private static final long WINDOW_MS = BUCKET_NUM * BUCKET_MS;
+        private static final long[] BOUNDS = {100, SLOW_COST, 1000, 3000};     // bin: <=100, <=500, <=1000, <=3000, >3000
+        private static final int SLOW_BIN = 2;
 
-        // choose thread pool
-        ThreadPoolExecutor triggerPool_ = fastTriggerPool;
-        AtomicInteger jobTimeoutCount = jobTimeoutCountMap.get(jobId);
-        if (jobTimeoutCount!=null && jobTimeoutCount.get() > 10) {      // job-timeout 10 times in 1 min
-            triggerPool_ = slowTriggerPool;
+        private final long[] bucketEpoch = new long[BUCKET_NUM];
+        private final int[][] bucketCount = new int[BUCKET_NUM][BOUNDS.length + 1];
+        private volatile long lastTime;
+
+        synchronized void record(long nowTime, long cost) {
+            long epoch = nowTime / BUCKET_MS;
+            int index = (int) (epoch % BUCKET_NUM);
+            if (bucketEpoch[index] != epoch) {
+                bucketEpoch[index] = epoch;
+                for (int i = 0; i < bucketCount[index].length; i++) {
+                    bucketCount[index][i] = 0;
+                }
+            }
+            int bin = 0;
+            while (bin < BOUNDS.length && cost > BOUNDS[bin]) {
+                bin++;
+            }
+            bucketCount[index][bin]++;
+            lastTime = nowTime;
         }
 
-        // trigger
-        triggerPool_.execute(new Runnable() {
-            @Override
-            public void run() {
+        synchronized int slowCount(long nowTime) {
+            long minEpoch = (nowTime - WINDOW_MS) / BUCKET_MS;
+            int count = 0;
+            for (int index = 0; index < BUCKET_NUM; index++) {
+                if (bucketEpoch[index] > minEpoch) {
+                    for (int bin = SLOW_BIN; bin < bucketCount[index].length; bin++) {
+                        count += bucketCount[index][bin];
+                    }
+                }
+            }
+            return count;
+        }
 
-                long start = System.currentTimeMillis();
+        boolean isIdle(long nowTime) {
+            return nowTime - lastTime > WINDOW_MS;
+        }
+    }
 
-                try {
-                    // do trigger
-                    XxlJobTrigger.trigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam);
-                } catch (Exception e) {
-                    logger.error(e.getMessage(), e);
-                } finally {
+    private boolean isSlowJob(int jobId) {
+        JobLatencyWindow latencyWindow = jobLatencyMap.get(jobId);
+        return latencyWindow!=null && latencyWindow.slowCount(System.currentTimeMillis()) > SLOW_COUNT;
+    }
+
+    private void recordLatency(int jobId, long cost) {
+        long nowTime = System.currentTimeMillis();
+        JobLatencyWindow latencyWindow = jobLatencyMap.get(jobId);
+        if (latencyWindow == null) {
+            if (cost <= SLOW_COST) {
+                return;     // only track job once slow
+            }
+            latencyWindow = new JobLatencyWindow();
+            JobLatencyWindow exist = jobLatencyMap.putIfAbsent(jobId, latencyWindow);
+            if (exist != null) {
+                latencyWindow = exist;
+            }
+        }
+        latencyWindow.record(nowTime, cost);
+
+        // sweep idle window, replace minute clear
+        long lastSweepTime_ = lastSweepTime;
+        if (nowTime - lastSweepTime_ > JobLatencyWindow.WINDOW_MS) {
+            lastSweepTime = nowTime;
+            Iterator<Map.Entry<Integer, JobLatencyWindow>> it = jobLatencyMap.entrySet().iterator();
+            while (it.hasNext()) {
+                if (it.next().getValue().isIdle(nowTime)) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+
+    // ---------------------- group bulkhead ----------------------
+
+    private static final int GROUP_PENDING_MAX = 2000;
+
+    private volatile int groupMaxRunning = 30;
+    private ConcurrentMap<Integer, Integer> jobGroupMap = new ConcurrentHashMap<>();
+    private ConcurrentMap<Integer, GroupBulkhead> groupBulkheadMap = new ConcurrentHashMap<>();
+
+    private class GroupBulkhead {
+        private final int jobGroup;
+        private final AtomicInteger running = new AtomicInteger(0);
+        private final AtomicInteger pendingCount = new AtomicInteger(0);
+        private final Queue<TriggerTask> pending = new ConcurrentLinkedQueue<>();
+
+        GroupBulkhead(int jobGroup) {
+            this.jobGroup = jobGroup;
+        }
+
+        void submit(TriggerTask task) {
+            if (tryAcquire()) {
+                dispatch(task);
+                return;
+            }
+            if (pendingCount.incrementAndGet() > GROUP_PENDING_MAX) {
+                pendingCount.decrementAndGet();
+                reject(task, "job group[" + jobGroup + "] pending full");
+                return;
+            }
+            pending.offer(task);
+            drain();        // running trigger may finish before offer
+        }
+
+        void release() {
+            running.decrementAndGet();
+            drain();
+        }
+
+        private boolean tryAcquire() {
+            while (true) {
+                int current = running.get();
+                if (current >= groupMaxRunning) {
+                    return false;
+                }
+                if (running.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        private void drain() {
+            while (!pending.isEmpty() && tryAcquire()) {
+                TriggerTask task = pending.poll();
+                if (task == null) {
+                    running.decrementAndGet();
+                    break;
+                }
+                pendingCount.decrementAndGet();
+                dispatch(task);
+            }
+        }
+
+        private void dispatch(TriggerTask task) {
+            // choose thread pool
+            ExecutorService triggerPool_ = virtualTriggerPool;
+            if (triggerPool_ == null) {
+                triggerPool_ = isSlowJob(task.jobId) ? slowTriggerPool : fastTriggerPool;
+            }
+
+            try {
+                triggerPool_.execute(task);
+            } catch (RejectedExecutionException e) {
+                running.decrementAndGet();
+                reject(task, "trigger pool full");
+            }
+        }
+
+        private void reject(TriggerTask task, String reason) {
+            logger.error(">>>>>>>>>>> xxl-job trigger rejected, {}, jobId:{}", reason, task.jobId);
+            RejectedTrigger rejected = new RejectedTrigger(task.jobId, jobGroup, task.triggerType,
+                    task.executorShardingParam, task.executorParam, "trigger rejected: " + reason);
+            if (!rejectQueue.offer(rejected)) {
+                logger.error(">>>>>>>>>>> xxl-job trigger rejected, reject queue full, fail log not saved, jobId:{}", task.jobId);
+            }
+        }
+    }
 
-                    // check timeout-count-map
-                    long minTim_now = System.currentTimeMillis()/60000;
-                    if (minTim != minTim_now) {
-                        minTim = minTim_now;
-                        jobTimeoutCountMap.clear();
-                    }
 
-                    // incr timeout-count-map
-                    long cost = System.currentTimeMillis()-start;
-                    if (cost > 500) {       // ob-timeout threshold 500ms
-                        AtomicInteger timeoutCount = jobTimeoutCountMap.putIfAbsent(jobId, new AtomicInteger(1));
-                        if (timeoutCount != null) {
-                            timeoutCount.incrementAndGet();
+    // ---------------------- reject writer ----------------------
+
+    private static final int REJECT_QUEUE_MAX = 10000;
+
+    private static class RejectedTrigger {
+        private final int jobId;
+        private final int jobGroup;
+        private final TriggerTypeEnum triggerType;
+        private final String executorShardingParam;
+        private final String executorParam;
+        private final String reason;
+
+        RejectedTrigger(int jobId, int jobGroup, TriggerTypeEnum triggerType, String executorShardingParam, String executorParam, String reason) {
+            this.jobId = jobId;
+            this.jobGroup = jobGroup;
+            this.triggerType = triggerType;
+            this.executorShardingParam = executorShardingParam;
+            this.executorParam = executorParam;
+            this.reason = reason;
+        }
+    }
+
+    private LinkedBlockingQueue<RejectedTrigger> rejectQueue = new LinkedBlockingQueue<RejectedTrigger>(REJECT_QUEUE_MAX);
+    private Thread rejectWriterThread;
+    private volatile boolean toStop = false;
+
+    private void startRejectWriter() {
+        rejectWriterThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!toStop) {
+                    try {
+                        RejectedTrigger rejected = rejectQueue.poll(1, TimeUnit.SECONDS);
+                        if (rejected != null) {
+                            saveRejected(rejected);
+                        }
+                    } catch (InterruptedException e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
                         }
                     }
-
                 }
 
+                // rejected before stop
+                RejectedTrigger rejected;
+                while ((rejected = rejectQueue.poll()) != null) {
+                    saveRejected(rejected);
+                }
+                logger.info(">>>>>>>>>>> xxl-job, trigger reject writer thread stop");
             }
         });
+        rejectWriterThread.setDaemon(true);
+        rejectWriterThread.setName("xxl-job, admin JobTriggerPoolHelper-rejectWriter");
+        rejectWriterThread.start();
+    }
+
+    private void saveRejected(RejectedTrigger rejected) {
+        try {
+            XxlJobTrigger.triggerRejected(rejected.jobId, rejected.jobGroup, rejected.triggerType,
+                    rejected.executorShardingParam, rejected.executorParam, rejected.reason);
+        } catch (Exception e) {
+            logger.error(">>>>>>>>>>> xxl-job trigger rejected, save fail log error, jobId:" + rejected.jobId, e);
+        }
+    }
+
+    private GroupBulkhead getGroupBulkhead(int jobGroup) {
+        GroupBulkhead bulkhead = groupBulkheadMap.get(jobGroup);
+        if (bulkhead == null) {
+            bulkhead = new GroupBulkhead(jobGroup);
+            GroupBulkhead exist = groupBulkheadMap.putIfAbsent(jobGroup, bulkhead);
+            if (exist != null) {
+                bulkhead = exist;
+            }
+        }
+        return bulkhead;
+    }
+
+    private class TriggerTask implements Runnable {
+        private final int jobId;
+        private final TriggerTypeEnum triggerType;
+        private final int failRetryCount;
+        private final String executorShardingParam;
+        private final String executorParam;
+        private final GroupBulkhead bulkhead;
+
+        TriggerTask(int jobId, TriggerTypeEnum triggerType, int failRetryCount, String executorShardingParam, String executorParam, GroupBulkhead bulkhead) {
+            this.jobId = jobId;
+            this.triggerType = triggerType;
+            this.failRetryCount = failRetryCount;
+            this.executorShardingParam = executorShardingParam;
+            this.executorParam = executorParam;
+            this.bulkhead = bulkhead;
+        }
+
+        @Override
+        public void run() {
+
+            long start = System.currentTimeMillis();
+
+            try {
+                // do trigger
+                XxlJobTrigger.trigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam);
+            } catch (Exception e) {
+                logger.error(e.getMessage(), e);
+            } finally {
+
+                // job latency window
+                recordLatency(jobId, System.currentTimeMillis()-start);
+
+                // group bulkhead
+                bulkhead.release();
+            }
+
+        }
+    }
+
+
+    /**
+     * add trigger
+     *
+     * @param jobGroup  null: group bound by schedule / last trigger, load job info once if not bound (e.g. after restart)
+     */
+    public void addTrigger(final int jobId, final Integer jobGroup, final TriggerTypeEnum triggerType, final int failRetryCount, final String executorShardingParam, final String executorParam) {
+
+        // choose group bulkhead
+        Integer bulkheadGroup = jobGroup!=null?jobGroup:jobGroupMap.get(jobId);
+        if (bulkheadGroup == null) {
+            XxlJobInfo jobInfo = XxlJobAdminConfig.getAdminConfig().getXxlJobInfoDao().loadById(jobId);
+            if (jobInfo == null) {
+                logger.warn(">>>>>>>>>>>> trigger fail, jobId invalid，jobId={}", jobId);
+                return;
+            }
+            bulkheadGroup = jobInfo.getJobGroup();
+            bindJobGroup(jobId, bulkheadGroup);
+        }
+        GroupBulkhead bulkhead = getGroupBulkhead(bulkheadGroup);
+
+        // trigger
+        bulkhead.submit(new TriggerTask(jobId, triggerType, failRetryCount, executorShardingParam, executorParam, bulkhead));
     }
 
     public void stop() {
+        // stop reject writer, save queued rejected trigger
+        toStop = true;
+        if (rejectWriterThread != null) {
+            rejectWriterThread.interrupt();
+            try {
+                rejectWriterThread.join();
+            } catch (InterruptedException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+
         //triggerPool.shutdown();
         fastTriggerPool.shutdownNow();
         slowTriggerPool.shutdownNow();
+        if (virtualTriggerPool != null) {
+            virtualTriggerPool.shutdownNow();
+        }
         logger.info(">>>>>>>>> xxl-job trigger thread pool shutdown success.");
     }
 
@@ -123,7 +432,41 @@ public class JobTriggerPoolHelper {
      *          not null: cover job param
      */
     public static void trigger(int jobId, TriggerTypeEnum triggerType, int failRetryCount, String executorShardingParam, String executorParam) {
-        helper.addTrigger(jobId, triggerType, failRetryCount, executorShardingParam, executorParam);
+        helper.addTrigger(jobId, null, triggerType, failRetryCount, executorShardingParam, executorParam);
+    }
+
+    /**
+     * trigger with known job group (caller hold job info), bind group for later trigger
+     */
+    public static void trigger(int jobId, int jobGroup, TriggerTypeEnum triggerType, int failRetryCount, String executorShardingParam, String executorParam) {
+        bindJobGroup(jobId, jobGroup);
+        helper.addTrigger(jobId, jobGroup, triggerType, failRetryCount, executorShardingParam, executorParam);
+    }
+
+    /**
+     * bind job group, for group bulkhead
+     *
+     * @param jobId
+     * @param jobGroup
+     */
+    public static void bindJobGroup(int jobId, int jobGroup) {
+        Integer exist = helper.jobGroupMap.get(jobId);
+        if (exist==null || exist!=jobGroup) {
+            helper.jobGroupMap.put(jobId, jobGroup);
+        }
+    }
+
+    /**
+     * unbind job group, job removed
+     *
+     * @param jobId
+     */
+    public static void unbindJobGroup(int jobId) {
+        helper.jobGroupMap.remove(jobId);
+    }
+
+    public static void toStart() {
+        helper.start();
     }
 
     public static void toStop() {
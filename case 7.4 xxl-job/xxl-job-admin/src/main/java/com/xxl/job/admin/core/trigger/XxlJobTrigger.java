@@ -6,6 +6,9 @@ import com.xxl.job.admin.core.model.XxlJobGroup;
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
 import com.xxl.job.admin.core.route.ExecutorRouteStrategyEnum;
+import com.xxl.job.admin.core.thread.JobLogReportHelper;
+import com.xxl.job.admin.core.thread.JobRegistryMonitorHelper;
+import com.xxl.job.admin.core.thread.JobTriggerPoolHelper;
 import com.xxl.job.admin.core.util.I18nUtil;
 import com.xxl.job.core.biz.ExecutorBiz;
 import com.xxl.job.core.biz.model.ReturnT;
@@ -45,11 +48,16 @@ public class XxlJobTrigger {
             logger.warn(">>>>>>>>>>>> trigger fail, jobId invalid，jobId={}", jobId);
             return;
         }
+        JobTriggerPoolHelper.bindJobGroup(jobId, jobInfo.getJobGroup());
         if (executorParam != null) {
             jobInfo.setExecutorParam(executorParam);
         }
         int finalFailRetryCount = failRetryCount>=0?failRetryCount:jobInfo.getExecutorFailRetryCount();
         XxlJobGroup group = XxlJobAdminConfig.getAdminConfig().getXxlJobGroupDao().load(jobInfo.getJobGroup());
+        if (group!=null && group.getAddressType()==0) {
+            // auto registry: immutable address snapshot from registry cache, not parse address_list
+            group.setRegistryList(JobRegistryMonitorHelper.getInstance().getRegistryList(group.getAppName()));
+        }
 
         // sharding param
         int[] shardingParam = null;
@@ -76,6 +84,38 @@ public class XxlJobTrigger {
 
     }
 
+    /**
+     * trigger rejected by trigger pool (group pending full / pool full): save fail log, not drop silently,
+     * fail monitor alarm it; no retry, retry would go back into the same full group
+     *
+     * @param jobId
+     * @param jobGroup
+     * @param triggerType
+     * @param executorShardingParam
+     * @param executorParam
+     * @param reason
+     */
+    public static void triggerRejected(int jobId, int jobGroup, TriggerTypeEnum triggerType, String executorShardingParam, String executorParam, String reason) {
+        XxlJobLog jobLog = new XxlJobLog();
+        jobLog.setJobGroup(jobGroup);
+        jobLog.setJobId(jobId);
+        jobLog.setTriggerTime(new Date());
+        XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().save(jobLog);
+
+        jobLog.setExecutorParam(executorParam);
+        jobLog.setExecutorShardingParam(executorShardingParam);
+        jobLog.setExecutorFailRetryCount(0);
+        jobLog.setTriggerCode(ReturnT.FAIL_CODE);
+        jobLog.setTriggerMsg(I18nUtil.getString("jobconf_trigger_type") + "：" + triggerType.getTitle()
+                + "<br>" + I18nUtil.getString("jobconf_trigger_admin_adress") + "：" + IpUtil.getIp()
+                + "<br><br><span style=\"color:#00c0ef;\" > >>>>>>>>>>>" + I18nUtil.getString("jobconf_trigger_run") + "<<<<<<<<<<< </span><br>"
+                + reason);
+        XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateTriggerInfo(jobLog);
+        JobLogReportHelper.getInstance().report(jobLog.getTriggerTime(), jobLog.getJobGroup(), JobLogReportHelper.STATUS_FAIL);
+
+        logger.warn(">>>>>>>>>>> xxl-job trigger rejected, jobId:{}, logId:{}, reason:{}", jobId, jobLog.getId(), reason);
+    }
+
     private static boolean isNumeric(String str){
         try {
             int result = Integer.valueOf(str);
@@ -106,6 +146,7 @@ public class XxlJobTrigger {
         jobLog.setJobId(jobInfo.getId());
         jobLog.setTriggerTime(new Date());
         XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().save(jobLog);
+        JobLogReportHelper.getInstance().report(jobLog.getTriggerTime(), jobLog.getJobGroup(), JobLogReportHelper.STATUS_RUNNING);
         logger.debug(">>>>>>>>>>> xxl-job trigger start, jobId:{}", jobLog.getId());
 
         // 2、init trigger-param
@@ -179,6 +220,8 @@ public class XxlJobTrigger {
         jobLog.setTriggerCode(triggerResult.getCode());
         jobLog.setTriggerMsg(triggerMsgSb.toString());
         XxlJobAdminConfig.getAdminConfig().getXxlJobLogDao().updateTriggerInfo(jobLog);
+        JobLogReportHelper.getInstance().report(jobLog.getTriggerTime(), jobLog.getJobGroup(),
+                JobLogReportHelper.STATUS_RUNNING, JobLogReportHelper.status(jobLog.getTriggerCode(), 0));
 
         logger.debug(">>>>>>>>>>> xxl-job trigger end, jobId:{}", jobLog.getId());
     }
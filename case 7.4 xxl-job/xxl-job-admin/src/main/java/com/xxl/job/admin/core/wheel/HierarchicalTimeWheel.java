@@ -0,0 +1,236 @@
+package com.xxl.job.admin.core.wheel;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * hierarchical time wheel (ms / s / min), holds int ids with absolute fire time
+ *
+ *      level-0:    20 slot * 50ms      = 1s
+ *      level-1:    60 slot * 1s        = 1min
+ *      level-2:    60 slot * 1min      = 1h, fire time beyond 1h will be re-cascade in level-2
+ *
+ * producers (schedule thread) add lock-free into a pending chunk bucket, a single consumer (ring thread)
+ * calls {@link #advanceTo(long, IdConsumer)}, which each tick moves pending ids into the wheel, cascades upper
+ * levels down and fires due ids; ids are placed by the consumer only, relative to the tick it is processing.
+ */
+public class HierarchicalTimeWheel {
+
+    public static final long TICK_MS = 50;
+    private static final int L0_SLOTS = 20;
+    private static final int L1_SLOTS = 60;
+    private static final int L2_SLOTS = 60;
+    private static final long L1_TICK_MS = TICK_MS * L0_SLOTS;      // 1s
+    private static final long L2_TICK_MS = L1_TICK_MS * L1_SLOTS;   // 1min
+
+    private static final int CHUNK_SIZE = 256;
+
+    private final Bucket[] level0 = newBuckets(L0_SLOTS);
+    private final Bucket[] level1 = newBuckets(L1_SLOTS);
+    private final Bucket[] level2 = newBuckets(L2_SLOTS);
+    private final Bucket pending = new Bucket();                    // added, not placed yet
+
+    private long currentTick;                                       // last processed tick, (ms / TICK_MS), consumer only
+    private final AtomicInteger size = new AtomicInteger(0);
+
+    // reused by consumer only
+    private int[] dueIds = new int[CHUNK_SIZE];
+    private int dueSize = 0;
+
+    public HierarchicalTimeWheel(long startTimeMs) {
+        this.currentTick = startTimeMs / TICK_MS;
+    }
+
+    /**
+     * fire callback
+     */
+    public interface IdConsumer {
+        void accept(int id);
+    }
+
+    /**
+     * add id, fire at triggerTime (ms)
+     *
+     * @param triggerTime
+     * @param id
+     */
+    public void add(long triggerTime, int id) {
+        size.incrementAndGet();
+        pending.add(triggerTime, id);
+    }
+
+    /**
+     * advance wheel to nowMs, fire all due ids (single consumer thread)
+     *
+     * @param nowMs
+     * @param consumer
+     * @return fired count
+     */
+    public int advanceTo(long nowMs, IdConsumer consumer) {
+        long nowTick = nowMs / TICK_MS;
+        int fired = 0;
+        while (currentTick < nowTick) {
+            long tick = currentTick + 1;
+            long tickTime = tick * TICK_MS;
+
+            currentTick = tick;
+
+            // 1、cascade upper level (minute, second boundary)
+            if (tickTime % L2_TICK_MS == 0) {
+                cascade(level2[(int) ((tickTime / L2_TICK_MS) % L2_SLOTS)]);
+            }
+            if (tickTime % L1_TICK_MS == 0) {
+                cascade(level1[(int) ((tickTime / L1_TICK_MS) % L1_SLOTS)]);
+            }
+
+            // 2、move pending in, due or past id fire in this tick
+            cascade(pending);
+
+            // 3、collect level-0
+            dueSize = 0;
+            collect(level0[(int) (tick % L0_SLOTS)], tickTime);
+
+            // 4、fire
+            for (int i = 0; i < dueSize; i++) {
+                consumer.accept(dueIds[i]);
+            }
+            fired += dueSize;
+            size.addAndGet(-dueSize);
+        }
+        return fired;
+    }
+
+    /**
+     * ids in wheel, not fired yet
+     */
+    public int size() {
+        return size.get();
+    }
+
+    // ---------------------- place ----------------------
+
+    private void place(long triggerTime, int id) {
+        long tick = currentTick;
+        long delayMs = triggerTime - tick * TICK_MS;
+
+        if (delayMs < L1_TICK_MS) {
+            // due or in 1s: level-0, first tick not before triggerTime, past time fire in current tick
+            long triggerTick = Math.max((triggerTime + TICK_MS - 1) / TICK_MS, tick);
+            level0[(int) (triggerTick % L0_SLOTS)].add(triggerTime, id);
+        } else if (delayMs < L2_TICK_MS) {
+            level1[(int) ((triggerTime / L1_TICK_MS) % L1_SLOTS)].add(triggerTime, id);
+        } else {
+            level2[(int) ((triggerTime / L2_TICK_MS) % L2_SLOTS)].add(triggerTime, id);
+        }
+    }
+
+    private void cascade(Bucket bucket) {
+        Chunk chunk = bucket.drain();
+        while (chunk != null) {
+            int count = chunk.seal();
+            for (int i = 0; i < count; i++) {
+                long triggerTime = chunk.awaitTriggerTime(i);
+                place(triggerTime, chunk.ids[i]);
+            }
+            chunk = chunk.next;
+        }
+    }
+
+    private void collect(Bucket bucket, long tickTime) {
+        Chunk chunk = bucket.drain();
+        while (chunk != null) {
+            int count = chunk.seal();
+            for (int i = 0; i < count; i++) {
+                long triggerTime = chunk.awaitTriggerTime(i);
+                if (triggerTime <= tickTime) {
+                    if (dueSize == dueIds.length) {
+                        int[] grow = new int[dueIds.length << 1];
+                        System.arraycopy(dueIds, 0, grow, 0, dueSize);
+                        dueIds = grow;
+                    }
+                    dueIds[dueSize++] = chunk.ids[i];
+                } else {
+                    place(triggerTime, chunk.ids[i]);
+                }
+            }
+            chunk = chunk.next;
+        }
+    }
+
+    private static Bucket[] newBuckets(int slots) {
+        Bucket[] buckets = new Bucket[slots];
+        for (int i = 0; i < slots; i++) {
+            buckets[i] = new Bucket();
+        }
+        return buckets;
+    }
+
+    // ---------------------- bucket ----------------------
+
+    /**
+     * lock-free bucket, linked chunks of primitive id array
+     */
+    private static class Bucket {
+        private final AtomicReference<Chunk> head = new AtomicReference<Chunk>();
+
+        void add(long triggerTime, int id) {
+            while (true) {
+                Chunk chunk = head.get();
+                if (chunk != null) {
+                    int index = chunk.reserved.getAndIncrement();
+                    if (index < CHUNK_SIZE) {
+                        chunk.ids[index] = id;
+                        chunk.triggerTimes.lazySet(index, triggerTime);     // publish id
+                        return;
+                    }
+                }
+
+                // full or sealed, push new chunk
+                Chunk newChunk = new Chunk(chunk);
+                newChunk.ids[0] = id;
+                newChunk.triggerTimes.set(0, triggerTime);
+                newChunk.reserved.set(1);
+                if (head.compareAndSet(chunk, newChunk)) {
+                    return;
+                }
+            }
+        }
+
+        Chunk drain() {
+            return head.getAndSet(null);
+        }
+    }
+
+    private static class Chunk {
+        private static final int SEALED = 1 << 30;
+
+        private final int[] ids = new int[CHUNK_SIZE];
+        private final AtomicLongArray triggerTimes = new AtomicLongArray(CHUNK_SIZE);     // 0 = not published
+        private final AtomicInteger reserved = new AtomicInteger(0);
+        private final Chunk next;
+
+        Chunk(Chunk next) {
+            this.next = next;
+        }
+
+        /**
+         * stop further reserve, return reserved count
+         */
+        int seal() {
+            return Math.min(reserved.getAndSet(SEALED), CHUNK_SIZE);
+        }
+
+        /**
+         * wait producer publish (reserved but not written yet, very short)
+         */
+        long awaitTriggerTime(int index) {
+            long triggerTime;
+            while ((triggerTime = triggerTimes.get(index)) == 0) {
+                Thread.yield();
+            }
+            return triggerTime;
+        }
+    }
+
+}
@@ -20,6 +20,8 @@ public interface XxlJobGroupDao {
 
     public int update(XxlJobGroup xxlJobGroup);
 
+    public int updateAddressListBatch(@Param("list") List<XxlJobGroup> groupList);
+
     public int remove(@Param("id") int id);
 
     public XxlJobGroup load(@Param("id") int id);
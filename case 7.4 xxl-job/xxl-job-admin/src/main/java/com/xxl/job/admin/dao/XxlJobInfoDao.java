@@ -32,6 +32,8 @@ public interface XxlJobInfoDao {
 	public int save(XxlJobInfo info);
 
 	public XxlJobInfo loadById(@Param("id") int id);
+
+	public List<XxlJobInfo> loadByIds(@Param("ids") List<Integer> ids);
 	
 	public int update(XxlJobInfo xxlJobInfo);
 	
@@ -43,7 +45,13 @@ public interface XxlJobInfoDao {
 
 	public List<XxlJobInfo> scheduleJobQuery(@Param("maxNextTime") long maxNextTime);
 
+	public List<XxlJobInfo> scheduleJobQueryByShard(@Param("maxNextTime") long maxNextTime,
+													@Param("shardCount") int shardCount,
+													@Param("shardIds") int[] shardIds);
+
 	public int scheduleUpdate(XxlJobInfo xxlJobInfo);
 
+	public int scheduleUpdateBatch(@Param("list") List<XxlJobInfo> list);
+
 
 }
@@ -51,10 +51,50 @@ public interface XxlJobLogDao {
 						@Param("clearBeforeTime") Date clearBeforeTime,
 						@Param("clearBeforeNum") int clearBeforeNum);
 
+	public Long findMinId(@Param("jobGroup") int jobGroup,
+						  @Param("jobId") int jobId);
+
+	public Long findMaxId(@Param("jobGroup") int jobGroup,
+						  @Param("jobId") int jobId,
+						  @Param("clearBeforeTime") Date clearBeforeTime);
+
+	public Long findIdBeforeNum(@Param("jobGroup") int jobGroup,
+								@Param("jobId") int jobId,
+								@Param("clearBeforeNum") int clearBeforeNum);
+
+	public List<XxlJobLog> findStatusByIdRange(@Param("fromId") long fromId,
+											   @Param("toId") long toId,
+											   @Param("jobGroup") int jobGroup,
+											   @Param("jobId") int jobId,
+											   @Param("clearBeforeTime") Date clearBeforeTime);
+
+	public int clearLogByIdRange(@Param("fromId") long fromId,
+								 @Param("toId") long toId,
+								 @Param("jobGroup") int jobGroup,
+								 @Param("jobId") int jobId,
+								 @Param("clearBeforeTime") Date clearBeforeTime);
+
 	public List<Long> findFailJobLogIds(@Param("pagesize") int pagesize);
 
+	public List<Long> findAlarmLockedLogIds(@Param("pagesize") int pagesize);
+
+	public int claimAlarm(@Param("logIds") List<Long> logIds,
+						  @Param("claim") String claim);
+
+	public List<Long> findAlarmClaimLogIds(@Param("logIds") List<Long> logIds,
+										   @Param("claim") String claim);
+
 	public int updateAlarmStatus(@Param("logId") long logId,
 								 @Param("oldAlarmStatus") int oldAlarmStatus,
 								 @Param("newAlarmStatus") int newAlarmStatus);
 
+	public int updateAlarmStatusBatch(@Param("logIds") List<Long> logIds,
+									  @Param("oldAlarmStatus") int oldAlarmStatus,
+									  @Param("newAlarmStatus") int newAlarmStatus);
+
+	public List<XxlJobLog> loadByIds(@Param("logIds") List<Long> logIds);
+
+	public int appendTriggerMsgBatch(@Param("logIds") List<Long> logIds,
+									 @Param("triggerMsg") String triggerMsg);
+
 }
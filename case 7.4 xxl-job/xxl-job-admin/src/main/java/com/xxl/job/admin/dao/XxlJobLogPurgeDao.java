@@ -0,0 +1,27 @@
+package com.xxl.job.admin.dao;
+
+import com.xxl.job.admin.core.model.XxlJobLogPurge;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * log purge task
+ */
+@Mapper
+public interface XxlJobLogPurgeDao {
+
+    public int save(XxlJobLogPurge xxlJobLogPurge);
+
+    public List<XxlJobLogPurge> findRunning();
+
+    public XxlJobLogPurge load(@Param("id") int id);
+
+    public int updateProgress(@Param("id") int id,
+                              @Param("oldCursorId") long oldCursorId,
+                              @Param("cursorId") long cursorId,
+                              @Param("deleteCount") long deleteCount,
+                              @Param("status") int status);
+
+}
@@ -0,0 +1,24 @@
+package com.xxl.job.admin.dao;
+
+import com.xxl.job.admin.core.model.XxlJobLogReport;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * trigger statistics rollup
+ */
+@Mapper
+public interface XxlJobLogReportDao {
+
+    public int addCountBatch(@Param("list") List<XxlJobLogReport> list);
+
+    public long countByStatus(@Param("status") int status);
+
+    public List<Map<String, Object>> countByDay(@Param("from") Date from,
+                                                @Param("to") Date to);
+
+}
@@ -16,6 +16,8 @@ public interface XxlJobRegistryDao {
 
     public List<XxlJobRegistry> findAll(@Param("timeout") int timeout);
 
+    public List<XxlJobRegistry> findUpdated(@Param("window") int window);
+
     public int registryUpdate(@Param("registryGroup") String registryGroup,
                               @Param("registryKey") String registryKey,
                               @Param("registryValue") String registryValue);
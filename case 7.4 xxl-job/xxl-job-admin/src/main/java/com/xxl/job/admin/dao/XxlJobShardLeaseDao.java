@@ -0,0 +1,48 @@
+package com.xxl.job.admin.dao;
+
+import com.xxl.job.admin.core.model.XxlJobShardLease;
+import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
+
+/**
+ * schedule shard lease
+ */
+@Mapper
+public interface XxlJobShardLeaseDao {
+
+    /**
+     * db time (ms), lease clock shared by all admin nodes
+     */
+    public long nowTime();
+
+    // ---------------------- admin node ----------------------
+
+    public int nodeHeartbeat(@Param("nodeId") String nodeId,
+                             @Param("heartbeatTime") long heartbeatTime);
+
+    public int nodeSave(@Param("nodeId") String nodeId,
+                        @Param("heartbeatTime") long heartbeatTime);
+
+    public int nodeRemove(@Param("nodeId") String nodeId);
+
+    public int removeDeadNode(@Param("minHeartbeatTime") long minHeartbeatTime);
+
+    public List<String> findAliveNode(@Param("minHeartbeatTime") long minHeartbeatTime);
+
+    // ---------------------- shard lease ----------------------
+
+    public List<XxlJobShardLease> findAll();
+
+    public int save(@Param("shardId") int shardId);
+
+    public int acquire(@Param("shardId") int shardId,
+                       @Param("owner") String owner,
+                       @Param("nowTime") long nowTime,
+                       @Param("leaseExpireTime") long leaseExpireTime);
+
+    public int release(@Param("shardId") int shardId,
+                       @Param("owner") String owner);
+
+}
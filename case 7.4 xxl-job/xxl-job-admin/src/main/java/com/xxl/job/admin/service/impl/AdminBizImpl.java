@@ -2,6 +2,8 @@ package com.xxl.job.admin.service.impl;
 
 import com.xxl.job.admin.core.model.XxlJobInfo;
 import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.core.thread.JobLogReportHelper;
+import com.xxl.job.admin.core.thread.JobRegistryMonitorHelper;
 import com.xxl.job.admin.core.thread.JobTriggerPoolHelper;
 import com.xxl.job.admin.core.trigger.TriggerTypeEnum;
 import com.xxl.job.admin.core.util.I18nUtil;
@@ -104,10 +106,12 @@ public class AdminBizImpl implements AdminBiz {
         }
 
         // success, save log
+        int oldStatus = JobLogReportHelper.status(log.getTriggerCode(), log.getHandleCode());
         log.setHandleTime(new Date());
         log.setHandleCode(handleCallbackParam.getExecuteResult().getCode());
         log.setHandleMsg(handleMsg.toString());
         xxlJobLogDao.updateHandleInfo(log);
+        JobLogReportHelper.getInstance().report(log.getTriggerTime(), log.getJobGroup(), oldStatus, JobLogReportHelper.status(log.getTriggerCode(), log.getHandleCode()));
 
         return ReturnT.SUCCESS;
     }
@@ -127,12 +131,14 @@ public class AdminBizImpl implements AdminBiz {
         if (ret < 1) {
             xxlJobRegistryDao.registrySave(registryParam.getRegistGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue());
         }
+        JobRegistryMonitorHelper.getInstance().registry(registryParam.getRegistGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue(), System.currentTimeMillis());
         return ReturnT.SUCCESS;
     }
 
     @Override
     public ReturnT<String> registryRemove(RegistryParam registryParam) {
         xxlJobRegistryDao.registryDelete(registryParam.getRegistGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue());
+        JobRegistryMonitorHelper.getInstance().registryRemove(registryParam.getRegistGroup(), registryParam.getRegistryKey(), registryParam.getRegistryValue());
         return ReturnT.SUCCESS;
     }
 
@@ -311,7 +311,7 @@ $(function() {
 				layer.open({
 					title: I18n.system_tips ,
                     btn: [ I18n.system_ok ],
-					content: (I18n.joblog_clean_log + I18n.system_success) ,
+					content: (data.msg || (I18n.joblog_clean_log + I18n.system_success)) ,
 					icon: '1',
 					end: function(layero, index){
 						logTable.fnDraw();
@@ -0,0 +1,85 @@
+package com.xxl.job.admin.core.cron;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+public class CompiledCronExpressionTest {
+
+    private static final String[] CRONS = {
+            "* * * * * ?",
+            "0 * * * * ?",
+            "0/5 * * * * ?",
+            "15,45 */7 * * * ?",
+            "0 0 * * * ?",
+            "0 0 2 * * ?",
+            "0 30 10-13 ? * WED,FRI",
+            "0 15 10 ? * MON-FRI",
+            "0 0 12 1/5 * ?",
+            "0 0 0 29 2 ?",
+            "0 0 0 31 * ?",
+            "0 0/30 8-10 * JAN,JUL ?",
+            "0 11 11 11 11 ?",
+            "0 0 0 ? * SUN",
+            "0 0 12 * * ? 2030",
+            "0 0 12 * * ? 2025-2027",
+            "0 0 12 * * ? 2001",
+            // delegate
+            "0 0 12 L * ?",
+            "0 0 12 15W * ?",
+            "0 0 12 ? * 6L",
+            "0 0 12 ? * 2#3",
+    };
+
+    @Test
+    public void sameAsCronExpression() throws ParseException {
+        assertSame(TimeZone.getDefault());
+    }
+
+    @Test
+    public void sameAsCronExpressionDst() throws ParseException {
+        assertSame(TimeZone.getTimeZone("America/New_York"));
+    }
+
+    private void assertSame(TimeZone timeZone) throws ParseException {
+        Random random = new Random(1);
+        for (String cron: CRONS) {
+            CronExpression expression = new CronExpression(cron);
+            expression.setTimeZone(timeZone);
+            CompiledCronExpression compiled = new CompiledCronExpression(expression);
+
+            long time = 1546300800000L;     // 2019-01-01
+            for (int i = 0; i < 300; i++) {
+                Date expect = expression.getNextValidTimeAfter(new Date(time));
+                Date actual = compiled.getNextValidTimeAfter(new Date(time));
+                Assert.assertEquals(cron + " after " + new Date(time), expect, actual);
+                if (expect == null) {
+                    break;
+                }
+
+                // next: follow or jump
+                time = random.nextInt(4) == 0
+                        ? expect.getTime() + random.nextInt(200) * 3600_000L + random.nextInt(1000)
+                        : expect.getTime();
+            }
+        }
+    }
+
+    @Test
+    public void compileCache() throws ParseException {
+        Assert.assertSame(CompiledCronExpression.compile("0 0 1 * * ?"), CompiledCronExpression.compile("0 0 1 * * ?"));
+    }
+
+    @Test
+    public void civilDate() {
+        for (long epochDay = -800_000; epochDay < 800_000; epochDay += 37) {
+            int[] ymd = CompiledCronExpression.civilFromDays(epochDay);
+            Assert.assertEquals(epochDay, CompiledCronExpression.daysFromCivil(ymd[0], ymd[1], ymd[2]));
+        }
+    }
+
+}
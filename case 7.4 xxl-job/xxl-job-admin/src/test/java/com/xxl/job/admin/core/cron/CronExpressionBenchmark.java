@@ -0,0 +1,113 @@
+package com.xxl.job.admin.core.cron;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.ParseException;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * next fire time of 50k realistic crons, CronExpression (parse + TreeSet/Calendar) vs CompiledCronExpression
+ *
+ *      1、cronExpression: parse each call, as CronExpression used before;
+ *      2、compiledWarm: all distinct crons (~11k) fit the cache, compiled in setup, cache hit only;
+ *      3、compiledCold: compile each call without cache, cost of a cache miss;
+ *
+ * run: main method, or "java -jar" with jmh uber jar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CronExpressionBenchmark {
+
+    private static final int CRON_NUM = 50000;
+
+    private String[] crons;
+    private Date[] afterTimes;
+    private int index;
+
+    @Setup
+    public void setup() throws ParseException {
+        Random random = new Random(1);
+        crons = new String[CRON_NUM];
+        afterTimes = new Date[CRON_NUM];
+        long baseTime = System.currentTimeMillis();
+        Set<String> distinct = new HashSet<String>();
+        for (int i = 0; i < CRON_NUM; i++) {
+            crons[i] = randomCron(random);
+            afterTimes[i] = new Date(baseTime + random.nextInt(86400) * 1000L);
+            distinct.add(crons[i]);
+        }
+
+        // warm set must fit the cache, else compiledWarm measures recompile
+        if (distinct.size() > CompiledCronExpression.getCacheMax()) {
+            throw new IllegalStateException("distinct cron " + distinct.size() + " > cache " + CompiledCronExpression.getCacheMax());
+        }
+        for (String cron : distinct) {
+            CompiledCronExpression.compile(cron);
+        }
+    }
+
+    private static String randomCron(Random random) {
+        int minute = random.nextInt(60);
+        int hour = random.nextInt(24);
+        switch (random.nextInt(6)) {
+            case 0:
+                return "0/" + (1 + random.nextInt(30)) + " * * * * ?";
+            case 1:
+                return "0 " + minute + "/" + (1 + random.nextInt(15)) + " * * * ?";
+            case 2:
+                return "0 " + minute + " * * * ?";
+            case 3:
+                return "0 " + minute + " " + hour + " * * ?";
+            case 4:
+                return "0 " + minute + " " + hour + " ? * MON-FRI";
+            default:
+                return "0 " + minute + " " + hour + " " + (1 + random.nextInt(28)) + " * ?";
+        }
+    }
+
+    private int nextIndex() {
+        int i = index++;
+        if (index == CRON_NUM) {
+            index = 0;
+        }
+        return i;
+    }
+
+    @Benchmark
+    public Date cronExpression() throws ParseException {
+        int i = nextIndex();
+        return new CronExpression(crons[i]).getNextValidTimeAfter(afterTimes[i]);
+    }
+
+    @Benchmark
+    public Date compiledWarm() throws ParseException {
+        int i = nextIndex();
+        return CompiledCronExpression.compile(crons[i]).getNextValidTimeAfter(afterTimes[i]);
+    }
+
+    @Benchmark
+    public Date compiledCold() throws ParseException {
+        int i = nextIndex();
+        return new CompiledCronExpression(new CronExpression(crons[i])).getNextValidTimeAfter(afterTimes[i]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(CronExpressionBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
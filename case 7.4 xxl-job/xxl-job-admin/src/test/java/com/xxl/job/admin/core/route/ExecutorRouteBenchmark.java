@@ -0,0 +1,62 @@
+package com.xxl.job.admin.core.route;
+
+import com.xxl.job.admin.core.route.strategy.ExecutorRouteLFU;
+import com.xxl.job.admin.core.route.strategy.ExecutorRouteLRU;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LFU / LRU route, 200 concurrent trigger threads (as fast trigger pool max), 1000 jobs, 20 executors
+ *
+ * run: main method, or "java -jar" with jmh uber jar
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(200)
+@Fork(1)
+public class ExecutorRouteBenchmark {
+
+    private static final int JOB_NUM = 1000;
+    private static final int ADDRESS_NUM = 20;
+
+    private List<String> addressList;
+    private ExecutorRouteLFU lfu = new ExecutorRouteLFU();
+    private ExecutorRouteLRU lru = new ExecutorRouteLRU();
+
+    @Setup
+    public void setup() {
+        addressList = new ArrayList<String>();
+        for (int i = 0; i < ADDRESS_NUM; i++) {
+            addressList.add("http://127.0.0.1:" + (9000 + i) + "/");
+        }
+    }
+
+    @Benchmark
+    public String lfuRoute() {
+        return lfu.route(ThreadLocalRandom.current().nextInt(JOB_NUM), addressList);
+    }
+
+    @Benchmark
+    public String lruRoute() {
+        return lru.route(ThreadLocalRandom.current().nextInt(JOB_NUM), addressList);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(ExecutorRouteBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+
+}
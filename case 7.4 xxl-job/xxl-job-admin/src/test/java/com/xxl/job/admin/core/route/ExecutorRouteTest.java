@@ -0,0 +1,84 @@
+package com.xxl.job.admin.core.route;
+
+import com.xxl.job.admin.core.route.strategy.ExecutorRouteLFU;
+import com.xxl.job.admin.core.route.strategy.ExecutorRouteLRU;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ExecutorRouteTest {
+
+    @Test
+    public void lru() {
+        ExecutorRouteLRU lru = new ExecutorRouteLRU();
+        List<String> addressList = Arrays.asList("a", "b", "c");
+        Assert.assertEquals("a", lru.route(1, addressList));
+        Assert.assertEquals("b", lru.route(1, addressList));
+
+        // new address as the most recent, removed address gone
+        addressList = Arrays.asList("a", "c", "d");
+        Assert.assertEquals("c", lru.route(1, addressList));
+        Assert.assertEquals("a", lru.route(1, addressList));
+        Assert.assertEquals("d", lru.route(1, addressList));
+        Assert.assertEquals("c", lru.route(1, addressList));
+    }
+
+    @Test
+    public void lfu() {
+        ExecutorRouteLFU lfu = new ExecutorRouteLFU();
+        List<String> addressList = Arrays.asList("a", "b", "c", "d");
+        Map<String, Integer> countMap = new HashMap<String, Integer>();
+        for (int i = 0; i < 4000; i++) {
+            String address = lfu.route(2, addressList);
+            countMap.put(address, countMap.containsKey(address) ? countMap.get(address) + 1 : 1);
+        }
+        for (String address: addressList) {
+            Assert.assertTrue(Math.abs(countMap.get(address) - 1000) <= 4);
+        }
+    }
+
+    @Test
+    public void concurrentRoute() throws InterruptedException {
+        final ExecutorRouteLFU lfu = new ExecutorRouteLFU();
+        final ExecutorRouteLRU lru = new ExecutorRouteLRU();
+        final List<String> addressList = Arrays.asList("a", "b", "c", "d");
+        final ConcurrentMap<String, AtomicInteger> lfuCountMap = new ConcurrentHashMap<String, AtomicInteger>();
+        final ConcurrentMap<String, AtomicInteger> lruCountMap = new ConcurrentHashMap<String, AtomicInteger>();
+        for (String address: addressList) {
+            lfuCountMap.put(address, new AtomicInteger());
+            lruCountMap.put(address, new AtomicInteger());
+        }
+
+        // same job routed by 8 threads at once, per job heap kept consistent
+        Thread[] threads = new Thread[8];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int j = 0; j < 5000; j++) {
+                        lfuCountMap.get(lfu.route(3, addressList)).incrementAndGet();
+                        lruCountMap.get(lru.route(3, addressList)).incrementAndGet();
+                    }
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread: threads) {
+            thread.join();
+        }
+
+        for (String address: addressList) {
+            Assert.assertTrue(Math.abs(lfuCountMap.get(address).get() - 10000) <= 4);
+            // lru: round robin over the address list
+            Assert.assertEquals(10000, lruCountMap.get(address).get());
+        }
+    }
+
+}
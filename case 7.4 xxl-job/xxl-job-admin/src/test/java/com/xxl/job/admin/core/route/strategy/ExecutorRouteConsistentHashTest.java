@@ -0,0 +1,107 @@
+package com.xxl.job.admin.core.route.strategy;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class ExecutorRouteConsistentHashTest {
+
+    @Test
+    public void consistentHash() {
+        List<String> addressList = new ArrayList<String>();
+        for (int i = 0; i < 10; i++) {
+            addressList.add("http://127.0.0.1:" + (9000 + i) + "/");
+        }
+        ExecutorRouteConsistentHash.HashRing ring = new ExecutorRouteConsistentHash.HashRing(addressList, 160, 0);
+
+        // fixed, balanced
+        Map<String, Integer> countMap = new HashMap<String, Integer>();
+        for (int jobId = 1; jobId <= 10000; jobId++) {
+            String address = ring.route(jobId);
+            Assert.assertEquals(address, new ExecutorRouteConsistentHash.HashRing(new ArrayList<String>(addressList), 160, 0).route(jobId));
+            countMap.put(address, countMap.containsKey(address) ? countMap.get(address) + 1 : 1);
+        }
+        for (int count: countMap.values()) {
+            Assert.assertTrue(count > 1000 * 0.7 && count < 1000 * 1.3);
+        }
+
+        // remove one address, only its jobs move
+        ExecutorRouteConsistentHash.HashRing removedRing = new ExecutorRouteConsistentHash.HashRing(new ArrayList<String>(addressList.subList(1, addressList.size())), 160, 0);
+        for (int jobId = 1; jobId <= 10000; jobId++) {
+            String address = ring.route(jobId);
+            if (!address.equals(addressList.get(0))) {
+                Assert.assertEquals(address, removedRing.route(jobId));
+            }
+        }
+    }
+
+    @Test
+    public void ringCache() {
+        List<String> addressList = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            addressList.add("http://127.0.0.1:" + (9100 + i) + "/");
+        }
+
+        // same instance or same content: same ring
+        ExecutorRouteConsistentHash.HashRing ring = ExecutorRouteConsistentHash.loadRing(addressList);
+        Assert.assertSame(ring, ExecutorRouteConsistentHash.loadRing(addressList));
+        Assert.assertSame(ring, ExecutorRouteConsistentHash.loadRing(new ArrayList<String>(addressList)));
+        Assert.assertEquals(ring.route(1), new ExecutorRouteConsistentHash().hashJob(1, addressList));
+
+        // idle ring (address list changed) evicted
+        ExecutorRouteConsistentHash.evictIdleRing(System.currentTimeMillis() + ExecutorRouteConsistentHash.RING_IDLE_TIMEOUT / 2);
+        Assert.assertSame(ring, ExecutorRouteConsistentHash.loadRing(addressList));
+        ExecutorRouteConsistentHash.evictIdleRing(System.currentTimeMillis() + ExecutorRouteConsistentHash.RING_IDLE_TIMEOUT + 1000);
+        Assert.assertNotSame(ring, ExecutorRouteConsistentHash.loadRing(addressList));
+    }
+
+    @Test
+    public void boundedLoad() {
+        List<String> addressList = new ArrayList<String>();
+        for (int i = 0; i < 7; i++) {
+            addressList.add("http://127.0.0.1:" + (9000 + i) + "/");
+        }
+        ExecutorRouteConsistentHash.HashRing ring = new ExecutorRouteConsistentHash.HashRing(addressList, 5, 1.1);
+
+        Map<String, Integer> countMap = new HashMap<String, Integer>();
+        int jobNum = 7000;
+        for (int jobId = 1; jobId <= jobNum; jobId++) {
+            String address = ring.route(jobId);
+            Assert.assertEquals(address, ring.route(jobId));
+            countMap.put(address, countMap.containsKey(address) ? countMap.get(address) + 1 : 1);
+        }
+        for (int count: countMap.values()) {
+            Assert.assertTrue(count <= Math.ceil(1.1 * jobNum / addressList.size()));
+        }
+    }
+
+    @Test
+    public void boundedLoadRelease() {
+        List<String> addressList = new ArrayList<String>();
+        for (int i = 0; i < 3; i++) {
+            addressList.add("http://127.0.0.1:" + (9000 + i) + "/");
+        }
+        ExecutorRouteConsistentHash.HashRing ring = new ExecutorRouteConsistentHash.HashRing(addressList, 5, 1.25);
+        long nowTime = 100 * ExecutorRouteConsistentHash.RELEASE_INTERVAL;
+
+        for (int jobId = 1; jobId <= 100; jobId++) {
+            ring.route(jobId, nowTime);
+        }
+        Assert.assertEquals(100, ring.getAssignCount());
+
+        // next epoch: job 1-50 still routed, kept; job 51-100 idle (removed / stopped) for two epoch, released
+        String address = ring.route(1, nowTime);
+        for (int jobId = 1; jobId <= 50; jobId++) {
+            ring.route(jobId, nowTime + ExecutorRouteConsistentHash.RELEASE_INTERVAL);
+        }
+        Assert.assertEquals(100, ring.getAssignCount());
+        ring.route(1, nowTime + 2 * ExecutorRouteConsistentHash.RELEASE_INTERVAL);
+        Assert.assertEquals(50, ring.getAssignCount());
+        Assert.assertEquals(address, ring.route(1, nowTime + 2 * ExecutorRouteConsistentHash.RELEASE_INTERVAL));
+    }
+
+}
@@ -0,0 +1,64 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.AbstractH2SpringTest;
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.dao.XxlJobLogDao;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * fail log claim between admin nodes, reclaim of dead node claim, on H2
+ */
+public class JobFailMonitorHelperTest extends AbstractH2SpringTest {
+
+    @Resource
+    private XxlJobLogDao xxlJobLogDao;
+
+    @Before
+    public void stopMonitor(){
+        // claim by test only
+        JobFailMonitorHelper.getInstance().toStop();
+    }
+
+    @Test
+    public void claimAndReclaim() {
+        List<Long> logIds = new ArrayList<Long>();
+        for (int i = 0; i < 5; i++) {
+            logIds.add(saveFailLog(9101));
+        }
+
+        // node A claim all, node B claim none
+        JobFailMonitorHelper nodeA = new JobFailMonitorHelper();
+        JobFailMonitorHelper nodeB = new JobFailMonitorHelper();
+        Assert.assertEquals(logIds, nodeA.claimFailLogIds());
+        Assert.assertTrue(nodeB.claimFailLogIds().isEmpty());
+        for (Long logId: logIds) {
+            Assert.assertEquals(-1, xxlJobLogDao.load(logId).getAlarmStatus());
+        }
+
+        // node A died: first check only record locked log, next check reset
+        Assert.assertEquals(0, nodeB.reclaimStaleClaim());
+        Assert.assertEquals(logIds.size(), nodeB.reclaimStaleClaim());
+        for (Long logId: logIds) {
+            Assert.assertEquals(0, xxlJobLogDao.load(logId).getAlarmStatus());
+        }
+        Assert.assertEquals(logIds, nodeB.claimFailLogIds());
+    }
+
+    private long saveFailLog(int jobGroup) {
+        XxlJobLog log = new XxlJobLog();
+        log.setJobGroup(jobGroup);
+        log.setJobId(jobGroup * 10);
+        log.setTriggerTime(new Date());
+        log.setTriggerCode(500);
+        xxlJobLogDao.save(log);
+        return log.getId();
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.AbstractH2SpringTest;
+import com.xxl.job.admin.core.model.XxlJobLog;
+import com.xxl.job.admin.core.model.XxlJobLogPurge;
+import com.xxl.job.admin.dao.XxlJobLogDao;
+import com.xxl.job.admin.dao.XxlJobLogPurgeDao;
+import com.xxl.job.admin.dao.XxlJobLogReportDao;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.test.context.TestPropertySource;
+
+import javax.annotation.Resource;
+import java.util.Date;
+
+/**
+ * purge by id range chunk, resume from cursor, on H2
+ */
+@TestPropertySource(properties = {
+        "xxl.job.logpurge.chunkSize=7",
+        "xxl.job.logpurge.rowsPerSecond=0"
+})
+public class JobLogPurgeHelperTest extends AbstractH2SpringTest {
+
+    @Resource
+    private XxlJobLogDao xxlJobLogDao;
+    @Resource
+    private XxlJobLogPurgeDao xxlJobLogPurgeDao;
+    @Resource
+    private XxlJobLogReportDao xxlJobLogReportDao;
+
+    @Test
+    public void purgeKeepNewest(){
+        for (int i = 0; i < 50; i++) {
+            saveLog(9001);
+            if (i % 2 == 0) {
+                saveLog(9002);
+            }
+        }
+
+        // keep newest 10 of group 9001
+        XxlJobLogPurge purge = JobLogPurgeHelper.getInstance().submit(9001, 0, null, 10);
+        Assert.assertNotNull(purge);
+
+        // reload task as after restart, resume from saved cursor
+        Assert.assertEquals(1, xxlJobLogPurgeDao.updateProgress(purge.getId(), purge.getCursorId(), purge.getCursorId(), 0, 0));
+        XxlJobLogPurge resume = xxlJobLogPurgeDao.load(purge.getId());
+        Assert.assertEquals(purge.getCursorId(), resume.getCursorId());
+
+        JobLogReportHelper.getInstance().flush();
+        long total = xxlJobLogReportDao.countByStatus(-1);
+        try {
+            new JobLogPurgeHelper().purge(resume);
+        } catch (InterruptedException e) {
+            Assert.fail();
+        }
+        Assert.assertEquals(10, xxlJobLogDao.pageListCount(0, 10, 9001, 0, null, null, 0));
+
+        // deleted log subtract from rollup
+        JobLogReportHelper.getInstance().flush();
+        Assert.assertEquals(total - 40, xxlJobLogReportDao.countByStatus(-1));
+        Assert.assertEquals(25, xxlJobLogDao.pageListCount(0, 10, 9002, 0, null, null, 0));
+
+        XxlJobLogPurge done = xxlJobLogPurgeDao.load(purge.getId());
+        Assert.assertEquals(1, done.getStatus());
+        Assert.assertEquals(40, done.getDeleteCount());
+        Assert.assertEquals(done.getMaxId() + 1, done.getCursorId());
+    }
+
+    @Test
+    public void purgeByTime(){
+        saveLog(9003, new Date(System.currentTimeMillis() - 2*24*60*60*1000L));
+        saveLog(9003);
+        XxlJobLogPurge purge = JobLogPurgeHelper.getInstance().submit(9003, 0, new Date(System.currentTimeMillis() - 24*60*60*1000L), 0);
+        Assert.assertNotNull(purge);
+        try {
+            new JobLogPurgeHelper().purge(purge);
+        } catch (InterruptedException e) {
+            Assert.fail();
+        }
+        Assert.assertEquals(1, xxlJobLogDao.pageListCount(0, 10, 9003, 0, null, null, 0));
+    }
+
+    @Test
+    public void purgeRangeOfJobGroup(){
+        saveLog(9004);
+        long firstId = saveLog(9005);
+        saveLog(9004);
+        long lastId = saveLog(9005);
+        saveLog(9004);
+
+        // id range of the cleared job group only, not of whole log table
+        XxlJobLogPurge purge = JobLogPurgeHelper.getInstance().submit(9005, 0, null, 0);
+        Assert.assertNotNull(purge);
+        Assert.assertEquals(firstId, purge.getCursorId());
+        Assert.assertEquals(lastId, purge.getMaxId());
+
+        // nothing to clear
+        Assert.assertNull(JobLogPurgeHelper.getInstance().submit(9006, 0, null, 0));
+    }
+
+    private long saveLog(int jobGroup) {
+        return saveLog(jobGroup, new Date());
+    }
+
+    private long saveLog(int jobGroup, Date triggerTime) {
+        XxlJobLog log = new XxlJobLog();
+        log.setJobGroup(jobGroup);
+        log.setJobId(jobGroup * 10);
+        log.setTriggerTime(triggerTime);
+        xxlJobLogDao.save(log);
+        return log.getId();
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.AbstractH2SpringTest;
+import com.xxl.job.admin.dao.XxlJobLogReportDao;
+import com.xxl.job.core.biz.model.ReturnT;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import java.util.Date;
+
+/**
+ * log status change -> rollup count, on H2
+ */
+public class JobLogReportHelperTest extends AbstractH2SpringTest {
+
+    @Resource
+    private XxlJobLogReportDao xxlJobLogReportDao;
+
+    @Test
+    public void reportAndFlush(){
+        long total = xxlJobLogReportDao.countByStatus(-1);
+        long success = xxlJobLogReportDao.countByStatus(JobLogReportHelper.STATUS_SUCCESS);
+        long fail = xxlJobLogReportDao.countByStatus(JobLogReportHelper.STATUS_FAIL);
+
+        JobLogReportHelper helper = new JobLogReportHelper();
+        Date triggerTime = new Date();
+        for (int i = 0; i < 10; i++) {
+            helper.report(triggerTime, 1, JobLogReportHelper.STATUS_RUNNING);
+        }
+        helper.report(new Date(triggerTime.getTime() - 24*60*60*1000L), 2, JobLogReportHelper.STATUS_RUNNING);
+
+        // trigger fail 2, callback success 5, callback fail 1
+        for (int i = 0; i < 2; i++) {
+            helper.report(triggerTime, 1, JobLogReportHelper.STATUS_RUNNING, JobLogReportHelper.status(ReturnT.FAIL_CODE, 0));
+        }
+        for (int i = 0; i < 5; i++) {
+            helper.report(triggerTime, 1, JobLogReportHelper.STATUS_RUNNING, JobLogReportHelper.status(ReturnT.SUCCESS_CODE, ReturnT.SUCCESS_CODE));
+        }
+        helper.report(triggerTime, 1, JobLogReportHelper.STATUS_RUNNING, JobLogReportHelper.status(ReturnT.SUCCESS_CODE, ReturnT.FAIL_CODE));
+        helper.flush();
+
+        Assert.assertEquals(total + 11, xxlJobLogReportDao.countByStatus(-1));
+        Assert.assertEquals(success + 5, xxlJobLogReportDao.countByStatus(JobLogReportHelper.STATUS_SUCCESS));
+        Assert.assertEquals(fail + 3, xxlJobLogReportDao.countByStatus(JobLogReportHelper.STATUS_FAIL));
+
+        // flush again: delta taken, no change
+        helper.flush();
+        Assert.assertEquals(total + 11, xxlJobLogReportDao.countByStatus(-1));
+    }
+
+}
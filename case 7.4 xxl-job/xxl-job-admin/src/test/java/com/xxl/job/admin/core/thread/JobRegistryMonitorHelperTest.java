@@ -0,0 +1,93 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.core.model.XxlJobRegistry;
+import com.xxl.job.core.enums.RegistryConfig;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+public class JobRegistryMonitorHelperTest {
+
+    private static final String EXECUTOR = RegistryConfig.RegistType.EXECUTOR.name();
+
+    @Test
+    public void registryAndRemove() {
+        JobRegistryMonitorHelper helper = new JobRegistryMonitorHelper();
+        long nowTime = System.currentTimeMillis();
+
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9998", nowTime);
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9997", nowTime);
+        helper.registry(RegistryConfig.RegistType.ADMIN.name(), "app-1", "127.0.0.1:8080", nowTime);
+        Assert.assertEquals(Arrays.asList("127.0.0.1:9997", "127.0.0.1:9998"), helper.getRegistryList("app-1"));
+        Assert.assertEquals(2, helper.getSnapshot("app-1").getVersion());
+
+        // heartbeat renew, same snapshot instance
+        List<String> registryList = helper.getRegistryList("app-1");
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9998", nowTime + 1000);
+        Assert.assertSame(registryList, helper.getRegistryList("app-1"));
+
+        // remove
+        helper.registryRemove(EXECUTOR, "app-1", "127.0.0.1:9997");
+        Assert.assertEquals(Arrays.asList("127.0.0.1:9998"), helper.getRegistryList("app-1"));
+        Assert.assertEquals(3, helper.getSnapshot("app-1").getVersion());
+        Assert.assertTrue(helper.getRegistryList("app-2").isEmpty());
+    }
+
+    @Test
+    public void expire() {
+        JobRegistryMonitorHelper helper = new JobRegistryMonitorHelper();
+        long nowTime = System.currentTimeMillis();
+        long deadTimeout = RegistryConfig.DEAD_TIMEOUT * 1000L;
+
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9998", nowTime);
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9997", nowTime);
+        Assert.assertEquals(0, helper.expire(nowTime + deadTimeout - 1000));
+
+        // 9998 renewed, 9997 dead
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9998", nowTime + deadTimeout - 1000);
+        Assert.assertEquals(1, helper.expire(nowTime + deadTimeout + 100));
+        Assert.assertEquals(Arrays.asList("127.0.0.1:9998"), helper.getRegistryList("app-1"));
+
+        // renewed node expire at its new time
+        Assert.assertEquals(1, helper.expire(nowTime + 2 * deadTimeout));
+        Assert.assertTrue(helper.getRegistryList("app-1").isEmpty());
+
+        // register again after expire
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9998", nowTime + 2 * deadTimeout);
+        Assert.assertEquals(Arrays.asList("127.0.0.1:9998"), helper.getRegistryList("app-1"));
+    }
+
+    @Test
+    public void reconcile() {
+        JobRegistryMonitorHelper helper = new JobRegistryMonitorHelper();
+        long nowTime = System.currentTimeMillis();
+
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9998", nowTime - 10000);
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9997", nowTime - 10000);
+        helper.registry(EXECUTOR, "app-1", "127.0.0.1:9996", nowTime);
+
+        // 9997 removed on other admin node (row deleted); 9996 beat just now, row may be saved after load
+        List<XxlJobRegistry> aliveList = new ArrayList<XxlJobRegistry>();
+        aliveList.add(registryRow("app-1", "127.0.0.1:9998"));
+        Assert.assertEquals(1, helper.reconcile(aliveList, nowTime));
+        Assert.assertEquals(Arrays.asList("127.0.0.1:9996", "127.0.0.1:9998"), helper.getRegistryList("app-1"));
+
+        // removed node not expired again by wheel
+        Assert.assertEquals(0, helper.reconcile(aliveList, nowTime));
+        Assert.assertEquals(2, helper.expire(nowTime + RegistryConfig.DEAD_TIMEOUT * 1000L + 100));
+        Assert.assertEquals(0, helper.reconcile(Collections.<XxlJobRegistry>emptyList(), nowTime));
+    }
+
+    private static XxlJobRegistry registryRow(String appName, String address) {
+        XxlJobRegistry registry = new XxlJobRegistry();
+        registry.setRegistryGroup(EXECUTOR);
+        registry.setRegistryKey(appName);
+        registry.setRegistryValue(address);
+        return registry;
+    }
+
+}
@@ -0,0 +1,175 @@
+package com.xxl.job.admin.core.thread;
+
+import com.xxl.job.admin.AbstractH2SpringTest;
+import com.xxl.job.admin.core.model.XxlJobInfo;
+import com.xxl.job.admin.dao.XxlJobInfoDao;
+import com.xxl.job.admin.dao.XxlJobShardLeaseDao;
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.annotation.Resource;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * several in-process admin nodes lease shards on H2
+ */
+public class JobShardLeaseHelperTest extends AbstractH2SpringTest {
+
+    private static final int SHARD_COUNT = 16;
+
+    @Resource
+    private XxlJobInfoDao xxlJobInfoDao;
+    @Resource
+    private XxlJobShardLeaseDao shardLeaseDao;
+
+    @Test
+    public void balanceAndTakeover(){
+        JobShardLeaseHelper nodeA = new JobShardLeaseHelper("test-node-a", SHARD_COUNT);
+        JobShardLeaseHelper nodeB = new JobShardLeaseHelper("test-node-b", SHARD_COUNT);
+        JobShardLeaseHelper nodeC = new JobShardLeaseHelper("test-node-c", SHARD_COUNT);
+
+        // single node, own all
+        long nowTime = System.currentTimeMillis();
+        nodeA.heartbeat(nowTime, nowTime);
+        Assert.assertEquals(SHARD_COUNT, nodeA.getOwnedShards(nowTime).length);
+
+        // three nodes, balance
+        for (int i = 0; i < 3; i++) {
+            nowTime += JobShardLeaseHelper.LEASE_BEAT;
+            nodeA.heartbeat(nowTime, nowTime);
+            nodeB.heartbeat(nowTime, nowTime);
+            nodeC.heartbeat(nowTime, nowTime);
+        }
+        assertDisjointCover(nowTime, nodeA, nodeB, nodeC);
+        Assert.assertEquals(6, nodeA.getOwnedShards(nowTime).length);
+        Assert.assertEquals(5, nodeB.getOwnedShards(nowTime).length);
+        Assert.assertEquals(5, nodeC.getOwnedShards(nowTime).length);
+
+        // jobs scheduled by exactly one node (next time beyond the running admin's pre-read window)
+        Set<Integer> jobIds = new HashSet<>();
+        for (int i = 0; i < 40; i++) {
+            jobIds.add(saveJob(nowTime + 1000));
+        }
+        Set<Integer> scheduled = new HashSet<>();
+        for (JobShardLeaseHelper node: new JobShardLeaseHelper[]{nodeA, nodeB, nodeC}) {
+            List<XxlJobInfo> list = xxlJobInfoDao.scheduleJobQueryByShard(nowTime + 5000, SHARD_COUNT, node.getOwnedShards(nowTime));
+            for (XxlJobInfo jobInfo: list) {
+                if (jobIds.contains(jobInfo.getId())) {
+                    Assert.assertTrue("job scheduled twice", scheduled.add(jobInfo.getId()));
+                }
+            }
+        }
+        Assert.assertEquals(jobIds, scheduled);
+
+        // node c dead, lease expired, a/b take over
+        nowTime += JobShardLeaseHelper.LEASE_TIMEOUT + 1;
+        Assert.assertEquals(0, nodeC.getOwnedShards(nowTime).length);
+        for (int i = 0; i < 2; i++) {
+            nodeA.heartbeat(nowTime, nowTime);
+            nodeB.heartbeat(nowTime, nowTime);
+            nowTime += JobShardLeaseHelper.LEASE_BEAT;
+        }
+        assertDisjointCover(nowTime, nodeA, nodeB);
+
+        // node b release, a take over at once
+        nodeB.release();
+        nodeA.heartbeat(nowTime, nowTime);
+        Assert.assertEquals(SHARD_COUNT, nodeA.getOwnedShards(nowTime).length);
+
+        nodeA.release();
+    }
+
+    @Test
+    public void releaseWaitInFlightScan() throws Exception {
+        final JobShardLeaseHelper nodeA = new JobShardLeaseHelper("test-node-scan-a", SHARD_COUNT);
+        JobShardLeaseHelper nodeB = new JobShardLeaseHelper("test-node-scan-b", SHARD_COUNT);
+
+        final long nowTime = System.currentTimeMillis();
+        nodeA.heartbeat(nowTime, nowTime);
+        nodeB.heartbeat(nowTime, nowTime);
+        Assert.assertEquals(SHARD_COUNT, nodeA.getOwnedShards(nowTime).length);
+
+        // node a scan in flight, its heartbeat release half shards to b
+        Assert.assertEquals(SHARD_COUNT, nodeA.beginScan(nowTime).length);
+        Thread heartbeat = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                nodeA.heartbeat(nowTime + JobShardLeaseHelper.LEASE_BEAT, nowTime + JobShardLeaseHelper.LEASE_BEAT);
+            }
+        });
+        heartbeat.start();
+        heartbeat.join(500);
+
+        // release wait scan end, b could not take over yet
+        Assert.assertTrue(heartbeat.isAlive());
+        Assert.assertEquals(SHARD_COUNT / 2, nodeA.getOwnedShards(nowTime).length);
+        nodeB.heartbeat(nowTime + JobShardLeaseHelper.LEASE_BEAT, nowTime + JobShardLeaseHelper.LEASE_BEAT);
+        Assert.assertEquals(0, nodeB.getOwnedShards(nowTime + JobShardLeaseHelper.LEASE_BEAT).length);
+
+        // scan end, released, b take over
+        nodeA.endScan();
+        heartbeat.join(5000);
+        Assert.assertFalse(heartbeat.isAlive());
+        nodeB.heartbeat(nowTime + JobShardLeaseHelper.LEASE_BEAT, nowTime + JobShardLeaseHelper.LEASE_BEAT);
+        assertDisjointCover(nowTime + JobShardLeaseHelper.LEASE_BEAT, nodeA, nodeB);
+
+        nodeA.release();
+        nodeB.release();
+    }
+
+    @Test
+    public void clockSkew(){
+        JobShardLeaseHelper nodeA = new JobShardLeaseHelper("test-node-skew-a", SHARD_COUNT);
+        JobShardLeaseHelper nodeB = new JobShardLeaseHelper("test-node-skew-b", SHARD_COUNT);
+
+        // node a local clock behind db by more than safe margin
+        long skew = JobShardLeaseHelper.LEASE_SAFE_MARGIN * 2;
+        long dbTime = System.currentTimeMillis();
+        nodeA.heartbeat(dbTime, dbTime - skew);
+        Assert.assertEquals(SHARD_COUNT, nodeA.getOwnedShards(dbTime - skew).length);
+
+        // node a dead, lease expired in db clock, b take over
+        dbTime += JobShardLeaseHelper.LEASE_TIMEOUT + 1;
+        nodeB.heartbeat(dbTime, dbTime);
+        Assert.assertEquals(SHARD_COUNT, nodeB.getOwnedShards(dbTime).length);
+
+        // a stopped schedule by then on its own clock, never two owners
+        Assert.assertEquals(0, nodeA.getOwnedShards(dbTime - skew).length);
+
+        nodeA.release();
+        nodeB.release();
+    }
+
+    @Test
+    public void dbTime(){
+        long before = System.currentTimeMillis();
+        long dbTime = shardLeaseDao.nowTime();
+        // same host (H2 in process), whole second in H2
+        Assert.assertTrue(Math.abs(dbTime - before) < 2000);
+    }
+
+    private void assertDisjointCover(long nowTime, JobShardLeaseHelper... nodes) {
+        Set<Integer> all = new HashSet<>();
+        for (JobShardLeaseHelper node: nodes) {
+            for (int shardId: node.getOwnedShards(nowTime)) {
+                Assert.assertTrue("shard leased twice: " + shardId, all.add(shardId));
+            }
+        }
+        Assert.assertEquals(SHARD_COUNT, all.size());
+    }
+
+    private int saveJob(long triggerNextTime) {
+        XxlJobInfo info = new XxlJobInfo();
+        info.setJobGroup(1);
+        info.setJobCron("0/1 * * * * ?");
+        info.setJobDesc("shard lease");
+        info.setGlueType("BEAN");
+        info.setTriggerStatus(1);
+        info.setTriggerNextTime(triggerNextTime);
+        xxlJobInfoDao.save(info);
+        return info.getId();
+    }
+
+}
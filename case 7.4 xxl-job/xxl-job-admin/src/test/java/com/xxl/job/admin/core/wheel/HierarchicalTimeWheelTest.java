@@ -0,0 +1,134 @@
+package com.xxl.job.admin.core.wheel;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class HierarchicalTimeWheelTest {
+
+    private static class Fired implements HierarchicalTimeWheel.IdConsumer {
+        private List<Integer> ids = new ArrayList<>();
+        @Override
+        public void accept(int id) {
+            ids.add(id);
+        }
+    }
+
+    @Test
+    public void fireAtTriggerTime(){
+        long start = 1_000_000_000L;
+        HierarchicalTimeWheel wheel = new HierarchicalTimeWheel(start);
+
+        wheel.add(start + 300, 1);              // level-0
+        wheel.add(start + 7_000, 2);            // level-1
+        wheel.add(start + 5 * 60_000, 3);       // level-2
+        wheel.add(start + 2 * 3600_000, 4);     // beyond level-2
+        wheel.add(start - 10_000, 5);           // expired, fire next tick
+        Assert.assertEquals(5, wheel.size());
+
+        Fired fired = new Fired();
+        long now = start;
+        long[] expectTimes = {start + HierarchicalTimeWheel.TICK_MS, start + 300, start + 7_000, start + 5 * 60_000, start + 2 * 3600_000};
+        int[] expectIds = {5, 1, 2, 3, 4};
+        for (int i = 0; i < expectIds.length; i++) {
+            // not fire before trigger time
+            while (now < expectTimes[i] - HierarchicalTimeWheel.TICK_MS) {
+                now += HierarchicalTimeWheel.TICK_MS;
+                wheel.advanceTo(now, fired);
+            }
+            Assert.assertEquals(i, fired.ids.size());
+
+            now = expectTimes[i];
+            wheel.advanceTo(now, fired);
+            Assert.assertEquals(i + 1, fired.ids.size());
+            Assert.assertEquals(expectIds[i], fired.ids.get(i).intValue());
+        }
+        Assert.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void addWithinCurrentTick(){
+        long start = 1_000_000_000L;
+        HierarchicalTimeWheel wheel = new HierarchicalTimeWheel(start);
+        Fired fired = new Fired();
+        wheel.advanceTo(start + HierarchicalTimeWheel.TICK_MS, fired);
+
+        // between ticks: fire next tick, not a level-0 round later
+        wheel.add(start + HierarchicalTimeWheel.TICK_MS + 10, 1);
+        wheel.advanceTo(start + 2 * HierarchicalTimeWheel.TICK_MS, fired);
+        Assert.assertEquals(1, fired.ids.size());
+    }
+
+    @Test
+    public void addWhileAdvance() throws InterruptedException {
+        final long start = 1_000_000_000L;
+        final HierarchicalTimeWheel wheel = new HierarchicalTimeWheel(start);
+        final AtomicLong now = new AtomicLong(start);
+        final int count = 20_000;
+        final long[] triggerTimes = new long[count];
+        final long[] addTimes = new long[count];
+        final long[] fireTimes = new long[count];
+
+        // producer: add around wheel time while it moves
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i++) {
+                    triggerTimes[i] = now.get() + (i % 40) * 10;
+                    wheel.add(triggerTimes[i], i);
+                    addTimes[i] = now.get();
+                }
+            }
+        });
+        producer.start();
+
+        HierarchicalTimeWheel.IdConsumer consumer = new HierarchicalTimeWheel.IdConsumer() {
+            @Override
+            public void accept(int id) {
+                fireTimes[id] = now.get();
+            }
+        };
+        while (producer.isAlive() || wheel.size() > 0) {
+            wheel.advanceTo(now.addAndGet(HierarchicalTimeWheel.TICK_MS), consumer);
+        }
+        producer.join();
+
+        // not before trigger time; not later than next tick after trigger time or add
+        for (int i = 0; i < count; i++) {
+            Assert.assertTrue(fireTimes[i] >= triggerTimes[i]);
+            Assert.assertTrue(fireTimes[i] <= Math.max(triggerTimes[i], addTimes[i]) + 2 * HierarchicalTimeWheel.TICK_MS);
+        }
+    }
+
+    @Test
+    public void concurrentAdd() throws InterruptedException {
+        final long start = 1_000_000_000L;
+        final HierarchicalTimeWheel wheel = new HierarchicalTimeWheel(start);
+
+        Thread[] producers = new Thread[4];
+        for (int t = 0; t < producers.length; t++) {
+            final int base = t * 10_000;
+            producers[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 10_000; i++) {
+                        wheel.add(start + 1000 + (i % 90) * 1000, base + i);
+                    }
+                }
+            });
+            producers[t].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Fired fired = new Fired();
+        wheel.advanceTo(start + 91_000, fired);
+        Assert.assertEquals(40_000, fired.ids.size());
+        Assert.assertEquals(0, wheel.size());
+    }
+
+}
@@ -1,6 +1,7 @@
 package com.xxl.job.admin.dao;
 
 import com.xxl.job.admin.core.model.XxlJobInfo;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -9,6 +10,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.junit4.SpringRunner;
 
 import javax.annotation.Resource;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
@@ -74,4 +76,31 @@ public class XxlJobInfoDaoTest {
 
 	}
 
+	@Test
+	public void scheduleUpdateBatch(){
+		List<XxlJobInfo> list = new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			XxlJobInfo info = new XxlJobInfo();
+			info.setJobGroup(1);
+			info.setJobCron("jobCron");
+			info.setJobDesc("desc");
+			info.setGlueType("setGlueType");
+			xxlJobInfoDao.save(info);
+
+			info.setTriggerLastTime(1000 + i);
+			info.setTriggerNextTime(2000 + i);
+			list.add(info);
+		}
+
+		int ret = xxlJobInfoDao.scheduleUpdateBatch(list);
+		Assert.assertEquals(list.size(), ret);
+
+		for (XxlJobInfo info: list) {
+			XxlJobInfo info2 = xxlJobInfoDao.loadById(info.getId());
+			Assert.assertEquals(info.getTriggerLastTime(), info2.getTriggerLastTime());
+			Assert.assertEquals(info.getTriggerNextTime(), info2.getTriggerNextTime());
+			xxlJobInfoDao.delete(info.getId());
+		}
+	}
+
 }
@@ -0,0 +1,129 @@
+CREATE TABLE IF NOT EXISTS xxl_job_info (
+  id int(11) NOT NULL AUTO_INCREMENT,
+  job_group int(11) NOT NULL,
+  job_cron varchar(128) NOT NULL,
+  job_desc varchar(255) NOT NULL,
+  add_time datetime DEFAULT NULL,
+  update_time datetime DEFAULT NULL,
+  author varchar(64) DEFAULT NULL,
+  alarm_email varchar(255) DEFAULT NULL,
+  executor_route_strategy varchar(50) DEFAULT NULL,
+  executor_handler varchar(255) DEFAULT NULL,
+  executor_param varchar(512) DEFAULT NULL,
+  executor_block_strategy varchar(50) DEFAULT NULL,
+  executor_timeout int(11) NOT NULL DEFAULT '0',
+  executor_fail_retry_count int(11) NOT NULL DEFAULT '0',
+  glue_type varchar(50) NOT NULL,
+  glue_source mediumtext,
+  glue_remark varchar(128) DEFAULT NULL,
+  glue_updatetime datetime DEFAULT NULL,
+  child_jobid varchar(255) DEFAULT NULL,
+  trigger_status tinyint(4) NOT NULL DEFAULT '0',
+  trigger_last_time bigint(13) NOT NULL DEFAULT '0',
+  trigger_next_time bigint(13) NOT NULL DEFAULT '0',
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_log (
+  id bigint(20) NOT NULL AUTO_INCREMENT,
+  job_group int(11) NOT NULL,
+  job_id int(11) NOT NULL,
+  executor_address varchar(255) DEFAULT NULL,
+  executor_handler varchar(255) DEFAULT NULL,
+  executor_param varchar(512) DEFAULT NULL,
+  executor_sharding_param varchar(20) DEFAULT NULL,
+  executor_fail_retry_count int(11) NOT NULL DEFAULT '0',
+  trigger_time datetime DEFAULT NULL,
+  trigger_code int(11) NOT NULL,
+  trigger_msg text,
+  handle_time datetime DEFAULT NULL,
+  handle_code int(11) NOT NULL,
+  handle_msg text,
+  alarm_status tinyint(4) NOT NULL DEFAULT '0',
+  alarm_claim varchar(64) DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_logglue (
+  id int(11) NOT NULL AUTO_INCREMENT,
+  job_id int(11) NOT NULL,
+  glue_type varchar(50) DEFAULT NULL,
+  glue_source mediumtext,
+  glue_remark varchar(128) NOT NULL,
+  add_time timestamp NULL DEFAULT NULL,
+  update_time timestamp NULL DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_registry (
+  id int(11) NOT NULL AUTO_INCREMENT,
+  registry_group varchar(255) NOT NULL,
+  registry_key varchar(255) NOT NULL,
+  registry_value varchar(255) NOT NULL,
+  update_time timestamp NULL DEFAULT CURRENT_TIMESTAMP,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_group (
+  id int(11) NOT NULL AUTO_INCREMENT,
+  app_name varchar(64) NOT NULL,
+  title varchar(12) NOT NULL,
+  `order` tinyint(4) NOT NULL DEFAULT '0',
+  address_type tinyint(4) NOT NULL DEFAULT '0',
+  address_list varchar(512) DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_user (
+  id int(11) NOT NULL AUTO_INCREMENT,
+  username varchar(50) NOT NULL,
+  password varchar(50) NOT NULL,
+  role tinyint(4) NOT NULL,
+  permission varchar(255) DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_lock (
+  lock_name varchar(50) NOT NULL,
+  PRIMARY KEY (lock_name)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_shard_lease (
+  shard_id int(11) NOT NULL,
+  owner varchar(100) DEFAULT NULL,
+  heartbeat_time bigint(13) NOT NULL DEFAULT '0',
+  lease_expire_time bigint(13) NOT NULL DEFAULT '0',
+  PRIMARY KEY (shard_id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_shard_node (
+  node_id varchar(100) NOT NULL,
+  heartbeat_time bigint(13) NOT NULL DEFAULT '0',
+  PRIMARY KEY (node_id)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_log_report (
+  id int(11) NOT NULL AUTO_INCREMENT,
+  trigger_day date NOT NULL,
+  job_group int(11) NOT NULL,
+  status tinyint(4) NOT NULL,
+  count bigint(20) NOT NULL DEFAULT '0',
+  PRIMARY KEY (id),
+  UNIQUE (trigger_day, job_group, status)
+);
+
+CREATE TABLE IF NOT EXISTS xxl_job_log_purge (
+  id int(11) NOT NULL AUTO_INCREMENT,
+  job_group int(11) NOT NULL DEFAULT '0',
+  job_id int(11) NOT NULL DEFAULT '0',
+  clear_before_time datetime DEFAULT NULL,
+  max_id bigint(20) NOT NULL DEFAULT '0',
+  cursor_id bigint(20) NOT NULL DEFAULT '0',
+  delete_count bigint(20) NOT NULL DEFAULT '0',
+  status tinyint(4) NOT NULL DEFAULT '0',
+  add_time datetime DEFAULT NULL,
+  update_time datetime DEFAULT NULL,
+  PRIMARY KEY (id)
+);
+
+MERGE INTO xxl_job_lock (lock_name) KEY (lock_name) VALUES ('schedule_lock');
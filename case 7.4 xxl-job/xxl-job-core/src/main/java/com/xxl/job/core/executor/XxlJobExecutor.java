@@ -5,7 +5,9 @@ import com.xxl.job.core.biz.ExecutorBiz;
 import com.xxl.job.core.biz.impl.ExecutorBizImpl;
 import com.xxl.job.core.handler.IJobHandler;
 import com.xxl.job.core.log.XxlJobFileAppender;
+import com.xxl.job.core.log.XxlJobLogWriter;
 import com.xxl.job.core.thread.ExecutorRegistryThread;
+import com.xxl.job.core.thread.JobExecutePool;
 import com.xxl.job.core.thread.JobLogFileCleanThread;
 import com.xxl.job.core.thread.JobThread;
 import com.xxl.job.core.thread.TriggerCallbackThread;
@@ -40,6 +42,7 @@ public class XxlJobExecutor  {
     private String accessToken;
     private String logPath;
     private int logRetentionDays;
+    private int logCleanRate = 1000;     // max log file deleted per second, <=0 as unlimited
 
     public void setAdminAddresses(String adminAddresses) {
         this.adminAddresses = adminAddresses;
@@ -62,6 +65,9 @@ public class XxlJobExecutor  {
     public void setLogRetentionDays(int logRetentionDays) {
         this.logRetentionDays = logRetentionDays;
     }
+    public void setLogCleanRate(int logCleanRate) {
+        this.logCleanRate = logCleanRate;
+    }
 
 
     // ---------------------- start + stop ----------------------
@@ -70,16 +76,22 @@ public class XxlJobExecutor  {
         // init logpath
         XxlJobFileAppender.initLogPath(logPath);
 
+        // init XxlJobLogWriter
+        XxlJobLogWriter.getInstance().start();
+
         // init invoker, admin-client
         initAdminBizList(adminAddresses, accessToken);
 
 
         // init JobLogFileCleanThread
-        JobLogFileCleanThread.getInstance().start(logRetentionDays);
+        JobLogFileCleanThread.getInstance().start(logRetentionDays, logCleanRate);
 
         // init TriggerCallbackThread
         TriggerCallbackThread.getInstance().start();
 
+        // init JobExecutePool
+        JobExecutePool.getInstance().start();
+
         // init executor-server
         port = port>0?port: NetUtil.findAvailablePort(9999);
         ip = (ip!=null&&ip.trim().length()>0)?ip: IpUtil.getIp();
@@ -95,6 +107,9 @@ public class XxlJobExecutor  {
         }
         jobHandlerRepository.clear();
 
+        // destory JobExecutePool
+        JobExecutePool.getInstance().toStop();
+
 
         // destory JobLogFileCleanThread
         JobLogFileCleanThread.getInstance().toStop();
@@ -102,6 +117,9 @@ public class XxlJobExecutor  {
         // destory TriggerCallbackThread
         TriggerCallbackThread.getInstance().toStop();
 
+        // destory XxlJobLogWriter
+        XxlJobLogWriter.getInstance().toStop();
+
         // destory executor-server
         stopRpcProvider();
 
@@ -238,13 +256,11 @@ public class XxlJobExecutor  {
     private static ConcurrentMap<Integer, JobThread> jobThreadRepository = new ConcurrentHashMap<Integer, JobThread>();
     public static JobThread registJobThread(int jobId, IJobHandler handler, String removeOldReason){
         JobThread newJobThread = new JobThread(jobId, handler);
-        newJobThread.start();
         logger.info(">>>>>>>>>>> xxl-job regist JobThread success, jobId:{}, handler:{}", new Object[]{jobId, handler});
 
         JobThread oldJobThread = jobThreadRepository.put(jobId, newJobThread);	// putIfAbsent | oh my god, map's put method return the old value!!!
         if (oldJobThread != null) {
             oldJobThread.toStop(removeOldReason);
-            oldJobThread.interrupt();
         }
 
         return newJobThread;
@@ -253,7 +269,6 @@ public class XxlJobExecutor  {
         JobThread oldJobThread = jobThreadRepository.remove(jobId);
         if (oldJobThread != null) {
             oldJobThread.toStop(removeOldReason);
-            oldJobThread.interrupt();
         }
     }
     public static JobThread loadJobThread(int jobId){
@@ -3,11 +3,14 @@ package com.xxl.job.core.glue;
 import com.xxl.job.core.glue.impl.SpringGlueFactory;
 import com.xxl.job.core.handler.IJobHandler;
 import groovy.lang.GroovyClassLoader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.math.BigInteger;
 import java.security.MessageDigest;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * glue factory, product class/object by name
@@ -15,7 +18,7 @@ import java.util.concurrent.ConcurrentMap;
  * @author xuxueli 2016-1-2 20:02:27
  */
 public class GlueFactory {
-
+	private static Logger logger = LoggerFactory.getLogger(GlueFactory.class);
 
 	private static GlueFactory glueFactory = new GlueFactory();
 	public static GlueFactory getInstance(){
@@ -31,10 +34,38 @@ public class GlueFactory {
 
 
 	/**
-	 * groovy class loader
+	 * glue class cache, md5 of glue source -> class, LRU bounded
+	 *
+	 * 	each entry has its own groovy class loader, so class of evicted (or edited) glue source can be unloaded;
 	 */
-	private GroovyClassLoader groovyClassLoader = new GroovyClassLoader();
-	private ConcurrentMap<String, Class<?>> CLASS_CACHE = new ConcurrentHashMap<>();
+	private static final int CLASS_CACHE_SIZE = 256;
+
+	private static class GlueClass {
+		private final GroovyClassLoader classLoader;
+		private final Class<?> clazz;
+
+		GlueClass(GroovyClassLoader classLoader, Class<?> clazz) {
+			this.classLoader = classLoader;
+			this.clazz = clazz;
+		}
+	}
+
+	private final Map<String, GlueClass> CLASS_CACHE = new LinkedHashMap<String, GlueClass>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, GlueClass> eldest) {
+			if (size() > CLASS_CACHE_SIZE) {
+				// running handler keep its class, unloaded after gc
+				eldest.getValue().classLoader.clearCache();
+				return true;
+			}
+			return false;
+		}
+	};
+
+	// metrics
+	private final AtomicLong hitCount = new AtomicLong();
+	private final AtomicLong missCount = new AtomicLong();
+	private final AtomicLong compileTime = new AtomicLong();		// total, ms
 
 	/**
 	 * load new instance, prototype
@@ -61,20 +92,69 @@ public class GlueFactory {
 		}
 		throw new IllegalArgumentException(">>>>>>>>>>> xxl-glue, loadNewInstance error, instance is null");
 	}
+
 	private Class<?> getCodeSourceClass(String codeSource){
-		try {
-			// md5
-			byte[] md5 = MessageDigest.getInstance("MD5").digest(codeSource.getBytes());
-			String md5Str = new BigInteger(1, md5).toString(16);
-
-			Class<?> clazz = CLASS_CACHE.get(md5Str);
-			if(clazz == null){
-				clazz = groovyClassLoader.parseClass(codeSource);
-				CLASS_CACHE.putIfAbsent(md5Str, clazz);
+		String md5Str = md5(codeSource);
+
+		synchronized (CLASS_CACHE) {
+			GlueClass glueClass = CLASS_CACHE.get(md5Str);
+			if (glueClass != null) {
+				hitCount.incrementAndGet();
+				return glueClass.clazz;
+			}
+		}
+		missCount.incrementAndGet();
+
+		// compile out of lock, same source compiled by concurrent trigger keep the first one
+		long start = System.currentTimeMillis();
+		GroovyClassLoader classLoader = new GroovyClassLoader();
+		Class<?> clazz = classLoader.parseClass(codeSource);
+		long cost = System.currentTimeMillis() - start;
+		compileTime.addAndGet(cost);
+		logger.info(">>>>>>>>>>> xxl-glue, compile glue class:{}, cost:{}ms, cache hit rate:{}%", clazz.getName(), cost, getHitRate());
+
+		synchronized (CLASS_CACHE) {
+			GlueClass glueClass = CLASS_CACHE.get(md5Str);
+			if (glueClass != null) {
+				return glueClass.clazz;
 			}
-			return clazz;
+			CLASS_CACHE.put(md5Str, new GlueClass(classLoader, clazz));
+		}
+		return clazz;
+	}
+
+	private static String md5(String codeSource) {
+		try {
+			byte[] md5 = MessageDigest.getInstance("MD5").digest(codeSource.getBytes("UTF-8"));
+			return new BigInteger(1, md5).toString(16);
 		} catch (Exception e) {
-			return groovyClassLoader.parseClass(codeSource);
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public long getHitCount() {
+		return hitCount.get();
+	}
+	public long getMissCount() {
+		return missCount.get();
+	}
+	/**
+	 * @return hit percent of class cache, 0-100
+	 */
+	public long getHitRate() {
+		long hit = hitCount.get();
+		long total = hit + missCount.get();
+		return total>0?hit*100/total:0;
+	}
+	/**
+	 * @return total compile time, ms
+	 */
+	public long getCompileTime() {
+		return compileTime.get();
+	}
+	public int getCacheSize() {
+		synchronized (CLASS_CACHE) {
+			return CLASS_CACHE.size();
 		}
 	}
 
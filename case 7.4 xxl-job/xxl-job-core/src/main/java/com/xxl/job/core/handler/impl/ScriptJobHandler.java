@@ -79,6 +79,7 @@ public class ScriptJobHandler extends IJobHandler {
 
         // invoke
         XxlJobLogger.log("----------- script file:"+ scriptFileName +" -----------");
+        XxlJobFileAppender.flushLog(logFileName);        // script output append to log file directly
         int exitValue = ScriptUtil.execToFile(cmd, scriptFileName, logFileName, scriptParams);
 
         if (exitValue == 0) {
@@ -5,6 +5,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 
@@ -97,28 +99,31 @@ public class XxlJobFileAppender {
 		if (logFileName==null || logFileName.trim().length()==0) {
 			return;
 		}
-		File logFile = new File(logFileName);
-
-		if (!logFile.exists()) {
-			try {
-				logFile.createNewFile();
-			} catch (IOException e) {
-				logger.error(e.getMessage(), e);
-				return;
-			}
-		}
 
 		// log
 		if (appendLog == null) {
 			appendLog = "";
 		}
 		appendLog += "\r\n";
-		
-		// append file content
+		byte[] appendLogBytes;
+		try {
+			appendLogBytes = appendLog.getBytes("utf-8");
+		} catch (UnsupportedEncodingException e) {
+			logger.error(e.getMessage(), e);
+			return;
+		}
+
+		// async write, group commit
+		if (XxlJobLogWriter.getInstance().append(logFileName, appendLogBytes)) {
+			return;
+		}
+
+		// sync write, writer not running
+		File logFile = new File(logFileName);
 		FileOutputStream fos = null;
 		try {
 			fos = new FileOutputStream(logFile, true);
-			fos.write(appendLog.getBytes("utf-8"));
+			fos.write(appendLogBytes);
 			fos.flush();
 		} catch (Exception e) {
 			logger.error(e.getMessage(), e);
@@ -134,6 +139,31 @@ public class XxlJobFileAppender {
 		
 	}
 
+	/**
+	 * write pending log of log file (async writer), when job execute end
+	 *
+	 * @param logFileName
+	 */
+	public static void flushLog(String logFileName) {
+		if (logFileName==null || logFileName.trim().length()==0) {
+			return;
+		}
+		XxlJobLogWriter.getInstance().flush(logFileName, 3000);
+	}
+
+	// ---------------------- read log, by line-offset index ----------------------
+
+	/**
+	 * sparse line-offset index sidecar, like "logPath/yyyy-MM-dd/9999.log.idx"
+	 *
+	 * 	entry k (long, at k*8) = byte offset of line "k * LOG_INDEX_INTERVAL + 1", entry 0 = 0;
+	 * 	built by reader when scan pass the line, so cover log written by any writer (job log, script output);
+	 */
+	private static final int LOG_INDEX_INTERVAL = 1000;
+	private static final String LOG_INDEX_SUFFIX = ".idx";
+	private static final int LOG_READ_BUFFER = 64 * 1024;
+	private static final int LOG_READ_MAX = 1024 * 1024;		// content limit of each read, the rest read next time
+
 	/**
 	 * support read log-file
 	 *
@@ -152,43 +182,127 @@ public class XxlJobFileAppender {
             return new LogResult(fromLineNum, 0, "readLog fail, logFile not exists", true);
 		}
 
-		// read file
-		StringBuffer logContentBuffer = new StringBuffer();
+		// read file, only complete line (end with "\n"), writing line will be read next time
+		ByteArrayOutputStream logContent = new ByteArrayOutputStream();
 		int toLineNum = 0;
-		LineNumberReader reader = null;
+		FileChannel logChannel = null;
+		FileChannel indexChannel = null;
 		try {
-			//reader = new LineNumberReader(new FileReader(logFile));
-			reader = new LineNumberReader(new InputStreamReader(new FileInputStream(logFile), "utf-8"));
-			String line = null;
-
-			while ((line = reader.readLine())!=null) {
-				toLineNum = reader.getLineNumber();		// [from, to], start as 1
-				if (toLineNum >= fromLineNum) {
-					logContentBuffer.append(line).append("\n");
+			logChannel = new FileInputStream(logFile).getChannel();
+			indexChannel = new RandomAccessFile(logFileName.concat(LOG_INDEX_SUFFIX), "rw").getChannel();
+			long logSize = logChannel.size();
+
+			// 1、index, drop if not match log file (rewrite)
+			int indexCount = (int) (indexChannel.size() / 8);
+			if (indexCount > 0 && readIndex(indexChannel, indexCount - 1) > logSize) {
+				indexChannel.truncate(0);
+				indexCount = 0;
+			}
+			if (indexCount == 0) {
+				writeIndex(indexChannel, 0, 0);
+				indexCount = 1;
+			}
+
+			// 2、seek to the nearest indexed line before "fromLineNum"
+			int entry = Math.min(Math.max(fromLineNum - 1, 0) / LOG_INDEX_INTERVAL, indexCount - 1);
+			long position = readIndex(indexChannel, entry);
+			toLineNum = entry * LOG_INDEX_INTERVAL;			// lines before position
+
+			// 3、positioned read, [from, to], start as 1
+			ByteBuffer buffer = ByteBuffer.allocate(LOG_READ_BUFFER);
+			long lineStart = position;
+			ByteArrayOutputStream line = new ByteArrayOutputStream();
+			scan:
+			while (position < logSize) {
+				buffer.clear();
+				int readNum = logChannel.read(buffer, position);
+				if (readNum <= 0) {
+					break;
+				}
+				byte[] bytes = buffer.array();
+				int chunkStart = 0;
+				for (int i = 0; i < readNum; i++) {
+					if (bytes[i] != '\n') {
+						continue;
+					}
+
+					// line end
+					int lineNum = toLineNum + 1;
+					if (lineNum >= fromLineNum) {
+						line.write(bytes, chunkStart, i - chunkStart);
+						byte[] lineBytes = line.toByteArray();
+						int length = (lineBytes.length>0 && lineBytes[lineBytes.length-1]=='\r') ? lineBytes.length-1 : lineBytes.length;
+						logContent.write(lineBytes, 0, length);
+						logContent.write('\n');
+					}
+					line.reset();
+					chunkStart = i + 1;
+					lineStart = position + i + 1;
+					toLineNum = lineNum;
+
+					// index next line
+					if (toLineNum % LOG_INDEX_INTERVAL == 0 && toLineNum / LOG_INDEX_INTERVAL >= indexCount) {
+						writeIndex(indexChannel, toLineNum / LOG_INDEX_INTERVAL, lineStart);
+						indexCount++;
+					}
+
+					if (logContent.size() >= LOG_READ_MAX) {
+						break scan;
+					}
 				}
+
+				// part of line in next chunk
+				if (toLineNum + 1 >= fromLineNum) {
+					line.write(bytes, chunkStart, readNum - chunkStart);
+				}
+				position += readNum;
 			}
 		} catch (IOException e) {
 			logger.error(e.getMessage(), e);
 		} finally {
-			if (reader != null) {
-				try {
-					reader.close();
-				} catch (IOException e) {
-					logger.error(e.getMessage(), e);
-				}
-			}
+			closeChannel(logChannel);
+			closeChannel(indexChannel);
 		}
 
 		// result
-		LogResult logResult = new LogResult(fromLineNum, toLineNum, logContentBuffer.toString(), false);
+		String logContentStr;
+		try {
+			logContentStr = logContent.toString("utf-8");
+		} catch (UnsupportedEncodingException e) {
+			logContentStr = logContent.toString();
+		}
+		LogResult logResult = new LogResult(fromLineNum, toLineNum, logContentStr, false);
 		return logResult;
+	}
+
+	private static long readIndex(FileChannel indexChannel, int entry) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		while (buffer.hasRemaining()) {
+			if (indexChannel.read(buffer, entry * 8L + buffer.position()) < 0) {
+				throw new EOFException("log index entry not exists: " + entry);
+			}
+		}
+		buffer.flip();
+		return buffer.getLong();
+	}
 
-		/*
-        // it will return the number of characters actually skipped
-        reader.skip(Long.MAX_VALUE);
-        int maxLineNum = reader.getLineNumber();
-        maxLineNum++;	// 最大行号
-        */
+	private static void writeIndex(FileChannel indexChannel, int entry, long offset) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		buffer.putLong(offset);
+		buffer.flip();
+		while (buffer.hasRemaining()) {
+			indexChannel.write(buffer, entry * 8L + buffer.position());
+		}
+	}
+
+	private static void closeChannel(FileChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				logger.error(e.getMessage(), e);
+			}
+		}
 	}
 
 	/**
@@ -0,0 +1,334 @@
+package com.xxl.job.core.log;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * async job log writer
+ *
+ *      1、job thread put log line into bounded ring buffer (block until enqueued when full, also when interrupted), not open/close file for each line;
+ *      2、writer thread group commit: buffer lines per log file, write by append channel when 64KB or each 100ms;
+ *      3、flush: write pending lines of log file and close its channel, when job execute end;
+ *
+ * only complete lines are written, so "readLog" never see half line.
+ */
+public class XxlJobLogWriter {
+    private static Logger logger = LoggerFactory.getLogger(XxlJobLogWriter.class);
+
+    private static XxlJobLogWriter instance = new XxlJobLogWriter();
+    public static XxlJobLogWriter getInstance(){
+        return instance;
+    }
+
+    private static final int RING_SIZE = 8192;
+    private static final int COMMIT_SIZE = 64 * 1024;
+    private static final long COMMIT_INTERVAL = 100;
+    private static final int MAX_OPEN_FILE = 256;
+    private static final long IDLE_CLOSE_TIME = 60 * 1000;
+    private static final long APPEND_TIMEOUT = 1000;                // re-check writer running each timeout, when ring buffer full
+
+    private static class LogEntry {
+        private final String logFileName;
+        private final byte[] data;                  // null: flush
+        private final CountDownLatch flushLatch;
+
+        LogEntry(String logFileName, byte[] data, CountDownLatch flushLatch) {
+            this.logFileName = logFileName;
+            this.data = data;
+            this.flushLatch = flushLatch;
+        }
+    }
+
+    private static class LogFile {
+        private final String logFileName;
+        private FileChannel channel;
+        private byte[] buffer = new byte[1024];
+        private int size = 0;
+        private long lastWriteTime = System.currentTimeMillis();
+
+        LogFile(String logFileName) {
+            this.logFileName = logFileName;
+        }
+
+        void add(byte[] data) {
+            if (size + data.length > buffer.length) {
+                byte[] grow = new byte[Math.max(buffer.length << 1, size + data.length)];
+                System.arraycopy(buffer, 0, grow, 0, size);
+                buffer = grow;
+            }
+            System.arraycopy(data, 0, buffer, size, data.length);
+            size += data.length;
+        }
+
+        void commit() {
+            if (size == 0) {
+                return;
+            }
+            try {
+                if (channel == null) {
+                    channel = new FileOutputStream(logFileName, true).getChannel();
+                }
+                ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, size);
+                while (byteBuffer.hasRemaining()) {
+                    channel.write(byteBuffer);
+                }
+            } catch (IOException e) {
+                logger.error(e.getMessage(), e);
+                close();
+            }
+            size = 0;
+            if (buffer.length > COMMIT_SIZE) {
+                buffer = new byte[1024];
+            }
+            lastWriteTime = System.currentTimeMillis();
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException e) {
+                    logger.error(e.getMessage(), e);
+                }
+                channel = null;
+            }
+        }
+    }
+
+    private final ArrayBlockingQueue<LogEntry> ringBuffer = new ArrayBlockingQueue<LogEntry>(RING_SIZE);
+    private final Map<String, LogFile> logFileMap = new LinkedHashMap<String, LogFile>(16, 0.75f, true);
+
+
+    // ---------------------- append + flush ----------------------
+
+    public boolean isRunning() {
+        return writerThread != null && !toStop;
+    }
+
+    /**
+     * append complete log line(s), block until enqueued if ring buffer full; line order of log file kept
+     *
+     * @param logFileName
+     * @param data
+     * @return  false if writer not running (remaining lines written when return), caller write direct
+     */
+    public boolean append(String logFileName, byte[] data) {
+        LogEntry entry = new LogEntry(logFileName, data, null);
+        boolean interrupted = false;
+        try {
+            while (writerThread != null && !toStop) {
+                appending.incrementAndGet();
+                try {
+                    if (closed) {
+                        break;
+                    }
+                    if (ringBuffer.offer(entry, APPEND_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                        return true;
+                    }
+                } catch (InterruptedException e) {
+                    interrupted = true;         // job killed, still keep its log in order
+                } finally {
+                    appending.decrementAndGet();
+                }
+            }
+
+            // writer stopping, wait remaining lines written before direct write
+            Thread thread = writerThread;
+            while (thread != null && thread != Thread.currentThread() && thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            return false;
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * write pending log of log file, and wait
+     *
+     * @param logFileName
+     * @param timeout
+     */
+    public void flush(String logFileName, long timeout) {
+        if (!isRunning()) {
+            return;
+        }
+        CountDownLatch flushLatch = new CountDownLatch(1);
+        boolean interrupted = Thread.interrupted();         // job killed, still wait its log written
+        try {
+            boolean offered;
+            appending.incrementAndGet();
+            try {
+                offered = !closed && ringBuffer.offer(new LogEntry(logFileName, null, flushLatch), timeout, TimeUnit.MILLISECONDS);
+            } finally {
+                appending.decrementAndGet();
+            }
+            if (offered) {
+                flushLatch.await(timeout, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            interrupted = true;
+            logger.warn(">>>>>>>>>>> xxl-job, log flush interrupted, logFileName:{}", logFileName);
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+
+    // ---------------------- writer thread ----------------------
+
+    private volatile Thread writerThread;
+    private volatile boolean toStop = false;
+    private volatile boolean closed = false;                        // set by writer thread before last drain, no enqueue after
+    private final AtomicInteger appending = new AtomicInteger(0);   // append in progress between "closed" check and offer
+    public void start() {
+        toStop = false;
+        closed = false;
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                List<LogEntry> batch = new ArrayList<LogEntry>();
+                long lastCommitTime = System.currentTimeMillis();
+                while (!toStop) {
+                    try {
+                        LogEntry entry = ringBuffer.poll(COMMIT_INTERVAL, TimeUnit.MILLISECONDS);
+                        if (entry != null) {
+                            batch.add(entry);
+                            ringBuffer.drainTo(batch);
+                            try {
+                                process(batch);
+                            } finally {
+                                batch.clear();
+                            }
+                        }
+
+                        long nowTime = System.currentTimeMillis();
+                        if (nowTime - lastCommitTime >= COMMIT_INTERVAL) {
+                            commitAll(nowTime);
+                            lastCommitTime = nowTime;
+                        }
+                    } catch (Throwable e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+                }
+
+                // write remaining: close append first, then drain until no append in progress,
+                // so a line enqueued after "!toStop" check is never dropped
+                closed = true;
+                while (true) {
+                    boolean appendDone = appending.get() == 0;
+                    ringBuffer.drainTo(batch);
+                    try {
+                        process(batch);
+                    } finally {
+                        batch.clear();
+                    }
+                    if (appendDone) {
+                        break;
+                    }
+                    Thread.yield();
+                }
+                for (LogFile logFile: logFileMap.values()) {
+                    logFile.commit();
+                    logFile.close();
+                }
+                logFileMap.clear();
+                logger.info(">>>>>>>>>>> xxl-job, executor XxlJobLogWriter thread destory.");
+            }
+        });
+        writerThread.setDaemon(true);
+        writerThread.setName("xxl-job, executor XxlJobLogWriter");
+        writerThread.start();
+    }
+
+    public void toStop() {
+        if (writerThread == null) {
+            return;
+        }
+        toStop = true;
+        // wait, not interrupt (interrupt close file channel in writing)
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+        writerThread = null;
+    }
+
+    private void process(List<LogEntry> batch) {
+        for (LogEntry entry: batch) {
+            LogFile logFile = logFileMap.get(entry.logFileName);
+
+            // flush
+            if (entry.data == null) {
+                if (logFile != null) {
+                    logFile.commit();
+                    logFile.close();
+                    logFileMap.remove(entry.logFileName);
+                }
+                entry.flushLatch.countDown();
+                continue;
+            }
+
+            // group commit by size
+            if (logFile == null) {
+                logFile = new LogFile(entry.logFileName);
+                logFileMap.put(entry.logFileName, logFile);
+                closeEldest();
+            }
+            logFile.add(entry.data);
+            if (logFile.size >= COMMIT_SIZE) {
+                logFile.commit();
+            }
+        }
+    }
+
+    private void commitAll(long nowTime) {
+        Iterator<LogFile> it = logFileMap.values().iterator();
+        while (it.hasNext()) {
+            LogFile logFile = it.next();
+            if (logFile.size > 0) {
+                logFile.commit();
+            } else if (nowTime - logFile.lastWriteTime > IDLE_CLOSE_TIME) {
+                logFile.close();
+                it.remove();
+            }
+        }
+    }
+
+    private void closeEldest() {
+        if (logFileMap.size() <= MAX_OPEN_FILE) {
+            return;
+        }
+        Iterator<LogFile> it = logFileMap.values().iterator();
+        LogFile eldest = it.next();
+        eldest.commit();
+        eldest.close();
+        it.remove();
+    }
+
+}
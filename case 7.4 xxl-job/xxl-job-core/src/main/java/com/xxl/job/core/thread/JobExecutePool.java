@@ -0,0 +1,84 @@
+package com.xxl.job.core.thread;
+
+import com.xxl.job.core.util.HashedWheelTimer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * shared execute engine of all JobThread
+ *
+ *      1、execute pool: JobThread drain its trigger queue on pool thread, thread count follow running job, not job count;
+ *      2、timer: one hashed wheel timer for job execute timeout and JobThread idle check;
+ */
+public class JobExecutePool {
+    private static Logger logger = LoggerFactory.getLogger(JobExecutePool.class);
+
+    private static JobExecutePool instance = new JobExecutePool();
+    public static JobExecutePool getInstance(){
+        return instance;
+    }
+
+    private static final long TIMER_TICK = 100;
+    private static final int TIMER_WHEEL_SIZE = 512;
+
+    private ThreadPoolExecutor executePool;
+    private HashedWheelTimer timer;
+
+    public void start(){
+        final AtomicInteger threadNum = new AtomicInteger(0);
+        executePool = new ThreadPoolExecutor(
+                0,
+                Integer.MAX_VALUE,
+                60L,
+                TimeUnit.SECONDS,
+                new SynchronousQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable r) {
+                        return new Thread(r, "xxl-job, JobExecutePool-" + threadNum.incrementAndGet());
+                    }
+                });
+
+        timer = new HashedWheelTimer("JobExecutePool timer", TIMER_TICK, TIMER_WHEEL_SIZE);
+        timer.start();
+    }
+
+    public void toStop(){
+        if (timer != null) {
+            timer.toStop();
+        }
+        // running job has been killed, let kill callback task go on
+        if (executePool != null) {
+            executePool.shutdown();
+        }
+        logger.info(">>>>>>>>>>> xxl-job, JobExecutePool stop");
+    }
+
+    /**
+     * run task on pool thread
+     *
+     * @param task
+     */
+    public void execute(Runnable task) {
+        executePool.execute(task);
+    }
+
+    /**
+     * run task on timer thread after delay, task should be short
+     *
+     * @param task
+     * @param delay
+     * @param unit
+     * @return
+     */
+    public HashedWheelTimer.Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        return timer.newTimeout(task, delay, unit);
+    }
+
+}
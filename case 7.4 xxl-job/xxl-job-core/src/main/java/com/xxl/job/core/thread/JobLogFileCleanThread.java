@@ -27,7 +27,16 @@ public class JobLogFileCleanThread {
 
     private Thread localThread;
     private volatile boolean toStop = false;
+    private long nextDeleteNanos = System.nanoTime();    // pacing of throttled delete, only used by localThread
     public void start(final long logRetentionDays){
+        start(logRetentionDays, 0);
+    }
+
+    /**
+     * @param logRetentionDays
+     * @param logCleanRate      max log file deleted per second, <=0 as unlimited
+     */
+    public void start(final long logRetentionDays, final int logCleanRate){
 
         // limit min value
         if (logRetentionDays < 3 ) {
@@ -37,49 +46,71 @@ public class JobLogFileCleanThread {
         localThread = new Thread(new Runnable() {
             @Override
             public void run() {
+                // day dir before (include) cleanedDate has been cleaned, next pass only check new expired day dir, not list log path
+                Date cleanedDate = null;
                 while (!toStop) {
                     try {
-                        // clean log dir, over logRetentionDays
-                        File[] childDirs = new File(XxlJobFileAppender.getLogPath()).listFiles();
-                        if (childDirs!=null && childDirs.length>0) {
-
-                            // today
-                            Calendar todayCal = Calendar.getInstance();
-                            todayCal.set(Calendar.HOUR_OF_DAY,0);
-                            todayCal.set(Calendar.MINUTE,0);
-                            todayCal.set(Calendar.SECOND,0);
-                            todayCal.set(Calendar.MILLISECOND,0);
-
-                            Date todayDate = todayCal.getTime();
-
-                            for (File childFile: childDirs) {
-
-                                // valid
-                                if (!childFile.isDirectory()) {
-                                    continue;
-                                }
-                                if (childFile.getName().indexOf("-") == -1) {
-                                    continue;
-                                }
+                        // today
+                        Calendar todayCal = Calendar.getInstance();
+                        todayCal.set(Calendar.HOUR_OF_DAY,0);
+                        todayCal.set(Calendar.MINUTE,0);
+                        todayCal.set(Calendar.SECOND,0);
+                        todayCal.set(Calendar.MILLISECOND,0);
+
+                        Date todayDate = todayCal.getTime();
+                        todayCal.add(Calendar.DAY_OF_MONTH, (int) -logRetentionDays);
+                        Date expireDate = todayCal.getTime();
+
+                        boolean cleaned = true;
+                        if (cleanedDate == null) {
+                            // first pass, clean log dir, over logRetentionDays
+                            File[] childDirs = new File(XxlJobFileAppender.getLogPath()).listFiles();
+                            if (childDirs!=null && childDirs.length>0) {
+                                for (File childFile: childDirs) {
+
+                                    // valid
+                                    if (!childFile.isDirectory()) {
+                                        continue;
+                                    }
+                                    if (childFile.getName().indexOf("-") == -1) {
+                                        continue;
+                                    }
+
+                                    // file create date
+                                    Date logFileCreateDate = null;
+                                    try {
+                                        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+                                        logFileCreateDate = simpleDateFormat.parse(childFile.getName());
+                                    } catch (ParseException e) {
+                                        logger.error(e.getMessage(), e);
+                                    }
+                                    if (logFileCreateDate == null) {
+                                        continue;
+                                    }
+
+                                    if ((todayDate.getTime()-logFileCreateDate.getTime()) >= logRetentionDays * (24 * 60 * 60 * 1000) ) {
+                                        cleaned &= deleteRecursively(childFile, logCleanRate);
+                                    }
 
-                                // file create date
-                                Date logFileCreateDate = null;
-                                try {
-                                    SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
-                                    logFileCreateDate = simpleDateFormat.parse(childFile.getName());
-                                } catch (ParseException e) {
-                                    logger.error(e.getMessage(), e);
-                                }
-                                if (logFileCreateDate == null) {
-                                    continue;
                                 }
-
-                                if ((todayDate.getTime()-logFileCreateDate.getTime()) >= logRetentionDays * (24 * 60 * 60 * 1000) ) {
-                                    FileUtil.deleteRecursively(childFile);
+                            }
+                        } else {
+                            // next pass, day dir between cleanedDate and expireDate
+                            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("yyyy-MM-dd");
+                            Calendar dayCal = Calendar.getInstance();
+                            dayCal.setTime(cleanedDate);
+                            dayCal.add(Calendar.DAY_OF_MONTH, 1);
+                            while (!dayCal.getTime().after(expireDate)) {
+                                File childFile = new File(XxlJobFileAppender.getLogPath(), simpleDateFormat.format(dayCal.getTime()));
+                                if (childFile.exists()) {
+                                    cleaned &= deleteRecursively(childFile, logCleanRate);
                                 }
-
+                                dayCal.add(Calendar.DAY_OF_MONTH, 1);
                             }
                         }
+                        if (cleaned) {
+                            cleanedDate = expireDate;
+                        }
 
                     } catch (Exception e) {
                         if (!toStop) {
@@ -105,6 +136,44 @@ public class JobLogFileCleanThread {
         localThread.start();
     }
 
+    /**
+     * delete log dir, at most logCleanRate file per second
+     *
+     * @return false if not deleted completely (stop, or delete fail)
+     */
+    private boolean deleteRecursively(File root, int logCleanRate) throws InterruptedException {
+        if (logCleanRate <= 0) {
+            FileUtil.deleteRecursively(root);
+            return !root.exists();
+        }
+        if (toStop) {
+            return false;
+        }
+        if (root.isDirectory()) {
+            File[] children = root.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    if (!deleteRecursively(child, logCleanRate)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        boolean ret = root.delete();
+
+        // pace on a deadline instead of a fixed per-file sleep, so rates above 1000/s still hold
+        long now = System.nanoTime();
+        if (nextDeleteNanos - now < 0) {
+            nextDeleteNanos = now;
+        }
+        nextDeleteNanos += TimeUnit.SECONDS.toNanos(1) / logCleanRate;
+        long waitNanos = nextDeleteNanos - now;
+        if (waitNanos >= TimeUnit.MILLISECONDS.toNanos(1)) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return ret;
+    }
+
     public void toStop() {
         toStop = true;
 
@@ -7,6 +7,7 @@ import com.xxl.job.core.executor.XxlJobExecutor;
 import com.xxl.job.core.handler.IJobHandler;
 import com.xxl.job.core.log.XxlJobFileAppender;
 import com.xxl.job.core.log.XxlJobLogger;
+import com.xxl.job.core.util.HashedWheelTimer;
 import com.xxl.job.core.util.ShardingUtil;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,26 +19,52 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 
 /**
- * handler thread
+ * handler thread, serial execute trigger of one job
+ *
+ *      1、not own a thread: trigger queue is drained by one task on JobExecutePool at a time ("scheduled"), so trigger run in order;
+ *      2、timeout: JobExecutePool timer fire, callback timeout result and go on drain by new task, handler thread is interrupted;
+ *      3、idle over limit: removed by timer idle check, idle JobThread cost no thread;
  *
  * @author xuxueli 2016-1-16 19:52:47
  */
-public class JobThread extends Thread {
+public class JobThread implements Runnable {
     private static Logger logger = LoggerFactory.getLogger(JobThread.class);
 
+    private static final long IDLE_TIMEOUT = 90 * 1000;
+
     private int jobId;
     private IJobHandler handler;
     private LinkedBlockingQueue<TriggerParam> triggerQueue;
     private Set<Long> triggerLogIdSet;        // avoid repeat trigger for the same TRIGGER_LOG_ID
 
     private volatile boolean toStop = false;
-    private String stopReason;
+    private volatile String stopReason;
+
+    private volatile boolean running = false;    // if running job
+    private volatile long lastRunTime = System.currentTimeMillis();
+
+    private final AtomicBoolean scheduled = new AtomicBoolean(false);      // drain task on pool, only one at a time
+    private final AtomicBoolean idleChecking = new AtomicBoolean(false);
+    private boolean inited = false;
+    private boolean destroyed = false;
 
-    private boolean running = false;    // if running job
-    private int idleTimes = 0;            // idel times
+    private Thread executeThread;               // thread running handler, guard by "this"
+    private Execution execution;
+
+    private static class Execution {
+        private final TriggerParam triggerParam;
+        private final String logFileName;
+        private final AtomicBoolean completed = new AtomicBoolean(false);     // callback by handler thread or timer
+
+        Execution(TriggerParam triggerParam, String logFileName) {
+            this.triggerParam = triggerParam;
+            this.logFileName = logFileName;
+        }
+    }
 
 
     public JobThread(int jobId, IJobHandler handler) {
@@ -66,6 +93,7 @@ public class JobThread extends Thread {
 
         triggerLogIdSet.add(triggerParam.getLogId());
         triggerQueue.add(triggerParam);
+        schedule();
         return ReturnT.SUCCESS;
     }
 
@@ -80,8 +108,16 @@ public class JobThread extends Thread {
          * 在阻塞出抛出InterruptedException异常,但是并不会终止运行的线程本身；
          * 所以需要注意，此处彻底销毁本线程，需要通过共享变量方式；
          */
-        this.toStop = true;
         this.stopReason = stopReason;
+        this.toStop = true;
+
+        // interrupt running handler, idle one drain to callback queue and destroy
+        synchronized (this) {
+            if (executeThread != null) {
+                executeThread.interrupt();
+            }
+        }
+        schedule();
     }
 
     /**
@@ -93,121 +129,60 @@ public class JobThread extends Thread {
         return running || triggerQueue.size() > 0;
     }
 
+    /**
+     * submit drain task, if not submitted
+     */
+    private void schedule() {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            JobExecutePool.getInstance().execute(this);
+        } catch (RejectedExecutionException e) {
+            scheduled.set(false);
+            logger.error(">>>>>>>>>>> xxl-job JobThread schedule fail, jobId:{}", jobId, e);
+        }
+    }
+
+    /**
+     * drain trigger queue, run by the task owning "scheduled"
+     */
     @Override
     public void run() {
 
         // init
-        try {
-            handler.init();
-        } catch (Throwable e) {
-            logger.error(e.getMessage(), e);
+        if (!inited) {
+            inited = true;
+            try {
+                handler.init();
+            } catch (Throwable e) {
+                logger.error(e.getMessage(), e);
+            }
         }
 
         // execute
         while (!toStop) {
-            running = false;
-            idleTimes++;
-
-            TriggerParam triggerParam = null;
-            ReturnT<String> executeResult = null;
-            try {
-                // to check toStop signal, we need cycle, so wo cannot use queue.take(), instand of poll(timeout)
-                triggerParam = triggerQueue.poll(3L, TimeUnit.SECONDS);
-                if (triggerParam != null) {
-                    running = true;
-                    idleTimes = 0;
-                    triggerLogIdSet.remove(triggerParam.getLogId());
-
-                    // log filename, like "logPath/yyyy-MM-dd/9999.log"
-                    String logFileName = XxlJobFileAppender.makeLogFileName(new Date(triggerParam.getLogDateTim()),
-                            triggerParam.getLogId());
-                    XxlJobFileAppender.contextHolder.set(logFileName);
-                    ShardingUtil.setShardingVo(new ShardingUtil.ShardingVO(triggerParam.getBroadcastIndex(),
-                            triggerParam.getBroadcastTotal()));
-
-                    // execute
-                    XxlJobLogger.log("<br>----------- xxl-job job execute start -----------<br>----------- Param:" + triggerParam.getExecutorParams());
-
-                    if (triggerParam.getExecutorTimeout() > 0) {
-                        // limit timeout
-                        Thread futureThread = null;
-                        try {
-                            final TriggerParam triggerParamTmp = triggerParam;
-                            FutureTask<ReturnT<String>> futureTask =
-                                    new FutureTask<ReturnT<String>>(new Callable<ReturnT<String>>() {
-                                        @Override
-                                        public ReturnT<String> call() throws Exception {
-                                            return handler.execute(triggerParamTmp.getExecutorParams());
-                                        }
-                                    });
-                            futureThread = new Thread(futureTask);
-                            futureThread.start();
-
-                            executeResult = futureTask.get(triggerParam.getExecutorTimeout(), TimeUnit.SECONDS);
-                        } catch (TimeoutException e) {
-
-                            XxlJobLogger.log("<br>----------- xxl-job job execute timeout");
-                            XxlJobLogger.log(e);
-
-                            executeResult = new ReturnT<String>(IJobHandler.FAIL_TIMEOUT.getCode(), "job execute " +
-                                    "timeout ");
-                        } finally {
-                            futureThread.interrupt();
-                        }
-                    } else {
-                        // just execute
-                        executeResult = handler.execute(triggerParam.getExecutorParams());
-                    }
-
-                    if (executeResult == null) {
-                        executeResult = IJobHandler.FAIL;
-                    } else {
-                        executeResult.setMsg(
-                                (executeResult != null && executeResult.getMsg() != null && executeResult.getMsg().length() > 50000)
-                                        ? executeResult.getMsg().substring(0, 50000).concat("...")
-                                        : executeResult.getMsg());
-                        executeResult.setContent(null);    // limit obj size
-                    }
-                    XxlJobLogger.log("<br>----------- xxl-job job execute end(finish) -----------<br>----------- " +
-                            "ReturnT:" + executeResult);
+            TriggerParam triggerParam = triggerQueue.poll();
+            if (triggerParam == null) {
+                running = false;
+                scheduled.set(false);
 
-                } else {
-                    if (idleTimes > 30) {
-                        XxlJobExecutor.removeJobThread(jobId, "excutor idel times over limit.");
-                    }
-                }
-            } catch (Throwable e) {
-                if (toStop) {
-                    XxlJobLogger.log("<br>----------- JobThread toStop, stopReason:" + stopReason);
+                // recheck, trigger or stop may come before release
+                if ((triggerQueue.isEmpty() && !toStop) || !scheduled.compareAndSet(false, true)) {
+                    idleCheck();
+                    return;
                 }
+                continue;
+            }
 
-                StringWriter stringWriter = new StringWriter();
-                e.printStackTrace(new PrintWriter(stringWriter));
-                String errorMsg = stringWriter.toString();
-                executeResult = new ReturnT<String>(ReturnT.FAIL_CODE, errorMsg);
-
-                XxlJobLogger.log("<br>----------- JobThread Exception:" + errorMsg + "<br>----------- xxl-job job " +
-                        "execute end(error) -----------");
-            } finally {
-                if (triggerParam != null) {
-                    // callback handler info
-                    if (!toStop) {
-                        // commonm
-                        TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(),
-                                triggerParam.getLogDateTim(), executeResult));
-                    } else {
-                        // is killed
-                        ReturnT<String> stopResult = new ReturnT<String>(ReturnT.FAIL_CODE, stopReason + " [job " +
-                                "running，killed]");
-                        TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(),
-                                triggerParam.getLogDateTim(), stopResult));
-                    }
-                }
+            if (!execute(triggerParam)) {
+                // timeout, drain go on by timer task
+                return;
             }
         }
 
         // callback trigger request in queue
-        while (triggerQueue != null && triggerQueue.size() > 0) {
+        while (triggerQueue.size() > 0) {
             TriggerParam triggerParam = triggerQueue.poll();
             if (triggerParam != null) {
                 // is killed
@@ -217,14 +192,198 @@ public class JobThread extends Thread {
                         triggerParam.getLogDateTim(), stopResult));
             }
         }
+        running = false;
+
+        // destroy, "scheduled" not released, no more drain
+        if (!destroyed) {
+            destroyed = true;
+            try {
+                handler.destroy();
+            } catch (Throwable e) {
+                logger.error(e.getMessage(), e);
+            }
+            logger.info(">>>>>>>>>>> xxl-job JobThread stoped, jobId:{}", jobId);
+        }
+    }
+
+    /**
+     * execute one trigger on current thread
+     *
+     * @return false if timeout, execution has been completed by timer
+     */
+    private boolean execute(TriggerParam triggerParam) {
+        running = true;
+        lastRunTime = System.currentTimeMillis();
+        triggerLogIdSet.remove(triggerParam.getLogId());
 
-        // destroy
+        // log filename, like "logPath/yyyy-MM-dd/9999.log"
+        String logFileName = XxlJobFileAppender.makeLogFileName(new Date(triggerParam.getLogDateTim()),
+                triggerParam.getLogId());
+        XxlJobFileAppender.contextHolder.set(logFileName);
+        ShardingUtil.setShardingVo(new ShardingUtil.ShardingVO(triggerParam.getBroadcastIndex(),
+                triggerParam.getBroadcastTotal()));
+
+        final Execution currentExecution = new Execution(triggerParam, logFileName);
+        HashedWheelTimer.Timeout timeout = null;
+        ReturnT<String> executeResult = null;
+        Throwable executeError = null;
         try {
-            handler.destroy();
+            synchronized (this) {
+                executeThread = Thread.currentThread();
+                execution = currentExecution;
+            }
+
+            // execute
+            XxlJobLogger.log("<br>----------- xxl-job job execute start -----------<br>----------- Param:" + triggerParam.getExecutorParams());
+
+            if (triggerParam.getExecutorTimeout() > 0) {
+                // limit timeout
+                timeout = JobExecutePool.getInstance().newTimeout(new Runnable() {
+                    @Override
+                    public void run() {
+                        timeout(currentExecution);
+                    }
+                }, triggerParam.getExecutorTimeout(), TimeUnit.SECONDS);
+            }
+            executeResult = handler.execute(triggerParam.getExecutorParams());
+
+            if (executeResult == null) {
+                executeResult = IJobHandler.FAIL;
+            } else {
+                executeResult.setMsg(
+                        (executeResult != null && executeResult.getMsg() != null && executeResult.getMsg().length() > 50000)
+                                ? executeResult.getMsg().substring(0, 50000).concat("...")
+                                : executeResult.getMsg());
+                executeResult.setContent(null);    // limit obj size
+            }
         } catch (Throwable e) {
-            logger.error(e.getMessage(), e);
+            executeError = e;
+        } finally {
+            if (timeout != null) {
+                timeout.cancel();
+            }
+            // after timeout, next execution may be running on another thread and own these fields, keep them;
+            // stale interrupt on this thread is cleared by pool before next task
+            synchronized (this) {
+                if (execution == currentExecution) {
+                    executeThread = null;
+                    execution = null;
+                    // pool thread reused, clear interrupt of kill / timeout
+                    Thread.interrupted();
+                }
+            }
+        }
+
+        if (!currentExecution.completed.compareAndSet(false, true)) {
+            // timeout, handled by timer
+            return false;
+        }
+        if (executeError == null) {
+            XxlJobLogger.log("<br>----------- xxl-job job execute end(finish) -----------<br>----------- " +
+                    "ReturnT:" + executeResult);
+        } else {
+            if (toStop) {
+                XxlJobLogger.log("<br>----------- JobThread toStop, stopReason:" + stopReason);
+            }
+
+            StringWriter stringWriter = new StringWriter();
+            executeError.printStackTrace(new PrintWriter(stringWriter));
+            String errorMsg = stringWriter.toString();
+            executeResult = new ReturnT<String>(ReturnT.FAIL_CODE, errorMsg);
+
+            XxlJobLogger.log("<br>----------- JobThread Exception:" + errorMsg + "<br>----------- xxl-job job " +
+                    "execute end(error) -----------");
+        }
+        callback(currentExecution, executeResult);
+        return true;
+    }
+
+    /**
+     * timer: execute timeout, callback and go on drain by new task
+     */
+    private void timeout(final Execution timeoutExecution) {
+        if (!timeoutExecution.completed.compareAndSet(false, true)) {
+            return;
+        }
+        synchronized (this) {
+            if (execution == timeoutExecution && executeThread != null) {
+                executeThread.interrupt();
+            }
+        }
+
+        Runnable timeoutTask = new Runnable() {
+            @Override
+            public void run() {
+                XxlJobFileAppender.contextHolder.set(timeoutExecution.logFileName);
+
+                XxlJobLogger.log("<br>----------- xxl-job job execute timeout");
+                XxlJobLogger.log(new TimeoutException());
+
+                ReturnT<String> executeResult = new ReturnT<String>(IJobHandler.FAIL_TIMEOUT.getCode(), "job execute timeout ");
+                XxlJobLogger.log("<br>----------- xxl-job job execute end(finish) -----------<br>----------- " +
+                        "ReturnT:" + executeResult);
+                callback(timeoutExecution, executeResult);
+
+                // go on drain
+                JobThread.this.run();
+            }
+        };
+        try {
+            JobExecutePool.getInstance().execute(timeoutTask);
+        } catch (RejectedExecutionException e) {
+            logger.error(">>>>>>>>>>> xxl-job JobThread timeout callback fail, jobId:{}", jobId, e);
+        }
+    }
+
+    private void callback(Execution callbackExecution, ReturnT<String> executeResult) {
+        TriggerParam triggerParam = callbackExecution.triggerParam;
+
+        // flush job log
+        XxlJobFileAppender.flushLog(callbackExecution.logFileName);
+
+        // callback handler info
+        if (!toStop) {
+            // commonm
+            TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(),
+                    triggerParam.getLogDateTim(), executeResult));
+        } else {
+            // is killed
+            ReturnT<String> stopResult = new ReturnT<String>(ReturnT.FAIL_CODE, stopReason + " [job " +
+                    "running，killed]");
+            TriggerCallbackThread.pushCallBack(new HandleCallbackParam(triggerParam.getLogId(),
+                    triggerParam.getLogDateTim(), stopResult));
         }
+    }
 
-        logger.info(">>>>>>>>>>> xxl-job JobThread stoped, hashCode:{}", Thread.currentThread());
+    /**
+     * timer: remove JobThread idle over limit, one check pending at a time
+     */
+    private void idleCheck() {
+        if (!idleChecking.compareAndSet(false, true)) {
+            return;
+        }
+        long delay = Math.max(lastRunTime + IDLE_TIMEOUT - System.currentTimeMillis(), 1000);
+        try {
+            JobExecutePool.getInstance().newTimeout(new Runnable() {
+                @Override
+                public void run() {
+                    idleChecking.set(false);
+                    if (toStop || isRunningOrHasQueue()) {
+                        return;
+                    }
+                    if (System.currentTimeMillis() - lastRunTime >= IDLE_TIMEOUT) {
+                        if (XxlJobExecutor.loadJobThread(jobId) == JobThread.this) {
+                            XxlJobExecutor.removeJobThread(jobId, "excutor idel times over limit.");
+                        }
+                    } else {
+                        idleCheck();
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            idleChecking.set(false);
+            logger.error(e.getMessage(), e);
+        }
     }
+
 }
@@ -8,6 +8,7 @@ import com.xxl.job.core.executor.XxlJobExecutor;
 import com.xxl.job.core.log.XxlJobFileAppender;
 import com.xxl.job.core.log.XxlJobLogger;
 import com.xxl.job.core.util.FileUtil;
+import com.xxl.job.core.util.MappedJournal;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -30,19 +31,69 @@ public class TriggerCallbackThread {
     }
 
     /**
-     * job results callback queue
+     * job results callback journal, memory-mapped segment files, survive executor restart
+     */
+    private static final int JOURNAL_SEGMENT_SIZE = 8 * 1024 * 1024;
+    private static final int JOURNAL_MAX_SEGMENTS = 32;
+    private static final int CALLBACK_BATCH_SIZE = 500;
+
+    private volatile MappedJournal callbackJournal;
+
+    /**
+     * job results callback queue, used only when journal not open (before start, open fail, after stop) or record not fit in journal
      */
     private LinkedBlockingQueue<HandleCallbackParam> callBackQueue = new LinkedBlockingQueue<HandleCallbackParam>();
     public static void pushCallBack(HandleCallbackParam callback){
+        byte[] data = null;
+        MappedJournal callbackJournal;
+        while ((callbackJournal = getInstance().callbackJournal) != null) {
+            if (data == null) {
+                data = XxlJobExecutor.getSerializer().serialize(callback);
+            }
+            try {
+                if (callbackJournal.append(data, RegistryConfig.BEAT_TIMEOUT, TimeUnit.SECONDS)) {
+                    logger.debug(">>>>>>>>>>> xxl-job, push callback request, logId:{}", callback.getLogId());
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+
+            // journal full (admin down, callback not commit), block job thread, not grow memory
+            if (!callbackJournal.isFull() || getInstance().toStop) {
+                break;
+            }
+            logger.warn(">>>>>>>>>>> xxl-job, callback journal full, wait callback commit, logId:{}", callback.getLogId());
+        }
+
+        // stopping: spill to fail-callback file, push back into journal after restart
+        if (getInstance().toStop) {
+            List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
+            callbackParamList.add(callback);
+            getInstance().appendFailCallbackFile(callbackParamList);
+            return;
+        }
         getInstance().callBackQueue.add(callback);
-        logger.debug(">>>>>>>>>>> xxl-job, push callback request, logId:{}", callback.getLogId());
+        logger.debug(">>>>>>>>>>> xxl-job, push callback request into memory queue, logId:{}", callback.getLogId());
+    }
+
+    private List<HandleCallbackParam> readCallback(long timeout) throws InterruptedException {
+        List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
+        for (byte[] data: callbackJournal.read(CALLBACK_BATCH_SIZE, timeout, TimeUnit.MILLISECONDS)) {
+            try {
+                callbackParamList.add((HandleCallbackParam) XxlJobExecutor.getSerializer().deserialize(data, HandleCallbackParam.class));
+            } catch (Exception e) {
+                logger.error(">>>>>>>>>>> xxl-job, callback journal record deserialize error, skip it.", e);
+            }
+        }
+        return callbackParamList;
     }
 
     /**
      * callback thread
      */
     private Thread triggerCallbackThread;
-    private Thread triggerRetryCallbackThread;
     private volatile boolean toStop = false;
     public void start() {
 
@@ -52,28 +103,63 @@ public class TriggerCallbackThread {
             return;
         }
 
+        // open journal, fail (io error, locked by other executor process): callback from memory queue
+        MappedJournal mappedJournal = new MappedJournal(new File(callbackJournalPath), JOURNAL_SEGMENT_SIZE, JOURNAL_MAX_SEGMENTS);
+        try {
+            mappedJournal.open();
+            callbackJournal = mappedJournal;
+        } catch (Exception e) {
+            mappedJournal.close();
+            logger.error(">>>>>>>>>>> xxl-job, executor callback journal open fail, use memory queue.", e);
+        }
+
         // callback
         triggerCallbackThread = new Thread(new Runnable() {
 
             @Override
             public void run() {
 
+                // fail-callback file of old version (or spilled when stopping), push back once
+                try {
+                    retryFailCallbackFile();
+                } catch (Exception e) {
+                    logger.error(e.getMessage(), e);
+                }
+
                 // normal callback
+                int failTimes = 0;
                 while(!toStop){
                     try {
-                        HandleCallbackParam callback = getInstance().callBackQueue.take();
-                        if (callback != null) {
-
-                            // callback list param
-                            List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
-                            int drainToNum = getInstance().callBackQueue.drainTo(callbackParamList);
+                        List<HandleCallbackParam> callbackParamList;
+                        if (callbackJournal == null) {
+                            // memory queue only, no journal
+                            HandleCallbackParam callback = getInstance().callBackQueue.take();
+                            callbackParamList = new ArrayList<HandleCallbackParam>();
                             callbackParamList.add(callback);
-
-                            // callback, will retry if error
-                            if (callbackParamList!=null && callbackParamList.size()>0) {
-                                doCallback(callbackParamList);
+                            getInstance().callBackQueue.drainTo(callbackParamList, CALLBACK_BATCH_SIZE - 1);
+                            while (!doCallback(callbackParamList)) {
+                                if (toStop) {
+                                    appendFailCallbackFile(callbackParamList);
+                                    break;
+                                }
+                                backoff(++failTimes);
                             }
+                            failTimes = 0;
+                            continue;
+                        }
+
+                        // pushed before journal open
+                        moveQueueToJournal();
+
+                        // callback, fail: batch stay in journal, rewind and retry after backoff
+                        callbackParamList = readCallback(RegistryConfig.BEAT_TIMEOUT * 1000);
+                        if (callbackParamList.size() > 0 && !doCallback(callbackParamList)) {
+                            callbackJournal.rewind();
+                            backoff(++failTimes);
+                            continue;
                         }
+                        failTimes = 0;
+                        callbackJournal.commit();           // also skip record deserialize fail
                     } catch (Exception e) {
                         if (!toStop) {
                             logger.error(e.getMessage(), e);
@@ -81,12 +167,28 @@ public class TriggerCallbackThread {
                     }
                 }
 
-                // last callback
+                // last callback, not success will callback after restart
+                MappedJournal journal = callbackJournal;
+                if (journal != null) {
+                    try {
+                        journal.rewind();
+                        List<HandleCallbackParam> callbackParamList = readCallback(0);
+                        if (callbackParamList.size()>0 && doCallback(callbackParamList)) {
+                            journal.commit();
+                        }
+                    } catch (Exception e) {
+                        if (!toStop) {
+                            logger.error(e.getMessage(), e);
+                        }
+                    }
+                    callbackJournal = null;
+                    journal.close();
+                }
                 try {
                     List<HandleCallbackParam> callbackParamList = new ArrayList<HandleCallbackParam>();
-                    int drainToNum = getInstance().callBackQueue.drainTo(callbackParamList);
-                    if (callbackParamList!=null && callbackParamList.size()>0) {
-                        doCallback(callbackParamList);
+                    getInstance().callBackQueue.drainTo(callbackParamList);
+                    if (callbackParamList.size()>0 && !doCallback(callbackParamList)) {
+                        appendFailCallbackFile(callbackParamList);
                     }
                 } catch (Exception e) {
                     if (!toStop) {
@@ -101,34 +203,6 @@ public class TriggerCallbackThread {
         triggerCallbackThread.setName("xxl-job, executor TriggerCallbackThread");
         triggerCallbackThread.start();
 
-
-        // retry
-        triggerRetryCallbackThread = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                while(!toStop){
-                    try {
-                        retryFailCallbackFile();
-                    } catch (Exception e) {
-                        if (!toStop) {
-                            logger.error(e.getMessage(), e);
-                        }
-
-                    }
-                    try {
-                        TimeUnit.SECONDS.sleep(RegistryConfig.BEAT_TIMEOUT);
-                    } catch (InterruptedException e) {
-                        if (!toStop) {
-                            logger.error(e.getMessage(), e);
-                        }
-                    }
-                }
-                logger.info(">>>>>>>>>>> xxl-job, executor retry callback thread destory.");
-            }
-        });
-        triggerRetryCallbackThread.setDaemon(true);
-        triggerRetryCallbackThread.start();
-
     }
     public void toStop(){
         toStop = true;
@@ -142,23 +216,48 @@ public class TriggerCallbackThread {
             }
         }
 
-        // stop retry, interrupt and wait
-        if (triggerRetryCallbackThread != null) {
-            triggerRetryCallbackThread.interrupt();
-            try {
-                triggerRetryCallbackThread.join();
-            } catch (InterruptedException e) {
+    }
+
+    /**
+     * callback fail backoff, 1s, 2s, 4s ... up to beat timeout
+     */
+    private void backoff(int failTimes) {
+        long sleepSeconds = Math.min(RegistryConfig.BEAT_TIMEOUT, 1L << Math.min(failTimes - 1, 5));
+        try {
+            TimeUnit.SECONDS.sleep(sleepSeconds);
+        } catch (InterruptedException e) {
+            if (!toStop) {
                 logger.error(e.getMessage(), e);
             }
         }
+    }
 
+    /**
+     * memory queue (pushed before journal open) into journal, journal full: stay in queue, record not fit: callback directly
+     */
+    private void moveQueueToJournal() {
+        if (getInstance().callBackQueue.isEmpty()) {
+            return;
+        }
+        List<HandleCallbackParam> queueParamList = new ArrayList<HandleCallbackParam>();
+        getInstance().callBackQueue.drainTo(queueParamList);
+        for (int i = 0; i < queueParamList.size(); i++) {
+            if (!callbackJournal.append(XxlJobExecutor.getSerializer().serialize(queueParamList.get(i)))) {
+                List<HandleCallbackParam> restParamList = new ArrayList<HandleCallbackParam>(queueParamList.subList(i, queueParamList.size()));
+                if (callbackJournal.isFull() || !doCallback(restParamList)) {
+                    getInstance().callBackQueue.addAll(restParamList);
+                }
+                return;
+            }
+        }
     }
 
     /**
-     * do callback, will retry if error
+     * do callback
      * @param callbackParamList
+     * @return  success or not, fail callback stay in journal and retry
      */
-    private void doCallback(List<HandleCallbackParam> callbackParamList){
+    private boolean doCallback(List<HandleCallbackParam> callbackParamList){
         boolean callbackRet = false;
         // callback, will retry if error
         for (AdminBiz adminBiz: XxlJobExecutor.getAdminBizList()) {
@@ -175,9 +274,7 @@ public class TriggerCallbackThread {
                 callbackLog(callbackParamList, "<br>----------- xxl-job job callback error, errorMsg:" + e.getMessage());
             }
         }
-        if (!callbackRet) {
-            appendFailCallbackFile(callbackParamList);
-        }
+        return callbackRet;
     }
 
     /**
@@ -192,7 +289,12 @@ public class TriggerCallbackThread {
     }
 
 
-    // ---------------------- fail-callback file ----------------------
+    // ---------------------- callback journal ----------------------
+
+    private static String callbackJournalPath = XxlJobFileAppender.getLogPath().concat(File.separator).concat("callbackjournal");
+
+
+    // ---------------------- fail-callback file (old version fail callback, or spilled when stopping; push back once at start) ----------------------
 
     private static String failCallbackFilePath = XxlJobFileAppender.getLogPath().concat(File.separator).concat("callbacklog").concat(File.separator);
     private static String failCallbackFileName = failCallbackFilePath.concat("xxl-job-callback-{x}").concat(".log");
@@ -232,13 +334,17 @@ public class TriggerCallbackThread {
             return;
         }
 
-        // load and clear file, retry
+        // load and clear file, into journal (not wait, this is the journal consumer), not fit: memory queue, move into journal later
         for (File callbaclLogFile: callbackLogPath.listFiles()) {
             byte[] callbackParamList_bytes = FileUtil.readFileContent(callbaclLogFile);
             List<HandleCallbackParam> callbackParamList = (List<HandleCallbackParam>) XxlJobExecutor.getSerializer().deserialize(callbackParamList_bytes, HandleCallbackParam.class);
 
             callbaclLogFile.delete();
-            doCallback(callbackParamList);
+            for (HandleCallbackParam callbackParam: callbackParamList) {
+                if (callbackJournal == null || !callbackJournal.append(XxlJobExecutor.getSerializer().serialize(callbackParam))) {
+                    callBackQueue.add(callbackParam);
+                }
+            }
         }
 
     }
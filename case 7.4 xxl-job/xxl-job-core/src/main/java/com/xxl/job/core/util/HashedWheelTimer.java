@@ -0,0 +1,169 @@
+package com.xxl.job.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * hashed wheel timer, one thread for all timeout (job execute timeout, idle check)
+ *
+ *      1、newTimeout: put into pending queue, no lock;
+ *      2、timer thread each tick: move pending into bucket "deadline tick % wheelSize" with remaining rounds, expire current bucket;
+ *      3、cancel: mark only, removed when its bucket is visited;
+ *
+ * task runs on timer thread, should be short (submit real work to other thread).
+ */
+public class HashedWheelTimer {
+    private static Logger logger = LoggerFactory.getLogger(HashedWheelTimer.class);
+
+    public static class Timeout {
+        private final Runnable task;
+        private final long deadline;
+        private long remainingRounds;
+        private volatile boolean cancelled = false;
+
+        Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        public void cancel() {
+            cancelled = true;
+        }
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private final String name;
+    private final long tickDuration;
+    private final List<Timeout>[] wheel;
+    private final int mask;
+    private final ConcurrentLinkedQueue<Timeout> pendingTimeouts = new ConcurrentLinkedQueue<Timeout>();
+
+    private Thread timerThread;
+    private volatile boolean toStop = false;
+    private volatile long startTime;
+    private long tick;
+
+    /**
+     * @param name
+     * @param tickDuration  ms
+     * @param wheelSize     round up to power of 2
+     */
+    @SuppressWarnings("unchecked")
+    public HashedWheelTimer(String name, long tickDuration, int wheelSize) {
+        int size = 1;
+        while (size < wheelSize) {
+            size <<= 1;
+        }
+        this.name = name;
+        this.tickDuration = Math.max(tickDuration, 1);
+        this.wheel = new List[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new ArrayList<Timeout>();
+        }
+        this.mask = size - 1;
+    }
+
+    /**
+     * run task after delay
+     *
+     * @param task
+     * @param delay
+     * @param unit
+     * @return
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        Timeout timeout = new Timeout(task, System.currentTimeMillis() + unit.toMillis(delay));
+        pendingTimeouts.add(timeout);
+        return timeout;
+    }
+
+    public void start() {
+        startTime = System.currentTimeMillis();
+        timerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!toStop) {
+                    // wait next tick
+                    long sleepTime = startTime + (tick + 1) * tickDuration - System.currentTimeMillis();
+                    if (sleepTime > 0) {
+                        try {
+                            TimeUnit.MILLISECONDS.sleep(sleepTime);
+                        } catch (InterruptedException e) {
+                            if (!toStop) {
+                                logger.error(e.getMessage(), e);
+                            }
+                            continue;
+                        }
+                    }
+
+                    transferPending();
+                    expire(wheel[(int) (tick & mask)]);
+                    tick++;
+                }
+                logger.info(">>>>>>>>>>> xxl-job, {} timer thread stop", name);
+            }
+        });
+        timerThread.setDaemon(true);
+        timerThread.setName("xxl-job, " + name);
+        timerThread.start();
+    }
+
+    public void toStop() {
+        toStop = true;
+        if (timerThread == null) {
+            return;
+        }
+        // interrupt and wait
+        timerThread.interrupt();
+        try {
+            timerThread.join();
+        } catch (InterruptedException e) {
+            logger.error(e.getMessage(), e);
+        }
+        pendingTimeouts.clear();
+        for (List<Timeout> bucket: wheel) {
+            bucket.clear();
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pendingTimeouts.poll()) != null) {
+            if (timeout.cancelled) {
+                continue;
+            }
+            // not before current tick, expired one run in this tick
+            long deadlineTick = Math.max((timeout.deadline - startTime + tickDuration - 1) / tickDuration, tick);
+            timeout.remainingRounds = (deadlineTick - tick) / wheel.length;
+            wheel[(int) (deadlineTick & mask)].add(timeout);
+        }
+    }
+
+    private void expire(List<Timeout> bucket) {
+        Iterator<Timeout> iterator = bucket.iterator();
+        while (iterator.hasNext()) {
+            Timeout timeout = iterator.next();
+            if (timeout.cancelled) {
+                iterator.remove();
+            } else if (timeout.remainingRounds <= 0) {
+                iterator.remove();
+                try {
+                    timeout.task.run();
+                } catch (Throwable e) {
+                    logger.error(e.getMessage(), e);
+                }
+            } else {
+                timeout.remainingRounds--;
+            }
+        }
+    }
+
+}
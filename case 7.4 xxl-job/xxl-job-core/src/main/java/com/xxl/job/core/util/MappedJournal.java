@@ -0,0 +1,446 @@
+package com.xxl.job.core.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * bounded append-only journal, memory-mapped segment files + persistent consumer offset (single consumer)
+ *
+ *      segment:    "{segmentId}.journal", fixed size, record = [int length][int crc][data], length 0 = not written, -1 = segment end
+ *      offset:     "consumer.offset", [long segmentId][long position] of the first not committed record
+ *
+ *      1、append: write record to the last segment, roll a new segment when full;
+ *      2、read: consumer reads from read cursor, "commit" persists cursor as offset, "rewind" goes back to offset (retry);
+ *      3、bounded: when segment count reach max, append return false, or wait until commit free a segment (backpressure);
+ *      4、single process: "journal.lock" file lock held while open, open fail if locked by other process;
+ */
+public class MappedJournal {
+    private static Logger logger = LoggerFactory.getLogger(MappedJournal.class);
+
+    private static final String SEGMENT_SUFFIX = ".journal";
+    private static final String OFFSET_FILE = "consumer.offset";
+    private static final String LOCK_FILE = "journal.lock";
+    private static final int HEADER_SIZE = 8;
+    private static final int END_MARK = -1;
+
+    private final File dir;
+    private final int segmentSize;
+    private final int maxSegments;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private boolean closed = false;
+
+    private final TreeMap<Long, Segment> segments = new TreeMap<Long, Segment>();
+    private Segment writeSegment;
+    private int writePosition;
+
+    private long readSegmentId;             // read cursor
+    private int readPosition;
+    private long offsetSegmentId;           // committed offset
+    private int offsetPosition;
+    private MappedByteBuffer offsetBuffer;
+    private RandomAccessFile offsetFile;
+    private RandomAccessFile lockFile;
+    private FileLock fileLock;
+
+    private final CRC32 crc32 = new CRC32();
+
+    public MappedJournal(File dir, int segmentSize, int maxSegments) {
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        this.maxSegments = Math.max(2, maxSegments);
+    }
+
+    private static class Segment {
+        private final long id;
+        private final File file;
+        private final RandomAccessFile raf;
+        private final MappedByteBuffer buffer;
+
+        Segment(long id, File file, int size) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.raf = new RandomAccessFile(file, "rw");
+            if (raf.length() < size) {
+                raf.setLength(size);
+            }
+            this.buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+
+        void close() {
+            try {
+                raf.close();
+            } catch (IOException e) {
+                logger.error(e.getMessage(), e);
+            }
+        }
+    }
+
+    // ---------------------- open / close ----------------------
+
+    /**
+     * open journal, recover segments, write position and consumer offset
+     *
+     * @throws IOException
+     */
+    public void open() throws IOException {
+        lock.lock();
+        try {
+            if (!dir.exists()) {
+                dir.mkdirs();
+            }
+
+            // 0、lock, one process one journal
+            lockFile = new RandomAccessFile(new File(dir, LOCK_FILE), "rw");
+            try {
+                fileLock = lockFile.getChannel().tryLock();
+            } catch (OverlappingFileLockException e) {
+                fileLock = null;
+            }
+            if (fileLock == null) {
+                lockFile.close();
+                lockFile = null;
+                throw new IOException("journal locked by other process, dir:" + dir.getPath());
+            }
+
+            // 1、segments
+            File[] files = dir.listFiles();
+            if (files != null) {
+                for (File file: files) {
+                    String name = file.getName();
+                    if (!name.endsWith(SEGMENT_SUFFIX)) {
+                        continue;
+                    }
+                    try {
+                        long id = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                        segments.put(id, new Segment(id, file, segmentSize));
+                    } catch (NumberFormatException e) {
+                        logger.warn(">>>>>>>>>>> xxl-job, journal ignore unknown file:{}", file.getPath());
+                    }
+                }
+            }
+            if (segments.isEmpty()) {
+                newSegment(0);
+            }
+
+            // 2、write position, scan the last segment
+            writeSegment = segments.lastEntry().getValue();
+            writePosition = 0;
+            while (true) {
+                byte[] data = readRecord(writeSegment, writePosition);
+                if (data == null) {
+                    break;
+                }
+                writePosition += HEADER_SIZE + data.length;
+            }
+            for (int i = writePosition; i < segmentSize; i++) {       // clear torn tail
+                if (writeSegment.buffer.get(i) != 0) {
+                    writeSegment.buffer.put(i, (byte) 0);
+                }
+            }
+
+            // 3、consumer offset
+            offsetFile = new RandomAccessFile(new File(dir, OFFSET_FILE), "rw");
+            offsetBuffer = offsetFile.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, 16);
+            offsetSegmentId = offsetBuffer.getLong(0);
+            offsetPosition = (int) offsetBuffer.getLong(8);
+            if (!segments.containsKey(offsetSegmentId) || offsetPosition < 0 || offsetPosition > segmentSize) {
+                offsetSegmentId = segments.firstKey();
+                offsetPosition = 0;
+            }
+            saveOffset(offsetSegmentId, offsetPosition);
+            deleteConsumed();
+            rewind();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * force mapped data to disk and release files
+     */
+    public void close() {
+        lock.lock();
+        try {
+            closed = true;
+            notFull.signalAll();
+            for (Segment segment: segments.values()) {
+                segment.buffer.force();
+                segment.close();
+            }
+            segments.clear();
+            if (offsetBuffer != null) {
+                offsetBuffer.force();
+            }
+            if (offsetFile != null) {
+                offsetFile.close();
+            }
+            if (fileLock != null) {
+                fileLock.release();
+            }
+            if (lockFile != null) {
+                lockFile.close();
+            }
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // ---------------------- write ----------------------
+
+    /**
+     * append record, not wait
+     *
+     * @param data
+     * @return false if record too large, journal full, closed or journal io error
+     */
+    public boolean append(byte[] data) {
+        try {
+            return append(data, 0, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * append record, wait while journal full
+     *
+     * @param data
+     * @param timeout
+     * @param unit
+     * @return false if record too large, still full after timeout, closed or journal io error
+     * @throws InterruptedException
+     */
+    public boolean append(byte[] data, long timeout, TimeUnit unit) throws InterruptedException {
+        if (data.length == 0 || HEADER_SIZE + data.length + 4 > segmentSize) {
+            logger.error(">>>>>>>>>>> xxl-job, journal record too large, length:{}", data.length);
+            return false;
+        }
+        long nanos = unit.toNanos(timeout);
+
+        lock.lockInterruptibly();
+        try {
+            // roll segment, full: not drop records not committed, wait commit free a segment
+            while (!closed && writePosition + HEADER_SIZE + data.length + 4 > segmentSize && segments.size() >= maxSegments) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            if (closed) {
+                return false;
+            }
+            if (writePosition + HEADER_SIZE + data.length + 4 > segmentSize) {
+                writeSegment.buffer.putInt(writePosition, END_MARK);
+                newSegment(writeSegment.id + 1);
+                writeSegment = segments.lastEntry().getValue();
+                writePosition = 0;
+            }
+
+            // write data, then length (publish)
+            crc32.reset();
+            crc32.update(data, 0, data.length);
+            MappedByteBuffer buffer = writeSegment.buffer;
+            ByteBuffer dataBuffer = buffer.duplicate();
+            dataBuffer.position(writePosition + HEADER_SIZE);
+            dataBuffer.put(data);
+            buffer.putInt(writePosition + 4, (int) crc32.getValue());
+            buffer.putInt(writePosition, data.length);
+            writePosition += HEADER_SIZE + data.length;
+
+            notEmpty.signal();
+            return true;
+        } catch (IOException e) {
+            logger.error(">>>>>>>>>>> xxl-job, journal append error.", e);
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * segment count reach max, append wait (or fail) until commit
+     */
+    public boolean isFull() {
+        lock.lock();
+        try {
+            return !closed && segments.size() >= maxSegments;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void newSegment(long id) throws IOException {
+        File file = new File(dir, String.format("%020d", id) + SEGMENT_SUFFIX);
+        segments.put(id, new Segment(id, file, segmentSize));
+    }
+
+    // ---------------------- read ----------------------
+
+    /**
+     * read records from read cursor, wait if empty
+     *
+     * @param maxNum
+     * @param timeout
+     * @param unit
+     * @return  empty if timeout
+     * @throws InterruptedException
+     */
+    public List<byte[]> read(int maxNum, long timeout, TimeUnit unit) throws InterruptedException {
+        List<byte[]> records = new ArrayList<byte[]>();
+        long nanos = unit.toNanos(timeout);
+
+        lock.lockInterruptibly();
+        try {
+            while (true) {
+                readTo(records, maxNum);
+                if (!records.isEmpty() || nanos <= 0) {
+                    return records;
+                }
+                nanos = notEmpty.awaitNanos(nanos);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void readTo(List<byte[]> records, int maxNum) {
+        while (records.size() < maxNum) {
+            Segment segment = segments.get(readSegmentId);
+            if (segment == null) {
+                return;
+            }
+            if (segment == writeSegment && readPosition >= writePosition) {
+                return;
+            }
+
+            byte[] data = readRecord(segment, readPosition);
+            if (data == null) {
+                // segment end (or torn record): next segment
+                Long nextId = segments.higherKey(readSegmentId);
+                if (nextId == null) {
+                    return;
+                }
+                readSegmentId = nextId;
+                readPosition = 0;
+                continue;
+            }
+
+            records.add(data);
+            readPosition += HEADER_SIZE + data.length;
+        }
+    }
+
+    /**
+     * record data at position, null if not valid (not written, segment end, crc error)
+     */
+    private byte[] readRecord(Segment segment, int position) {
+        if (position + HEADER_SIZE > segmentSize) {
+            return null;
+        }
+        int length = segment.buffer.getInt(position);
+        if (length <= 0 || position + HEADER_SIZE + length > segmentSize) {
+            return null;
+        }
+
+        byte[] data = new byte[length];
+        ByteBuffer dataBuffer = segment.buffer.duplicate();
+        dataBuffer.position(position + HEADER_SIZE);
+        dataBuffer.get(data);
+
+        crc32.reset();
+        crc32.update(data, 0, length);
+        if ((int) crc32.getValue() != segment.buffer.getInt(position + 4)) {
+            logger.warn(">>>>>>>>>>> xxl-job, journal record crc error, segment:{}, position:{}", segment.file.getPath(), position);
+            return null;
+        }
+        return data;
+    }
+
+    /**
+     * commit read records, persist read cursor as consumer offset
+     */
+    public void commit() {
+        lock.lock();
+        try {
+            saveOffset(readSegmentId, readPosition);
+            deleteConsumed();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * go back to consumer offset, read records not committed again
+     */
+    public void rewind() {
+        lock.lock();
+        try {
+            readSegmentId = offsetSegmentId;
+            readPosition = offsetPosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * records not committed
+     */
+    public boolean isEmpty() {
+        lock.lock();
+        try {
+            return offsetSegmentId == writeSegment.id && offsetPosition >= writePosition;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void saveOffset(long segmentId, int position) {
+        offsetSegmentId = segmentId;
+        offsetPosition = position;
+        offsetBuffer.putLong(0, segmentId);
+        offsetBuffer.putLong(8, position);
+    }
+
+    private void deleteConsumed() {
+        while (true) {
+            Map.Entry<Long, Segment> first = segments.firstEntry();
+            if (first.getKey() >= offsetSegmentId || first.getValue() == writeSegment) {
+                return;
+            }
+            removeSegment(first.getValue());
+        }
+    }
+
+    private void removeSegment(Segment segment) {
+        segments.remove(segment.id);
+        notFull.signalAll();
+        segment.close();
+        if (!segment.file.delete()) {
+            logger.warn(">>>>>>>>>>> xxl-job, journal segment delete fail:{}", segment.file.getPath());
+        }
+    }
+
+}
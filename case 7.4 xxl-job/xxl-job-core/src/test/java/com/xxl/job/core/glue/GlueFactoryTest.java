@@ -0,0 +1,54 @@
+package com.xxl.job.core.glue;
+
+import com.xxl.job.core.handler.IJobHandler;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GlueFactoryTest {
+
+    private static String glueSource(int version) {
+        return "import com.xxl.job.core.biz.model.ReturnT;\n" +
+                "import com.xxl.job.core.handler.IJobHandler;\n" +
+                "class DemoGlueJobHandler extends IJobHandler {\n" +
+                "    public ReturnT<String> execute(String param) throws Exception {\n" +
+                "        return new ReturnT<String>(200, \"v" + version + "\");\n" +
+                "    }\n" +
+                "}\n";
+    }
+
+    @Test
+    public void cacheBySourceHash() throws Exception {
+        GlueFactory glueFactory = new GlueFactory();
+
+        IJobHandler handler1 = glueFactory.loadNewInstance(glueSource(1));
+        IJobHandler handler2 = glueFactory.loadNewInstance(glueSource(1));
+        Assert.assertNotSame(handler1, handler2);
+        Assert.assertSame(handler1.getClass(), handler2.getClass());
+        Assert.assertEquals(1, glueFactory.getHitCount());
+        Assert.assertEquals(1, glueFactory.getMissCount());
+        Assert.assertEquals(50, glueFactory.getHitRate());
+
+        // edited source, new class of its own class loader
+        IJobHandler handler3 = glueFactory.loadNewInstance(glueSource(2));
+        Assert.assertNotSame(handler1.getClass(), handler3.getClass());
+        Assert.assertNotSame(handler1.getClass().getClassLoader(), handler3.getClass().getClassLoader());
+        Assert.assertEquals("v2", handler3.execute(null).getMsg());
+        Assert.assertEquals(2, glueFactory.getCacheSize());
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        GlueFactory glueFactory = new GlueFactory();
+        for (int i = 0; i < 300; i++) {
+            glueFactory.loadNewInstance(glueSource(i));
+        }
+        Assert.assertEquals(256, glueFactory.getCacheSize());
+
+        // newest kept, eldest evicted
+        glueFactory.loadNewInstance(glueSource(299));
+        Assert.assertEquals(1, glueFactory.getHitCount());
+        glueFactory.loadNewInstance(glueSource(0));
+        Assert.assertEquals(301, glueFactory.getMissCount());
+    }
+
+}
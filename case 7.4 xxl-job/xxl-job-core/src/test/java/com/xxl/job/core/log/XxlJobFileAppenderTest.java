@@ -0,0 +1,146 @@
+package com.xxl.job.core.log;
+
+import com.xxl.job.core.biz.model.LogResult;
+import com.xxl.job.core.util.FileUtil;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+public class XxlJobFileAppenderTest {
+
+    private File logDir;
+
+    @Before
+    public void before() {
+        logDir = new File(System.getProperty("java.io.tmpdir"), "xxl-job-log-" + System.nanoTime());
+        logDir.mkdirs();
+        XxlJobLogWriter.getInstance().start();
+    }
+
+    @After
+    public void after() {
+        XxlJobLogWriter.getInstance().toStop();
+        FileUtil.deleteRecursively(logDir);
+    }
+
+    @Test
+    public void asyncAppendAndFlush() {
+        String logFileName = new File(logDir, "1.log").getPath();
+        for (int i = 1; i <= 1000; i++) {
+            XxlJobFileAppender.appendLog(logFileName, "line-" + i);
+        }
+        XxlJobFileAppender.flushLog(logFileName);
+
+        LogResult logResult = XxlJobFileAppender.readLog(logFileName, 1);
+        Assert.assertEquals(1000, logResult.getToLineNum());
+        Assert.assertTrue(logResult.getLogContent().startsWith("line-1\n"));
+        Assert.assertTrue(logResult.getLogContent().endsWith("line-1000\n"));
+
+        logResult = XxlJobFileAppender.readLog(logFileName, 999);
+        Assert.assertEquals("line-999\nline-1000\n", logResult.getLogContent());
+    }
+
+    @Test
+    public void asyncAppendInterrupted() {
+        String logFileName = new File(logDir, "4.log").getPath();
+
+        // killed job thread: log after interrupt still async and in order, interrupt status kept
+        for (int i = 1; i <= 20000; i++) {
+            if (i == 100) {
+                Thread.currentThread().interrupt();
+            }
+            XxlJobFileAppender.appendLog(logFileName, "line-" + i);
+        }
+        XxlJobFileAppender.flushLog(logFileName);
+        Assert.assertTrue(Thread.interrupted());
+
+        LogResult logResult = XxlJobFileAppender.readLog(logFileName, 19999);
+        Assert.assertEquals(20000, logResult.getToLineNum());
+        Assert.assertEquals("line-19999\nline-20000\n", logResult.getLogContent());
+        for (int fromLineNum : new int[]{1, 8192, 8193, 15000}) {
+            Assert.assertTrue(XxlJobFileAppender.readLog(logFileName, fromLineNum).getLogContent().startsWith("line-" + fromLineNum + "\n"));
+        }
+    }
+
+    @Test
+    public void asyncAppendWhileStop() throws Exception {
+        // lines appended concurrent with writer stop: written async or direct, none dropped
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final String logFileName = new File(logDir, "5-" + t + ".log").getPath();
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 1; i <= 5000; i++) {
+                        XxlJobFileAppender.appendLog(logFileName, "line-" + i);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        Thread.sleep(5);
+        XxlJobLogWriter.getInstance().toStop();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        for (int t = 0; t < threads.length; t++) {
+            LogResult logResult = XxlJobFileAppender.readLog(new File(logDir, "5-" + t + ".log").getPath(), 4999);
+            Assert.assertEquals(5000, logResult.getToLineNum());
+            Assert.assertEquals("line-4999\nline-5000\n", logResult.getLogContent());
+        }
+    }
+
+    @Test
+    public void readLogByIndex() throws Exception {
+        File logFile = new File(logDir, "3.log");
+        FileOutputStream fos = new FileOutputStream(logFile);
+        for (int i = 1; i <= 5500; i++) {
+            fos.write(("line-" + i + "\r\n").getBytes("utf-8"));
+        }
+        fos.close();
+
+        // first read build index
+        LogResult logResult = XxlJobFileAppender.readLog(logFile.getPath(), 5499);
+        Assert.assertEquals(5500, logResult.getToLineNum());
+        Assert.assertEquals("line-5499\nline-5500\n", logResult.getLogContent());
+        Assert.assertEquals(6 * 8, new File(logFile.getPath() + ".idx").length());
+
+        // read by index
+        for (int fromLineNum : new int[]{1, 999, 1000, 1001, 2001, 4999, 5001}) {
+            logResult = XxlJobFileAppender.readLog(logFile.getPath(), fromLineNum);
+            Assert.assertEquals(5500, logResult.getToLineNum());
+            Assert.assertTrue(logResult.getLogContent().startsWith("line-" + fromLineNum + "\n"));
+        }
+
+        // beyond end
+        logResult = XxlJobFileAppender.readLog(logFile.getPath(), 5501);
+        Assert.assertEquals(5500, logResult.getToLineNum());
+        Assert.assertEquals("", logResult.getLogContent());
+    }
+
+    @Test
+    public void readLogSkipIncompleteLine() throws Exception {
+        File logFile = new File(logDir, "2.log");
+        FileOutputStream fos = new FileOutputStream(logFile);
+        fos.write("line-1\r\nline-2\r\nline-3-writ".getBytes("utf-8"));
+        fos.close();
+
+        LogResult logResult = XxlJobFileAppender.readLog(logFile.getPath(), 1);
+        Assert.assertEquals(2, logResult.getToLineNum());
+        Assert.assertEquals("line-1\nline-2\n", logResult.getLogContent());
+
+        // line complete, read from next line
+        fos = new FileOutputStream(logFile, true);
+        fos.write("ing\r\n".getBytes("utf-8"));
+        fos.close();
+        logResult = XxlJobFileAppender.readLog(logFile.getPath(), logResult.getToLineNum() + 1);
+        Assert.assertEquals(3, logResult.getToLineNum());
+        Assert.assertEquals("line-3-writing\n", logResult.getLogContent());
+    }
+
+}
@@ -0,0 +1,182 @@
+package com.xxl.job.core.thread;
+
+import com.xxl.job.core.biz.model.ReturnT;
+import com.xxl.job.core.biz.model.TriggerParam;
+import com.xxl.job.core.handler.IJobHandler;
+import com.xxl.job.core.log.XxlJobFileAppender;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JobThreadTest {
+
+    private static final AtomicInteger logId = new AtomicInteger(0);
+
+    @Before
+    public void before() {
+        XxlJobFileAppender.initLogPath(new File(System.getProperty("java.io.tmpdir"), "xxl-job-jobthread").getPath());
+        JobExecutePool.getInstance().start();
+    }
+
+    @After
+    public void after() {
+        JobExecutePool.getInstance().toStop();
+    }
+
+    private static TriggerParam triggerParam(String param, int executorTimeout) {
+        TriggerParam triggerParam = new TriggerParam();
+        triggerParam.setJobId(1);
+        triggerParam.setExecutorParams(param);
+        triggerParam.setExecutorTimeout(executorTimeout);
+        triggerParam.setLogId(logId.incrementAndGet());
+        triggerParam.setLogDateTim(System.currentTimeMillis());
+        return triggerParam;
+    }
+
+    @Test
+    public void serialExecute() throws Exception {
+        final List<String> executed = Collections.synchronizedList(new ArrayList<String>());
+        final AtomicInteger concurrent = new AtomicInteger(0);
+        final AtomicInteger maxConcurrent = new AtomicInteger(0);
+        final CountDownLatch latch = new CountDownLatch(20);
+        JobThread jobThread = new JobThread(1, new IJobHandler() {
+            @Override
+            public ReturnT<String> execute(String param) throws Exception {
+                int current = concurrent.incrementAndGet();
+                maxConcurrent.set(Math.max(maxConcurrent.get(), current));
+                TimeUnit.MILLISECONDS.sleep(5);
+                executed.add(param);
+                concurrent.decrementAndGet();
+                latch.countDown();
+                return SUCCESS;
+            }
+        });
+
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(ReturnT.SUCCESS_CODE, jobThread.pushTriggerQueue(triggerParam("p" + i, 0)).getCode());
+        }
+        Assert.assertTrue(jobThread.isRunningOrHasQueue());
+        Assert.assertTrue(latch.await(5, TimeUnit.SECONDS));
+
+        Assert.assertEquals(1, maxConcurrent.get());
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("p" + i, executed.get(i));
+        }
+        TimeUnit.MILLISECONDS.sleep(100);
+        Assert.assertFalse(jobThread.isRunningOrHasQueue());
+        jobThread.toStop("test stop");
+    }
+
+    @Test
+    public void timeout() throws Exception {
+        final CountDownLatch interrupted = new CountDownLatch(1);
+        final CountDownLatch nextExecuted = new CountDownLatch(1);
+        JobThread jobThread = new JobThread(1, new IJobHandler() {
+            @Override
+            public ReturnT<String> execute(String param) throws Exception {
+                if ("slow".equals(param)) {
+                    try {
+                        TimeUnit.SECONDS.sleep(30);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                        throw e;
+                    }
+                } else {
+                    nextExecuted.countDown();
+                }
+                return SUCCESS;
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        jobThread.pushTriggerQueue(triggerParam("slow", 1));
+        jobThread.pushTriggerQueue(triggerParam("next", 0));
+
+        // timeout: handler interrupted, next trigger go on
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(nextExecuted.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(System.currentTimeMillis() - start >= 900);
+        jobThread.toStop("test stop");
+    }
+
+    @Test
+    public void killAfterTimeout() throws Exception {
+        final CountDownLatch slowFinished = new CountDownLatch(1);
+        final CountDownLatch nextStarted = new CountDownLatch(1);
+        final CountDownLatch nextInterrupted = new CountDownLatch(1);
+        JobThread jobThread = new JobThread(1, new IJobHandler() {
+            @Override
+            public ReturnT<String> execute(String param) throws Exception {
+                if ("slow".equals(param)) {
+                    try {
+                        TimeUnit.SECONDS.sleep(30);
+                    } catch (InterruptedException e) {
+                        // timeout: finish late, after next execution started
+                        nextStarted.await(5, TimeUnit.SECONDS);
+                        TimeUnit.MILLISECONDS.sleep(100);
+                    }
+                    slowFinished.countDown();
+                } else {
+                    nextStarted.countDown();
+                    try {
+                        TimeUnit.SECONDS.sleep(30);
+                    } catch (InterruptedException e) {
+                        nextInterrupted.countDown();
+                        throw e;
+                    }
+                }
+                return SUCCESS;
+            }
+        });
+
+        jobThread.pushTriggerQueue(triggerParam("slow", 1));
+        jobThread.pushTriggerQueue(triggerParam("next", 0));
+        Assert.assertTrue(nextStarted.await(5, TimeUnit.SECONDS));
+        Assert.assertTrue(slowFinished.await(5, TimeUnit.SECONDS));
+        TimeUnit.MILLISECONDS.sleep(100);
+
+        // timeout execution finished, kill still interrupt next execution
+        jobThread.toStop("test stop");
+        Assert.assertTrue(nextInterrupted.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void stop() throws Exception {
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch destroyed = new CountDownLatch(1);
+        final AtomicInteger executeCount = new AtomicInteger(0);
+        JobThread jobThread = new JobThread(1, new IJobHandler() {
+            @Override
+            public ReturnT<String> execute(String param) throws Exception {
+                executeCount.incrementAndGet();
+                started.countDown();
+                TimeUnit.SECONDS.sleep(30);
+                return SUCCESS;
+            }
+            @Override
+            public void destroy() {
+                destroyed.countDown();
+            }
+        });
+
+        jobThread.pushTriggerQueue(triggerParam("running", 0));
+        jobThread.pushTriggerQueue(triggerParam("queued", 0));
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // kill running, queued one not executed
+        jobThread.toStop("test stop");
+        Assert.assertTrue(destroyed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(1, executeCount.get());
+        Assert.assertFalse(jobThread.isRunningOrHasQueue());
+    }
+
+}
@@ -0,0 +1,157 @@
+package com.xxl.job.core.util;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+public class MappedJournalTest {
+
+    private File dir;
+
+    @Before
+    public void before() {
+        dir = new File(System.getProperty("java.io.tmpdir"), "xxl-job-journal-" + System.nanoTime());
+    }
+
+    @After
+    public void after() {
+        FileUtil.deleteRecursively(dir);
+    }
+
+    @Test
+    public void commitAndRecover() throws Exception {
+        MappedJournal journal = new MappedJournal(dir, 1024, 8);
+        journal.open();
+        for (int i = 0; i < 100; i++) {
+            Assert.assertTrue(journal.append(("callback-" + i).getBytes("UTF-8")));
+        }
+
+        // read + commit 30
+        List<byte[]> records = journal.read(30, 0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(30, records.size());
+        Assert.assertEquals("callback-0", new String(records.get(0), "UTF-8"));
+        journal.commit();
+
+        // read 20, not commit (callback fail)
+        Assert.assertEquals(20, journal.read(20, 0, TimeUnit.MILLISECONDS).size());
+        journal.close();
+
+        // restart: continue from offset, write after last record
+        journal = new MappedJournal(dir, 1024, 8);
+        journal.open();
+        Assert.assertTrue(journal.append("callback-100".getBytes("UTF-8")));
+        records = journal.read(1000, 0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(71, records.size());
+        Assert.assertEquals("callback-30", new String(records.get(0), "UTF-8"));
+        Assert.assertEquals("callback-100", new String(records.get(70), "UTF-8"));
+
+        // rewind: read again
+        journal.rewind();
+        Assert.assertEquals(71, journal.read(1000, 0, TimeUnit.MILLISECONDS).size());
+        journal.commit();
+        Assert.assertTrue(journal.isEmpty());
+        Assert.assertEquals(0, journal.read(10, 10, TimeUnit.MILLISECONDS).size());
+        journal.close();
+    }
+
+    @Test
+    public void bounded() throws Exception {
+        MappedJournal journal = new MappedJournal(dir, 1024, 4);
+        journal.open();
+        byte[] data = new byte[100];
+
+        // 4 segment * 9 record, then full: append fail, records not committed kept
+        for (int i = 0; i < 36; i++) {
+            data[0] = (byte) i;
+            Assert.assertTrue(journal.append(data));
+        }
+        Assert.assertFalse(journal.append(data));
+        List<byte[]> records = journal.read(1000, 0, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(36, records.size());
+        Assert.assertEquals((byte) 0, records.get(0)[0]);
+
+        // commit free consumed segments
+        journal.commit();
+        Assert.assertTrue(journal.append(data));
+        journal.close();
+    }
+
+    @Test
+    public void appendWaitCommit() throws Exception {
+        final MappedJournal journal = new MappedJournal(dir, 1024, 2);
+        journal.open();
+        final byte[] data = new byte[100];
+        for (int i = 0; i < 18; i++) {
+            Assert.assertTrue(journal.append(data));
+        }
+        Assert.assertTrue(journal.isFull());
+        Assert.assertFalse(journal.append(data, 50, TimeUnit.MILLISECONDS));
+
+        // append wait, commit free a segment
+        final AtomicBoolean appended = new AtomicBoolean(false);
+        Thread appender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    appended.set(journal.append(data, 10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    // stop
+                }
+            }
+        });
+        appender.start();
+        Thread.sleep(100);
+        Assert.assertFalse(appended.get());
+        Assert.assertEquals(18, journal.read(1000, 0, TimeUnit.MILLISECONDS).size());
+        journal.commit();
+        appender.join(5000);
+        Assert.assertTrue(appended.get());
+
+        // closed: waiting append return false
+        for (int i = 0; i < 9; i++) {
+            journal.append(data);
+        }
+        appended.set(true);
+        appender = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    appended.set(journal.append(data, 10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    // stop
+                }
+            }
+        });
+        appender.start();
+        Thread.sleep(100);
+        journal.close();
+        appender.join(5000);
+        Assert.assertFalse(appended.get());
+    }
+
+    @Test
+    public void locked() throws Exception {
+        MappedJournal journal = new MappedJournal(dir, 1024, 4);
+        journal.open();
+        try {
+            new MappedJournal(dir, 1024, 4).open();
+            Assert.fail();
+        } catch (IOException e) {
+            // locked
+        }
+        journal.close();
+
+        // lock released on close
+        journal = new MappedJournal(dir, 1024, 4);
+        journal.open();
+        journal.close();
+    }
+
+}
@@ -0,0 +1,306 @@
+package com.gang.ipaddress.demo.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * @Classname IpRegionSearcher
+ * @Description ip2region.db 单例查询 : 首次使用时 mmap 一次 db 文件, 把索引区读进基本类型数组, 之后每次查询只做无分配的二分查找
+ * <p>
+ * db 格式 (ip2region 1.x) :
+ * 1. super block : 首个索引块偏移 (4 字节) + 最后索引块偏移 (4 字节), 小端
+ * 2. 索引区 : 每块 12 字节, 起始 ip (4) + 结束 ip (4) + 数据指针 (低 3 字节偏移, 高 1 字节长度)
+ * 3. 数据区 : cityId (4) + 地区字符串 (格式：国家|大区|省份|城市|运营商)
+ */
+public class IpRegionSearcher {
+
+    private static Logger logger = LoggerFactory.getLogger(IpRegionSearcher.class);
+
+    private static final String DB_RESOURCE = "/ip2region.db";
+
+    private static final int INDEX_BLOCK_LENGTH = 12;
+
+    /**
+     * 最近查询结果缓存槽数 (2 的幂)
+     */
+    private static final int RECENT_CACHE_SIZE = 4096;
+
+    private static final int CITY_FIELD = 3;
+
+    private static volatile IpRegionSearcher instance;
+
+    /**
+     * db 加载失败 (缺失 / 读取错误) 后不再重试, 只记录一次日志
+     */
+    private static volatile boolean unavailable;
+
+    /**
+     * 首次调用时加载 db
+     *
+     * @return 查询器, db 不可用时为 null
+     */
+    public static IpRegionSearcher getInstance() {
+        IpRegionSearcher searcher = instance;
+        if (searcher != null || unavailable) {
+            return searcher;
+        }
+        synchronized (IpRegionSearcher.class) {
+            if (instance == null && !unavailable) {
+                instance = load();
+                unavailable = instance == null;
+            }
+            return instance;
+        }
+    }
+
+    /**
+     * 起始 / 结束 ip, 已异或 0x80000000, 无符号 ip 可直接按 int 比较
+     */
+    private final int[] startIps;
+
+    private final int[] endIps;
+
+    /**
+     * 每个索引块对应的地区下标 (去重后的 regions / cities)
+     */
+    private final int[] regionIndexes;
+
+    private final String[] regions;
+
+    private final String[] cities;
+
+    /**
+     * 最近结果 : 每槽 (ip << 32 | 索引块下标 + 1), 0 为空槽, 冲突时后来者覆盖
+     */
+    private final AtomicLongArray recent = new AtomicLongArray(RECENT_CACHE_SIZE);
+
+    IpRegionSearcher(ByteBuffer db) {
+        ByteBuffer buffer = db.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        int firstIndexPtr = buffer.getInt(0);
+        int lastIndexPtr = buffer.getInt(4);
+        int blocks = (lastIndexPtr - firstIndexPtr) / INDEX_BLOCK_LENGTH + 1;
+
+        startIps = new int[blocks];
+        endIps = new int[blocks];
+        regionIndexes = new int[blocks];
+
+        // 同一数据指针的地区只解码一次
+        Map<Integer, Integer> regionByDataPtr = new HashMap<>();
+        Map<String, Integer> regionByValue = new HashMap<>();
+        String[] regionValues = new String[16];
+
+        for (int i = 0; i < blocks; i++) {
+            int offset = firstIndexPtr + i * INDEX_BLOCK_LENGTH;
+            startIps[i] = buffer.getInt(offset) ^ Integer.MIN_VALUE;
+            endIps[i] = buffer.getInt(offset + 4) ^ Integer.MIN_VALUE;
+
+            int dataPtr = buffer.getInt(offset + 8);
+            Integer regionIndex = regionByDataPtr.get(dataPtr);
+            if (regionIndex == null) {
+                String region = readRegion(buffer, dataPtr);
+                regionIndex = regionByValue.get(region);
+                if (regionIndex == null) {
+                    regionIndex = regionByValue.size();
+                    regionByValue.put(region, regionIndex);
+                    if (regionIndex == regionValues.length) {
+                        String[] grown = new String[regionValues.length * 2];
+                        System.arraycopy(regionValues, 0, grown, 0, regionValues.length);
+                        regionValues = grown;
+                    }
+                    regionValues[regionIndex] = region;
+                }
+                regionByDataPtr.put(dataPtr, regionIndex);
+            }
+            regionIndexes[i] = regionIndex;
+        }
+
+        regions = new String[regionByValue.size()];
+        cities = new String[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            regions[i] = regionValues[i];
+            cities[i] = field(regions[i], CITY_FIELD);
+        }
+        logger.info("------> ip2region loaded, index blocks :{}, regions :{} <-------", blocks, regions.length);
+    }
+
+    /**
+     * 地区 (格式：国家|大区|省份|城市|运营商)
+     *
+     * @param ip ipv4, 如 59.174.217.84
+     * @return 地区, ip 非法或未收录时为 null
+     */
+    public String lookup(String ip) {
+        int block = search(ip);
+        return block < 0 ? null : regions[regionIndexes[block]];
+    }
+
+    /**
+     * 批量查询地区
+     *
+     * @param ips ipv4 数组
+     * @return 与 ips 一一对应的地区
+     */
+    public String[] lookup(String[] ips) {
+        String[] result = new String[ips.length];
+        for (int i = 0; i < ips.length; i++) {
+            result[i] = lookup(ips[i]);
+        }
+        return result;
+    }
+
+    /**
+     * 城市
+     *
+     * @param ip ipv4
+     * @return 城市, ip 非法或未收录时为 null
+     */
+    public String getCity(String ip) {
+        int block = search(ip);
+        return block < 0 ? null : cities[regionIndexes[block]];
+    }
+
+    private int search(String ip) {
+        long parsed = parseIp(ip);
+        if (parsed < 0) {
+            return -1;
+        }
+        int ipValue = (int) parsed;
+
+        int slot = (ipValue ^ (ipValue >>> 16)) * 0x9E3779B9 >>> 20 & (RECENT_CACHE_SIZE - 1);
+        long cached = recent.get(slot);
+        if (cached != 0 && (int) (cached >>> 32) == ipValue) {
+            return (int) cached - 1;
+        }
+
+        int block = binarySearch(ipValue ^ Integer.MIN_VALUE);
+        if (block >= 0) {
+            recent.lazySet(slot, ((long) ipValue << 32) | (block + 1));
+        }
+        return block;
+    }
+
+    private int binarySearch(int key) {
+        int low = 0;
+        int high = startIps.length - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (key < startIps[mid]) {
+                high = mid - 1;
+            } else if (key > endIps[mid]) {
+                low = mid + 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 解析 ipv4, 不做 split / 不分配对象
+     *
+     * @param ip ipv4
+     * @return 无符号 ip, 非法时 -1
+     */
+    static long parseIp(String ip) {
+        if (ip == null) {
+            return -1;
+        }
+        int length = ip.length();
+        if (length < 7 || length > 15) {
+            return -1;
+        }
+        long result = 0;
+        int part = 0;
+        int digits = 0;
+        int dots = 0;
+        for (int i = 0; i < length; i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                part = part * 10 + (c - '0');
+                if (++digits > 3 || part > 255) {
+                    return -1;
+                }
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                result = result << 8 | part;
+                part = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) {
+            return -1;
+        }
+        return result << 8 | part;
+    }
+
+    private static String readRegion(ByteBuffer buffer, int dataPtr) {
+        int length = (dataPtr >>> 24) & 0xFF;
+        int offset = dataPtr & 0x00FFFFFF;
+        // 跳过 4 字节 cityId
+        byte[] bytes = new byte[length - 4];
+        ByteBuffer data = buffer.duplicate();
+        data.position(offset + 4);
+        data.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static String field(String region, int index) {
+        int from = 0;
+        for (int i = 0; i < index; i++) {
+            from = region.indexOf('|', from) + 1;
+            if (from == 0) {
+                return null;
+            }
+        }
+        int to = region.indexOf('|', from);
+        return to < 0 ? region.substring(from) : region.substring(from, to);
+    }
+
+    private static IpRegionSearcher load() {
+        URL url = IpRegionSearcher.class.getResource(DB_RESOURCE);
+        if (url == null) {
+            logger.error("------> ip2region.db not found in classpath, ip region lookup disabled <-------");
+            return null;
+        }
+        try {
+            if ("file".equals(url.getProtocol())) {
+                File file = new File(URLDecoder.decode(url.getPath(), "utf-8"));
+                try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+                     FileChannel channel = raf.getChannel()) {
+                    // mapping 在 channel 关闭后仍然有效
+                    return new IpRegionSearcher(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+                }
+            }
+            // jar 内资源无法 mmap, 读入内存
+            try (InputStream in = url.openStream()) {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                }
+                return new IpRegionSearcher(ByteBuffer.wrap(out.toByteArray()));
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.error("------> ip2region.db load failed, ip region lookup disabled <-------", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.gang.ipaddress.demo.service;
+
+import org.lionsoul.ip2region.DbConfig;
+import org.lionsoul.ip2region.DbSearcher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.net.URLDecoder;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * @Classname IpRegionSearcherBenchmark
+ * @Description IpRegionSearcher 与 ip2region DbSearcher 单次查询耗时对比, 直接运行 main
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IpRegionSearcherBenchmark {
+
+    private static final int IP_COUNT = 1 << 16;
+
+    private String[] ips;
+
+    private int next;
+
+    private IpRegionSearcher searcher;
+
+    private DbSearcher dbSearcher;
+
+    @Setup
+    public void setup() throws Exception {
+        Random random = new Random(42);
+        ips = new String[IP_COUNT];
+        for (int i = 0; i < IP_COUNT; i++) {
+            ips[i] = random.nextInt(224) + "." + random.nextInt(256) + "." + random.nextInt(256) + "." + random.nextInt(256);
+        }
+        searcher = IpRegionSearcher.getInstance();
+        if (searcher == null) {
+            throw new IllegalStateException("ip2region.db not available");
+        }
+
+        String dbPath = URLDecoder.decode(IpRegionSearcherBenchmark.class.getResource("/ip2region.db").getPath(), "utf-8");
+        dbSearcher = new DbSearcher(new DbConfig(), dbPath);
+    }
+
+    @TearDown
+    public void tearDown() throws Exception {
+        dbSearcher.close();
+    }
+
+    private String nextIp() {
+        return ips[next++ & (IP_COUNT - 1)];
+    }
+
+    @Benchmark
+    public String lookup() {
+        return searcher.lookup(nextIp());
+    }
+
+    @Benchmark
+    public String lookupRecent() {
+        // 同一 ip 反复查询, 命中最近结果缓存
+        return searcher.lookup(ips[0]);
+    }
+
+    @Benchmark
+    public String btreeSearch() throws Exception {
+        return dbSearcher.btreeSearch(nextIp()).getRegion();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(IpRegionSearcherBenchmark.class.getSimpleName())
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,92 @@
+package com.gang.ipaddress.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * @Classname IpRegionSearcherTest
+ * @Description 用内存构造的 ip2region.db 验证 IpRegionSearcher, 不依赖 classpath 下的 db 文件
+ */
+public class IpRegionSearcherTest {
+
+    private static final String WUHAN = "中国|0|湖北省|武汉市|电信";
+
+    private static final String BEIJING = "中国|0|北京|北京市|联通";
+
+    /**
+     * 三个区间 : 1.0.0.0-1.0.0.255 (武汉), 59.174.0.0-59.174.255.255 (武汉, 与前者共用数据块), 200.0.0.0-255.255.255.255 (北京)
+     */
+    private static IpRegionSearcher newSearcher() {
+        byte[] wuhan = WUHAN.getBytes(StandardCharsets.UTF_8);
+        byte[] beijing = BEIJING.getBytes(StandardCharsets.UTF_8);
+
+        int dataStart = 8;
+        int wuhanPtr = dataStart;
+        int beijingPtr = wuhanPtr + 4 + wuhan.length;
+        int firstIndexPtr = beijingPtr + 4 + beijing.length;
+        int lastIndexPtr = firstIndexPtr + 2 * 12;
+
+        ByteBuffer db = ByteBuffer.allocate(lastIndexPtr + 12).order(ByteOrder.LITTLE_ENDIAN);
+        db.putInt(firstIndexPtr).putInt(lastIndexPtr);
+        db.putInt(1).put(wuhan);
+        db.putInt(2).put(beijing);
+        putIndex(db, "1.0.0.0", "1.0.0.255", wuhanPtr, 4 + wuhan.length);
+        putIndex(db, "59.174.0.0", "59.174.255.255", wuhanPtr, 4 + wuhan.length);
+        putIndex(db, "200.0.0.0", "255.255.255.255", beijingPtr, 4 + beijing.length);
+        db.flip();
+        return new IpRegionSearcher(db);
+    }
+
+    private static void putIndex(ByteBuffer db, String startIp, String endIp, int offset, int length) {
+        db.putInt((int) IpRegionSearcher.parseIp(startIp));
+        db.putInt((int) IpRegionSearcher.parseIp(endIp));
+        db.putInt(length << 24 | offset);
+    }
+
+    @Test
+    public void lookup() {
+        IpRegionSearcher searcher = newSearcher();
+        assertEquals(WUHAN, searcher.lookup("1.0.0.0"));
+        assertEquals(WUHAN, searcher.lookup("59.174.217.84"));
+        assertEquals(BEIJING, searcher.lookup("255.255.255.255"));
+        // 第二次命中最近结果缓存
+        assertEquals(WUHAN, searcher.lookup("59.174.217.84"));
+
+        assertNull(searcher.lookup("1.0.1.0"));
+        assertNull(searcher.lookup("199.255.255.255"));
+
+        assertArrayEquals(new String[]{WUHAN, null, BEIJING},
+                searcher.lookup(new String[]{"1.0.0.1", "8.8.8.8", "200.1.2.3"}));
+    }
+
+    @Test
+    public void getCity() {
+        IpRegionSearcher searcher = newSearcher();
+        assertEquals("武汉市", searcher.getCity("59.174.217.84"));
+        assertEquals("北京市", searcher.getCity("220.181.38.148"));
+        assertNull(searcher.getCity("8.8.8.8"));
+        assertNull(searcher.getCity("not an ip"));
+    }
+
+    @Test
+    public void parseIp() {
+        assertEquals(0L, IpRegionSearcher.parseIp("0.0.0.0"));
+        assertEquals(0xFFFFFFFFL, IpRegionSearcher.parseIp("255.255.255.255"));
+        assertEquals(0x3BAED954L, IpRegionSearcher.parseIp("59.174.217.84"));
+
+        assertEquals(-1L, IpRegionSearcher.parseIp(null));
+        assertEquals(-1L, IpRegionSearcher.parseIp(""));
+        assertEquals(-1L, IpRegionSearcher.parseIp("256.0.0.1"));
+        assertEquals(-1L, IpRegionSearcher.parseIp("1.2.3"));
+        assertEquals(-1L, IpRegionSearcher.parseIp("1.2.3.4.5"));
+        assertEquals(-1L, IpRegionSearcher.parseIp("1..2.3"));
+        assertEquals(-1L, IpRegionSearcher.parseIp("1.2.3.a"));
+    }
+}
@@ -1,23 +1,37 @@
 package com.gang.study.spring.fileupload.demo.controller;
 
+import com.gang.study.spring.fileupload.demo.model.File;
 import com.gang.study.spring.fileupload.demo.service.FileService;
+import com.gang.study.spring.fileupload.demo.utils.ChunkStore;
 import com.gang.study.spring.fileupload.demo.utils.SaveFile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
 
-import static com.gang.study.spring.fileupload.demo.utils.IsAllUploaded.Uploaded;
+import java.util.Date;
 
 
 @Controller
 @RequestMapping("/BigFileUpload")
 public class BigFileUploadController extends SaveFile {
+
+    private static Logger logger = LoggerFactory.getLogger(BigFileUploadController.class);
+
     @Autowired
     private FileService fileService;
 
+    /**
+     * 分块上传允许的最大文件大小（字节），预分配 .part 文件前校验
+     */
+    @Value("${upload.max-file-size:10737418240}")
+    private long maxFileSize;
+
     /**
      * 转向操作页面
      *
@@ -68,24 +82,30 @@ public class BigFileUploadController extends SaveFile {
                              String name,
                              String type,
                              String lastModifiedDate,
-                             int size,
+                             long size,
                              MultipartFile file) {
         String fileName;
         try {
             int index;
             String uploadFolderPath = getRealPath();
 
-            String mergePath = uploadFolderPath + guid + "/";
             String ext = name.substring(name.lastIndexOf("."));
 
             //判断文件是否分块
             if (chunks != null && chunk != null) {
                 index = Integer.parseInt(chunk);
-                fileName = String.valueOf(index) + ext;
-                // 将文件分块保存到临时文件夹里，便于之后的合并文件
-                saveFile(mergePath, fileName, file);
-                // 验证所有分块是否上传成功，成功的话进行合并
-                Uploaded(md5value, guid, chunk, chunks, uploadFolderPath, fileName, ext, fileService);
+                // 分块直接写入预分配文件的对应位置，所有分块到齐即为完整文件，不需要合并
+                ChunkStore.CompletedFile completed =
+                        ChunkStore.saveChunk(uploadFolderPath, guid, ext, size, maxFileSize, Integer.parseInt(chunks), index, file);
+                if (completed != null) {
+                    // 保存服务端随分块计算的 MD5，秒传索引只认真实内容；与客户端不一致时丢弃文件，由客户端重传
+                    if (md5value != null && !md5value.equalsIgnoreCase(completed.getMd5())) {
+                        logger.warn("------> md5 mismatch, client :{}, server :{} <-------", md5value, completed.getMd5());
+                        ChunkStore.discard(guid, completed);
+                        return "{\"error\":true}";
+                    }
+                    fileService.save(new File(guid + ext, completed.getMd5(), new Date()));
+                }
             } else {
                 fileName = guid + ext;
                 //上传文件没有分块的话就直接保存
@@ -1,13 +1,11 @@
 package com.gang.study.spring.fileupload.demo.controller;
 
 import com.gang.study.spring.fileupload.demo.model.DownloadRecord;
+import com.gang.study.spring.fileupload.demo.service.FileDownloadService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.core.io.ResourceLoader;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpStatus;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -24,8 +22,6 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
 import java.sql.Timestamp;
 
 /**
@@ -45,60 +41,29 @@ public class FileDownLoadController {
     @Autowired
     ResourceLoader resourceLoader;
 
+    @Autowired
+    FileDownloadService fileDownloadService;
+
+    /**
+     * 支持 Range 断点续传及 ETag / Last-Modified 缓存校验，文件内容不读入内存
+     */
     @GetMapping("/getOne")
-    public ResponseEntity<byte[]> download(HttpServletRequest request) throws IOException {
+    public void download(HttpServletRequest request, HttpServletResponse response) throws IOException {
         File resource = resourceLoader.getResource("classpath:download/test.txt").getFile();
-        byte[] body = null;
-        InputStream is = new FileInputStream(resource);
-        body = new byte[is.available()];
-        is.read(body);
-        HttpHeaders headers = new HttpHeaders();
-        headers.add("Content-Disposition", "attchement;filename=" + resource.getName());
-        HttpStatus statusCode = HttpStatus.OK;
-        ResponseEntity<byte[]> entity = new ResponseEntity<byte[]>(body, headers, statusCode);
-        return entity;
+        fileDownloadService.download(resource, request, response);
     }
 
     @GetMapping("/getTwo")
     public void getTwo(HttpServletRequest request, HttpServletResponse response) {
         try {
             File resource = resourceLoader.getResource("classpath:download/test.txt").getFile();
-            download(resource.getName(), resource.getPath(), response);
+            fileDownloadService.download(resource, request, response);
         } catch (Exception e) {
             logger.error("E----> error :{} -- content :{}", e.getClass(), e.getMessage());
         }
 
     }
 
-    public static void download(String fileName, String filePath, HttpServletResponse response)
-            throws Exception {
-        //声明本次下载状态的记录对象
-        //设置响应头和客户端保存文件名
-        response.setCharacterEncoding("utf-8");
-        response.setContentType("multipart/form-data");
-        response.setHeader("Content-Disposition", "attachment;fileName=" + fileName);
-        //用于记录以完成的下载的数据量，单位是byte
-        try {
-            //打开本地文件流
-            InputStream inputStream = new FileInputStream(filePath);
-            //激活下载操作
-            OutputStream os = response.getOutputStream();
-
-            //循环写入输出流
-            byte[] b = new byte[2048];
-            int length;
-            while ((length = inputStream.read(b)) > 0) {
-                os.write(b, 0, length);
-            }
-            // 这里主要关闭。
-            os.close();
-            inputStream.close();
-        } catch (Exception e) {
-            throw e;
-        }
-    }
-
-
     /**
      * 方案三 : Response 实现下载
      */
@@ -111,7 +76,7 @@ public class FileDownLoadController {
             HttpServletRequest request =
                     ((ServletRequestAttributes) RequestContextHolder.getRequestAttributes()).getRequest();
             File resource = resourceLoader.getResource("classpath:download/test.txt").getFile();
-            download(resource.getName(), resource.getPath(), response);
+            fileDownloadService.download(resource, request, response);
         } catch (Exception e) {
             logger.error("E----> error :{} -- content :{}", e.getClass(), e.getMessage());
         }
@@ -2,15 +2,27 @@ package com.gang.study.spring.fileupload.demo.dao;
 
 
 import com.gang.study.spring.fileupload.demo.utils.PageResults;
+import org.springframework.beans.PropertyAccessorFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Primary;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
 
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.ParameterExpression;
 import java.io.Serializable;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 /**
@@ -29,6 +41,17 @@ public class BaseDao<T> {
     @PersistenceContext
     private EntityManager entityManager;
 
+    /**
+     * 批量写入时每多少条 flush + clear 一次，与 hibernate.jdbc.batch_size 一致，每次 flush 正好是一个 JDBC batch
+     */
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:50}")
+    private int batchSize;
+
+    /**
+     * 流式读取时每次查询的条数
+     */
+    private static final int STREAM_PAGE_SIZE = 1000;
+
 
     /**
      * 这个实体是否存在在数据库
@@ -64,8 +87,32 @@ public class BaseDao<T> {
      * @param modelList 需要增加的对象的集合
      *                  失败会抛异常
      */
+    @Transactional(timeout = TransactionDefinition.TIMEOUT_DEFAULT)
     public void saveAll(final List<T> modelList) {
-        modelList.stream().forEach(entityManager::persist);
+        saveAll(modelList, batchSize);
+    }
+
+    /**
+     * 批量保存对象，每 batchSize 条 flush 并清空持久化上下文，
+     * 配合 hibernate.jdbc.batch_size 以 JDBC batch 写入，内存不随总数增长。
+     * 耗时随总数增长，不使用类上 5 秒的事务超时
+     *
+     * @param models    需要增加的对象
+     * @param batchSize 每批条数
+     *                  失败会抛异常
+     */
+    @Transactional(timeout = TransactionDefinition.TIMEOUT_DEFAULT)
+    public void saveAll(final Iterable<T> models, final int batchSize) {
+        int count = 0;
+        for (T model : models) {
+            entityManager.persist(model);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
     }
 
     /**
@@ -115,8 +162,30 @@ public class BaseDao<T> {
      * @param modelList 需要更新或保存的对象
      *                  失败会抛出异常
      */
+    @Transactional(timeout = TransactionDefinition.TIMEOUT_DEFAULT)
     public void saveOrUpdateAll(final List<T> modelList) {
-        modelList.stream().forEach(entityManager::merge);
+        saveOrUpdateAll(modelList, batchSize);
+    }
+
+    /**
+     * 批量更新或保存对象，每 batchSize 条 flush 并清空持久化上下文，不使用类上 5 秒的事务超时
+     *
+     * @param models    需要更新或保存的对象
+     * @param batchSize 每批条数
+     *                  失败会抛出异常
+     */
+    @Transactional(timeout = TransactionDefinition.TIMEOUT_DEFAULT)
+    public void saveOrUpdateAll(final Iterable<T> models, final int batchSize) {
+        int count = 0;
+        for (T model : models) {
+            entityManager.merge(model);
+            if (++count % batchSize == 0) {
+                entityManager.flush();
+                entityManager.clear();
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
     }
 
     /**
@@ -166,6 +235,94 @@ public class BaseDao<T> {
                 .getResultList();
     }
 
+    /**
+     * 键集（seek）分页：取键属性大于 lastKey 的下一页，按键属性升序。
+     * 不用 offset，翻到多深每页都是一次索引范围扫描。
+     * 在 query 的副本上加键条件，同一个 query 可以用来取每一页
+     *
+     * @param query       封装的查询条件
+     * @param keyProperty 键属性名，需唯一且有索引，如主键
+     * @param lastKey     上一页最后一条的键值，第一页传 null
+     * @param pageSize    每页数量
+     * @return 查询结果
+     */
+    @Transactional(readOnly = true)
+    public List<T> getListByKeyset(final Query query,
+                                   final String keyProperty,
+                                   final Comparable lastKey,
+                                   final int pageSize)
+            throws Exception {
+        return ((Query) query.deepClone())
+                .whereAfter(keyProperty, lastKey)
+                .createTypedQuery()
+                .setMaxResults(pageSize)
+                .getResultList();
+    }
+
+    /**
+     * 按键集分页逐页读取，返回惰性的 Stream：同一时刻只持有一页数据，
+     * 每页读完即从持久化上下文中分离，适合百万级导出
+     *
+     * @param query       封装的查询条件
+     * @param keyProperty 键属性名，需唯一且有索引，如主键
+     * @return 实体流
+     */
+    public Stream<T> stream(final Query query, final String keyProperty) throws Exception {
+        return stream(query, keyProperty, STREAM_PAGE_SIZE);
+    }
+
+    /**
+     * 按键集分页逐页读取，返回惰性的 Stream。
+     * 查询在消费时才执行，需要同一个持久化上下文时由调用方在事务内消费；不修改传入的 query
+     *
+     * @param query       封装的查询条件
+     * @param keyProperty 键属性名，需唯一且有索引，如主键
+     * @param pageSize    每次查询的条数
+     * @return 实体流
+     */
+    public Stream<T> stream(final Query query, final String keyProperty, final int pageSize) throws Exception {
+        // 第一页与之后的页各组装一次查询条件，之后每页只重新绑定上一页最后的键值
+        Query firstQuery = (Query) query.deepClone();
+        firstQuery.setOrder(keyProperty, "asc");
+        CriteriaQuery<T> firstCriteria = firstQuery.createCriteriaQuery();
+
+        Query nextQuery = (Query) query.deepClone();
+        ParameterExpression<Comparable> lastKey =
+                nextQuery.createParameter(nextQuery.getFrom().get(keyProperty).getJavaType());
+        nextQuery.whereAfter(keyProperty, lastKey);
+        CriteriaQuery<T> nextCriteria = nextQuery.createCriteriaQuery();
+
+        Spliterator<T> pages = new Spliterators.AbstractSpliterator<T>(Long.MAX_VALUE, Spliterator.ORDERED | Spliterator.NONNULL) {
+            private Iterator<T> page = Collections.emptyIterator();
+            private Comparable key;
+            private boolean last;
+
+            @Override
+            public boolean tryAdvance(final Consumer<? super T> action) {
+                if (!page.hasNext()) {
+                    if (last) {
+                        return false;
+                    }
+                    TypedQuery<T> typedQuery = key == null
+                            ? firstQuery.createTypedQuery(firstCriteria)
+                            : nextQuery.createTypedQuery(nextCriteria).setParameter(lastKey, key);
+                    List<T> list = typedQuery.setMaxResults(pageSize).getResultList();
+                    last = list.size() < pageSize;
+                    if (list.isEmpty()) {
+                        return false;
+                    }
+                    list.forEach(entityManager::detach);
+                    key = (Comparable) PropertyAccessorFactory.forBeanPropertyAccess(list.get(list.size() - 1))
+                            .getPropertyValue(keyProperty);
+                    page = list.iterator();
+                }
+                action.accept(page.next());
+                return true;
+            }
+        };
+        return StreamSupport.stream(pages, false);
+    }
+
     /**
      * 按条件分页
      *
@@ -146,7 +146,18 @@ public class Query implements Serializable {
 	 * @return 返回强类型查询的实例
 	 */
 	public TypedQuery createTypedQuery() {
-		TypedQuery typedQuery = entityManager.createQuery(this.createCriteriaQuery());
+		return createTypedQuery(this.createCriteriaQuery());
+	}
+
+	/**
+	 * 用已组装好的查询条件创建强类型查询，并自动注入参数，不再重新组装 CriteriaQuery。
+	 * 同一个查询要执行多次时（如逐页读取）先调用一次 createCriteriaQuery，之后每次用这个方法
+	 *
+	 * @param criteriaQuery 本实例 createCriteriaQuery 的返回值
+	 * @return 返回强类型查询的实例
+	 */
+	public TypedQuery createTypedQuery( CriteriaQuery criteriaQuery) {
+		TypedQuery typedQuery = entityManager.createQuery(criteriaQuery);
 		if (parameters != null) {
 			for (ParameterExpression parameter : parameters.keySet()) {
 				typedQuery.setParameter(parameter, parameters.get(parameter));
@@ -539,6 +550,34 @@ public class Query implements Serializable {
 		return this;
 	}
 
+	/**
+	 * 键集（seek）分页：查找属性值大于上一页最后一个值的实体，并按该属性升序。
+	 * 属性需唯一且有索引，每页都是索引范围扫描，耗时与翻到第几页无关
+	 *
+	 * @param propertyName 键属性名，如主键
+	 * @param parameter    参数表达式，每页绑定上一页最后一个值
+	 * @return query实例
+	 */
+	public Query whereAfter( final String propertyName,  final ParameterExpression<? extends Comparable> parameter) {
+		this.predicates.add(criteriaBuilder.greaterThan(from.get(propertyName), parameter));
+		setOrder(propertyName, "asc");
+		return this;
+	}
+
+	/**
+	 * 键集（seek）分页：查找属性值大于上一页最后一个值的实体，并按该属性升序
+	 *
+	 * @param propertyName 键属性名，如主键
+	 * @param value        上一页最后一个值，为 null 时从头开始
+	 * @return query实例
+	 */
+	public Query whereAfter( final String propertyName,  final Comparable value) {
+		if (value != null)
+			this.predicates.add(criteriaBuilder.greaterThan(from.get(propertyName), makeParameter(value)));
+		setOrder(propertyName, "asc");
+		return this;
+	}
+
 	/**
 	 * 或者特定属性名等于特定值的实体
 	 *
@@ -6,10 +6,11 @@ import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import java.util.Date;
 
-@Table
+@Table(indexes = @Index(name = "idx_file_md5", columnList = "MD5"))
 @Entity
 @Cache(usage = CacheConcurrencyStrategy.READ_WRITE)
 public class File {
@@ -9,6 +9,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.io.Serializable;
 import java.lang.reflect.ParameterizedType;
 import java.util.List;
+import java.util.stream.Stream;
 
 /**
  * BaseService作为所有Service的基类，需要使用的话，需要先编写一个继承自此类的类
@@ -44,6 +45,17 @@ class BaseService<T> {
         baseDao.saveAll(modelList);
     }
 
+    /**
+     * 批量保存对象，每 batchSize 条 flush 一次
+     *
+     * @param models    需要增加的对象
+     * @param batchSize 每批条数
+     *                  失败会抛异常
+     */
+    public void saveAll( final Iterable<T> models,  final int batchSize) throws Exception {
+        baseDao.saveAll(models, batchSize);
+    }
+
     /**
      * 删除对象
      *
@@ -127,6 +139,34 @@ class BaseService<T> {
         return baseDao.getListByPage(modelClass, currentPageNumber, pageSize);
     }
 
+    /**
+     * 键集（seek）分页
+     *
+     * @param query       封装的查询条件
+     * @param keyProperty 键属性名，需唯一且有索引，如主键
+     * @param lastKey     上一页最后一条的键值，第一页传 null
+     * @param pageSize    每页数量
+     * @return 查询结果
+     */
+    public List<T> getListByKeyset( final Query query,
+                                    final String keyProperty,
+                                    final Comparable lastKey,
+                                    final int pageSize)
+            throws Exception {
+        return baseDao.getListByKeyset(query, keyProperty, lastKey, pageSize);
+    }
+
+    /**
+     * 按键集分页逐页读取的惰性 Stream，用于大批量导出
+     *
+     * @param query       封装的查询条件
+     * @param keyProperty 键属性名，需唯一且有索引，如主键
+     * @return 实体流
+     */
+    public Stream<T> stream( final Query query,  final String keyProperty) throws Exception {
+        return baseDao.stream(query, keyProperty);
+    }
+
     /**
      * 按条件分页
      *
@@ -0,0 +1,296 @@
+package com.gang.study.spring.fileupload.demo.service;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Service;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * @Classname FileDownloadService
+ * @Description 文件下载 : 支持 Range / 多段 Range（断点续传）、ETag / Last-Modified 校验，
+ * 文件内容不进堆内存 : Tomcat 支持 sendfile 时交给容器零拷贝发送，否则用 FileChannel.transferTo 直接写到响应
+ */
+@Service
+public class FileDownloadService {
+
+    /**
+     * Tomcat NIO connector 的 sendfile 请求属性
+     */
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final String DEFAULT_CONTENT_TYPE = "application/octet-stream";
+
+    /**
+     * 多段 Range 最多段数，超过时忽略 Range 返回整个文件
+     */
+    private static final int MAX_RANGES = 16;
+
+    /**
+     * 下载文件
+     *
+     * @param file     本地文件
+     * @param request  request
+     * @param response response
+     * @throws IOException
+     */
+    public void download(final File file,
+                         final HttpServletRequest request,
+                         final HttpServletResponse response)
+            throws IOException {
+        if (!file.isFile()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+
+        long length = file.length();
+        long lastModified = file.lastModified() / 1000 * 1000;
+        String etag = etag(length, lastModified);
+
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+
+        if (isNotModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        String contentType = request.getServletContext().getMimeType(file.getName());
+        if (contentType == null) {
+            contentType = DEFAULT_CONTENT_TYPE;
+        }
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment;filename=" + file.getName());
+
+        List<HttpRange> ranges;
+        try {
+            ranges = isRangeApplicable(request, etag, lastModified)
+                    ? HttpRange.parseRanges(request.getHeader(HttpHeaders.RANGE)) : null;
+        } catch (IllegalArgumentException e) {
+            ranges = null;
+        }
+
+        boolean head = "HEAD".equals(request.getMethod());
+
+        // 段数超过 MAX_RANGES 时忽略 Range
+        long[][] regions = null;
+        if (ranges != null && !ranges.isEmpty() && ranges.size() <= MAX_RANGES) {
+            regions = toRegions(ranges, length);
+            if (regions == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.sendError(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            }
+        }
+
+        // 不带 Range，或各段累计超过文件大小 : 整个文件
+        if (regions == null || regions.length == 0) {
+            response.setContentType(contentType);
+            response.setContentLengthLong(length);
+            if (!head) {
+                send(file, 0, length, request, response);
+            }
+            return;
+        }
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+
+        // 单段 Range
+        if (regions.length == 1) {
+            long start = regions[0][0];
+            long end = regions[0][1];
+            response.setContentType(contentType);
+            response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + length);
+            response.setContentLengthLong(end - start + 1);
+            if (!head) {
+                send(file, start, end - start + 1, request, response);
+            }
+            return;
+        }
+
+        // 多段 Range : multipart/byteranges，每段头部之后直接传输文件对应区间
+        String boundary = UUID.randomUUID().toString().replace("-", "");
+        byte[][] partHeaders = new byte[regions.length][];
+        long contentLength = 0;
+        for (int i = 0; i < regions.length; i++) {
+            partHeaders[i] = ("\r\n--" + boundary + "\r\n"
+                    + HttpHeaders.CONTENT_TYPE + ": " + contentType + "\r\n"
+                    + HttpHeaders.CONTENT_RANGE + ": bytes " + regions[i][0] + "-" + regions[i][1] + "/" + length
+                    + "\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+            contentLength += partHeaders[i].length + regions[i][1] - regions[i][0] + 1;
+        }
+        byte[] closing = ("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.ISO_8859_1);
+        contentLength += closing.length;
+
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+        if (head) {
+            return;
+        }
+        ServletOutputStream out = response.getOutputStream();
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel target = Channels.newChannel(out);
+            for (int i = 0; i < regions.length; i++) {
+                out.write(partHeaders[i]);
+                transfer(channel, regions[i][0], regions[i][1] - regions[i][0] + 1, target);
+            }
+            out.write(closing);
+        }
+    }
+
+    /**
+     * Range 转换为按起点排序、重叠 / 相邻已合并的区间 [start, end]，跳过不可满足的段
+     *
+     * @return 区间；没有可满足的段时 null；各段累计超过文件大小时空数组
+     */
+    private static long[][] toRegions(final List<HttpRange> ranges, final long length) {
+        List<long[]> satisfiable = new ArrayList<>(ranges.size());
+        long requested = 0;
+        for (HttpRange range : ranges) {
+            long start;
+            long end;
+            try {
+                start = range.getRangeStart(length);
+                end = range.getRangeEnd(length);
+            } catch (IllegalArgumentException e) {
+                continue;
+            }
+            if (length == 0 || start > end) {
+                continue;
+            }
+            requested += end - start + 1;
+            satisfiable.add(new long[]{start, end});
+        }
+        if (satisfiable.isEmpty()) {
+            return null;
+        }
+        if (requested > length) {
+            return new long[0][];
+        }
+
+        satisfiable.sort(Comparator.comparingLong(region -> region[0]));
+        List<long[]> merged = new ArrayList<>(satisfiable.size());
+        long[] last = null;
+        for (long[] region : satisfiable) {
+            if (last != null && region[0] <= last[1] + 1) {
+                last[1] = Math.max(last[1], region[1]);
+            } else {
+                last = region;
+                merged.add(last);
+            }
+        }
+        return merged.toArray(new long[0][]);
+    }
+
+    /**
+     * 发送文件区间 : 容器支持 sendfile 时由容器零拷贝发送，否则 transferTo 到响应流
+     */
+    private void send(final File file,
+                      final long start,
+                      final long count,
+                      final HttpServletRequest request,
+                      final HttpServletResponse response)
+            throws IOException {
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, file.getAbsolutePath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, start + count);
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            transfer(channel, start, count, Channels.newChannel(response.getOutputStream()));
+        }
+    }
+
+    private static void transfer(final FileChannel channel,
+                                 final long start,
+                                 final long count,
+                                 final WritableByteChannel target)
+            throws IOException {
+        long position = start;
+        long remaining = count;
+        while (remaining > 0) {
+            long transferred = channel.transferTo(position, remaining, target);
+            if (transferred <= 0) {
+                throw new IOException("文件传输中断，剩余 " + remaining + " 字节");
+            }
+            position += transferred;
+            remaining -= transferred;
+        }
+    }
+
+    /**
+     * If-None-Match 优先；没有时再看 If-Modified-Since
+     */
+    private static boolean isNotModified(final HttpServletRequest request,
+                                         final String etag,
+                                         final long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matches(ifNoneMatch, etag);
+        }
+        long ifModifiedSince = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+    }
+
+    /**
+     * If-Range 与当前文件不一致时忽略 Range，返回整个文件
+     */
+    private static boolean isRangeApplicable(final HttpServletRequest request,
+                                             final String etag,
+                                             final long lastModified) {
+        if (request.getHeader(HttpHeaders.RANGE) == null) {
+            return false;
+        }
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+        if (ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+            return ifRange.equals(etag);
+        }
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && date == lastModified;
+    }
+
+    private static boolean matches(final String header, final String etag) {
+        for (String tag : header.split(",")) {
+            tag = tag.trim();
+            if ("*".equals(tag) || tag.equals(etag) || tag.equals("W/" + etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long dateHeader(final HttpServletRequest request, final String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 由文件大小和修改时间生成，不读文件内容
+     */
+    private static String etag(final long length, final long lastModified) {
+        return "\"" + Long.toHexString(length) + "-" + Long.toHexString(lastModified) + "\"";
+    }
+}
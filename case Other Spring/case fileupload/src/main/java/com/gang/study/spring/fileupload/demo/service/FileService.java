@@ -15,14 +15,27 @@ public class FileService extends BaseService<File> {
     private EntityManager entityManager;
 
     public boolean isMd5Exist(String md5) {
+        return findByMd5(md5) != null;
+    }
+
+    /**
+     * 按 MD5 查找已上传的文件（MD5 列有索引，最多取一条），用于秒传
+     *
+     * @param md5 文件 MD5
+     * @return 文件，不存在返回 null
+     */
+    public File findByMd5(String md5) {
+        if (md5 == null || md5.isEmpty()) {
+            return null;
+        }
         Query query = new Query(entityManager);
         @SuppressWarnings("unchecked") List<File> result = query.from(File.class)
                 .select()
-                .whereEqual("MD5", md5)
+                .whereEqual("MD5", md5.toLowerCase())
                 .createTypedQuery()
+                .setMaxResults(1)
                 .getResultList();
 
-        return !result.isEmpty();
-
+        return result.isEmpty() ? null : result.get(0);
     }
 }
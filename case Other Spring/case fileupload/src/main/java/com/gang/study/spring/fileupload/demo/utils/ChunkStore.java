@@ -0,0 +1,371 @@
+package com.gang.study.spring.fileupload.demo.utils;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分块上传：每个分块直接写到预分配文件（guid + ext + ".part"）的对应位置，
+ * 已收到的分块记在位图里，全部到齐后改名即为完整文件，不需要再合并。
+ * <p>
+ * MD5 随分块落盘增量计算：分块可能乱序到达，摘要只向前推进到连续已收到的分块为止，
+ * 每个上传保留自己的摘要状态，暂停/重传的分块不会重复计算，完成时不需要再整体读一遍文件。
+ * 计算摘要时不持有上传的锁：同一上传同一时刻只有一个请求线程在计算，其余分块记下位图后直接返回，
+ * 由正在计算的线程接着推进。
+ * <p>
+ * 已完成的上传记录完成时间，完成后重传 / 重复到达的分块直接丢弃，不会重新建 .part 文件；
+ * 超过 UPLOAD_TTL 没有新分块的上传视为放弃，由 saveChunk 顺带清理（最多每 SWEEP_INTERVAL 一次），删除 .part 文件。
+ */
+public class ChunkStore {
+
+    private static final String PART_SUFFIX = ".part";
+
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * 上传无新分块超过该时长视为放弃；已完成记录同样保留该时长
+     */
+    private static final long UPLOAD_TTL = TimeUnit.HOURS.toMillis(24);
+
+    private static final long SWEEP_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+
+    private final static Map<String, ChunkedUpload> uploads = new ConcurrentHashMap<>();
+
+    /**
+     * 已完成的上传 guid -> 完成时间
+     */
+    private final static Map<String, Long> completedUploads = new ConcurrentHashMap<>();
+
+    private final static AtomicLong nextSweepTime = new AtomicLong();
+
+    private static class ChunkedUpload {
+        private final Path partFile;
+        private final long size;
+        private final int chunks;
+        private final BitSet received;
+        private final long[] chunkEnds;
+        /**
+         * 非最后一块的分块大小，第一个到达的分块确定，0 表示未确定
+         */
+        private long chunkLength;
+        private boolean completed;
+        private volatile long lastAccessTime;
+
+        /**
+         * 增量 MD5 状态：已计算到的分块序号及文件偏移，hashing 为 true 时有线程在锁外计算
+         */
+        private final MessageDigest digest;
+        private int hashedChunks;
+        private long hashedLength;
+        private boolean hashing;
+
+        ChunkedUpload(Path partFile, long size, int chunks) throws NoSuchAlgorithmException {
+            this.partFile = partFile;
+            this.size = size;
+            this.chunks = chunks;
+            this.received = new BitSet(chunks);
+            this.chunkEnds = new long[chunks];
+            this.digest = MessageDigest.getInstance("MD5");
+            this.lastAccessTime = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * 上传完成的文件
+     */
+    public static class CompletedFile {
+        private final Path path;
+        private final String md5;
+
+        CompletedFile(Path path, String md5) {
+            this.path = path;
+            this.md5 = md5;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getMd5() {
+            return md5;
+        }
+    }
+
+    /**
+     * @param uploadFolderPath 上传文件夹
+     * @param guid             临时文件名
+     * @param ext              文件后缀名
+     * @param size             文件大小
+     * @param maxSize          允许的最大文件大小
+     * @param chunks           分块数
+     * @param chunk            分块序号
+     * @param file             分块本身
+     * @return 所有分块到齐时返回完整文件及其 MD5，否则返回 null（上传已完成时的重复分块同样返回 null）
+     * @throws IOException
+     */
+    public static CompletedFile saveChunk(final String uploadFolderPath,
+                                 final String guid,
+                                 final String ext,
+                                 final long size,
+                                 final long maxSize,
+                                 final int chunks,
+                                 final int chunk,
+                                 final MultipartFile file)
+            throws IOException {
+        if (size <= 0 || size > maxSize) {
+            throw new IOException("文件大小超出限制：" + size + "/" + maxSize);
+        }
+        if (chunk < 0 || chunk >= chunks) {
+            throw new IOException("分块序号错误：" + chunk + "/" + chunks);
+        }
+
+        long now = System.currentTimeMillis();
+        long sweepTime = nextSweepTime.get();
+        if (now >= sweepTime && nextSweepTime.compareAndSet(sweepTime, now + SWEEP_INTERVAL)) {
+            sweep(now, UPLOAD_TTL);
+        }
+
+        ChunkedUpload upload;
+        try {
+            // 已完成的上传不再新建（computeIfAbsent 返回 null 时不建映射）
+            upload = uploads.computeIfAbsent(guid, key -> completedUploads.containsKey(guid)
+                    ? null : open(uploadFolderPath, guid, ext, size, chunks));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (upload == null) {
+            return null;
+        }
+        if (upload.size != size || upload.chunks != chunks) {
+            throw new IOException("分块信息与上传中的文件不一致：" + guid);
+        }
+        upload.lastAccessTime = now;
+        long length = file.getSize();
+        long offset;
+        synchronized (upload) {
+            if (upload.completed) {
+                return null;
+            }
+            offset = offset(upload, chunk, length);
+        }
+        write(upload.partFile, offset, length, file);
+
+        synchronized (upload) {
+            if (upload.completed) {
+                return null;
+            }
+            upload.received.set(chunk);
+            upload.chunkEnds[chunk] = offset + length;
+        }
+        String md5 = hash(upload);
+        if (md5 == null) {
+            return null;
+        }
+        // 先记完成再移除，之间到达的分块不会重建上传
+        completedUploads.put(guid, System.currentTimeMillis());
+        uploads.remove(guid);
+
+        Path target = Paths.get(uploadFolderPath, guid + ext);
+        Files.move(upload.partFile, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return new CompletedFile(target, md5);
+    }
+
+    /**
+     * 丢弃已完成但校验不通过的文件（如 MD5 与客户端不一致），并清除完成记录，同一 guid 可以重新上传
+     */
+    public static void discard(final String guid, final CompletedFile completed) throws IOException {
+        Files.deleteIfExists(completed.getPath());
+        completedUploads.remove(guid);
+    }
+
+    /**
+     * 分块在文件中的偏移：除最后一块外分块大小相同，且 chunkLength * (chunks - 1) + 最后一块大小 == size，
+     * 分块正好铺满整个文件，不会留下空洞。调用时持有上传的锁
+     */
+    private static long offset(final ChunkedUpload upload, final int chunk, final long length) throws IOException {
+        long expectChunkLength = upload.chunkLength;
+        if (expectChunkLength == 0) {
+            if (upload.chunks == 1) {
+                expectChunkLength = upload.size;
+            } else if (chunk < upload.chunks - 1) {
+                expectChunkLength = length;
+            } else {
+                // 最后一块先到达，由剩余大小推出分块大小
+                long rest = upload.size - length;
+                expectChunkLength = rest > 0 && rest % (upload.chunks - 1) == 0 ? rest / (upload.chunks - 1) : -1;
+            }
+        }
+        long lastLength = upload.size - expectChunkLength * (upload.chunks - 1);
+        if (expectChunkLength <= 0 || lastLength <= 0 || lastLength > expectChunkLength) {
+            throw new IOException("分块大小与文件大小不符：" + length + "/" + upload.size + "，分块数：" + upload.chunks);
+        }
+        if (length != (chunk == upload.chunks - 1 ? lastLength : expectChunkLength)) {
+            throw new IOException("分块大小不一致：" + chunk + "/" + upload.chunks + "，大小：" + length);
+        }
+        upload.chunkLength = expectChunkLength;
+        return chunk * expectChunkLength;
+    }
+
+    /**
+     * 清理超过 ttl 没有新分块的上传（删除 .part 文件）及过期的完成记录
+     *
+     * @return 清理的上传数
+     */
+    static int sweep(final long now, final long ttl) {
+        completedUploads.values().removeIf(completeTime -> now - completeTime > ttl);
+
+        int swept = 0;
+        for (Map.Entry<String, ChunkedUpload> entry : uploads.entrySet()) {
+            ChunkedUpload upload = entry.getValue();
+            if (now - upload.lastAccessTime <= ttl) {
+                continue;
+            }
+            synchronized (upload) {
+                // 正在计算摘要或已完成的上传不动
+                if (upload.hashing || upload.completed) {
+                    continue;
+                }
+                upload.completed = true;
+            }
+            if (uploads.remove(entry.getKey(), upload)) {
+                try {
+                    Files.deleteIfExists(upload.partFile);
+                } catch (IOException e) {
+                    // 删除失败只留下孤立的 .part 文件，不影响其他上传
+                }
+                swept++;
+            }
+        }
+        return swept;
+    }
+
+    /**
+     * 摘要向前推进到连续已收到的分块为止；刚写入的数据还在页缓存里，回读代价很小。
+     * 读文件和计算在锁外进行，已有线程在计算时直接返回
+     *
+     * @return 所有分块都已计算时返回 MD5，否则返回 null
+     */
+    private static String hash(final ChunkedUpload upload) throws IOException {
+        ByteBuffer buffer = null;
+        while (true) {
+            int toChunks;
+            long toLength;
+            synchronized (upload) {
+                if (upload.hashing || upload.completed) {
+                    return null;
+                }
+                if (upload.hashedChunks >= upload.chunks) {
+                    upload.completed = true;
+                    return CreateMd5.toHex(upload.digest.digest()).toString();
+                }
+                toChunks = upload.hashedChunks;
+                while (toChunks < upload.chunks && upload.received.get(toChunks)) {
+                    toChunks++;
+                }
+                if (toChunks == upload.hashedChunks) {
+                    return null;
+                }
+                toLength = upload.chunkEnds[toChunks - 1];
+                upload.hashing = true;
+            }
+
+            long hashedLength = upload.hashedLength;
+            try {
+                if (buffer == null) {
+                    buffer = ByteBuffer.allocate(HASH_BUFFER_SIZE);
+                }
+                try (FileChannel channel = FileChannel.open(upload.partFile, StandardOpenOption.READ)) {
+                    while (hashedLength < toLength) {
+                        buffer.clear();
+                        buffer.limit((int) Math.min(buffer.capacity(), toLength - hashedLength));
+                        int read = channel.read(buffer, hashedLength);
+                        if (read < 0) {
+                            throw new IOException("分块数据不完整：" + upload.partFile);
+                        }
+                        buffer.flip();
+                        upload.digest.update(buffer);
+                        hashedLength += read;
+                    }
+                }
+            } finally {
+                synchronized (upload) {
+                    upload.hashedLength = hashedLength;
+                    if (hashedLength == toLength) {
+                        upload.hashedChunks = toChunks;
+                    }
+                    upload.hashing = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 预分配与文件大小相同的 .part 文件
+     */
+    private static ChunkedUpload open(final String uploadFolderPath,
+                                      final String guid,
+                                      final String ext,
+                                      final long size,
+                                      final int chunks) {
+        try {
+            Path folder = Files.createDirectories(Paths.get(uploadFolderPath));
+            Path partFile = folder.resolve(guid + ext + PART_SUFFIX);
+            try (RandomAccessFile raf = new RandomAccessFile(partFile.toFile(), "rw")) {
+                raf.setLength(size);
+            }
+            return new ChunkedUpload(partFile, size, chunks);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * 分块从上传流直接传输到文件对应位置；分块已落盘为临时文件时是 FileChannel 间传输，不经过堆内存
+     */
+    private static void write(final Path partFile,
+                              final long offset,
+                              final long length,
+                              final MultipartFile file)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(partFile, StandardOpenOption.WRITE);
+             InputStream in = file.getInputStream();
+             ReadableByteChannel src = in instanceof FileInputStream
+                     ? ((FileInputStream) in).getChannel() : Channels.newChannel(in)) {
+            long position = offset;
+            long remaining = length;
+            while (remaining > 0) {
+                long transferred = channel.transferFrom(src, position, remaining);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            if (remaining > 0) {
+                throw new IOException("分块数据不完整，缺少 " + remaining + " 字节");
+            }
+        }
+    }
+}
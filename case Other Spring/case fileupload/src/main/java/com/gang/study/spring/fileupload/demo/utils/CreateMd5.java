@@ -9,18 +9,39 @@ import java.security.MessageDigest;
 
 public class CreateMd5 {
 
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    /**
+     * 流式计算文件 MD5（小写十六进制），每次只读 8KB
+     *
+     * @param file 文件
+     * @return MD5
+     * @throws Exception
+     */
     public static StringBuilder createMd5(final MultipartFile file)
             throws Exception {
-        StringBuilder sb = new StringBuilder();
         //生成MD5实例
         MessageDigest md5 = MessageDigest.getInstance("MD5");
-        InputStream inputStream = file.getInputStream();
-        int available = inputStream.available();
-        byte[] bytes = new byte[available];
-        md5.update(bytes);
-        for (byte by : md5.digest()) {
-            //将生成的字节MD5值转换成字符串
-            sb.append(String.format("%02X", by));
+        try (InputStream inputStream = file.getInputStream()) {
+            byte[] buffer = new byte[8192];
+            int len;
+            while ((len = inputStream.read(buffer)) != -1) {
+                md5.update(buffer, 0, len);
+            }
+        }
+        return toHex(md5.digest());
+    }
+
+    /**
+     * 将生成的字节MD5值转换成字符串
+     *
+     * @param digest 摘要
+     * @return 小写十六进制
+     */
+    public static StringBuilder toHex(final byte[] digest) {
+        StringBuilder sb = new StringBuilder(digest.length * 2);
+        for (byte by : digest) {
+            sb.append(HEX[(by >> 4) & 0x0F]).append(HEX[by & 0x0F]);
         }
         return sb;
     }
@@ -8,6 +8,7 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.util.List;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
@@ -27,7 +28,6 @@ public class SaveFile {
                                    final String fileFullName,
                                    final MultipartFile file)
             throws Exception {
-        byte[] data = readInputStream(file.getInputStream());
         //new一个文件对象用来保存图片，默认保存当前工程根目录
         File uploadFile = new File(savePath + fileFullName);
         //判断文件夹是否存在，不存在就创建一个
@@ -45,11 +45,9 @@ public class SaveFile {
             }
         }
 
-        //创建输出流
-        try (FileOutputStream outStream = new FileOutputStream(uploadFile)) {//写入数据
-            outStream.write(data);
-            outStream.flush();
-
+        //上传流直接写入文件，不整体读入内存
+        try (InputStream inStream = file.getInputStream()) {
+            Files.copy(inStream, uploadFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
         } catch (Exception e) {
             e.printStackTrace();
             throw e;
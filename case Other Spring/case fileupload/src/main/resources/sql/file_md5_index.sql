@@ -0,0 +1,3 @@
+-- 秒传按 MD5 查找已上传文件用的索引（对应 model/File 上的 @Index）
+-- spring.jpa.hibernate.ddl-auto 为 none，不会自动建索引，升级时手动执行一次
+CREATE INDEX idx_file_md5 ON file (md5);
@@ -0,0 +1,153 @@
+package com.gang.study.spring.fileupload.demo.utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.UUID;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ChunkStoreTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static byte[] content(int length) {
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) (i * 31 + 7);
+        }
+        return content;
+    }
+
+    private static MockMultipartFile chunk(byte[] content, int chunk) {
+        int from = chunk * CHUNK_SIZE;
+        int to = Math.min(from + CHUNK_SIZE, content.length);
+        return new MockMultipartFile("file", Arrays.copyOfRange(content, from, to));
+    }
+
+    private ChunkStore.CompletedFile save(String guid, byte[] content, int chunks, int chunk) throws IOException {
+        return ChunkStore.saveChunk(folder.getRoot().getPath(), guid, ".bin", content.length, MAX_SIZE,
+                chunks, chunk, chunk(content, chunk));
+    }
+
+    private Path partFile(String guid) {
+        return folder.getRoot().toPath().resolve(guid + ".bin.part");
+    }
+
+    @Test
+    public void outOfOrder() throws Exception {
+        String guid = UUID.randomUUID().toString();
+        byte[] content = content(CHUNK_SIZE * 2 + 100);
+
+        assertNull(save(guid, content, 3, 2));
+        assertNull(save(guid, content, 3, 0));
+        // 重传的分块
+        assertNull(save(guid, content, 3, 0));
+        ChunkStore.CompletedFile completed = save(guid, content, 3, 1);
+
+        assertNotNull(completed);
+        assertArrayEquals(content, Files.readAllBytes(completed.getPath()));
+        assertEquals(CreateMd5.toHex(MessageDigest.getInstance("MD5").digest(content)).toString(), completed.getMd5());
+        assertFalse(Files.exists(partFile(guid)));
+    }
+
+    @Test
+    public void chunkAfterCompleted() throws Exception {
+        String guid = UUID.randomUUID().toString();
+        byte[] content = content(CHUNK_SIZE + 10);
+
+        assertNull(save(guid, content, 2, 0));
+        assertNotNull(save(guid, content, 2, 1));
+
+        // 完成后重复到达的分块被丢弃，不重建 .part 文件
+        assertNull(save(guid, content, 2, 1));
+        assertFalse(Files.exists(partFile(guid)));
+    }
+
+    @Test
+    public void sizeOverMax() throws Exception {
+        String guid = UUID.randomUUID().toString();
+        try {
+            ChunkStore.saveChunk(folder.getRoot().getPath(), guid, ".bin", MAX_SIZE + 1, MAX_SIZE,
+                    2, 0, chunk(content(CHUNK_SIZE), 0));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+        assertFalse(Files.exists(partFile(guid)));
+    }
+
+    @Test
+    public void chunkNotTileFile() throws Exception {
+        String guid = UUID.randomUUID().toString();
+        byte[] content = content(CHUNK_SIZE * 2 + 100);
+
+        // 单块上传短于文件大小
+        try {
+            ChunkStore.saveChunk(folder.getRoot().getPath(), guid, ".bin", content.length, MAX_SIZE,
+                    1, 0, chunk(content, 0));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        // 非最后一块大小不一致
+        guid = UUID.randomUUID().toString();
+        assertNull(save(guid, content, 3, 0));
+        try {
+            ChunkStore.saveChunk(folder.getRoot().getPath(), guid, ".bin", content.length, MAX_SIZE,
+                    3, 1, new MockMultipartFile("file", Arrays.copyOfRange(content, CHUNK_SIZE, CHUNK_SIZE * 2 - 1)));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+
+        // 分块铺不满文件
+        guid = UUID.randomUUID().toString();
+        try {
+            ChunkStore.saveChunk(folder.getRoot().getPath(), guid, ".bin", content.length + CHUNK_SIZE, MAX_SIZE,
+                    3, 0, chunk(content, 0));
+            fail();
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void sweepAbandoned() throws Exception {
+        String guid = UUID.randomUUID().toString();
+        byte[] content = content(CHUNK_SIZE * 2);
+
+        assertNull(save(guid, content, 2, 0));
+        assertTrue(Files.exists(partFile(guid)));
+
+        // 未过期不清理
+        assertEquals(0, ChunkStore.sweep(System.currentTimeMillis(), 60_000));
+        assertTrue(Files.exists(partFile(guid)));
+
+        assertEquals(1, ChunkStore.sweep(System.currentTimeMillis() + 120_000, 60_000));
+        assertFalse(Files.exists(partFile(guid)));
+
+        // 放弃后重新上传从头开始
+        assertNull(save(guid, content, 2, 1));
+        assertNotNull(save(guid, content, 2, 0));
+    }
+}